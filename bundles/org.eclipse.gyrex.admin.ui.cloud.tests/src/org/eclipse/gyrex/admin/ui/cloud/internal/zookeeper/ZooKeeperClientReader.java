@@ -0,0 +1,47 @@
+/*******************************************************************************
+ * Copyright (c) 2013 AGETO Service GmbH and others.
+ * All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Contributors:
+ *     Gunnar Wagenknecht - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.gyrex.admin.ui.cloud.internal.zookeeper;
+
+import java.util.Collection;
+
+import org.eclipse.core.runtime.IPath;
+
+import org.apache.zookeeper.ZooKeeper;
+import org.apache.zookeeper.data.Stat;
+
+/**
+ * Reads using a plain ZooKeeper client.
+ */
+public class ZooKeeperClientReader implements ZooKeeperReader {
+
+	private final ZooKeeper zooKeeper;
+
+	/**
+	 * Creates a new instance.
+	 *
+	 * @param zooKeeper
+	 *            the connected client
+	 */
+	public ZooKeeperClientReader(final ZooKeeper zooKeeper) {
+		this.zooKeeper = zooKeeper;
+	}
+
+	@Override
+	public Collection<String> readChildrenNames(final IPath path, final Stat stat) throws Exception {
+		return zooKeeper.getChildren(path.toString(), false, stat);
+	}
+
+	@Override
+	public byte[] readRecord(final IPath path, final Stat stat) throws Exception {
+		return zooKeeper.getData(path.toString(), false, stat);
+	}
+}
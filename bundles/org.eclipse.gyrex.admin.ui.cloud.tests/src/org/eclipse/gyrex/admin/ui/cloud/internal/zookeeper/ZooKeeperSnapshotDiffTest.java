@@ -0,0 +1,216 @@
+/*******************************************************************************
+ * Copyright (c) 2013 AGETO Service GmbH and others.
+ * All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Contributors:
+ *     Gunnar Wagenknecht - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.gyrex.admin.ui.cloud.internal.zookeeper;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.core.runtime.IPath;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.core.runtime.Path;
+
+import org.apache.zookeeper.CreateMode;
+import org.apache.zookeeper.WatchedEvent;
+import org.apache.zookeeper.Watcher;
+import org.apache.zookeeper.ZooDefs.Ids;
+import org.apache.zookeeper.ZooKeeper;
+import org.apache.zookeeper.data.Stat;
+import org.apache.zookeeper.server.ServerCnxnFactory;
+import org.apache.zookeeper.server.ZooKeeperServer;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * Compares snapshots with the live tree of an in-process ZooKeeper server.
+ */
+public class ZooKeeperSnapshotDiffTest {
+
+	/**
+	 * Records the differences reported.
+	 */
+	static final class RecordingListener implements ZooKeeperSnapshotDiff.Listener {
+
+		final List<String> added = new ArrayList<String>();
+		final List<String> changed = new ArrayList<String>();
+		final List<String> removed = new ArrayList<String>();
+
+		@Override
+		public void added(final ZooKeeperSnapshotRecord newRecord) throws IOException {
+			added.add(newRecord.getPath().toString());
+		}
+
+		@Override
+		public void changed(final ZooKeeperSnapshotRecord oldRecord, final ZooKeeperSnapshotRecord newRecord) throws IOException {
+			assertEquals(oldRecord.getPath(), newRecord.getPath());
+			changed.add(newRecord.getPath().toString());
+		}
+
+		@Override
+		public void removed(final ZooKeeperSnapshotRecord oldRecord) throws IOException {
+			removed.add(oldRecord.getPath().toString());
+		}
+	}
+
+	private static File dataDir;
+	private static ZooKeeperServer server;
+	private static ServerCnxnFactory serverFactory;
+	private static ZooKeeper zooKeeper;
+
+	private static void create(final IPath path, final String data) throws Exception {
+		zooKeeper.create(path.toString(), data.getBytes(StandardCharsets.UTF_8), Ids.OPEN_ACL_UNSAFE, CreateMode.PERSISTENT);
+	}
+
+	private static void delete(final File file) {
+		final File[] children = file.listFiles();
+		if (null != children) {
+			for (final File child : children) {
+				delete(child);
+			}
+		}
+		file.delete();
+	}
+
+	@BeforeClass
+	public static void startServer() throws Exception {
+		dataDir = File.createTempFile("zksnapshotdiff", "");
+		dataDir.delete();
+		assertTrue(dataDir.mkdirs());
+
+		server = new ZooKeeperServer(dataDir, dataDir, 2000);
+		serverFactory = ServerCnxnFactory.createFactory(new InetSocketAddress("127.0.0.1", 0), 10);
+		serverFactory.startup(server);
+
+		final CountDownLatch connected = new CountDownLatch(1);
+		zooKeeper = new ZooKeeper("127.0.0.1:" + serverFactory.getLocalPort(), 10000, new Watcher() {
+			@Override
+			public void process(final WatchedEvent event) {
+				if (event.getState() == Event.KeeperState.SyncConnected) {
+					connected.countDown();
+				}
+			}
+		});
+		assertTrue("not connected", connected.await(10, TimeUnit.SECONDS));
+	}
+
+	@AfterClass
+	public static void stopServer() throws Exception {
+		if (null != zooKeeper) {
+			zooKeeper.close();
+		}
+		if (null != serverFactory) {
+			serverFactory.shutdown();
+		}
+		if (null != server) {
+			server.shutdown();
+		}
+		if (null != dataDir) {
+			delete(dataDir);
+		}
+	}
+
+	private ZooKeeperSnapshotDiff.Result diffWithLiveTree(final File snapshot, final RecordingListener listener) throws Exception {
+		final ZooKeeperSnapshotSource oldSource = ZooKeeperSnapshotFile.open(snapshot);
+		try {
+			final ZooKeeperTreeWalker newSource = new ZooKeeperTreeWalker(new ZooKeeperClientReader(zooKeeper), oldSource.getRootPath(), 2);
+			try {
+				return ZooKeeperSnapshotDiff.diff(oldSource, newSource, listener, new NullProgressMonitor());
+			} finally {
+				newSource.close();
+			}
+		} finally {
+			oldSource.close();
+		}
+	}
+
+	private File snapshot(final IPath rootPath) throws Exception {
+		final File file = new File(dataDir, rootPath.lastSegment() + ZooKeeperSnapshotFile.FILE_EXTENSION);
+		final ZooKeeperTreeWalker walker = new ZooKeeperTreeWalker(new ZooKeeperClientReader(zooKeeper), rootPath, 2);
+		try {
+			ZooKeeperSnapshotFile.write(walker, file, new NullProgressMonitor());
+		} finally {
+			walker.close();
+		}
+		return file;
+	}
+
+	@Test
+	public void testCompareRejectsDifferentRoots() throws Exception {
+		create(new Path("/left"), "left");
+		create(new Path("/right"), "right");
+		final File left = snapshot(new Path("/left"));
+		final File right = snapshot(new Path("/right"));
+		final File report = new File(dataDir, "left-right.txt");
+
+		final IStatus status = new CompareSnapshotsJob(left, right, report, 2).run(new NullProgressMonitor());
+		assertEquals(status.getMessage(), IStatus.ERROR, status.getSeverity());
+		assertFalse(report.exists());
+	}
+
+	@Test
+	public void testDifferences() throws Exception {
+		final IPath root = new Path("/changes");
+		create(root, "root");
+		create(root.append("a"), "a");
+		create(root.append("b"), "b");
+		create(root.append("c"), "c");
+		final File snapshot = snapshot(root);
+
+		zooKeeper.setData(root.append("a").toString(), "a2".getBytes(StandardCharsets.UTF_8), -1);
+		create(root.append("a").append("x"), "ax");
+		zooKeeper.delete(root.append("b").toString(), -1);
+		create(root.append("d"), "d");
+		// touching without changing the data is not a difference
+		final Stat stat = zooKeeper.setData(root.append("c").toString(), "c".getBytes(StandardCharsets.UTF_8), -1);
+		assertEquals(1, stat.getVersion());
+
+		final RecordingListener listener = new RecordingListener();
+		final ZooKeeperSnapshotDiff.Result result = diffWithLiveTree(snapshot, listener);
+		assertEquals("[/changes/a/x, /changes/d]", listener.added.toString());
+		assertEquals("[/changes/b]", listener.removed.toString());
+		assertEquals("[/changes/a]", listener.changed.toString());
+		assertEquals(2, result.getAdded());
+		assertEquals(1, result.getRemoved());
+		assertEquals(1, result.getChanged());
+		assertEquals(2, result.getUnchanged());
+		assertTrue(result.hasDifferences());
+	}
+
+	@Test
+	public void testNoDifferences() throws Exception {
+		final IPath root = new Path("/same");
+		create(root, "root");
+		create(root.append("a"), "a");
+		create(root.append("a").append("x"), "ax");
+		final File snapshot = snapshot(root);
+
+		final RecordingListener listener = new RecordingListener();
+		final ZooKeeperSnapshotDiff.Result result = diffWithLiveTree(snapshot, listener);
+		assertTrue(listener.added.isEmpty());
+		assertTrue(listener.removed.isEmpty());
+		assertTrue(listener.changed.isEmpty());
+		assertEquals(3, result.getUnchanged());
+		assertFalse(result.hasDifferences());
+	}
+}
@@ -0,0 +1,157 @@
+/*******************************************************************************
+ * Copyright (c) 2013 AGETO Service GmbH and others.
+ * All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Contributors:
+ *     Gunnar Wagenknecht - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.gyrex.admin.ui.cloud.internal.zookeeper;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+
+import org.eclipse.core.runtime.IPath;
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.core.runtime.Path;
+
+import org.apache.zookeeper.data.Stat;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Writes and reads snapshot files.
+ */
+public class ZooKeeperSnapshotFileTest {
+
+	/**
+	 * Serves a fixed list of records.
+	 */
+	static final class ListSource implements ZooKeeperSnapshotSource {
+
+		private final IPath rootPath;
+		private final Iterator<ZooKeeperSnapshotRecord> records;
+
+		ListSource(final IPath rootPath, final ZooKeeperSnapshotRecord... records) {
+			this.rootPath = rootPath;
+			this.records = Arrays.asList(records).iterator();
+		}
+
+		@Override
+		public void close() throws IOException {
+			// empty
+		}
+
+		@Override
+		public IPath getRootPath() {
+			return rootPath;
+		}
+
+		@Override
+		public ZooKeeperSnapshotRecord next() throws IOException {
+			return records.hasNext() ? records.next() : null;
+		}
+	}
+
+	private static final IPath ROOT = new Path("/snapshot");
+
+	private File file;
+
+	private void assertStatEquals(final Stat expected, final Stat actual) {
+		assertEquals(expected.getCzxid(), actual.getCzxid());
+		assertEquals(expected.getMzxid(), actual.getMzxid());
+		assertEquals(expected.getCtime(), actual.getCtime());
+		assertEquals(expected.getMtime(), actual.getMtime());
+		assertEquals(expected.getVersion(), actual.getVersion());
+		assertEquals(expected.getCversion(), actual.getCversion());
+		assertEquals(expected.getAversion(), actual.getAversion());
+		assertEquals(expected.getEphemeralOwner(), actual.getEphemeralOwner());
+		assertEquals(expected.getDataLength(), actual.getDataLength());
+		assertEquals(expected.getNumChildren(), actual.getNumChildren());
+		assertEquals(expected.getPzxid(), actual.getPzxid());
+	}
+
+	@Before
+	public void createFile() throws Exception {
+		file = File.createTempFile("zksnapshot", ZooKeeperSnapshotFile.FILE_EXTENSION);
+	}
+
+	@After
+	public void deleteFile() throws Exception {
+		if (null != file) {
+			file.delete();
+		}
+	}
+
+	private List<ZooKeeperSnapshotRecord> read(final IPath expectedRootPath) throws Exception {
+		final List<ZooKeeperSnapshotRecord> records = new ArrayList<ZooKeeperSnapshotRecord>();
+		final ZooKeeperSnapshotSource source = ZooKeeperSnapshotFile.open(file);
+		try {
+			assertEquals(expectedRootPath, source.getRootPath());
+			ZooKeeperSnapshotRecord record;
+			while (null != (record = source.next())) {
+				records.add(record);
+			}
+			// reading past the end keeps returning null
+			assertNull(source.next());
+		} finally {
+			source.close();
+		}
+		return records;
+	}
+
+	@Test
+	public void testEmptyAndNullData() throws Exception {
+		final ZooKeeperSnapshotRecord empty = new ZooKeeperSnapshotRecord(ROOT.append("empty"), new Stat(), new byte[0]);
+		final ZooKeeperSnapshotRecord none = new ZooKeeperSnapshotRecord(ROOT.append("none"), new Stat(), null);
+		assertEquals(2, ZooKeeperSnapshotFile.write(new ListSource(ROOT, empty, none), file, new NullProgressMonitor()));
+
+		final List<ZooKeeperSnapshotRecord> records = read(ROOT);
+		assertEquals(2, records.size());
+		assertArrayEquals(new byte[0], records.get(0).getData());
+		assertNull(records.get(1).getData());
+	}
+
+	@Test
+	public void testEmptySource() throws Exception {
+		assertEquals(0, ZooKeeperSnapshotFile.write(new ListSource(ROOT), file, new NullProgressMonitor()));
+		assertEquals(0, read(ROOT).size());
+	}
+
+	@Test
+	public void testRoundTrip() throws Exception {
+		final Stat rootStat = new Stat(1L, 2L, 3L, 4L, 5, 6, 7, 0L, 4, 1, 8L);
+		final Stat childStat = new Stat(9L, 10L, 11L, 12L, 13, 14, 15, 0x1234L, 5, 0, 16L);
+		final ZooKeeperSnapshotRecord root = new ZooKeeperSnapshotRecord(ROOT, rootStat, "root".getBytes(StandardCharsets.UTF_8));
+		final ZooKeeperSnapshotRecord child = new ZooKeeperSnapshotRecord(ROOT.append("child"), childStat, "child".getBytes(StandardCharsets.UTF_8));
+		assertEquals(2, ZooKeeperSnapshotFile.write(new ListSource(ROOT, root, child), file, new NullProgressMonitor()));
+
+		final List<ZooKeeperSnapshotRecord> records = read(ROOT);
+		assertEquals(2, records.size());
+		assertEquals(ROOT, records.get(0).getPath());
+		assertStatEquals(rootStat, records.get(0).getStat());
+		assertArrayEquals("root".getBytes(StandardCharsets.UTF_8), records.get(0).getData());
+		assertEquals(ROOT.append("child"), records.get(1).getPath());
+		assertStatEquals(childStat, records.get(1).getStat());
+		assertArrayEquals("child".getBytes(StandardCharsets.UTF_8), records.get(1).getData());
+	}
+
+	@Test(expected = IOException.class)
+	public void testNotASnapshotFile() throws Exception {
+		ZooKeeperSnapshotFile.open(file).close();
+	}
+}
@@ -0,0 +1,160 @@
+/*******************************************************************************
+ * Copyright (c) 2013 AGETO Service GmbH and others.
+ * All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Contributors:
+ *     Gunnar Wagenknecht - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.gyrex.admin.ui.cloud.internal.zookeeper;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.core.runtime.IPath;
+import org.eclipse.core.runtime.Path;
+
+import org.apache.zookeeper.CreateMode;
+import org.apache.zookeeper.WatchedEvent;
+import org.apache.zookeeper.Watcher;
+import org.apache.zookeeper.ZooDefs.Ids;
+import org.apache.zookeeper.ZooKeeper;
+import org.apache.zookeeper.server.ServerCnxnFactory;
+import org.apache.zookeeper.server.ZooKeeperServer;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * Walks a tree in an in-process ZooKeeper server.
+ */
+public class ZooKeeperTreeWalkerTest {
+
+	private static final IPath ROOT = new Path("/walker");
+
+	private static File dataDir;
+	private static ZooKeeperServer server;
+	private static ServerCnxnFactory serverFactory;
+	private static ZooKeeper zooKeeper;
+
+	private static void create(final IPath path, final String data) throws Exception {
+		zooKeeper.create(path.toString(), data.getBytes(StandardCharsets.UTF_8), Ids.OPEN_ACL_UNSAFE, CreateMode.PERSISTENT);
+	}
+
+	private static void delete(final File file) {
+		final File[] children = file.listFiles();
+		if (null != children) {
+			for (final File child : children) {
+				delete(child);
+			}
+		}
+		file.delete();
+	}
+
+	@BeforeClass
+	public static void startServer() throws Exception {
+		dataDir = File.createTempFile("zktreewalker", "");
+		dataDir.delete();
+		assertTrue(dataDir.mkdirs());
+
+		server = new ZooKeeperServer(dataDir, dataDir, 2000);
+		serverFactory = ServerCnxnFactory.createFactory(new InetSocketAddress("127.0.0.1", 0), 10);
+		serverFactory.startup(server);
+
+		final CountDownLatch connected = new CountDownLatch(1);
+		zooKeeper = new ZooKeeper("127.0.0.1:" + serverFactory.getLocalPort(), 10000, new Watcher() {
+			@Override
+			public void process(final WatchedEvent event) {
+				if (event.getState() == Event.KeeperState.SyncConnected) {
+					connected.countDown();
+				}
+			}
+		});
+		assertTrue("not connected", connected.await(10, TimeUnit.SECONDS));
+
+		// children are created out of order on purpose
+		create(ROOT, "root");
+		create(ROOT.append("c"), "c");
+		create(ROOT.append("a"), "a");
+		create(ROOT.append("a").append("y"), "ay");
+		create(ROOT.append("a").append("x"), "ax");
+		create(ROOT.append("b"), "b");
+	}
+
+	@AfterClass
+	public static void stopServer() throws Exception {
+		if (null != zooKeeper) {
+			zooKeeper.close();
+		}
+		if (null != serverFactory) {
+			serverFactory.shutdown();
+		}
+		if (null != server) {
+			server.shutdown();
+		}
+		if (null != dataDir) {
+			delete(dataDir);
+		}
+	}
+
+	private List<ZooKeeperSnapshotRecord> walk(final IPath rootPath, final boolean includeData) throws Exception {
+		final List<ZooKeeperSnapshotRecord> records = new ArrayList<ZooKeeperSnapshotRecord>();
+		final ZooKeeperTreeWalker walker = new ZooKeeperTreeWalker(new ZooKeeperClientReader(zooKeeper), rootPath, 2, includeData, 0);
+		try {
+			ZooKeeperSnapshotRecord record;
+			while (null != (record = walker.next())) {
+				records.add(record);
+			}
+			assertEquals(records.size(), walker.getNodesRead());
+		} finally {
+			walker.close();
+		}
+		return records;
+	}
+
+	@Test
+	public void testMissingRoot() throws Exception {
+		assertTrue(walk(new Path("/does-not-exist"), true).isEmpty());
+	}
+
+	@Test
+	public void testWalkDepthFirstSorted() throws Exception {
+		final List<ZooKeeperSnapshotRecord> records = walk(ROOT, true);
+
+		final List<String> paths = new ArrayList<String>();
+		for (final ZooKeeperSnapshotRecord record : records) {
+			paths.add(record.getPath().toString());
+		}
+		assertEquals("[/walker, /walker/a, /walker/a/x, /walker/a/y, /walker/b, /walker/c]", paths.toString());
+
+		assertArrayEquals("root".getBytes(StandardCharsets.UTF_8), records.get(0).getData());
+		assertArrayEquals("ax".getBytes(StandardCharsets.UTF_8), records.get(2).getData());
+		assertEquals(2, records.get(1).getStat().getNumChildren());
+	}
+
+	@Test
+	public void testWalkWithoutData() throws Exception {
+		final List<ZooKeeperSnapshotRecord> records = walk(ROOT.append("a"), false);
+
+		assertEquals(3, records.size());
+		assertEquals("/walker/a/x", records.get(1).getPath().toString());
+		for (final ZooKeeperSnapshotRecord record : records) {
+			assertNull(record.getData());
+			assertTrue(record.getStat().getCzxid() > 0);
+		}
+	}
+}
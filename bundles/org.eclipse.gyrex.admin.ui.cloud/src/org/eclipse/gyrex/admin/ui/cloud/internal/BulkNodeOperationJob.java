@@ -0,0 +1,218 @@
+/*******************************************************************************
+ * Copyright (c) 2013 AGETO Service GmbH and others.
+ * All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Contributors:
+ *     Gunnar Wagenknecht - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.gyrex.admin.ui.cloud.internal;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.eclipse.gyrex.cloud.admin.ICloudManager;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.MultiStatus;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.Job;
+
+import org.apache.commons.lang.exception.ExceptionUtils;
+
+/**
+ * Approves or retires a set of nodes.
+ * <p>
+ * The calls to the {@link ICloudManager} are issued concurrently on a bounded
+ * pool. The job result is a {@link MultiStatus} with one child status per
+ * node.
+ * </p>
+ */
+public class BulkNodeOperationJob extends Job {
+
+	/**
+	 * Receives progress.
+	 * <p>
+	 * Progress is delivered from the job thread.
+	 * </p>
+	 */
+	public interface Listener {
+
+		void nodeDone(String nodeId, IStatus status, int done, int total);
+	}
+
+	/**
+	 * An operation on a single node.
+	 */
+	public static enum Operation {
+		APPROVE("Approving", "approved") {
+			@Override
+			IStatus execute(final ICloudManager cloudManager, final String nodeId) {
+				return cloudManager.approveNode(nodeId);
+			}
+		},
+		RETIRE("Retiring", "retired") {
+			@Override
+			IStatus execute(final ICloudManager cloudManager, final String nodeId) {
+				return cloudManager.retireNode(nodeId);
+			}
+		};
+
+		private final String progressVerb;
+		private final String pastParticiple;
+
+		private Operation(final String progressVerb, final String pastParticiple) {
+			this.progressVerb = progressVerb;
+			this.pastParticiple = pastParticiple;
+		}
+
+		abstract IStatus execute(ICloudManager cloudManager, String nodeId);
+
+		public String getProgressVerb() {
+			return progressVerb;
+		}
+	}
+
+	private static final class NodeResult {
+
+		private final String nodeId;
+		private final IStatus status;
+
+		NodeResult(final String nodeId, final IStatus status) {
+			this.nodeId = nodeId;
+			this.status = status;
+		}
+	}
+
+	private static final AtomicInteger instanceCount = new AtomicInteger();
+
+	private final ICloudManager cloudManager;
+	private final Operation operation;
+	private final List<String> nodeIds;
+	private final int parallelism;
+	private final Listener listener;
+
+	/**
+	 * Creates a new instance.
+	 *
+	 * @param cloudManager
+	 *            the cloud manager
+	 * @param operation
+	 *            the operation to execute
+	 * @param nodeIds
+	 *            the nodes to execute the operation for
+	 * @param parallelism
+	 *            the maximum number of concurrent calls
+	 * @param listener
+	 *            the listener to receive progress (maybe <code>null</code>)
+	 */
+	public BulkNodeOperationJob(final ICloudManager cloudManager, final Operation operation, final List<String> nodeIds, final int parallelism, final Listener listener) {
+		super(String.format("%s %d nodes", operation.getProgressVerb(), nodeIds.size()));
+		this.cloudManager = cloudManager;
+		this.operation = operation;
+		this.nodeIds = new ArrayList<String>(nodeIds);
+		this.parallelism = parallelism;
+		this.listener = listener;
+	}
+
+	private IStatus execute(final String nodeId) {
+		try {
+			final IStatus status = operation.execute(cloudManager, nodeId);
+			if (null != status)
+				return status;
+			return Status.OK_STATUS;
+		} catch (final Exception e) {
+			return new Status(IStatus.ERROR, CloudUiActivator.SYMBOLIC_NAME, String.format("Node %s could not be %s. %s", nodeId, operation.pastParticiple, ExceptionUtils.getRootCauseMessage(e)), e);
+		}
+	}
+
+	@Override
+	protected IStatus run(final IProgressMonitor monitor) {
+		final int total = nodeIds.size();
+		monitor.beginTask(getName(), total);
+
+		final String threadNamePrefix = String.format("Bulk Node Operation %d-", instanceCount.incrementAndGet());
+		final ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, Math.min(parallelism, total)), new ThreadFactory() {
+			private final AtomicInteger threadCount = new AtomicInteger();
+
+			@Override
+			public Thread newThread(final Runnable r) {
+				final Thread t = new Thread(r, threadNamePrefix + threadCount.incrementAndGet());
+				t.setDaemon(true);
+				return t;
+			}
+		});
+		try {
+			final CompletionService<NodeResult> completionService = new ExecutorCompletionService<NodeResult>(executor);
+			final List<Future<NodeResult>> futures = new ArrayList<Future<NodeResult>>(total);
+			for (final String nodeId : nodeIds) {
+				futures.add(completionService.submit(new Callable<NodeResult>() {
+					@Override
+					public NodeResult call() throws Exception {
+						return new NodeResult(nodeId, execute(nodeId));
+					}
+				}));
+			}
+
+			final List<IStatus> results = new ArrayList<IStatus>(total);
+			int failed = 0;
+			while (results.size() < total) {
+				if (monitor.isCanceled()) {
+					for (final Future<NodeResult> future : futures) {
+						future.cancel(false);
+					}
+					return Status.CANCEL_STATUS;
+				}
+
+				final Future<NodeResult> future = completionService.poll(250, TimeUnit.MILLISECONDS);
+				if (null == future) {
+					continue;
+				}
+
+				final NodeResult result = future.get();
+				final IStatus status = result.status;
+				results.add(new Status(status.getSeverity(), CloudUiActivator.SYMBOLIC_NAME, status.getCode(), String.format("%s: %s", result.nodeId, status.getMessage()), status.getException()));
+				if (!status.isOK()) {
+					failed++;
+				}
+
+				monitor.worked(1);
+				monitor.subTask(String.format("%d of %d nodes done", results.size(), total));
+				if (null != listener) {
+					listener.nodeDone(result.nodeId, status, results.size(), total);
+				}
+			}
+
+			final String message;
+			if (failed > 0) {
+				message = String.format("%d of %d nodes could not be %s.", failed, total, operation.pastParticiple);
+			} else {
+				message = String.format("%d nodes %s.", total, operation.pastParticiple);
+			}
+			return new MultiStatus(CloudUiActivator.SYMBOLIC_NAME, 0, results.toArray(new IStatus[results.size()]), message, null);
+		} catch (final InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return Status.CANCEL_STATUS;
+		} catch (final ExecutionException e) {
+			// execute() catches everything, this is unexpected
+			return new Status(IStatus.ERROR, CloudUiActivator.SYMBOLIC_NAME, String.format("Error %s nodes. %s", operation.getProgressVerb().toLowerCase(), ExceptionUtils.getRootCauseMessage(e)), e);
+		} finally {
+			executor.shutdownNow();
+			monitor.done();
+		}
+	}
+}
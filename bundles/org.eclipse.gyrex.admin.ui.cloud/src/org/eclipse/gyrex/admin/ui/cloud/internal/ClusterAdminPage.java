@@ -11,8 +11,11 @@
  */
 package org.eclipse.gyrex.admin.ui.cloud.internal;
 
+import java.util.ArrayList;
 import java.util.Iterator;
+import java.util.List;
 
+import org.eclipse.gyrex.admin.ui.cloud.internal.BulkNodeOperationJob.Operation;
 import org.eclipse.gyrex.admin.ui.cloud.internal.NodeBrowserContentProvider.NodeItem;
 import org.eclipse.gyrex.admin.ui.internal.helper.SwtUtil;
 import org.eclipse.gyrex.admin.ui.internal.widgets.NonBlockingStatusDialog;
@@ -27,19 +30,24 @@ import org.eclipse.gyrex.cloud.environment.INodeEnvironment;
 import org.eclipse.gyrex.cloud.internal.zk.ZooKeeperGate;
 
 import org.eclipse.core.runtime.IStatus;
-import org.eclipse.core.runtime.MultiStatus;
+import org.eclipse.core.runtime.jobs.IJobChangeEvent;
+import org.eclipse.core.runtime.jobs.JobChangeAdapter;
 import org.eclipse.jface.util.Policy;
 import org.eclipse.jface.viewers.IStructuredSelection;
 import org.eclipse.jface.viewers.ITreeContentProvider;
 import org.eclipse.jface.window.Window;
+import org.eclipse.rap.rwt.service.ServerPushSession;
 import org.eclipse.rap.rwt.widgets.DialogCallback;
 import org.eclipse.swt.SWT;
 import org.eclipse.swt.events.SelectionAdapter;
 import org.eclipse.swt.events.SelectionEvent;
+import org.eclipse.swt.layout.GridData;
 import org.eclipse.swt.layout.GridLayout;
 import org.eclipse.swt.widgets.Button;
 import org.eclipse.swt.widgets.Composite;
 import org.eclipse.swt.widgets.Control;
+import org.eclipse.swt.widgets.Display;
+import org.eclipse.swt.widgets.Label;
 import org.eclipse.swt.widgets.Text;
 
 import org.apache.commons.lang.StringEscapeUtils;
@@ -58,12 +66,18 @@ public class ClusterAdminPage extends ZooKeeperBasedAdminPage {
 	private Button retireButton;
 	private Button editButton;
 	private Button manageButton;
+	private Label progressLabel;
+
+	private BulkNodeOperationJob bulkOperationJob;
 
 	public static final int ID = 0;
 	public static final int LOCATION = 1;
 	public static final int TAGS = 2;
 	public static final int STATUS = 3;
 
+	/** maximum number of concurrent calls for bulk approve/retire */
+	static final int BULK_OPERATION_PARALLELISM = 8;
+
 	/**
 	 * Creates a new instance.
 	 */
@@ -74,23 +88,17 @@ public class ClusterAdminPage extends ZooKeeperBasedAdminPage {
 	}
 
 	void approveSelectedNodes() {
-		final ICloudManager cloudManager = getCloudManager();
-		final MultiStatus result = new MultiStatus(CloudUiActivator.SYMBOLIC_NAME, 0, "Some nodes could not be approved.", null);
+		final List<String> nodeIds = new ArrayList<String>();
 		for (final Iterator stream = ((IStructuredSelection) getTreeViewer().getSelection()).iterator(); stream.hasNext();) {
 			final Object object = stream.next();
 			if (object instanceof NodeItem) {
 				final NodeItem nodeItem = (NodeItem) object;
 				if (!nodeItem.isApproved()) {
-					final IStatus status = cloudManager.approveNode(nodeItem.getDescriptor().getId());
-					if (!status.isOK()) {
-						result.add(status);
-					}
+					nodeIds.add(nodeItem.getDescriptor().getId());
 				}
 			}
 		}
-		if (!result.isOK()) {
-			Policy.getStatusHandler().show(result, "Error");
-		}
+		runBulkOperation(Operation.APPROVE, nodeIds);
 	}
 
 	@Override
@@ -140,6 +148,9 @@ public class ClusterAdminPage extends ZooKeeperBasedAdminPage {
 				openSelectedElement();
 			}
 		});
+
+		progressLabel = new Label(parent, SWT.WRAP);
+		progressLabel.setLayoutData(new GridData(SWT.FILL, SWT.CENTER, true, false));
 	}
 
 	private Control createConnectGroup(final Composite parent) {
@@ -354,23 +365,68 @@ public class ClusterAdminPage extends ZooKeeperBasedAdminPage {
 	}
 
 	void retireSelectedNodes() {
-		final ICloudManager cloudManager = getCloudManager();
-		final MultiStatus result = new MultiStatus(CloudUiActivator.SYMBOLIC_NAME, 0, "Some nodes could not be retired.", null);
+		final List<String> nodeIds = new ArrayList<String>();
 		for (final Iterator stream = ((IStructuredSelection) getTreeViewer().getSelection()).iterator(); stream.hasNext();) {
 			final Object object = stream.next();
 			if (object instanceof NodeItem) {
 				final NodeItem nodeItem = (NodeItem) object;
 				if (nodeItem.isApproved()) {
-					final IStatus status = cloudManager.retireNode(nodeItem.getDescriptor().getId());
-					if (!status.isOK()) {
-						result.add(status);
-					}
+					nodeIds.add(nodeItem.getDescriptor().getId());
 				}
 			}
 		}
-		if (!result.isOK()) {
-			Policy.getStatusHandler().show(result, "Error");
-		}
+		runBulkOperation(Operation.RETIRE, nodeIds);
+	}
+
+	void runBulkOperation(final Operation operation, final List<String> nodeIds) {
+		if (nodeIds.isEmpty() || (null != bulkOperationJob))
+			return;
+
+		final Display display = getTreeViewer().getControl().getDisplay();
+		final ServerPushSession pushSession = new ServerPushSession();
+		final BulkNodeOperationJob job = new BulkNodeOperationJob(getCloudManager(), operation, nodeIds, BULK_OPERATION_PARALLELISM, new BulkNodeOperationJob.Listener() {
+			@Override
+			public void nodeDone(final String nodeId, final IStatus status, final int done, final int total) {
+				if (display.isDisposed())
+					return;
+				display.asyncExec(new Runnable() {
+					@Override
+					public void run() {
+						if (!progressLabel.isDisposed()) {
+							progressLabel.setText(String.format("%s nodes... %d of %d done", operation.getProgressVerb(), done, total));
+						}
+					}
+				});
+			}
+		});
+		job.addJobChangeListener(new JobChangeAdapter() {
+			@Override
+			public void done(final IJobChangeEvent event) {
+				final IStatus result = event.getResult();
+				if (display.isDisposed())
+					return;
+				display.asyncExec(new Runnable() {
+					@Override
+					public void run() {
+						pushSession.stop();
+						bulkOperationJob = null;
+						if (progressLabel.isDisposed())
+							return;
+						progressLabel.setText("");
+						updateButtons();
+						if (!result.isOK() && (result.getSeverity() != IStatus.CANCEL)) {
+							Policy.getStatusHandler().show(result, "Error");
+						}
+					}
+				});
+			}
+		});
+
+		bulkOperationJob = job;
+		progressLabel.setText(String.format("%s %d nodes...", operation.getProgressVerb(), nodeIds.size()));
+		updateButtons();
+		pushSession.start();
+		job.schedule();
 	}
 
 	void showConnectDialog() {
@@ -414,8 +470,9 @@ public class ClusterAdminPage extends ZooKeeperBasedAdminPage {
 			}
 		}
 
-		approveButton.setEnabled(hasPendingNodes);
-		retireButton.setEnabled(hasApprovedNodes);
+		// only one bulk operation at a time
+		approveButton.setEnabled(hasPendingNodes && (null == bulkOperationJob));
+		retireButton.setEnabled(hasApprovedNodes && (null == bulkOperationJob));
 		editButton.setEnabled(selectedElementsCount == 1);
 		manageButton.setEnabled(selectedElementsCount == 1);
 	}
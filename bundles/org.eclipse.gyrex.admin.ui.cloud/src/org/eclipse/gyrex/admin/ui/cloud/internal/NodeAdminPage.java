@@ -11,24 +11,305 @@
  */
 package org.eclipse.gyrex.admin.ui.cloud.internal;
 
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.gyrex.admin.ui.internal.application.AdminUiUtil;
+import org.eclipse.gyrex.admin.ui.internal.widgets.RingBuffer;
+import org.eclipse.gyrex.admin.ui.internal.widgets.Sparkline;
 import org.eclipse.gyrex.admin.ui.pages.AdminPage;
+import org.eclipse.gyrex.cloud.internal.zk.ZooKeeperGate;
+import org.eclipse.gyrex.cloud.nodemetrics.internal.NodeMetrics;
+import org.eclipse.gyrex.cloud.nodemetrics.internal.NodeMetricsPublisher;
 
+import org.eclipse.core.runtime.IPath;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.Job;
+import org.eclipse.jface.layout.GridDataFactory;
+import org.eclipse.jface.layout.GridLayoutFactory;
+import org.eclipse.rap.rwt.service.ServerPushSession;
 import org.eclipse.swt.SWT;
+import org.eclipse.swt.events.SelectionAdapter;
+import org.eclipse.swt.events.SelectionEvent;
+import org.eclipse.swt.layout.GridData;
+import org.eclipse.swt.widgets.Combo;
 import org.eclipse.swt.widgets.Composite;
 import org.eclipse.swt.widgets.Control;
+import org.eclipse.swt.widgets.Display;
 import org.eclipse.swt.widgets.Label;
 
 import org.apache.commons.lang.StringUtils;
+import org.apache.commons.lang.time.DurationFormatUtils;
+import org.apache.zookeeper.KeeperException;
+import org.apache.zookeeper.data.Stat;
 
+/**
+ * Live runtime metrics of a single node.
+ * <p>
+ * The page reads the metrics each node publishes (see
+ * {@link NodeMetricsPublisher}) at a selectable rate and keeps a history in
+ * fixed-size ring buffers for sparklines. Updates are pushed to the browser
+ * while the page is active.
+ * </p>
+ */
 public class NodeAdminPage extends AdminPage {
 
+	private static final class MetricRow {
+
+		private final Label valueLabel;
+		private final Sparkline sparkline;
+		private final RingBuffer history = new RingBuffer(HISTORY_SIZE);
+
+		MetricRow(final Composite parent, final String name, final double maximum) {
+			final Label nameLabel = new Label(parent, SWT.NONE);
+			nameLabel.setText(name);
+
+			valueLabel = new Label(parent, SWT.RIGHT);
+			GridDataFactory.fillDefaults().align(SWT.END, SWT.CENTER).hint(220, SWT.DEFAULT).applyTo(valueLabel);
+
+			sparkline = new Sparkline(parent, SWT.NONE);
+			sparkline.setBuffer(history);
+			sparkline.setMaximum(maximum);
+			GridDataFactory.fillDefaults().grab(true, false).hint(SWT.DEFAULT, 28).applyTo(sparkline);
+		}
+
+		void update(final double value, final String text) {
+			if (value >= 0) {
+				history.add(value);
+			}
+			valueLabel.setText(text);
+			sparkline.redraw();
+		}
+	}
+
+	private final class RefreshMetricsJob extends Job {
+
+		private final IPath path;
+		private final Display display;
+
+		RefreshMetricsJob(final IPath path, final Display display) {
+			super(String.format("Refresh metrics of %s", path.lastSegment()));
+			this.path = path;
+			this.display = display;
+			setSystem(true);
+		}
+
+		@Override
+		protected IStatus run(final IProgressMonitor monitor) {
+			if (refreshJob != this)
+				return Status.CANCEL_STATUS;
+
+			NodeMetrics metrics = null;
+			String error = null;
+			try {
+				metrics = NodeMetrics.fromByteArray(ZooKeeperGate.get().readRecord(path, new Stat()));
+			} catch (final KeeperException.NoNodeException e) {
+				error = "The node does not publish any metrics. It may be offline.";
+			} catch (final Exception e) {
+				error = String.format("Unable to read metrics. %s", e.getMessage());
+			}
+
+			if (!display.isDisposed()) {
+				final NodeMetrics sample = metrics;
+				final String message = error;
+				display.asyncExec(new Runnable() {
+					@Override
+					public void run() {
+						update(sample, message);
+					}
+				});
+			}
+
+			if (refreshJob == this) {
+				schedule(refreshInterval);
+			}
+			return Status.OK_STATUS;
+		}
+	}
+
 	public static final String ID = "node";
 
+	/** number of samples kept per metric */
+	static final int HISTORY_SIZE = 120;
+
+	/** selectable refresh intervals in seconds */
+	private static final int[] REFRESH_INTERVALS = { 1, 2, 5, 10, 30 };
+
+	private static String toMegaBytes(final double bytes) {
+		return String.format("%.0f MB", bytes / (1024 * 1024));
+	}
+
+	volatile RefreshMetricsJob refreshJob;
+	volatile long refreshInterval = TimeUnit.SECONDS.toMillis(NodeMetricsPublisher.DEFAULT_INTERVAL);
+	private ServerPushSession pushSession;
+	private NodeMetrics lastSample;
+
+	private Label nodeLabel;
+	private Label statusLabel;
+	private MetricRow heapRow;
+	private MetricRow gcRow;
+	private MetricRow threadsRow;
+	private MetricRow loadRow;
+	private MetricRow jettyRow;
+
+	public NodeAdminPage() {
+		setTitle("Node");
+		setTitleToolTip("Live runtime metrics of a node in the cluster.");
+	}
+
+	@Override
+	public void activate() {
+		super.activate();
+		if ((null == nodeLabel) || nodeLabel.isDisposed())
+			return;
+
+		nodeLabel.setText(String.format("Node: %s", StringUtils.defaultIfEmpty(getNodeId(), "n/a")));
+		nodeLabel.getParent().layout();
+		startRefresh();
+	}
+
 	@Override
 	public Control createControl(final Composite parent) {
-		final Label label = new Label(parent, SWT.NONE);
-		label.setText(StringUtils.join(getArguments(), " - "));
-		return label;
+		// controls are re-created whenever the page is opened; start with a fresh history
+		lastSample = null;
+
+		final Composite composite = new Composite(parent, SWT.NONE);
+		composite.setLayout(AdminUiUtil.createGridLayoutWithoutMargin(1, false));
+
+		final Composite header = new Composite(composite, SWT.NONE);
+		header.setLayoutData(AdminUiUtil.createHorzFillData());
+		header.setLayout(GridLayoutFactory.fillDefaults().numColumns(3).create());
+
+		nodeLabel = new Label(header, SWT.NONE);
+		GridDataFactory.fillDefaults().grab(true, false).applyTo(nodeLabel);
+
+		final Label refreshLabel = new Label(header, SWT.NONE);
+		refreshLabel.setText("Refresh every");
+		final Combo refreshCombo = new Combo(header, SWT.READ_ONLY);
+		for (final int interval : REFRESH_INTERVALS) {
+			refreshCombo.add(String.format("%d seconds", interval));
+			if (TimeUnit.SECONDS.toMillis(interval) == refreshInterval) {
+				refreshCombo.select(refreshCombo.getItemCount() - 1);
+			}
+		}
+		refreshCombo.addSelectionListener(new SelectionAdapter() {
+			/** serialVersionUID */
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			public void widgetSelected(final SelectionEvent e) {
+				refreshInterval = TimeUnit.SECONDS.toMillis(REFRESH_INTERVALS[refreshCombo.getSelectionIndex()]);
+				startRefresh();
+			}
+		});
+
+		statusLabel = new Label(composite, SWT.WRAP);
+		final GridData statusData = AdminUiUtil.createHorzFillData();
+		statusData.verticalIndent = 10;
+		statusLabel.setLayoutData(statusData);
+
+		final Composite metrics = new Composite(composite, SWT.NONE);
+		final GridData metricsData = AdminUiUtil.createHorzFillData();
+		metricsData.verticalIndent = 10;
+		metrics.setLayoutData(metricsData);
+		metrics.setLayout(GridLayoutFactory.fillDefaults().numColumns(3).spacing(20, 10).create());
+
+		heapRow = new MetricRow(metrics, "Heap", Double.NaN);
+		gcRow = new MetricRow(metrics, "GC Time", 100);
+		threadsRow = new MetricRow(metrics, "Threads", Double.NaN);
+		loadRow = new MetricRow(metrics, "System Load", Double.NaN);
+		jettyRow = new MetricRow(metrics, "Jetty Threads", 100);
+
+		return composite;
+	}
+
+	@Override
+	public void deactivate() {
+		stopRefresh();
+		super.deactivate();
 	}
 
+	private String getNodeId() {
+		final String[] args = getArguments();
+		if ((null != args) && (args.length > 1))
+			return args[1];
+		return null;
+	}
+
+	private void startRefresh() {
+		final String nodeId = getNodeId();
+		if (StringUtils.isBlank(nodeId)) {
+			statusLabel.setText("No node specified.");
+			return;
+		}
+
+		stopRefresh();
+		pushSession = new ServerPushSession();
+		pushSession.start();
+		final RefreshMetricsJob job = new RefreshMetricsJob(NodeMetrics.PATH_NODE_METRICS.append(nodeId), nodeLabel.getDisplay());
+		refreshJob = job;
+		job.schedule();
+	}
+
+	private void stopRefresh() {
+		final RefreshMetricsJob job = refreshJob;
+		refreshJob = null;
+		if (null != job) {
+			job.cancel();
+		}
+		if (null != pushSession) {
+			pushSession.stop();
+			pushSession = null;
+		}
+	}
+
+	void update(final NodeMetrics sample, final String error) {
+		if (statusLabel.isDisposed())
+			return;
+
+		if (null == sample) {
+			statusLabel.setText(error);
+			statusLabel.getParent().layout();
+			return;
+		}
+
+		// ignore samples already shown
+		final NodeMetrics previous = lastSample;
+		if ((null != previous) && (previous.getTimestamp() >= sample.getTimestamp()))
+			return;
+		lastSample = sample;
+
+		statusLabel.setText(String.format("Up %s, last sample taken %s ago.", DurationFormatUtils.formatDurationWords(Math.max(0, sample.getLong(NodeMetrics.UPTIME)), true, true), DurationFormatUtils.formatDurationWords(Math.max(0, System.currentTimeMillis() - sample.getTimestamp()), true, true)));
+
+		final double heapUsed = sample.get(NodeMetrics.HEAP_USED);
+		final double heapMax = sample.get(NodeMetrics.HEAP_MAX);
+		heapRow.update(heapUsed, heapMax > 0 ? String.format("%s of %s", toMegaBytes(heapUsed), toMegaBytes(heapMax)) : toMegaBytes(heapUsed));
+
+		// GC time is cumulative; show the share of the elapsed time
+		if ((null != previous) && (sample.get(NodeMetrics.GC_TIME) >= previous.get(NodeMetrics.GC_TIME))) {
+			final double elapsed = sample.getTimestamp() - previous.getTimestamp();
+			final double gcPercent = (100 * (sample.get(NodeMetrics.GC_TIME) - previous.get(NodeMetrics.GC_TIME))) / elapsed;
+			final long collections = sample.getLong(NodeMetrics.GC_COUNT) - previous.getLong(NodeMetrics.GC_COUNT);
+			gcRow.update(gcPercent, String.format("%.1f%% (%d collections)", gcPercent, collections));
+		} else {
+			gcRow.update(-1, "n/a");
+		}
+
+		threadsRow.update(sample.get(NodeMetrics.THREADS_LIVE), String.format("%d (peak %d)", sample.getLong(NodeMetrics.THREADS_LIVE), sample.getLong(NodeMetrics.THREADS_PEAK)));
+
+		final double load = sample.get(NodeMetrics.SYSTEM_LOAD);
+		loadRow.update(load, load >= 0 ? String.format("%.2f (%d cpus)", load, sample.getLong(NodeMetrics.PROCESSORS)) : "n/a");
+
+		final double jettyBusy = sample.get(NodeMetrics.JETTY_THREADS_BUSY);
+		final double jettyMax = sample.get(NodeMetrics.JETTY_THREADS_MAX);
+		if ((jettyBusy >= 0) && (jettyMax > 0)) {
+			final double jettyPercent = (100 * jettyBusy) / jettyMax;
+			jettyRow.update(jettyPercent, String.format("%.0f%% (%.0f of %.0f busy)", jettyPercent, jettyBusy, jettyMax));
+		} else {
+			jettyRow.update(-1, "n/a");
+		}
+
+		statusLabel.getParent().layout();
+	}
 }
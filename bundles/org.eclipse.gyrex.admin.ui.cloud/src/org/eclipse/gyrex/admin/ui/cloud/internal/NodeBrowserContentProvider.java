@@ -12,17 +12,37 @@
 package org.eclipse.gyrex.admin.ui.cloud.internal;
 
 import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import org.eclipse.gyrex.cloud.admin.ICloudManager;
 import org.eclipse.gyrex.cloud.admin.INodeDescriptor;
 import org.eclipse.gyrex.cloud.admin.INodeListener;
 
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.Job;
+import org.eclipse.jface.viewers.AbstractTreeViewer;
+import org.eclipse.jface.viewers.IStructuredSelection;
 import org.eclipse.jface.viewers.ITreeContentProvider;
 import org.eclipse.jface.viewers.Viewer;
 import org.eclipse.swt.widgets.Control;
 
+import org.apache.commons.lang.ObjectUtils;
+
+/**
+ * Content provider for the cluster nodes.
+ * <p>
+ * Node change events are coalesced within a short time window. The node
+ * state is then read once in the background, compared by node id with the
+ * items shown and only added, removed or changed items are applied to the
+ * viewer. Items keep their identity as long as the node exists.
+ * </p>
+ */
 public final class NodeBrowserContentProvider implements ITreeContentProvider {
 
 	/** serialVersionUID */
@@ -30,9 +50,9 @@ public final class NodeBrowserContentProvider implements ITreeContentProvider {
 
 	public static final class NodeItem {
 
-		private final boolean approved;
-		private final boolean online;
-		private final INodeDescriptor descriptor;
+		private boolean approved;
+		private boolean online;
+		private INodeDescriptor descriptor;
 
 		public NodeItem(final boolean approved, final boolean online, final INodeDescriptor descriptor) {
 			this.approved = approved;
@@ -51,33 +71,164 @@ public final class NodeBrowserContentProvider implements ITreeContentProvider {
 		public boolean isOnline() {
 			return online;
 		}
+
+		/**
+		 * Updates the item with the state of another item for the same node.
+		 *
+		 * @param item
+		 *            the new item state
+		 * @return <code>true</code> if anything changed, <code>false</code>
+		 *         otherwise
+		 */
+		boolean update(final NodeItem item) {
+			if ((approved == item.approved) && (online == item.online) && isSameDescriptor(descriptor, item.descriptor))
+				return false;
+
+			approved = item.approved;
+			online = item.online;
+			descriptor = item.descriptor;
+			return true;
+		}
 	}
 
-	private static final Object[] EMPTY_ARRAY = new Object[0];
+	private final class RefreshNodesJob extends Job {
+
+		public RefreshNodesJob() {
+			super("Refresh Cluster Nodes");
+			setSystem(true);
+		}
 
-	private final INodeListener nodeListener = new INodeListener() {
 		@Override
-		public void nodesChanged() {
+		protected IStatus run(final IProgressMonitor monitor) {
+			final ICloudManager cloudManager = NodeBrowserContentProvider.this.cloudManager;
 			final Viewer viewer = NodeBrowserContentProvider.this.viewer;
+			if ((null == cloudManager) || (null == viewer))
+				return Status.CANCEL_STATUS;
+
 			final Control control = viewer.getControl();
-			if (null != control && !control.isDisposed()) {
-				control.getDisplay().asyncExec(new Runnable() {
-					@Override
-					public void run() {
-						if (!control.isDisposed()) {
-							viewer.refresh();
-						}
+			if ((null == control) || control.isDisposed())
+				return Status.CANCEL_STATUS;
+
+			// read outside the UI thread
+			final Map<String, NodeItem> nodes = readNodes(cloudManager);
+			control.getDisplay().asyncExec(new Runnable() {
+				@Override
+				public void run() {
+					if (!control.isDisposed() && (viewer.getInput() == cloudManager)) {
+						applyNodes(nodes, viewer);
 					}
-				});
-			}
+				}
+			});
+			return Status.OK_STATUS;
+		}
+	}
+
+	/** time window for coalescing node change events (in milliseconds) */
+	static final long COALESCE_WINDOW = 500L;
+
+	private static final Object[] EMPTY_ARRAY = new Object[0];
+
+	static boolean isSameDescriptor(final INodeDescriptor d1, final INodeDescriptor d2) {
+		if (d1 == d2)
+			return true;
+		return ObjectUtils.equals(d1.getId(), d2.getId()) && ObjectUtils.equals(d1.getName(), d2.getName()) && ObjectUtils.equals(d1.getLocation(), d2.getLocation()) && ObjectUtils.equals(d1.getTags(), d2.getTags());
+	}
+
+	static Map<String, NodeItem> readNodes(final ICloudManager cloudManager) {
+		final Map<String, NodeItem> nodes = new LinkedHashMap<String, NodeItem>();
+		final Set<String> onlineNodes = cloudManager.getOnlineNodes();
+		for (final INodeDescriptor nodeDescriptor : cloudManager.getApprovedNodes()) {
+			nodes.put(nodeDescriptor.getId(), new NodeItem(true, onlineNodes.contains(nodeDescriptor.getId()), nodeDescriptor));
+		}
+		for (final INodeDescriptor nodeDescriptor : cloudManager.getPendingNodes()) {
+			nodes.put(nodeDescriptor.getId(), new NodeItem(false, onlineNodes.contains(nodeDescriptor.getId()), nodeDescriptor));
+		}
+		return nodes;
+	}
+
+	private final INodeListener nodeListener = new INodeListener() {
+		@Override
+		public void nodesChanged() {
+			// events arriving while the job is waiting are absorbed by it
+			refreshJob.schedule(COALESCE_WINDOW);
 		}
 	};
 
-	Viewer viewer;
+	private final RefreshNodesJob refreshJob = new RefreshNodesJob();
+
+	/** the items shown, only accessed in the UI thread */
+	private final Map<String, NodeItem> items = new LinkedHashMap<String, NodeItem>();
+
+	volatile Viewer viewer;
+	volatile ICloudManager cloudManager;
+
+	/**
+	 * Merges the specified nodes into the items shown.
+	 * <p>
+	 * If a viewer is given, the changes will be applied to the viewer
+	 * selectively. Must be called in the UI thread.
+	 * </p>
+	 *
+	 * @param nodes
+	 *            the current nodes
+	 * @param viewer
+	 *            the viewer to update (maybe <code>null</code>)
+	 */
+	void applyNodes(final Map<String, NodeItem> nodes, final Viewer viewer) {
+		final List<NodeItem> removed = new ArrayList<NodeItem>();
+		final List<NodeItem> added = new ArrayList<NodeItem>();
+		final List<NodeItem> changed = new ArrayList<NodeItem>();
+
+		for (final Iterator<Map.Entry<String, NodeItem>> stream = items.entrySet().iterator(); stream.hasNext();) {
+			final Map.Entry<String, NodeItem> entry = stream.next();
+			final NodeItem node = nodes.get(entry.getKey());
+			if (null == node) {
+				removed.add(entry.getValue());
+				stream.remove();
+			} else if (entry.getValue().update(node)) {
+				changed.add(entry.getValue());
+			}
+		}
+		for (final Map.Entry<String, NodeItem> entry : nodes.entrySet()) {
+			if (!items.containsKey(entry.getKey())) {
+				items.put(entry.getKey(), entry.getValue());
+				added.add(entry.getValue());
+			}
+		}
+
+		if ((null == viewer) || (removed.isEmpty() && added.isEmpty() && changed.isEmpty()))
+			return;
+
+		if (!(viewer instanceof AbstractTreeViewer)) {
+			viewer.refresh();
+			return;
+		}
+
+		final AbstractTreeViewer treeViewer = (AbstractTreeViewer) viewer;
+		if (!removed.isEmpty()) {
+			treeViewer.remove(removed.toArray());
+		}
+		if (!added.isEmpty()) {
+			treeViewer.add(treeViewer.getInput(), added.toArray());
+		}
+		if (!changed.isEmpty()) {
+			treeViewer.update(changed.toArray(), null);
+
+			// selected items may have changed state; let selection listeners know
+			final IStructuredSelection selection = (IStructuredSelection) treeViewer.getSelection();
+			for (final NodeItem item : changed) {
+				if (selection.toList().contains(item)) {
+					treeViewer.setSelection(selection);
+					break;
+				}
+			}
+		}
+	}
 
 	private void attach(final Object input) {
 		if (input instanceof ICloudManager) {
-			((ICloudManager) input).addNodeListener(nodeListener);
+			cloudManager = (ICloudManager) input;
+			cloudManager.addNodeListener(nodeListener);
 		}
 	}
 
@@ -85,6 +236,9 @@ public final class NodeBrowserContentProvider implements ITreeContentProvider {
 		if (input instanceof ICloudManager) {
 			((ICloudManager) input).removeNodeListener(nodeListener);
 		}
+		cloudManager = null;
+		refreshJob.cancel();
+		items.clear();
 	}
 
 	@Override
@@ -103,16 +257,9 @@ public final class NodeBrowserContentProvider implements ITreeContentProvider {
 	@Override
 	public Object[] getElements(final Object inputElement) {
 		if (inputElement instanceof ICloudManager) {
-			final List<NodeItem> nodes = new ArrayList<NodeItem>();
-			final ICloudManager cloudManager = (ICloudManager) inputElement;
-			final Set<String> onlineNodes = cloudManager.getOnlineNodes();
-			for (final INodeDescriptor nodeDescriptor : cloudManager.getApprovedNodes()) {
-				nodes.add(new NodeItem(true, onlineNodes.contains(nodeDescriptor.getId()), nodeDescriptor));
-			}
-			for (final INodeDescriptor nodeDescriptor : cloudManager.getPendingNodes()) {
-				nodes.add(new NodeItem(false, onlineNodes.contains(nodeDescriptor.getId()), nodeDescriptor));
-			}
-			return nodes.toArray();
+			// full refresh; keep identity of existing items
+			applyNodes(readNodes((ICloudManager) inputElement), null);
+			return items.values().toArray();
 		}
 		return EMPTY_ARRAY;
 	}
@@ -136,4 +283,4 @@ public final class NodeBrowserContentProvider implements ITreeContentProvider {
 		detach(oldInput);
 		attach(newInput);
 	}
-}
\ No newline at end of file
+}
@@ -37,12 +37,12 @@ public abstract class ZooKeeperBasedAdminPage extends AdminPageWithTree {
 		if ((listener == null) && (display != null) && !display.isDisposed()) {
 			listener = new ZooKeeperGateListener() {
 
-				private void asyncRefresh() {
+				private void asyncRefresh(final boolean connected) {
 					if (!display.isDisposed()) {
 						display.asyncExec(new Runnable() {
 							@Override
 							public void run() {
-								refresh();
+								gateStateChanged(connected);
 							}
 						});
 					}
@@ -50,17 +50,17 @@ public abstract class ZooKeeperBasedAdminPage extends AdminPageWithTree {
 
 				@Override
 				public void gateDown(final ZooKeeperGate gate) {
-					asyncRefresh();
+					asyncRefresh(false);
 				}
 
 				@Override
 				public void gateRecovering(final ZooKeeperGate gate) {
-					asyncRefresh();
+					asyncRefresh(false);
 				}
 
 				@Override
 				public void gateUp(final ZooKeeperGate gate) {
-					asyncRefresh();
+					asyncRefresh(true);
 				}
 			};
 			ZooKeeperGate.addConnectionMonitor(listener);
@@ -69,6 +69,22 @@ public abstract class ZooKeeperBasedAdminPage extends AdminPageWithTree {
 		super.activate();
 	}
 
+	/**
+	 * Called in the UI thread whenever the ZooKeeper gate goes up, down or
+	 * is recovering.
+	 * <p>
+	 * The default implementation calls {@link #refresh()}. Subclasses may
+	 * override in order to update more selectively.
+	 * </p>
+	 * 
+	 * @param connected
+	 *            <code>true</code> if the gate is up, <code>false</code>
+	 *            otherwise
+	 */
+	protected void gateStateChanged(final boolean connected) {
+		refresh();
+	}
+
 	@Override
 	public void deactivate() {
 		super.deactivate();
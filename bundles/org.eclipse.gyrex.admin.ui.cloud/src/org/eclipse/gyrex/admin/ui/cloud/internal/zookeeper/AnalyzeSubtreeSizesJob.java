@@ -0,0 +1,249 @@
+/*******************************************************************************
+ * Copyright (c) 2013 AGETO Service GmbH and others.
+ * All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Contributors:
+ *     Gunnar Wagenknecht - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.gyrex.admin.ui.cloud.internal.zookeeper;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.gyrex.admin.ui.cloud.internal.CloudUiActivator;
+
+import org.eclipse.core.runtime.IPath;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.Job;
+
+import org.apache.commons.lang.exception.ExceptionUtils;
+
+/**
+ * Traverses a ZooKeeper subtree and reports its largest subtrees.
+ * <p>
+ * The traversal only reads the {@link org.apache.zookeeper.data.Stat} of each
+ * znode using a throttled {@link ZooKeeperTreeWalker}. Sizes are accumulated
+ * bottom-up while the walk proceeds depth-first, so only the subtrees along
+ * the current path and the top entries are held in memory. A {@link Report}
+ * is published periodically while the traversal is in progress and once more
+ * when it finished.
+ * </p>
+ */
+public class AnalyzeSubtreeSizesJob extends Job {
+
+	/**
+	 * Receives reports.
+	 * <p>
+	 * Reports are delivered from the job thread.
+	 * </p>
+	 */
+	public interface Listener {
+
+		void reportUpdated(Report report);
+	}
+
+	/**
+	 * A snapshot of the analysis.
+	 */
+	public static final class Report {
+
+		private final IPath rootPath;
+		private final List<ZooKeeperSubtreeSize> entries;
+		private final long znodesScanned;
+		private final long bytesScanned;
+		private final boolean complete;
+
+		Report(final IPath rootPath, final List<ZooKeeperSubtreeSize> entries, final long znodesScanned, final long bytesScanned, final boolean complete) {
+			this.rootPath = rootPath;
+			this.entries = Collections.unmodifiableList(entries);
+			this.znodesScanned = znodesScanned;
+			this.bytesScanned = bytesScanned;
+			this.complete = complete;
+		}
+
+		/**
+		 * Returns the total bytes of all znodes scanned so far.
+		 *
+		 * @return the bytes scanned
+		 */
+		public long getBytesScanned() {
+			return bytesScanned;
+		}
+
+		/**
+		 * Returns the largest subtrees and the subtrees with most children
+		 * found so far.
+		 * <p>
+		 * Subtrees along the path currently traversed are included as
+		 * incomplete entries.
+		 * </p>
+		 *
+		 * @return an unmodifiable list of entries (in no particular order)
+		 */
+		public List<ZooKeeperSubtreeSize> getEntries() {
+			return entries;
+		}
+
+		/**
+		 * Returns the root of the analyzed subtree.
+		 *
+		 * @return the root path
+		 */
+		public IPath getRootPath() {
+			return rootPath;
+		}
+
+		/**
+		 * Returns the number of znodes scanned so far.
+		 *
+		 * @return the znodes scanned
+		 */
+		public long getZnodesScanned() {
+			return znodesScanned;
+		}
+
+		/**
+		 * Indicates if the traversal finished.
+		 *
+		 * @return <code>true</code> if finished, <code>false</code> otherwise
+		 */
+		public boolean isComplete() {
+			return complete;
+		}
+	}
+
+	/** minimum time between two reports published while in progress */
+	private static final long REPORT_INTERVAL = TimeUnit.SECONDS.toMillis(1);
+
+	private static void offer(final PriorityQueue<ZooKeeperSubtreeSize> top, final int limit, final ZooKeeperSubtreeSize size, final Comparator<ZooKeeperSubtreeSize> comparator) {
+		if (top.size() < limit) {
+			top.add(size);
+		} else if (comparator.compare(size, top.peek()) > 0) {
+			top.poll();
+			top.add(size);
+		}
+	}
+
+	private final IPath rootPath;
+	private final int parallelism;
+	private final int maxRequestsPerSecond;
+	private final int limit;
+	private final Listener listener;
+
+	private final ArrayDeque<ZooKeeperSubtreeSize> open = new ArrayDeque<ZooKeeperSubtreeSize>();
+	private final PriorityQueue<ZooKeeperSubtreeSize> largest;
+	private final PriorityQueue<ZooKeeperSubtreeSize> mostChildren;
+	private long znodesScanned;
+	private long bytesScanned;
+
+	/**
+	 * Creates a new instance.
+	 *
+	 * @param rootPath
+	 *            the root of the subtree to analyze
+	 * @param parallelism
+	 *            the maximum number of concurrent ZooKeeper reads
+	 * @param maxRequestsPerSecond
+	 *            the maximum number of ZooKeeper requests per second
+	 * @param limit
+	 *            the number of top entries to report per category
+	 * @param listener
+	 *            the listener to receive reports
+	 */
+	public AnalyzeSubtreeSizesJob(final IPath rootPath, final int parallelism, final int maxRequestsPerSecond, final int limit, final Listener listener) {
+		super(String.format("Analyze ZooKeeper subtree sizes of %s", rootPath));
+		this.rootPath = rootPath;
+		this.parallelism = parallelism;
+		this.maxRequestsPerSecond = maxRequestsPerSecond;
+		this.limit = limit;
+		this.listener = listener;
+		largest = new PriorityQueue<ZooKeeperSubtreeSize>(limit, ZooKeeperSubtreeSize.BY_TOTAL_BYTES);
+		mostChildren = new PriorityQueue<ZooKeeperSubtreeSize>(limit, ZooKeeperSubtreeSize.BY_CHILDREN);
+	}
+
+	private void close(final ZooKeeperSubtreeSize size) {
+		size.complete();
+		final ZooKeeperSubtreeSize parent = open.peek();
+		if (null != parent) {
+			parent.add(size);
+		}
+		offer(largest, limit, size, ZooKeeperSubtreeSize.BY_TOTAL_BYTES);
+		offer(mostChildren, limit, size, ZooKeeperSubtreeSize.BY_CHILDREN);
+	}
+
+	private void publish(final boolean complete) {
+		final Map<ZooKeeperSubtreeSize, Boolean> entries = new IdentityHashMap<ZooKeeperSubtreeSize, Boolean>();
+		for (final ZooKeeperSubtreeSize size : largest) {
+			entries.put(size, Boolean.TRUE);
+		}
+		for (final ZooKeeperSubtreeSize size : mostChildren) {
+			entries.put(size, Boolean.TRUE);
+		}
+
+		// completed entries are immutable, open ones must be copied
+		final List<ZooKeeperSubtreeSize> report = new ArrayList<ZooKeeperSubtreeSize>(entries.size() + open.size());
+		report.addAll(entries.keySet());
+		for (final ZooKeeperSubtreeSize size : open) {
+			report.add(size.copy());
+		}
+		listener.reportUpdated(new Report(rootPath, report, znodesScanned, bytesScanned, complete));
+	}
+
+	@Override
+	protected IStatus run(final IProgressMonitor monitor) {
+		monitor.beginTask(getName(), IProgressMonitor.UNKNOWN);
+		open.clear();
+		largest.clear();
+		mostChildren.clear();
+		znodesScanned = bytesScanned = 0;
+
+		final ZooKeeperTreeWalker walker = new ZooKeeperTreeWalker(new ZooKeeperGateReader(), rootPath, parallelism, false, maxRequestsPerSecond);
+		try {
+			long lastReport = System.currentTimeMillis();
+			ZooKeeperSnapshotRecord record;
+			while (null != (record = walker.next())) {
+				if (monitor.isCanceled())
+					return Status.CANCEL_STATUS;
+
+				// close all subtrees the walk left
+				while (!open.isEmpty() && !open.peek().getPath().isPrefixOf(record.getPath())) {
+					close(open.pop());
+				}
+				open.push(new ZooKeeperSubtreeSize(record.getPath(), record.getStat()));
+				znodesScanned++;
+				bytesScanned += record.getStat().getDataLength();
+
+				final long now = System.currentTimeMillis();
+				if ((now - lastReport) >= REPORT_INTERVAL) {
+					lastReport = now;
+					monitor.subTask(String.format("%d znodes scanned (%s)", znodesScanned, record.getPath()));
+					publish(false);
+				}
+			}
+			while (!open.isEmpty()) {
+				close(open.pop());
+			}
+			publish(true);
+			return new Status(IStatus.OK, CloudUiActivator.SYMBOLIC_NAME, String.format("Analyzed %d znodes (%d bytes) below %s.", znodesScanned, bytesScanned, rootPath));
+		} catch (final IOException e) {
+			return new Status(IStatus.ERROR, CloudUiActivator.SYMBOLIC_NAME, String.format("Error analyzing %s. %s", rootPath, ExceptionUtils.getRootCauseMessage(e)), e);
+		} finally {
+			walker.close();
+			monitor.done();
+		}
+	}
+}
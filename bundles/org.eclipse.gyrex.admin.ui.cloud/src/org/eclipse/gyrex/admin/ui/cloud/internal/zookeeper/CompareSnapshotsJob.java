@@ -0,0 +1,139 @@
+/*******************************************************************************
+ * Copyright (c) 2013 AGETO Service GmbH and others.
+ * All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Contributors:
+ *     Gunnar Wagenknecht - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.gyrex.admin.ui.cloud.internal.zookeeper;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+
+import org.eclipse.gyrex.admin.ui.cloud.internal.CloudUiActivator;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.OperationCanceledException;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.Job;
+
+import org.apache.commons.lang.CharEncoding;
+import org.apache.commons.lang.exception.ExceptionUtils;
+import org.apache.commons.lang.text.StrBuilder;
+
+/**
+ * Compares a {@link ZooKeeperSnapshotFile snapshot file} with another one or
+ * with the live tree and writes a report of added, removed and changed
+ * znodes. Snapshots taken of different subtrees are rejected.
+ */
+public class CompareSnapshotsJob extends Job {
+
+	/** number of differences included in the job result message */
+	private static final int SUMMARY_LINES = 20;
+
+	private final File oldFile;
+	private final File newFile;
+	private final File reportFile;
+	private final int parallelism;
+
+	/**
+	 * Creates a new instance.
+	 * 
+	 * @param oldFile
+	 *            the base snapshot
+	 * @param newFile
+	 *            the snapshot to compare with (maybe <code>null</code> to
+	 *            compare with the live tree)
+	 * @param reportFile
+	 *            the report file to write
+	 * @param parallelism
+	 *            the maximum number of concurrent ZooKeeper reads when
+	 *            comparing with the live tree
+	 */
+	public CompareSnapshotsJob(final File oldFile, final File newFile, final File reportFile, final int parallelism) {
+		super(String.format("Compare ZooKeeper snapshot %s", oldFile.getName()));
+		this.oldFile = oldFile;
+		this.newFile = newFile;
+		this.reportFile = reportFile;
+		this.parallelism = parallelism;
+	}
+
+	@Override
+	protected IStatus run(final IProgressMonitor monitor) {
+		monitor.beginTask(getName(), IProgressMonitor.UNKNOWN);
+		ZooKeeperSnapshotSource oldSource = null;
+		ZooKeeperSnapshotSource newSource = null;
+		Writer report = null;
+		try {
+			oldSource = ZooKeeperSnapshotFile.open(oldFile);
+			newSource = null != newFile ? ZooKeeperSnapshotFile.open(newFile) : new ZooKeeperTreeWalker(new ZooKeeperGateReader(), oldSource.getRootPath(), parallelism);
+			if (!oldSource.getRootPath().equals(newSource.getRootPath()))
+				return new Status(IStatus.ERROR, CloudUiActivator.SYMBOLIC_NAME, String.format("Unable to compare %s with %s. The snapshots were taken of different paths (%s and %s).", oldFile.getName(), newFile.getName(), oldSource.getRootPath(), newSource.getRootPath()));
+			report = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(reportFile), CharEncoding.UTF_8));
+
+			final Writer out = report;
+			final StrBuilder summary = new StrBuilder();
+			out.write(String.format("--- %s%n", oldFile.getName()));
+			out.write(String.format("+++ %s%n", null != newFile ? newFile.getName() : "live " + oldSource.getRootPath()));
+			final ZooKeeperSnapshotDiff.Result result = ZooKeeperSnapshotDiff.diff(oldSource, newSource, new ZooKeeperSnapshotDiff.Listener() {
+				private int lines;
+
+				@Override
+				public void added(final ZooKeeperSnapshotRecord newRecord) throws IOException {
+					write(String.format("+ %s", newRecord));
+				}
+
+				@Override
+				public void changed(final ZooKeeperSnapshotRecord oldRecord, final ZooKeeperSnapshotRecord newRecord) throws IOException {
+					write(String.format("~ %s -> v%d, %d bytes", oldRecord, newRecord.getStat().getVersion(), null != newRecord.getData() ? newRecord.getData().length : 0));
+				}
+
+				@Override
+				public void removed(final ZooKeeperSnapshotRecord oldRecord) throws IOException {
+					write(String.format("- %s", oldRecord));
+				}
+
+				private void write(final String line) throws IOException {
+					out.write(line);
+					out.write(String.format("%n"));
+					if (lines++ < SUMMARY_LINES) {
+						summary.appendln(line);
+					} else if (lines == SUMMARY_LINES + 1) {
+						summary.appendln("...");
+					}
+				}
+			}, monitor);
+
+			return new Status(IStatus.OK, CloudUiActivator.SYMBOLIC_NAME, String.format("%s.%n%n%sFull report written to %s.", result, summary, reportFile.getAbsolutePath()));
+		} catch (final OperationCanceledException e) {
+			return Status.CANCEL_STATUS;
+		} catch (final IOException e) {
+			return new Status(IStatus.ERROR, CloudUiActivator.SYMBOLIC_NAME, String.format("Error comparing %s. %s", oldFile.getName(), ExceptionUtils.getRootCauseMessage(e)), e);
+		} finally {
+			close(report);
+			close(newSource);
+			close(oldSource);
+			monitor.done();
+		}
+	}
+
+	private void close(final Closeable closeable) {
+		if (null == closeable)
+			return;
+		try {
+			closeable.close();
+		} catch (final IOException ignored) {
+			// ignore
+		}
+	}
+}
@@ -0,0 +1,73 @@
+/*******************************************************************************
+ * Copyright (c) 2013 AGETO Service GmbH and others.
+ * All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Contributors:
+ *     Gunnar Wagenknecht - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.gyrex.admin.ui.cloud.internal.zookeeper;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.eclipse.gyrex.admin.ui.cloud.internal.CloudUiActivator;
+
+import org.eclipse.core.runtime.IPath;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.OperationCanceledException;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.Job;
+
+import org.apache.commons.lang.exception.ExceptionUtils;
+
+/**
+ * Exports a ZooKeeper subtree into a {@link ZooKeeperSnapshotFile snapshot
+ * file}.
+ */
+public class ExportSnapshotJob extends Job {
+
+	private final IPath rootPath;
+	private final File file;
+	private final int parallelism;
+
+	/**
+	 * Creates a new instance.
+	 * 
+	 * @param rootPath
+	 *            the root of the subtree to export
+	 * @param file
+	 *            the snapshot file to write
+	 * @param parallelism
+	 *            the maximum number of concurrent ZooKeeper reads
+	 */
+	public ExportSnapshotJob(final IPath rootPath, final File file, final int parallelism) {
+		super(String.format("Export ZooKeeper snapshot of %s", rootPath));
+		this.rootPath = rootPath;
+		this.file = file;
+		this.parallelism = parallelism;
+	}
+
+	@Override
+	protected IStatus run(final IProgressMonitor monitor) {
+		monitor.beginTask(getName(), IProgressMonitor.UNKNOWN);
+		final ZooKeeperTreeWalker walker = new ZooKeeperTreeWalker(new ZooKeeperGateReader(), rootPath, parallelism);
+		try {
+			final long records = ZooKeeperSnapshotFile.write(walker, file, monitor);
+			return new Status(IStatus.OK, CloudUiActivator.SYMBOLIC_NAME, String.format("Exported %d znodes below %s to %s.", records, rootPath, file.getAbsolutePath()));
+		} catch (final OperationCanceledException e) {
+			file.delete();
+			return Status.CANCEL_STATUS;
+		} catch (final IOException e) {
+			file.delete();
+			return new Status(IStatus.ERROR, CloudUiActivator.SYMBOLIC_NAME, String.format("Error exporting %s. %s", rootPath, ExceptionUtils.getRootCauseMessage(e)), e);
+		} finally {
+			walker.close();
+			monitor.done();
+		}
+	}
+}
@@ -40,7 +40,11 @@ public class PathPatternFilter extends PatternFilter {
 		if (isLeafMatch(viewer, element))
 			return true;
 
-		final Object[] children = ((ZooKeeperData) element).getChildren();
+		// only look at loaded children; filtering must not trigger (blocking) reads
+		final Object[] children = ((ZooKeeperData) element).getLoadedChildren();
+		if (null == children)
+			return false;
+
 		// Will return true if any subnode of the element matches the search
 		if (filter(viewer, element, children).length > 0)
 			return true;
@@ -14,14 +14,19 @@ package org.eclipse.gyrex.admin.ui.cloud.internal.zookeeper;
 import java.io.ByteArrayInputStream;
 import java.io.UnsupportedEncodingException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Properties;
 import java.util.Set;
 
 import org.eclipse.gyrex.cloud.internal.zk.IZooKeeperLayout;
 import org.eclipse.gyrex.cloud.internal.zk.ZooKeeperGate;
+import org.eclipse.gyrex.cloud.internal.zk.ZooKeeperMonitor;
 
 import org.eclipse.core.runtime.IPath;
 
@@ -43,20 +48,64 @@ public class ZooKeeperData {
 	private static final Object PROP_EPHEMERAL_OWNER = new Object();
 	private static final Object PROP_DATA = new Object();
 
+	/**
+	 * Element shown after the last visible child of a node which has more
+	 * children than currently shown.
+	 */
+	public static final class MoreChildren {
+
+		private final ZooKeeperData parent;
+		private final int next;
+		private final int remaining;
+
+		MoreChildren(final ZooKeeperData parent, final int next, final int remaining) {
+			this.parent = parent;
+			this.next = next;
+			this.remaining = remaining;
+		}
+
+		public ZooKeeperData getParent() {
+			return parent;
+		}
+
+		@Override
+		public String toString() {
+			return String.format("Show next %d children (%d more)...", next, remaining);
+		}
+	}
+
+	/** number of children to show at once for nodes with many children */
+	static final int CHILDREN_PAGE_SIZE = 200;
+
+	/** max number of chars of string records to display in labels */
+	private static final int PREVIEW_LENGTH = 70;
+
 	private final IPath path;
-	private Stat stat;
+	private final ZooKeeperDataCache cache;
+	private volatile Stat stat;
+	private volatile String preview;
+	private volatile String error;
 
-	private Object[] children;
+	private volatile Object[] children;
+	private volatile String[] childNames;
+	private volatile Object[] propertyChildren;
+	private volatile int windowSize = CHILDREN_PAGE_SIZE;
 	private final ZooKeeperData parent;
 
 	/**
 	 * Creates a new instance.
 	 * 
-	 * @param append
+	 * @param path
+	 *            the node path
+	 * @param parent
+	 *            the parent (maybe <code>null</code> for the root)
+	 * @param cache
+	 *            the record cache to use
 	 */
-	public ZooKeeperData(final IPath path, final ZooKeeperData parent) {
+	public ZooKeeperData(final IPath path, final ZooKeeperData parent, final ZooKeeperDataCache cache) {
 		this.path = path;
 		this.parent = parent;
+		this.cache = cache;
 	}
 
 	private String asString(final byte[] data) {
@@ -72,6 +121,10 @@ public class ZooKeeperData {
 
 	/**
 	 * Returns the children.
+	 * <p>
+	 * Note, this method blocks the calling thread if children have not been
+	 * loaded yet. Use {@link #getLoadedChildren()} from the UI thread.
+	 * </p>
 	 * 
 	 * @return the children
 	 */
@@ -82,17 +135,17 @@ public class ZooKeeperData {
 		return children;
 	}
 
-	private Object getData() {
-		if (null == stat) {
-			load();
+	private Object decode(final ZooKeeperDataCache.Entry entry) {
+		Object decoded = entry.getDecoded();
+		if ((null == decoded) && (null != entry.getData())) {
+			decoded = decode(entry.getData());
+			entry.setDecoded(decoded);
 		}
+		return decoded;
+	}
 
+	private Object decode(final byte[] data) {
 		try {
-			final byte[] data = ZooKeeperGate.get().readRecord(path, stat);
-
-			if (null == data)
-				return null;
-
 			// read known paths as properties
 			if (isPropertiesBased()) {
 				final Properties prop = new Properties();
@@ -104,15 +157,30 @@ public class ZooKeeperData {
 		} catch (final Exception e) {
 			return ExceptionUtils.getRootCauseMessage(e);
 		}
+	}
+
+	private Object getData() {
+		final Stat stat = this.stat;
+		ZooKeeperDataCache.Entry entry = null != stat ? cache.get(path, stat.getVersion()) : cache.get(path);
+		if (null == entry) {
+			entry = readRecord(null);
+			if (null == entry)
+				return error;
+		}
 
+		return decode(entry);
 	}
 
 	public String getLabel() {
-		final Stat stat = getStat();
+		final Stat stat = this.stat;
+		if (null == stat)
+			return String.format("%s (loading...)", path.segmentCount() > 0 ? path.lastSegment() : "/");
+		if (null != error)
+			return String.format("%s (%s)", path.segmentCount() > 0 ? path.lastSegment() : "/", error);
 
 		// print the first few chars if string based
-		if ((stat.getDataLength() > 0) && isStringBased()) {
-			final String data = StringUtils.left(String.valueOf(getData()), 70);
+		final String data = preview;
+		if ((stat.getDataLength() > 0) && (null != data)) {
 			if (stat.getEphemeralOwner() != 0)
 				return String.format("%s (ephemeral, v%d) [%s]", path.segmentCount() > 0 ? path.lastSegment() : "/", stat.getVersion(), data);
 			else
@@ -127,6 +195,18 @@ public class ZooKeeperData {
 			return String.format("%s (v%d, c%d)", path.segmentCount() > 0 ? path.lastSegment() : "/", stat.getVersion(), stat.getCversion());
 	}
 
+	/**
+	 * Returns the children if they have been loaded already.
+	 * <p>
+	 * This method never blocks.
+	 * </p>
+	 * 
+	 * @return the children (maybe <code>null</code> if not loaded yet)
+	 */
+	public Object[] getLoadedChildren() {
+		return children;
+	}
+
 	/**
 	 * Returns the parent.
 	 * 
@@ -159,11 +239,48 @@ public class ZooKeeperData {
 		return stat;
 	}
 
+	/**
+	 * Returns the path.
+	 * 
+	 * @return the path
+	 */
+	public IPath getPath() {
+		return path;
+	}
+
+	/**
+	 * Indicates if the node has children.
+	 * <p>
+	 * This method never blocks. If children have not been loaded yet, the
+	 * answer is based on the last known {@link Stat}. If that is also missing,
+	 * <code>true</code> is returned so that the node can be expanded.
+	 * </p>
+	 * 
+	 * @return <code>true</code> if the node has (or may have) children,
+	 *         <code>false</code> otherwise
+	 */
 	public boolean hasChildren() {
-		return getChildren().length > 0;
+		final Object[] children = this.children;
+		if (null != children)
+			return children.length > 0;
+
+		final Stat stat = this.stat;
+		if (null != stat)
+			return (stat.getNumChildren() > 0) || (isPropertiesBased() && (stat.getDataLength() > 0));
+
+		return true;
 	}
 
-	private boolean isPropertiesBased() {
+	/**
+	 * Indicates if the {@link Stat} of the node has been loaded.
+	 * 
+	 * @return <code>true</code> if loaded, <code>false</code> otherwise
+	 */
+	public boolean isStatLoaded() {
+		return null != stat;
+	}
+
+	boolean isPropertiesBased() {
 		return IZooKeeperLayout.PATH_PREFERENCES_ROOT.isPrefixOf(path) || IZooKeeperLayout.PATH_NODES_APPROVED.isPrefixOf(path) || IZooKeeperLayout.PATH_NODES_PENDING.isPrefixOf(path);
 	}
 
@@ -171,35 +288,172 @@ public class ZooKeeperData {
 		return IZooKeeperLayout.PATH_LOCKS_ROOT.isPrefixOf(path) || IZooKeeperLayout.PATH_NODES_ALL.isPrefixOf(path) || IZooKeeperLayout.PATH_NODES_ONLINE.isPrefixOf(path) || IZooKeeperLayout.PATH_JOBS_ROOT.isPrefixOf(path);
 	}
 
+	/**
+	 * Marks the children as not loaded.
+	 * <p>
+	 * They will be read again when requested the next time.
+	 * </p>
+	 */
+	void invalidateChildren() {
+		children = null;
+		childNames = null;
+		propertyChildren = null;
+		windowSize = CHILDREN_PAGE_SIZE;
+	}
+
 	private void load() {
-		stat = new Stat();
+		load(null);
+	}
+
+	private void load(final ZooKeeperMonitor monitor) {
+		final Stat stat = new Stat();
 		try {
-			final Collection<String> names = ZooKeeperGate.get().readChildrenNames(path, stat);
-			final List<Object> children = new ArrayList<Object>();
-			if (names.size() > 0) {
-				// use children
-				for (final String name : names) {
-					children.add(new ZooKeeperData(path.append(name), this));
+			final Collection<String> names = null != monitor ? ZooKeeperGate.get().readChildrenNames(path, monitor, stat) : ZooKeeperGate.get().readChildrenNames(path, stat);
+			this.stat = stat;
+
+			// keep names sorted so that a window of them can be shown
+			final String[] childNames = names.toArray(new String[names.size()]);
+			Arrays.sort(childNames);
+
+			// use cached record if still current
+			ZooKeeperDataCache.Entry entry = null;
+			if (isPropertiesBased() || (isStringBased() && (null == preview))) {
+				entry = cache.get(path, stat.getVersion());
+				if ((null == entry) && isPropertiesBased()) {
+					entry = readRecord(monitor);
+				}
+				if (null != entry) {
+					updatePreview(entry);
 				}
 			}
 
 			// append properties for well known paths
-			if (isPropertiesBased()) {
-				final byte[] data = ZooKeeperGate.get().readRecord(path, stat);
-				if (null != data) {
-					final Properties prop = new Properties();
-					prop.load(new ByteArrayInputStream(data));
-					final Set<Entry<Object, Object>> entrySet = prop.entrySet();
+			final List<Object> properties = new ArrayList<Object>();
+			if (isPropertiesBased() && (null != entry)) {
+				final Object decoded = decode(entry);
+				if (decoded instanceof Properties) {
+					final Set<Entry<Object, Object>> entrySet = ((Properties) decoded).entrySet();
 					for (final Entry<Object, Object> e : entrySet) {
-						children.add(String.format("%s=%s", e.getKey(), e.getValue()));
+						properties.add(String.format("%s=%s", e.getKey(), e.getValue()));
 					}
+				} else if (null != decoded) {
+					properties.add(decoded);
 				}
 			}
 
-			this.children = children.toArray();
+			updateChildren(childNames, properties.toArray(), windowSize);
 		} catch (final Exception e) {
+			if (null == this.stat) {
+				this.stat = stat;
+			}
 			children = new String[] { ExceptionUtils.getRootCauseMessage(e) };
 		}
 	}
 
+	/**
+	 * Extends the window of visible children by {@link #CHILDREN_PAGE_SIZE}.
+	 * <p>
+	 * This method does not read from ZooKeeper. It only creates the
+	 * {@link ZooKeeperData} for the next page of already known child names.
+	 * </p>
+	 * 
+	 * @return the newly visible children (never <code>null</code>)
+	 */
+	List<ZooKeeperData> showMoreChildren() {
+		final String[] childNames = this.childNames;
+		final Object[] propertyChildren = this.propertyChildren;
+		if ((null == childNames) || (null == propertyChildren))
+			return Collections.emptyList();
+
+		return updateChildren(childNames, propertyChildren, windowSize + CHILDREN_PAGE_SIZE);
+	}
+
+	private synchronized List<ZooKeeperData> updateChildren(final String[] childNames, final Object[] propertyChildren, final int windowSize) {
+		// re-use existing children so that the viewer can keep their state
+		final Map<String, ZooKeeperData> existing = new HashMap<String, ZooKeeperData>();
+		final Object[] oldChildren = this.children;
+		if (null != oldChildren) {
+			for (final Object child : oldChildren) {
+				if (child instanceof ZooKeeperData) {
+					existing.put(((ZooKeeperData) child).getPath().lastSegment(), (ZooKeeperData) child);
+				}
+			}
+		}
+
+		// only create data for children within the window
+		final int visible = Math.min(childNames.length, windowSize);
+		final List<Object> children = new ArrayList<Object>(visible + propertyChildren.length + 1);
+		final List<ZooKeeperData> added = new ArrayList<ZooKeeperData>();
+		for (int i = 0; i < visible; i++) {
+			ZooKeeperData child = existing.get(childNames[i]);
+			if (null == child) {
+				child = new ZooKeeperData(path.append(childNames[i]), this, cache);
+				added.add(child);
+			}
+			children.add(child);
+		}
+		children.addAll(Arrays.asList(propertyChildren));
+		if (visible < childNames.length) {
+			children.add(new MoreChildren(this, Math.min(CHILDREN_PAGE_SIZE, childNames.length - visible), childNames.length - visible));
+		}
+
+		this.childNames = childNames;
+		this.propertyChildren = propertyChildren;
+		this.windowSize = windowSize;
+		this.children = children.toArray();
+		return added;
+	}
+
+	/**
+	 * Loads the children of the node.
+	 * <p>
+	 * Children which are still present are kept, i.e. the same
+	 * {@link ZooKeeperData} instances will be returned from
+	 * {@link #getLoadedChildren()}. This method blocks and must not be called
+	 * from the UI thread.
+	 * </p>
+	 * 
+	 * @param monitor
+	 *            a monitor to register as children (and data) watch (maybe
+	 *            <code>null</code>)
+	 */
+	void loadChildren(final ZooKeeperMonitor monitor) {
+		load(monitor);
+	}
+
+	/**
+	 * Loads the {@link Stat} and the record of the node with a single read.
+	 * <p>
+	 * This method blocks and must not be called from the UI thread.
+	 * </p>
+	 * 
+	 * @param monitor
+	 *            a monitor to register as data watch (maybe <code>null</code>)
+	 */
+	void loadRecord(final ZooKeeperMonitor monitor) {
+		readRecord(monitor);
+	}
+
+	private ZooKeeperDataCache.Entry readRecord(final ZooKeeperMonitor monitor) {
+		final Stat stat = new Stat();
+		try {
+			final byte[] data = null != monitor ? ZooKeeperGate.get().readRecord(path, monitor, stat) : ZooKeeperGate.get().readRecord(path, stat);
+			final ZooKeeperDataCache.Entry entry = cache.put(path, data, stat);
+			updatePreview(entry);
+			error = null;
+			this.stat = stat;
+			return entry;
+		} catch (final Exception e) {
+			error = ExceptionUtils.getRootCauseMessage(e);
+			this.stat = stat;
+			return null;
+		}
+	}
+
+	private void updatePreview(final ZooKeeperDataCache.Entry entry) {
+		if (isStringBased()) {
+			preview = null != entry.getData() ? StringUtils.left(String.valueOf(decode(entry)), PREVIEW_LENGTH) : null;
+		}
+	}
+
 }
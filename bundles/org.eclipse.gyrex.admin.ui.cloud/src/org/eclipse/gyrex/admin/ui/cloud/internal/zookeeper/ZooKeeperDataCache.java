@@ -0,0 +1,285 @@
+/*******************************************************************************
+ * Copyright (c) 2013 AGETO Service GmbH and others.
+ * All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Contributors:
+ *     Gunnar Wagenknecht - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.gyrex.admin.ui.cloud.internal.zookeeper;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.eclipse.core.runtime.IPath;
+
+import org.apache.zookeeper.data.Stat;
+
+/**
+ * A cache of ZooKeeper records for a single explorer session.
+ * <p>
+ * The cache holds the raw bytes, the decoded form and the {@link Stat} of a
+ * record. It is bounded by the total number of record bytes held and evicts
+ * least recently used entries first. Entries are invalidated explicitly (eg.
+ * by a watch) or implicitly when a lookup asks for a different znode version.
+ * </p>
+ */
+public class ZooKeeperDataCache {
+
+	/**
+	 * A cached record.
+	 */
+	public static final class Entry {
+
+		private final byte[] data;
+		private final Stat stat;
+		private volatile Object decoded;
+
+		Entry(final byte[] data, final Stat stat) {
+			this.data = data;
+			this.stat = stat;
+		}
+
+		/**
+		 * Returns the raw bytes.
+		 *
+		 * @return the raw bytes (maybe <code>null</code>)
+		 */
+		public byte[] getData() {
+			return data;
+		}
+
+		/**
+		 * Returns the decoded form if already set.
+		 *
+		 * @return the decoded form (maybe <code>null</code>)
+		 */
+		public Object getDecoded() {
+			return decoded;
+		}
+
+		/**
+		 * Returns the stat read together with the record.
+		 *
+		 * @return the stat
+		 */
+		public Stat getStat() {
+			return stat;
+		}
+
+		void setDecoded(final Object decoded) {
+			this.decoded = decoded;
+		}
+
+		int size() {
+			return null != data ? data.length : 0;
+		}
+	}
+
+	private final long maxBytes;
+	private final LinkedHashMap<IPath, Entry> entries = new LinkedHashMap<IPath, Entry>(64, 0.75f, true);
+
+	private long bytesHeld;
+	private long hits;
+	private long misses;
+	private long evictions;
+
+	/**
+	 * Creates a new instance.
+	 *
+	 * @param maxBytes
+	 *            the maximum number of record bytes to hold
+	 */
+	public ZooKeeperDataCache(final long maxBytes) {
+		this.maxBytes = maxBytes;
+	}
+
+	/**
+	 * Removes all entries.
+	 */
+	public synchronized void clear() {
+		entries.clear();
+		bytesHeld = 0;
+	}
+
+	/**
+	 * Returns the cached record for the specified path.
+	 *
+	 * @param path
+	 *            the path
+	 * @return the cached record (maybe <code>null</code>)
+	 */
+	public synchronized Entry get(final IPath path) {
+		final Entry entry = entries.get(path);
+		if (null == entry) {
+			misses++;
+		} else {
+			hits++;
+		}
+		return entry;
+	}
+
+	/**
+	 * Returns the cached record for the specified path if it matches the
+	 * specified znode version.
+	 * <p>
+	 * An entry with a different version is removed from the cache.
+	 * </p>
+	 *
+	 * @param path
+	 *            the path
+	 * @param version
+	 *            the expected znode (data) version
+	 * @return the cached record (maybe <code>null</code>)
+	 */
+	public synchronized Entry get(final IPath path, final int version) {
+		final Entry entry = entries.get(path);
+		if ((null != entry) && (entry.getStat().getVersion() == version)) {
+			hits++;
+			return entry;
+		}
+
+		misses++;
+		if (null != entry) {
+			remove(path);
+		}
+		return null;
+	}
+
+	/**
+	 * Returns the number of record bytes currently held.
+	 *
+	 * @return the bytes held
+	 */
+	public synchronized long getBytesHeld() {
+		return bytesHeld;
+	}
+
+	/**
+	 * Returns the number of entries currently held.
+	 *
+	 * @return the number of entries
+	 */
+	public synchronized int getEntryCount() {
+		return entries.size();
+	}
+
+	/**
+	 * Returns the number of entries evicted because the cache was full.
+	 *
+	 * @return the number of evictions
+	 */
+	public synchronized long getEvictionCount() {
+		return evictions;
+	}
+
+	/**
+	 * Returns the number of lookups answered from the cache.
+	 *
+	 * @return the number of hits
+	 */
+	public synchronized long getHitCount() {
+		return hits;
+	}
+
+	/**
+	 * Returns the ratio of lookups answered from the cache.
+	 *
+	 * @return the hit rate (between <code>0</code> and <code>1</code>)
+	 */
+	public synchronized double getHitRate() {
+		final long lookups = hits + misses;
+		return lookups > 0 ? (double) hits / lookups : 0;
+	}
+
+	/**
+	 * Returns the maximum number of record bytes held.
+	 *
+	 * @return the maximum number of bytes
+	 */
+	public long getMaxBytes() {
+		return maxBytes;
+	}
+
+	/**
+	 * Returns the number of lookups not answered from the cache.
+	 *
+	 * @return the number of misses
+	 */
+	public synchronized long getMissCount() {
+		return misses;
+	}
+
+	/**
+	 * Removes the entry for the specified path.
+	 *
+	 * @param path
+	 *            the path
+	 */
+	public synchronized void invalidate(final IPath path) {
+		remove(path);
+	}
+
+	/**
+	 * Caches a record.
+	 * <p>
+	 * An existing entry with a newer version is kept. Records larger than the
+	 * cache are not cached.
+	 * </p>
+	 *
+	 * @param path
+	 *            the path
+	 * @param data
+	 *            the raw bytes (maybe <code>null</code>)
+	 * @param stat
+	 *            the stat read together with the record
+	 * @return the cache entry (never <code>null</code>, but possibly not held
+	 *         in the cache)
+	 */
+	public synchronized Entry put(final IPath path, final byte[] data, final Stat stat) {
+		final Entry existing = entries.get(path);
+		if ((null != existing) && (existing.getStat().getVersion() > stat.getVersion()))
+			return existing;
+
+		final Entry entry = new Entry(data, stat);
+		if (entry.size() > maxBytes) {
+			remove(path);
+			return entry;
+		}
+
+		final Entry old = entries.put(path, entry);
+		if (null != old) {
+			bytesHeld -= old.size();
+		}
+		bytesHeld += entry.size();
+
+		// evict least recently used entries
+		for (final Iterator<Map.Entry<IPath, Entry>> stream = entries.entrySet().iterator(); (bytesHeld > maxBytes) && stream.hasNext();) {
+			final Map.Entry<IPath, Entry> eldest = stream.next();
+			if (eldest.getValue() == entry) {
+				continue;
+			}
+			bytesHeld -= eldest.getValue().size();
+			stream.remove();
+			evictions++;
+		}
+
+		return entry;
+	}
+
+	private void remove(final IPath path) {
+		final Entry entry = entries.remove(path);
+		if (null != entry) {
+			bytesHeld -= entry.size();
+		}
+	}
+
+	@Override
+	public synchronized String toString() {
+		return String.format("ZooKeeperDataCache [%d entries, %d/%d bytes, %d hits, %d misses, %d evictions]", entries.size(), bytesHeld, maxBytes, hits, misses, evictions);
+	}
+}
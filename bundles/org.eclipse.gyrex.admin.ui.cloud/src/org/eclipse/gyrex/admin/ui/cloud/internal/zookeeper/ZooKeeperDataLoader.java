@@ -0,0 +1,502 @@
+/*******************************************************************************
+ * Copyright (c) 2013 AGETO Service GmbH and others.
+ * All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Contributors:
+ *     Gunnar Wagenknecht - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.gyrex.admin.ui.cloud.internal.zookeeper;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.eclipse.gyrex.cloud.internal.zk.ZooKeeperMonitor;
+
+import org.eclipse.core.runtime.Path;
+import org.eclipse.jface.viewers.TreeViewer;
+import org.eclipse.rap.rwt.service.ServerPushSession;
+import org.eclipse.swt.widgets.Display;
+
+/**
+ * Background loader for {@link ZooKeeperData} displayed in a
+ * {@link TreeViewer}.
+ * <p>
+ * Children names of a node are read in the background. The viewer is refreshed
+ * once the names are available, which shows placeholder rows for all children.
+ * The records and stats of the children are then read in parallel in batches
+ * and each completed batch is published to the viewer with a single update.
+ * The UI thread never waits for a ZooKeeper round trip.
+ * </p>
+ * <p>
+ * All reads register ZooKeeper watches. When a watch fires, only the affected
+ * node is read again and the differences are applied to the viewer
+ * incrementally (add/remove/update), which preserves the expansion state.
+ * Changes to collapsed nodes only invalidate their children.
+ * </p>
+ */
+public class ZooKeeperDataLoader {
+
+	/**
+	 * Placeholder displayed while children of a node are loading.
+	 */
+	public static final class Placeholder {
+
+		private final ZooKeeperData parent;
+
+		Placeholder(final ZooKeeperData parent) {
+			this.parent = parent;
+		}
+
+		public ZooKeeperData getParent() {
+			return parent;
+		}
+
+		@Override
+		public String toString() {
+			return "Loading...";
+		}
+	}
+
+	private static final AtomicInteger instanceCount = new AtomicInteger();
+
+	private final TreeViewer viewer;
+	private final ZooKeeperDataCache cache;
+	private final Display display;
+	private final int batchSize;
+	private final ExecutorService executor;
+	private final Set<ZooKeeperData> loading = Collections.newSetFromMap(new ConcurrentHashMap<ZooKeeperData, Boolean>());
+	private final Set<ZooKeeperData> dirty = Collections.newSetFromMap(new ConcurrentHashMap<ZooKeeperData, Boolean>());
+	private final ConcurrentMap<String, ZooKeeperData> watchedNodes = new ConcurrentHashMap<String, ZooKeeperData>();
+	private final ServerPushSession pushSession;
+
+	private final ZooKeeperMonitor monitor = new ZooKeeperMonitor() {
+		@Override
+		protected void childrenChanged(final String path) {
+			nodeChanged(path, true);
+		}
+
+		@Override
+		protected void pathDeleted(final String path) {
+			// the parent receives a children changed event
+			cache.invalidate(new Path(path));
+			watchedNodes.remove(path);
+		}
+
+		@Override
+		protected void recordChanged(final String path) {
+			cache.invalidate(new Path(path));
+			nodeChanged(path, false);
+		}
+	};
+
+	private volatile boolean disposed;
+
+	/**
+	 * Creates a new instance.
+	 * <p>
+	 * Must be called from the UI thread.
+	 * </p>
+	 *
+	 * @param viewer
+	 *            the viewer to update
+	 * @param cache
+	 *            the record cache to invalidate when watches fire
+	 * @param parallelism
+	 *            the maximum number of concurrent ZooKeeper reads
+	 * @param batchSize
+	 *            the number of children to publish with a single viewer update
+	 */
+	public ZooKeeperDataLoader(final TreeViewer viewer, final ZooKeeperDataCache cache, final int parallelism, final int batchSize) {
+		this.viewer = viewer;
+		this.cache = cache;
+		this.batchSize = batchSize;
+		display = viewer.getControl().getDisplay();
+
+		// watch events arrive at any time
+		pushSession = new ServerPushSession();
+		pushSession.start();
+
+		final String threadNamePrefix = String.format("ZooKeeper Explorer Loader %d-", instanceCount.incrementAndGet());
+		executor = Executors.newFixedThreadPool(parallelism, new ThreadFactory() {
+			private final AtomicInteger threadCount = new AtomicInteger();
+
+			@Override
+			public Thread newThread(final Runnable r) {
+				final Thread t = new Thread(r, threadNamePrefix + threadCount.incrementAndGet());
+				t.setDaemon(true);
+				return t;
+			}
+		});
+	}
+
+	private void asyncExec(final Runnable runnable) {
+		if (disposed || display.isDisposed())
+			return;
+
+		display.asyncExec(new Runnable() {
+			@Override
+			public void run() {
+				if (disposed || viewer.getControl().isDisposed())
+					return;
+				runnable.run();
+			}
+		});
+	}
+
+	/**
+	 * Creates a placeholder to display for the specified node while its
+	 * children are loading.
+	 *
+	 * @param node
+	 *            the node
+	 * @return the placeholder children
+	 */
+	public Object[] createPlaceholder(final ZooKeeperData node) {
+		return new Object[] { new Placeholder(node) };
+	}
+
+	/**
+	 * Disposes the loader.
+	 * <p>
+	 * Pending reads are abandoned and their results will not be published.
+	 * Watches which are still registered will be ignored when they fire. The
+	 * cache is cleared because it can no longer be invalidated by watches.
+	 * Must be called from the UI thread.
+	 * </p>
+	 */
+	public void dispose() {
+		disposed = true;
+		executor.shutdownNow();
+		loading.clear();
+		dirty.clear();
+		watchedNodes.clear();
+		cache.clear();
+		pushSession.stop();
+	}
+
+	private void execute(final Runnable runnable) {
+		try {
+			executor.execute(runnable);
+		} catch (final RejectedExecutionException e) {
+			// disposed
+		}
+	}
+
+	void finished(final ZooKeeperData node) {
+		loading.remove(node);
+
+		// load again if a change was reported while loading
+		if (dirty.remove(node)) {
+			reload(node, false);
+		}
+
+		loaded(node);
+	}
+
+	/**
+	 * Indicates if the specified node is currently loading.
+	 *
+	 * @param node
+	 *            the node
+	 * @return <code>true</code> if loading, <code>false</code> otherwise
+	 */
+	public boolean isLoading(final ZooKeeperData node) {
+		return loading.contains(node);
+	}
+
+	/**
+	 * Called when the children of a node and their records have been loaded
+	 * and published to the viewer.
+	 * <p>
+	 * Called from the UI thread. The default implementation does nothing.
+	 * Subclasses may override.
+	 * </p>
+	 *
+	 * @param node
+	 *            the node
+	 */
+	protected void loaded(final ZooKeeperData node) {
+		// empty
+	}
+
+	/**
+	 * Schedules loading of the children of the specified node.
+	 * <p>
+	 * Does nothing if the node is already loading. Must be called from the UI
+	 * thread.
+	 * </p>
+	 *
+	 * @param node
+	 *            the node to load
+	 */
+	public void load(final ZooKeeperData node) {
+		if (disposed || !loading.add(node))
+			return;
+
+		execute(new Runnable() {
+			@Override
+			public void run() {
+				loadChildren(node, false);
+			}
+		});
+	}
+
+	void loadChildren(final ZooKeeperData node, final boolean refreshRecords) {
+		if (disposed)
+			return;
+
+		final Object[] oldChildren = node.getLoadedChildren();
+		watchedNodes.put(node.getPath().toString(), node);
+		node.loadChildren(monitor);
+		final Object[] newChildren = node.getLoadedChildren();
+
+		// collect children which need a record read
+		final List<ZooKeeperData> pending = new ArrayList<ZooKeeperData>();
+		if (null != newChildren) {
+			for (final Object child : newChildren) {
+				if ((child instanceof ZooKeeperData) && (refreshRecords || !((ZooKeeperData) child).isStatLoaded())) {
+					pending.add((ZooKeeperData) child);
+				}
+			}
+		}
+
+		if ((null != oldChildren) && (null != newChildren)) {
+			// apply differences only
+			final Set<Object> oldSet = Collections.newSetFromMap(new IdentityHashMap<Object, Boolean>());
+			oldSet.addAll(Arrays.asList(oldChildren));
+			final List<Object> added = new ArrayList<Object>();
+			for (final Object child : newChildren) {
+				if (!oldSet.remove(child)) {
+					added.add(child);
+				}
+			}
+			final Object[] removed = oldSet.toArray();
+			for (final Object child : removed) {
+				if (child instanceof ZooKeeperData) {
+					unwatch((ZooKeeperData) child);
+				}
+			}
+			asyncExec(new Runnable() {
+				@Override
+				public void run() {
+					if (removed.length > 0) {
+						viewer.remove(removed);
+					}
+					if (!added.isEmpty()) {
+						viewer.add(node, added.toArray());
+					}
+					viewer.update(node, null);
+					if (pending.isEmpty()) {
+						finished(node);
+					}
+				}
+			});
+		} else {
+			// show placeholder rows
+			asyncExec(new Runnable() {
+				@Override
+				public void run() {
+					viewer.refresh(node, true);
+					if (pending.isEmpty()) {
+						finished(node);
+					}
+				}
+			});
+		}
+
+		if (pending.isEmpty())
+			return;
+
+		readRecords(node, pending, true);
+	}
+
+	void readRecords(final ZooKeeperData node, final List<ZooKeeperData> pending, final boolean finishLoading) {
+		// read records in batches
+		final AtomicInteger remainingBatches = new AtomicInteger((pending.size() + batchSize - 1) / batchSize);
+		for (int i = 0; i < pending.size(); i += batchSize) {
+			final List<ZooKeeperData> batch = pending.subList(i, Math.min(i + batchSize, pending.size()));
+			final AtomicInteger remainingReads = new AtomicInteger(batch.size());
+			for (final ZooKeeperData child : batch) {
+				execute(new Runnable() {
+					@Override
+					public void run() {
+						try {
+							if (!disposed) {
+								watchedNodes.put(child.getPath().toString(), child);
+								child.loadRecord(monitor);
+							}
+						} finally {
+							if (remainingReads.decrementAndGet() == 0) {
+								publishBatch(node, batch, finishLoading && (remainingBatches.decrementAndGet() == 0));
+							}
+						}
+					}
+				});
+			}
+		}
+	}
+
+	void nodeChanged(final String path, final boolean childrenChanged) {
+		final ZooKeeperData node = watchedNodes.get(path);
+		if (disposed || (null == node))
+			return;
+
+		asyncExec(new Runnable() {
+			@Override
+			public void run() {
+				if ((null == node.getLoadedChildren()) || (!childrenChanged && !node.isPropertiesBased())) {
+					// record only
+					reloadRecord(node);
+				} else if ((node == viewer.getInput()) || viewer.getExpandedState(node)) {
+					reload(node, false);
+				} else {
+					// collapsed; read again on next expand
+					unwatchChildren(node);
+					node.invalidateChildren();
+					viewer.refresh(node, false);
+				}
+			}
+		});
+	}
+
+	void publishBatch(final ZooKeeperData node, final List<ZooKeeperData> batch, final boolean last) {
+		asyncExec(new Runnable() {
+			@Override
+			public void run() {
+				viewer.update(batch.toArray(), null);
+				if (last) {
+					finished(node);
+				}
+			}
+		});
+	}
+
+	/**
+	 * Reads the children of the specified node again and applies the
+	 * differences to the viewer.
+	 * <p>
+	 * If the node is currently loading, it will be read again once the current
+	 * load finished. Must be called from the UI thread.
+	 * </p>
+	 *
+	 * @param node
+	 *            the node to load
+	 * @param refreshRecords
+	 *            <code>true</code> if the records of all children should be
+	 *            read again, <code>false</code> if only records of new children
+	 *            should be read
+	 */
+	public void reload(final ZooKeeperData node, final boolean refreshRecords) {
+		if (disposed)
+			return;
+
+		if (!loading.add(node)) {
+			dirty.add(node);
+			return;
+		}
+
+		execute(new Runnable() {
+			@Override
+			public void run() {
+				loadChildren(node, refreshRecords);
+			}
+		});
+	}
+
+	void reloadRecord(final ZooKeeperData node) {
+		execute(new Runnable() {
+			@Override
+			public void run() {
+				if (disposed)
+					return;
+				node.loadRecord(monitor);
+				asyncExec(new Runnable() {
+					@Override
+					public void run() {
+						viewer.update(node, null);
+					}
+				});
+			}
+		});
+	}
+
+	/**
+	 * Shows the next page of children of a node with many children.
+	 * <p>
+	 * The newly visible children are added to the viewer as placeholder rows
+	 * and their records are read in the background. Must be called from the UI
+	 * thread.
+	 * </p>
+	 *
+	 * @param more
+	 *            the element which was selected to show more children
+	 */
+	public void showMoreChildren(final ZooKeeperData.MoreChildren more) {
+		if (disposed)
+			return;
+
+		final ZooKeeperData node = more.getParent();
+		final List<ZooKeeperData> added = node.showMoreChildren();
+		final List<Object> elements = new ArrayList<Object>(added);
+		final Object[] children = node.getLoadedChildren();
+		if ((null != children) && (children.length > 0) && (children[children.length - 1] instanceof ZooKeeperData.MoreChildren)) {
+			elements.add(children[children.length - 1]);
+		}
+
+		viewer.remove(more);
+		viewer.add(node, elements.toArray());
+		if (!added.isEmpty()) {
+			readRecords(node, added, false);
+		}
+	}
+
+	/**
+	 * Validates all nodes whose children have been loaded against ZooKeeper.
+	 * <p>
+	 * This is typically called after the connection to ZooKeeper has been
+	 * re-established, which may have dropped previously registered watches.
+	 * Must be called from the UI thread.
+	 * </p>
+	 *
+	 * @param nodes
+	 *            the nodes to validate
+	 */
+	public void revalidate(final Object[] nodes) {
+		for (final Object node : nodes) {
+			if ((node instanceof ZooKeeperData) && (null != ((ZooKeeperData) node).getLoadedChildren()) && !isLoading((ZooKeeperData) node)) {
+				reload((ZooKeeperData) node, true);
+			}
+		}
+	}
+
+	private void unwatch(final ZooKeeperData node) {
+		watchedNodes.remove(node.getPath().toString(), node);
+		unwatchChildren(node);
+	}
+
+	private void unwatchChildren(final ZooKeeperData node) {
+		final Object[] children = node.getLoadedChildren();
+		if (null == children)
+			return;
+		for (final Object child : children) {
+			if (child instanceof ZooKeeperData) {
+				unwatch((ZooKeeperData) child);
+			}
+		}
+	}
+}
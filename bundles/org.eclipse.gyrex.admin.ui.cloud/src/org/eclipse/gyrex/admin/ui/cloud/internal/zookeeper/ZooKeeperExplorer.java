@@ -11,25 +11,72 @@
  *******************************************************************************/
 package org.eclipse.gyrex.admin.ui.cloud.internal.zookeeper;
 
+import java.io.File;
+import java.io.FilenameFilter;
+import java.text.SimpleDateFormat;
+import java.util.Arrays;
+import java.util.Date;
+
+import org.eclipse.gyrex.admin.ui.cloud.internal.CloudUiActivator;
 import org.eclipse.gyrex.admin.ui.cloud.internal.ZooKeeperBasedAdminPage;
+import org.eclipse.gyrex.admin.ui.internal.helper.SwtUtil;
+import org.eclipse.gyrex.admin.ui.internal.widgets.ElementListSelectionDialog;
+import org.eclipse.gyrex.admin.ui.internal.widgets.ISelectionStatusValidator;
+import org.eclipse.gyrex.admin.ui.internal.widgets.NonBlockingMessageDialogs;
 import org.eclipse.gyrex.admin.ui.internal.widgets.PatternFilter;
 
+import org.eclipse.core.runtime.IPath;
+import org.eclipse.core.runtime.IStatus;
 import org.eclipse.core.runtime.Path;
+import org.eclipse.core.runtime.Platform;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.IJobChangeEvent;
+import org.eclipse.core.runtime.jobs.Job;
+import org.eclipse.core.runtime.jobs.JobChangeAdapter;
+import org.eclipse.jface.viewers.IStructuredSelection;
 import org.eclipse.jface.viewers.ITreeContentProvider;
+import org.eclipse.jface.viewers.LabelProvider;
+import org.eclipse.jface.viewers.TreeViewer;
 import org.eclipse.jface.viewers.Viewer;
+import org.eclipse.jface.window.Window;
+import org.eclipse.rap.rwt.service.ServerPushSession;
+import org.eclipse.rap.rwt.widgets.DialogCallback;
+import org.eclipse.swt.SWT;
+import org.eclipse.swt.events.SelectionAdapter;
+import org.eclipse.swt.events.SelectionEvent;
+import org.eclipse.swt.widgets.Button;
 import org.eclipse.swt.widgets.Composite;
 import org.eclipse.swt.widgets.Control;
+import org.eclipse.swt.widgets.Display;
+import org.eclipse.swt.widgets.Label;
+
+import org.apache.commons.lang.StringUtils;
 
 public class ZooKeeperExplorer extends ZooKeeperBasedAdminPage {
 
-	static class ViewContentProvider implements ITreeContentProvider {
+	class ViewContentProvider implements ITreeContentProvider {
 
 		/** serialVersionUID */
 		private static final long serialVersionUID = 1L;
 		private static final Object[] NO_CHILDREN = new Object[0];
 
+		private final ZooKeeperDataCache cache;
+		private ZooKeeperDataLoader loader;
+
+		public ViewContentProvider(final ZooKeeperDataCache cache) {
+			this.cache = cache;
+		}
+
+		ZooKeeperDataLoader getLoader() {
+			return loader;
+		}
+
 		@Override
 		public void dispose() {
+			if (null != loader) {
+				loader.dispose();
+				loader = null;
+			}
 		}
 
 		@Override
@@ -39,9 +86,18 @@ public class ZooKeeperExplorer extends ZooKeeperBasedAdminPage {
 
 		@Override
 		public Object[] getElements(final Object parent) {
-			if (parent instanceof ZooKeeperData)
-				return ((ZooKeeperData) parent).getChildren();
-			else
+			if (parent instanceof ZooKeeperData) {
+				final ZooKeeperData node = (ZooKeeperData) parent;
+				if (null == loader)
+					return node.getChildren();
+
+				final Object[] children = node.getLoadedChildren();
+				if (null != children)
+					return children;
+
+				loader.load(node);
+				return loader.createPlaceholder(node);
+			} else
 				return NO_CHILDREN;
 		}
 
@@ -49,6 +105,10 @@ public class ZooKeeperExplorer extends ZooKeeperBasedAdminPage {
 		public Object getParent(final Object element) {
 			if (element instanceof ZooKeeperData)
 				return ((ZooKeeperData) element).getParent();
+			if (element instanceof ZooKeeperDataLoader.Placeholder)
+				return ((ZooKeeperDataLoader.Placeholder) element).getParent();
+			if (element instanceof ZooKeeperData.MoreChildren)
+				return ((ZooKeeperData.MoreChildren) element).getParent();
 			return null;
 		}
 
@@ -62,29 +122,159 @@ public class ZooKeeperExplorer extends ZooKeeperBasedAdminPage {
 
 		@Override
 		public void inputChanged(final Viewer v, final Object oldInput, final Object newInput) {
+			if (null != loader) {
+				loader.dispose();
+				loader = null;
+			}
+			if ((null != newInput) && (v instanceof TreeViewer)) {
+				loader = new ZooKeeperDataLoader((TreeViewer) v, cache, LOADER_PARALLELISM, LOADER_BATCH_SIZE) {
+					@Override
+					protected void loaded(final ZooKeeperData node) {
+						updateCacheStatus();
+					}
+				};
+			}
 		}
 	}
 
+	/** maximum number of concurrent ZooKeeper reads per explorer */
+	static final int LOADER_PARALLELISM = 4;
+
+	/** number of nodes published to the viewer with a single update */
+	static final int LOADER_BATCH_SIZE = 50;
+
+	/** max number of record bytes cached per explorer */
+	static final long CACHE_MAX_BYTES = 4 * 1024 * 1024;
+
+	/** maximum number of concurrent ZooKeeper reads when walking a subtree */
+	static final int SNAPSHOT_PARALLELISM = 4;
+
+	private final ZooKeeperDataCache cache = new ZooKeeperDataCache(CACHE_MAX_BYTES);
+	private ViewContentProvider contentProvider;
+
+	private Label cacheStatusLabel;
+	private Button exportButton;
+	private Button compareButton;
+	private Button analyzeButton;
+
 	public ZooKeeperExplorer() {
 		super(0);
 		setTitle("ZooKeeper Explorer");
 		setTitleToolTip("Browse ZooKeeper data");
 	}
 
+	void analyzeSize() {
+		getAdminUi().openPage(ZooKeeperSizeAnalyzer.ID, getSelectedPath().toString());
+	}
+
+	void compareSnapshots() {
+		final File[] snapshots = getSnapshotLocation().listFiles(new FilenameFilter() {
+			@Override
+			public boolean accept(final File dir, final String name) {
+				return name.endsWith(ZooKeeperSnapshotFile.FILE_EXTENSION);
+			}
+		});
+		if ((null == snapshots) || (snapshots.length == 0)) {
+			NonBlockingMessageDialogs.openInformation(SwtUtil.getShell(exportButton), "No Snapshots", "There are no snapshots available. Please export a snapshot first.", null);
+			return;
+		}
+		Arrays.sort(snapshots);
+
+		final ElementListSelectionDialog dialog = new ElementListSelectionDialog(SwtUtil.getShell(exportButton), new LabelProvider() {
+			/** serialVersionUID */
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			public String getText(final Object element) {
+				return ((File) element).getName();
+			}
+		});
+		dialog.setTitle("Compare Snapshots");
+		dialog.setMessage("Select one snapshot to compare with the live tree or two snapshots to compare with each other:");
+		dialog.setMultipleSelection(true);
+		dialog.setElements(snapshots);
+		dialog.setValidator(new ISelectionStatusValidator() {
+			@Override
+			public IStatus validate(final Object[] selection) {
+				if ((selection.length < 1) || (selection.length > 2))
+					return new Status(IStatus.ERROR, CloudUiActivator.SYMBOLIC_NAME, "Please select one or two snapshots.");
+				return Status.OK_STATUS;
+			}
+		});
+		dialog.openNonBlocking(new DialogCallback() {
+			/** serialVersionUID */
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			public void dialogClosed(final int returnCode) {
+				if (returnCode != Window.OK)
+					return;
+
+				final Object[] result = dialog.getResult();
+				if ((null == result) || (result.length == 0))
+					return;
+
+				// file names start with a timestamp; compare older with newer regardless of the selection order
+				final File[] files = Arrays.copyOf(result, result.length, File[].class);
+				Arrays.sort(files);
+				final File oldFile = files[0];
+				final File newFile = files.length > 1 ? files[1] : null;
+				final File reportFile = new File(getSnapshotLocation(), String.format("%s-diff.txt", newTimestamp()));
+				schedule(new CompareSnapshotsJob(oldFile, newFile, reportFile, SNAPSHOT_PARALLELISM), "Compare Snapshots");
+			}
+		});
+	}
+
 	@Override
 	protected void createButtons(final Composite parent) {
-		// no buttons
+		exportButton = createButton(parent, "Export");
+		exportButton.addSelectionListener(new SelectionAdapter() {
+			/** serialVersionUID */
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			public void widgetSelected(final SelectionEvent e) {
+				exportSnapshot();
+			}
+		});
+
+		compareButton = createButton(parent, "Compare...");
+		compareButton.addSelectionListener(new SelectionAdapter() {
+			/** serialVersionUID */
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			public void widgetSelected(final SelectionEvent e) {
+				compareSnapshots();
+			}
+		});
+
+		createButtonSeparator(parent);
+
+		analyzeButton = createButton(parent, "Analyze Size");
+		analyzeButton.addSelectionListener(new SelectionAdapter() {
+			/** serialVersionUID */
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			public void widgetSelected(final SelectionEvent e) {
+				analyzeSize();
+			}
+		});
 	}
 
 	@Override
 	protected ITreeContentProvider createContentProvider() {
-		return new ViewContentProvider();
+		contentProvider = new ViewContentProvider(cache);
+		return contentProvider;
 	}
 
 	@Override
 	protected Control createHeader(final Composite parent) {
-		// no header
-		return null;
+		cacheStatusLabel = new Label(parent, SWT.WRAP);
+		cacheStatusLabel.setToolTipText("Records read from ZooKeeper are cached until a watch reports a change.");
+		updateCacheStatus();
+		return cacheStatusLabel;
 	}
 
 	@Override
@@ -100,6 +290,14 @@ public class ZooKeeperExplorer extends ZooKeeperBasedAdminPage {
 		return null;
 	}
 
+	@Override
+	protected int getElementCategory(final Object element, final int column) {
+		// keep "show more" at the end
+		if (element instanceof ZooKeeperData.MoreChildren)
+			return 1;
+		return 0;
+	}
+
 	@Override
 	protected String getElementLabel(final Object element, final int column) {
 		if (element instanceof ZooKeeperData)
@@ -108,9 +306,37 @@ public class ZooKeeperExplorer extends ZooKeeperBasedAdminPage {
 			return String.valueOf(element);
 	}
 
+	@Override
+	protected void gateStateChanged(final boolean connected) {
+		// nothing can be read while disconnected; keep showing what we have
+		if (connected) {
+			refresh();
+		}
+	}
+
+	void exportSnapshot() {
+		final IPath rootPath = getSelectedPath();
+		final String name = rootPath.segmentCount() > 0 ? StringUtils.join(rootPath.segments(), '_') : "root";
+		final File file = new File(getSnapshotLocation(), String.format("%s-%s%s", newTimestamp(), name, ZooKeeperSnapshotFile.FILE_EXTENSION));
+		schedule(new ExportSnapshotJob(rootPath, file, SNAPSHOT_PARALLELISM), "Export Snapshot");
+	}
+
+	private IPath getSelectedPath() {
+		final Object element = ((IStructuredSelection) getTreeViewer().getSelection()).getFirstElement();
+		return element instanceof ZooKeeperData ? ((ZooKeeperData) element).getPath() : Path.ROOT;
+	}
+
+	File getSnapshotLocation() {
+		final File location = Platform.getStateLocation(CloudUiActivator.getInstance().getBundle()).append("zookeeper-snapshots").toFile();
+		if (!location.isDirectory()) {
+			location.mkdirs();
+		}
+		return location;
+	}
+
 	@Override
 	protected Object getViewerInput() {
-		return new ZooKeeperData(Path.ROOT, null);
+		return new ZooKeeperData(Path.ROOT, null, cache);
 	}
 
 	@Override
@@ -118,13 +344,82 @@ public class ZooKeeperExplorer extends ZooKeeperBasedAdminPage {
 		return false;
 	}
 
+	String newTimestamp() {
+		return new SimpleDateFormat("yyyyMMdd-HHmmss").format(new Date());
+	}
+
+	@Override
+	protected void openSelectedElement() {
+		final Object element = ((IStructuredSelection) getTreeViewer().getSelection()).getFirstElement();
+		if (!(element instanceof ZooKeeperData.MoreChildren))
+			return;
+
+		final ZooKeeperDataLoader loader = null != contentProvider ? contentProvider.getLoader() : null;
+		if (null != loader) {
+			loader.showMoreChildren((ZooKeeperData.MoreChildren) element);
+		}
+	}
+
 	@Override
 	protected void refresh() {
-		getTreeViewer().setInput(getViewerInput());
+		final TreeViewer viewer = getTreeViewer();
+		final ZooKeeperDataLoader loader = null != contentProvider ? contentProvider.getLoader() : null;
+		if ((null == loader) || !(viewer.getInput() instanceof ZooKeeperData)) {
+			viewer.setInput(getViewerInput());
+		} else {
+			// validate what is loaded (watches might be lost after re-connect)
+			final Object[] expandedElements = viewer.getExpandedElements();
+			final Object[] nodes = new Object[expandedElements.length + 1];
+			nodes[0] = viewer.getInput();
+			System.arraycopy(expandedElements, 0, nodes, 1, expandedElements.length);
+			loader.revalidate(nodes);
+		}
+		updateCacheStatus();
+	}
+
+	void schedule(final Job job, final String title) {
+		final Display display = getTreeViewer().getControl().getDisplay();
+		final ServerPushSession pushSession = new ServerPushSession();
+		job.addJobChangeListener(new JobChangeAdapter() {
+			@Override
+			public void done(final IJobChangeEvent event) {
+				final IStatus result = event.getResult();
+				if (display.isDisposed())
+					return;
+				display.asyncExec(new Runnable() {
+					@Override
+					public void run() {
+						pushSession.stop();
+						if ((result.getSeverity() == IStatus.CANCEL) || exportButton.isDisposed())
+							return;
+						if (result.isOK()) {
+							NonBlockingMessageDialogs.openInformation(SwtUtil.getShell(exportButton), title, result.getMessage(), null);
+						} else {
+							NonBlockingMessageDialogs.openError(SwtUtil.getShell(exportButton), title, result.getMessage(), null);
+						}
+					}
+				});
+			}
+		});
+		pushSession.start();
+		job.setUser(true);
+		job.schedule();
+	}
+
+	void updateCacheStatus() {
+		if ((null == cacheStatusLabel) || cacheStatusLabel.isDisposed())
+			return;
+
+		cacheStatusLabel.setText(String.format("Record cache: %d records, %s of %s, %.0f%% hit rate (%d hits, %d misses), %d evicted", cache.getEntryCount(), ZooKeeperSizeAnalyzer.toByteSize(cache.getBytesHeld()), ZooKeeperSizeAnalyzer.toByteSize(cache.getMaxBytes()), cache.getHitRate() * 100, cache.getHitCount(), cache.getMissCount(), cache.getEvictionCount()));
+		cacheStatusLabel.getParent().layout();
 	}
 
 	@Override
 	protected void updateButtons() {
-		// no buttons
+		// export exports the root if nothing is selected
+		final Object element = ((IStructuredSelection) getTreeViewer().getSelection()).getFirstElement();
+		exportButton.setEnabled((null == element) || (element instanceof ZooKeeperData));
+		compareButton.setEnabled(true);
+		analyzeButton.setEnabled((null == element) || (element instanceof ZooKeeperData));
 	}
 }
@@ -0,0 +1,40 @@
+/*******************************************************************************
+ * Copyright (c) 2013 AGETO Service GmbH and others.
+ * All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Contributors:
+ *     Gunnar Wagenknecht - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.gyrex.admin.ui.cloud.internal.zookeeper;
+
+import java.util.Collection;
+
+import org.eclipse.gyrex.cloud.internal.zk.ZooKeeperGate;
+
+import org.eclipse.core.runtime.IPath;
+
+import org.apache.zookeeper.data.Stat;
+
+/**
+ * Reads from the cloud connection of the local node.
+ * <p>
+ * The gate is looked up on every read, so that reads go to the current
+ * connection after a reconnect.
+ * </p>
+ */
+public final class ZooKeeperGateReader implements ZooKeeperReader {
+
+	@Override
+	public Collection<String> readChildrenNames(final IPath path, final Stat stat) throws Exception {
+		return ZooKeeperGate.get().readChildrenNames(path, stat);
+	}
+
+	@Override
+	public byte[] readRecord(final IPath path, final Stat stat) throws Exception {
+		return ZooKeeperGate.get().readRecord(path, stat);
+	}
+}
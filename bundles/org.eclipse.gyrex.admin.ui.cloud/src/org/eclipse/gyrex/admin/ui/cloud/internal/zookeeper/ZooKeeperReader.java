@@ -0,0 +1,58 @@
+/*******************************************************************************
+ * Copyright (c) 2013 AGETO Service GmbH and others.
+ * All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Contributors:
+ *     Gunnar Wagenknecht - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.gyrex.admin.ui.cloud.internal.zookeeper;
+
+import java.util.Collection;
+
+import org.eclipse.core.runtime.IPath;
+
+import org.apache.zookeeper.data.Stat;
+
+/**
+ * Read access to ZooKeeper as needed by the {@link ZooKeeperTreeWalker}.
+ * <p>
+ * Implementations must be safe for concurrent use.
+ * </p>
+ */
+public interface ZooKeeperReader {
+
+	/**
+	 * Reads the names of the children of a znode.
+	 *
+	 * @param path
+	 *            the znode path
+	 * @param stat
+	 *            the stat to fill
+	 * @return the child names
+	 * @throws Exception
+	 *             if the znode could not be read (eg.
+	 *             {@link org.apache.zookeeper.KeeperException.NoNodeException}
+	 *             if it does not exist)
+	 */
+	Collection<String> readChildrenNames(IPath path, Stat stat) throws Exception;
+
+	/**
+	 * Reads the data of a znode.
+	 *
+	 * @param path
+	 *            the znode path
+	 * @param stat
+	 *            the stat to fill
+	 * @return the data (maybe <code>null</code>)
+	 * @throws Exception
+	 *             if the znode could not be read (eg.
+	 *             {@link org.apache.zookeeper.KeeperException.NoNodeException}
+	 *             if it does not exist)
+	 */
+	byte[] readRecord(IPath path, Stat stat) throws Exception;
+
+}
@@ -0,0 +1,364 @@
+/*******************************************************************************
+ * Copyright (c) 2013 AGETO Service GmbH and others.
+ * All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Contributors:
+ *     Gunnar Wagenknecht - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.gyrex.admin.ui.cloud.internal.zookeeper;
+
+import org.eclipse.gyrex.admin.ui.cloud.internal.ZooKeeperBasedAdminPage;
+import org.eclipse.gyrex.admin.ui.cloud.internal.zookeeper.AnalyzeSubtreeSizesJob.Report;
+import org.eclipse.gyrex.admin.ui.internal.helper.SwtUtil;
+import org.eclipse.gyrex.admin.ui.internal.widgets.NonBlockingMessageDialogs;
+
+import org.eclipse.core.runtime.IPath;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Path;
+import org.eclipse.core.runtime.jobs.IJobChangeEvent;
+import org.eclipse.core.runtime.jobs.JobChangeAdapter;
+import org.eclipse.jface.layout.GridDataFactory;
+import org.eclipse.jface.layout.GridLayoutFactory;
+import org.eclipse.jface.viewers.ITreeContentProvider;
+import org.eclipse.jface.viewers.Viewer;
+import org.eclipse.rap.rwt.service.ServerPushSession;
+import org.eclipse.swt.SWT;
+import org.eclipse.swt.events.SelectionAdapter;
+import org.eclipse.swt.events.SelectionEvent;
+import org.eclipse.swt.widgets.Button;
+import org.eclipse.swt.widgets.Composite;
+import org.eclipse.swt.widgets.Control;
+import org.eclipse.swt.widgets.Display;
+import org.eclipse.swt.widgets.Label;
+
+import org.apache.commons.lang.StringUtils;
+
+/**
+ * Admin page showing the largest subtrees and the znodes with most children.
+ * <p>
+ * The page accepts the path of the subtree to analyze as argument. The
+ * analysis runs in the background with a throttled request rate and the
+ * report refreshes while it progresses.
+ * </p>
+ */
+public class ZooKeeperSizeAnalyzer extends ZooKeeperBasedAdminPage {
+
+	static class ReportContentProvider implements ITreeContentProvider {
+
+		/** serialVersionUID */
+		private static final long serialVersionUID = 1L;
+		private static final Object[] NO_CHILDREN = new Object[0];
+
+		@Override
+		public void dispose() {
+			// no-op
+		}
+
+		@Override
+		public Object[] getChildren(final Object parentElement) {
+			return NO_CHILDREN;
+		}
+
+		@Override
+		public Object[] getElements(final Object inputElement) {
+			if (inputElement instanceof ZooKeeperSizeAnalyzer) {
+				final Report report = ((ZooKeeperSizeAnalyzer) inputElement).report;
+				if (null != report)
+					return report.getEntries().toArray();
+			}
+			return NO_CHILDREN;
+		}
+
+		@Override
+		public Object getParent(final Object element) {
+			return null;
+		}
+
+		@Override
+		public boolean hasChildren(final Object element) {
+			return false;
+		}
+
+		@Override
+		public void inputChanged(final Viewer viewer, final Object oldInput, final Object newInput) {
+			// no-op
+		}
+	}
+
+	public static final String ID = "zookeeper-size-analyzer";
+
+	/** maximum number of concurrent ZooKeeper reads */
+	static final int ANALYZER_PARALLELISM = 2;
+
+	/** maximum number of ZooKeeper requests per second */
+	static final int ANALYZER_MAX_REQUESTS_PER_SECOND = 250;
+
+	/** number of subtrees reported per category */
+	static final int ANALYZER_LIMIT = 50;
+
+	private static final int COLUMN_PATH = 0;
+	private static final int COLUMN_TOTAL_BYTES = 1;
+	private static final int COLUMN_TOTAL_ZNODES = 2;
+	private static final int COLUMN_CHILDREN = 3;
+	private static final int COLUMN_DATA_LENGTH = 4;
+
+	static String toByteSize(final long bytes) {
+		if (bytes < 1024)
+			return String.format("%d bytes", bytes);
+		else if (bytes < (1024 * 1024))
+			return String.format("%.1f KB", bytes / 1024.0);
+		else
+			return String.format("%.1f MB", bytes / (1024.0 * 1024.0));
+	}
+
+	volatile Report report;
+	private AnalyzeSubtreeSizesJob job;
+	private ServerPushSession pushSession;
+
+	private Label rootLabel;
+	private Label znodesScannedMetric;
+	private Label bytesScannedMetric;
+	private Button startButton;
+	private Button stopButton;
+
+	public ZooKeeperSizeAnalyzer() {
+		super(5);
+		setTitle("ZooKeeper Size Analyzer");
+	}
+
+	@Override
+	protected void createButtons(final Composite parent) {
+		startButton = createButton(parent, "Analyze");
+		startButton.addSelectionListener(new SelectionAdapter() {
+			/** serialVersionUID */
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			public void widgetSelected(final SelectionEvent e) {
+				startAnalysis();
+			}
+		});
+
+		stopButton = createButton(parent, "Stop");
+		stopButton.addSelectionListener(new SelectionAdapter() {
+			/** serialVersionUID */
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			public void widgetSelected(final SelectionEvent e) {
+				stopAnalysis();
+			}
+		});
+	}
+
+	@Override
+	protected ITreeContentProvider createContentProvider() {
+		return new ReportContentProvider();
+	}
+
+	@Override
+	protected Control createHeader(final Composite parent) {
+		final Composite composite = new Composite(parent, SWT.NONE);
+		composite.setLayout(GridLayoutFactory.fillDefaults().numColumns(4).create());
+
+		rootLabel = new Label(composite, SWT.BEGINNING);
+		GridDataFactory.fillDefaults().grab(true, false).align(SWT.BEGINNING, SWT.CENTER).applyTo(rootLabel);
+
+		znodesScannedMetric = createMetricText(composite, "znodes scanned");
+		createMetricSeparator(composite);
+		bytesScannedMetric = createMetricText(composite, "total data");
+
+		return composite;
+	}
+
+	@Override
+	public void deactivate() {
+		stopAnalysis();
+		super.deactivate();
+	}
+
+	@Override
+	protected String getColumnLabel(final int column) {
+		switch (column) {
+			case COLUMN_PATH:
+				return "Path";
+			case COLUMN_TOTAL_BYTES:
+				return "Subtree Size";
+			case COLUMN_TOTAL_ZNODES:
+				return "Subtree Znodes";
+			case COLUMN_CHILDREN:
+				return "Children";
+			case COLUMN_DATA_LENGTH:
+				return "Data Size";
+
+			default:
+				return null;
+		}
+	}
+
+	@Override
+	protected String getElementLabel(final Object element, final int column) {
+		if (element instanceof ZooKeeperSubtreeSize) {
+			final ZooKeeperSubtreeSize size = (ZooKeeperSubtreeSize) element;
+			switch (column) {
+				case NO_COLUMN:
+				case COLUMN_PATH:
+					return size.isComplete() ? size.getPath().toString() : String.format("%s (scanning...)", size.getPath());
+				case COLUMN_TOTAL_BYTES:
+					return toByteSize(size.getTotalBytes());
+				case COLUMN_TOTAL_ZNODES:
+					return String.valueOf(size.getTotalZnodes());
+				case COLUMN_CHILDREN:
+					return String.valueOf(size.getNumChildren());
+				case COLUMN_DATA_LENGTH:
+					return toByteSize(size.getDataLength());
+
+				default:
+					return null;
+			}
+		}
+		return String.valueOf(element);
+	}
+
+	@Override
+	protected String getElementTextForSorting(final Object element, final int column) {
+		if (element instanceof ZooKeeperSubtreeSize) {
+			// pad numbers so that they sort numerically
+			final ZooKeeperSubtreeSize size = (ZooKeeperSubtreeSize) element;
+			switch (column) {
+				case COLUMN_TOTAL_BYTES:
+					return String.format("%019d", size.getTotalBytes());
+				case COLUMN_TOTAL_ZNODES:
+					return String.format("%019d", size.getTotalZnodes());
+				case COLUMN_CHILDREN:
+					return String.format("%019d", size.getNumChildren());
+				case COLUMN_DATA_LENGTH:
+					return String.format("%019d", size.getDataLength());
+
+				default:
+					// fall-through
+					break;
+			}
+		}
+		return super.getElementTextForSorting(element, column);
+	}
+
+	private IPath getRootPath() {
+		final String[] args = getArguments();
+		if ((null != args) && (args.length > 1) && StringUtils.isNotBlank(args[1]))
+			return new Path(args[1]).makeAbsolute();
+		return Path.ROOT;
+	}
+
+	@Override
+	protected Object getViewerInput() {
+		return this;
+	}
+
+	@Override
+	protected void refresh() {
+		final Report report = this.report;
+		rootLabel.setText(String.format("Subtree: %s", getRootPath()));
+		if (null != report) {
+			znodesScannedMetric.setText(String.valueOf(report.getZnodesScanned()));
+			bytesScannedMetric.setText(toByteSize(report.getBytesScanned()));
+		} else {
+			znodesScannedMetric.setText("n/a");
+			bytesScannedMetric.setText("n/a");
+		}
+		rootLabel.getParent().layout();
+	}
+
+	@Override
+	public void setArguments(final String[] args) {
+		super.setArguments(args);
+		if ((null != report) && !report.getRootPath().equals(getRootPath())) {
+			stopAnalysis();
+			report = null;
+		}
+	}
+
+	void startAnalysis() {
+		if (null != job)
+			return;
+
+		final Display display = getTreeViewer().getControl().getDisplay();
+		final AnalyzeSubtreeSizesJob analyzeJob = new AnalyzeSubtreeSizesJob(getRootPath(), ANALYZER_PARALLELISM, ANALYZER_MAX_REQUESTS_PER_SECOND, ANALYZER_LIMIT, new AnalyzeSubtreeSizesJob.Listener() {
+			@Override
+			public void reportUpdated(final Report report) {
+				if (display.isDisposed())
+					return;
+				display.asyncExec(new Runnable() {
+					@Override
+					public void run() {
+						if (getTreeViewer().getControl().isDisposed())
+							return;
+						ZooKeeperSizeAnalyzer.this.report = report;
+						refresh();
+						getTreeViewer().refresh();
+					}
+				});
+			}
+		});
+		analyzeJob.addJobChangeListener(new JobChangeAdapter() {
+			@Override
+			public void done(final IJobChangeEvent event) {
+				final IStatus result = event.getResult();
+				if (display.isDisposed())
+					return;
+				display.asyncExec(new Runnable() {
+					@Override
+					public void run() {
+						analysisDone(analyzeJob, result);
+					}
+				});
+			}
+		});
+
+		job = analyzeJob;
+		pushSession = new ServerPushSession();
+		pushSession.start();
+		analyzeJob.schedule();
+		updateButtons();
+	}
+
+	void analysisDone(final AnalyzeSubtreeSizesJob analyzeJob, final IStatus result) {
+		if (job != analyzeJob)
+			return;
+		job = null;
+		if (null != pushSession) {
+			pushSession.stop();
+			pushSession = null;
+		}
+		if (!startButton.isDisposed()) {
+			if (!result.isOK() && (result.getSeverity() != IStatus.CANCEL)) {
+				NonBlockingMessageDialogs.openError(SwtUtil.getShell(startButton), "Analyze Subtree Sizes", result.getMessage(), null);
+			}
+			updateButtons();
+		}
+	}
+
+	void stopAnalysis() {
+		if (null != job) {
+			job.cancel();
+			job = null;
+		}
+		if (null != pushSession) {
+			pushSession.stop();
+			pushSession = null;
+		}
+		if ((null != startButton) && !startButton.isDisposed()) {
+			updateButtons();
+		}
+	}
+
+	@Override
+	protected void updateButtons() {
+		startButton.setEnabled(null == job);
+		stopButton.setEnabled(null != job);
+	}
+}
@@ -0,0 +1,153 @@
+/*******************************************************************************
+ * Copyright (c) 2013 AGETO Service GmbH and others.
+ * All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Contributors:
+ *     Gunnar Wagenknecht - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.gyrex.admin.ui.cloud.internal.zookeeper;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.OperationCanceledException;
+
+/**
+ * Compares two {@link ZooKeeperSnapshotSource sources}.
+ * <p>
+ * Both sources are streamed side by side in
+ * {@link ZooKeeperSnapshotRecord#PATH_ORDER}. Neither of them is held in
+ * memory. A znode is considered changed if its data or its ephemeral flag
+ * differ. Versions and zxids are not compared, which allows comparing
+ * snapshots taken from different clusters.
+ * </p>
+ */
+public final class ZooKeeperSnapshotDiff {
+
+	/**
+	 * Receives the differences found.
+	 */
+	public interface Listener {
+
+		void added(ZooKeeperSnapshotRecord newRecord) throws IOException;
+
+		void changed(ZooKeeperSnapshotRecord oldRecord, ZooKeeperSnapshotRecord newRecord) throws IOException;
+
+		void removed(ZooKeeperSnapshotRecord oldRecord) throws IOException;
+	}
+
+	/**
+	 * Summary of a comparison.
+	 */
+	public static final class Result {
+
+		private long added;
+		private long removed;
+		private long changed;
+		private long unchanged;
+
+		public long getAdded() {
+			return added;
+		}
+
+		public long getChanged() {
+			return changed;
+		}
+
+		public long getRemoved() {
+			return removed;
+		}
+
+		public long getUnchanged() {
+			return unchanged;
+		}
+
+		public boolean hasDifferences() {
+			return (added + removed + changed) > 0;
+		}
+
+		@Override
+		public String toString() {
+			return String.format("%d added, %d removed, %d changed, %d unchanged", added, removed, changed, unchanged);
+		}
+	}
+
+	/**
+	 * Compares two sources.
+	 * <p>
+	 * The sources are consumed but not closed.
+	 * </p>
+	 *
+	 * @param oldSource
+	 *            the old (base) source
+	 * @param newSource
+	 *            the new source
+	 * @param listener
+	 *            the listener to receive differences
+	 * @param monitor
+	 *            a monitor for reporting progress and cancellation
+	 * @return the comparison summary
+	 * @throws IOException
+	 *             if one of the sources could not be read
+	 * @throws OperationCanceledException
+	 *             if the monitor was canceled
+	 */
+	public static Result diff(final ZooKeeperSnapshotSource oldSource, final ZooKeeperSnapshotSource newSource, final Listener listener, final IProgressMonitor monitor) throws IOException, OperationCanceledException {
+		final Result result = new Result();
+		ZooKeeperSnapshotRecord oldRecord = oldSource.next();
+		ZooKeeperSnapshotRecord newRecord = newSource.next();
+		long compared = 0;
+		while ((null != oldRecord) || (null != newRecord)) {
+			if (monitor.isCanceled())
+				throw new OperationCanceledException();
+
+			final int order;
+			if (null == oldRecord) {
+				order = 1;
+			} else if (null == newRecord) {
+				order = -1;
+			} else {
+				order = ZooKeeperSnapshotRecord.PATH_ORDER.compare(oldRecord.getPath(), newRecord.getPath());
+			}
+
+			if (order < 0) {
+				result.removed++;
+				listener.removed(oldRecord);
+				oldRecord = oldSource.next();
+			} else if (order > 0) {
+				result.added++;
+				listener.added(newRecord);
+				newRecord = newSource.next();
+			} else {
+				if (isChanged(oldRecord, newRecord)) {
+					result.changed++;
+					listener.changed(oldRecord, newRecord);
+				} else {
+					result.unchanged++;
+				}
+				oldRecord = oldSource.next();
+				newRecord = newSource.next();
+			}
+
+			if ((++compared % 100) == 0) {
+				monitor.subTask(String.format("%d znodes compared (%s)", compared, result));
+			}
+		}
+		return result;
+	}
+
+	private static boolean isChanged(final ZooKeeperSnapshotRecord oldRecord, final ZooKeeperSnapshotRecord newRecord) {
+		if ((oldRecord.getStat().getEphemeralOwner() != 0) != (newRecord.getStat().getEphemeralOwner() != 0))
+			return true;
+		return !Arrays.equals(oldRecord.getData(), newRecord.getData());
+	}
+
+	private ZooKeeperSnapshotDiff() {
+		// empty
+	}
+}
@@ -0,0 +1,187 @@
+/*******************************************************************************
+ * Copyright (c) 2013 AGETO Service GmbH and others.
+ * All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Contributors:
+ *     Gunnar Wagenknecht - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.gyrex.admin.ui.cloud.internal.zookeeper;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.eclipse.core.runtime.IPath;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.OperationCanceledException;
+import org.eclipse.core.runtime.Path;
+
+import org.apache.zookeeper.data.Stat;
+
+/**
+ * Reads and writes ZooKeeper snapshot files.
+ * <p>
+ * A snapshot file is a GZIP compressed stream of records in
+ * {@link ZooKeeperSnapshotRecord#PATH_ORDER}. Each record holds the path, all
+ * {@link Stat} fields and the raw data. Records are written and read one at a
+ * time.
+ * </p>
+ */
+public final class ZooKeeperSnapshotFile {
+
+	private static final class Reader implements ZooKeeperSnapshotSource {
+
+		private final DataInputStream in;
+		private final IPath rootPath;
+		private boolean done;
+
+		Reader(final DataInputStream in) throws IOException {
+			this.in = in;
+			if (in.readInt() != MAGIC)
+				throw new IOException("not a ZooKeeper snapshot file");
+			final int version = in.readInt();
+			if (version != FORMAT_VERSION)
+				throw new IOException(String.format("unsupported snapshot format version %d", version));
+			rootPath = new Path(in.readUTF());
+			in.readLong(); // created
+		}
+
+		@Override
+		public void close() throws IOException {
+			in.close();
+		}
+
+		@Override
+		public IPath getRootPath() {
+			return rootPath;
+		}
+
+		@Override
+		public ZooKeeperSnapshotRecord next() throws IOException {
+			if (done || !in.readBoolean()) {
+				done = true;
+				return null;
+			}
+
+			final IPath path = new Path(in.readUTF());
+			final Stat stat = new Stat(in.readLong(), in.readLong(), in.readLong(), in.readLong(), in.readInt(), in.readInt(), in.readInt(), in.readLong(), in.readInt(), in.readInt(), in.readLong());
+			final int length = in.readInt();
+			byte[] data = null;
+			if (length >= 0) {
+				data = new byte[length];
+				in.readFully(data);
+			}
+			return new ZooKeeperSnapshotRecord(path, stat, data);
+		}
+	}
+
+	/** file name extension of snapshot files */
+	public static final String FILE_EXTENSION = ".zksnap.gz";
+
+	private static final int MAGIC = 0x5a4b534e; // ZKSN
+	private static final int FORMAT_VERSION = 1;
+
+	/**
+	 * Opens a snapshot file for reading.
+	 *
+	 * @param file
+	 *            the file to read
+	 * @return a source streaming the records of the file
+	 * @throws IOException
+	 *             if the file could not be opened
+	 */
+	public static ZooKeeperSnapshotSource open(final File file) throws IOException {
+		final DataInputStream in = new DataInputStream(new BufferedInputStream(new GZIPInputStream(new FileInputStream(file))));
+		try {
+			return new Reader(in);
+		} catch (final IOException e) {
+			try {
+				in.close();
+			} catch (final IOException ignored) {
+				// ignore
+			}
+			throw e;
+		}
+	}
+
+	/**
+	 * Writes all records of a source into a snapshot file.
+	 * <p>
+	 * The source is consumed but not closed.
+	 * </p>
+	 *
+	 * @param source
+	 *            the source to write
+	 * @param file
+	 *            the file to write
+	 * @param monitor
+	 *            a monitor for reporting progress and cancellation
+	 * @return the number of records written
+	 * @throws IOException
+	 *             if the source could not be read or the file not be written
+	 * @throws OperationCanceledException
+	 *             if the monitor was canceled
+	 */
+	public static long write(final ZooKeeperSnapshotSource source, final File file, final IProgressMonitor monitor) throws IOException, OperationCanceledException {
+		long records = 0;
+		final DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new GZIPOutputStream(new FileOutputStream(file))));
+		try {
+			out.writeInt(MAGIC);
+			out.writeInt(FORMAT_VERSION);
+			out.writeUTF(source.getRootPath().toString());
+			out.writeLong(System.currentTimeMillis());
+
+			ZooKeeperSnapshotRecord record;
+			while (null != (record = source.next())) {
+				if (monitor.isCanceled())
+					throw new OperationCanceledException();
+
+				final Stat stat = record.getStat();
+				out.writeBoolean(true);
+				out.writeUTF(record.getPath().toString());
+				out.writeLong(stat.getCzxid());
+				out.writeLong(stat.getMzxid());
+				out.writeLong(stat.getCtime());
+				out.writeLong(stat.getMtime());
+				out.writeInt(stat.getVersion());
+				out.writeInt(stat.getCversion());
+				out.writeInt(stat.getAversion());
+				out.writeLong(stat.getEphemeralOwner());
+				out.writeInt(stat.getDataLength());
+				out.writeInt(stat.getNumChildren());
+				out.writeLong(stat.getPzxid());
+				final byte[] data = record.getData();
+				if (null != data) {
+					out.writeInt(data.length);
+					out.write(data);
+				} else {
+					out.writeInt(-1);
+				}
+
+				records++;
+				if ((records % 100) == 0) {
+					monitor.subTask(String.format("%d znodes written (%s)", records, record.getPath()));
+				}
+			}
+			out.writeBoolean(false);
+		} finally {
+			out.close();
+		}
+		return records;
+	}
+
+	private ZooKeeperSnapshotFile() {
+		// empty
+	}
+}
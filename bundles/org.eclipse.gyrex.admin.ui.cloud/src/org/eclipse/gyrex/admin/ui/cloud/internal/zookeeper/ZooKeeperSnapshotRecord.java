@@ -0,0 +1,93 @@
+/*******************************************************************************
+ * Copyright (c) 2013 AGETO Service GmbH and others.
+ * All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Contributors:
+ *     Gunnar Wagenknecht - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.gyrex.admin.ui.cloud.internal.zookeeper;
+
+import java.util.Comparator;
+
+import org.eclipse.core.runtime.IPath;
+
+import org.apache.zookeeper.data.Stat;
+
+/**
+ * A single znode captured in a snapshot.
+ */
+public final class ZooKeeperSnapshotRecord {
+
+	/**
+	 * Orders paths the way a snapshot is written, i.e. depth-first with
+	 * children sorted by name.
+	 */
+	public static final Comparator<IPath> PATH_ORDER = new Comparator<IPath>() {
+		@Override
+		public int compare(final IPath p1, final IPath p2) {
+			final int segments = Math.min(p1.segmentCount(), p2.segmentCount());
+			for (int i = 0; i < segments; i++) {
+				final int result = p1.segment(i).compareTo(p2.segment(i));
+				if (result != 0)
+					return result;
+			}
+			return p1.segmentCount() - p2.segmentCount();
+		}
+	};
+
+	private final IPath path;
+	private final Stat stat;
+	private final byte[] data;
+
+	/**
+	 * Creates a new instance.
+	 *
+	 * @param path
+	 *            the znode path
+	 * @param stat
+	 *            the znode stat
+	 * @param data
+	 *            the znode data (maybe <code>null</code>)
+	 */
+	public ZooKeeperSnapshotRecord(final IPath path, final Stat stat, final byte[] data) {
+		this.path = path;
+		this.stat = stat;
+		this.data = data;
+	}
+
+	/**
+	 * Returns the znode data.
+	 *
+	 * @return the data (maybe <code>null</code>)
+	 */
+	public byte[] getData() {
+		return data;
+	}
+
+	/**
+	 * Returns the znode path.
+	 *
+	 * @return the path
+	 */
+	public IPath getPath() {
+		return path;
+	}
+
+	/**
+	 * Returns the znode stat.
+	 *
+	 * @return the stat
+	 */
+	public Stat getStat() {
+		return stat;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("%s (v%d, c%d, %d bytes)", path, stat.getVersion(), stat.getCversion(), null != data ? data.length : 0);
+	}
+}
@@ -0,0 +1,45 @@
+/*******************************************************************************
+ * Copyright (c) 2013 AGETO Service GmbH and others.
+ * All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Contributors:
+ *     Gunnar Wagenknecht - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.gyrex.admin.ui.cloud.internal.zookeeper;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+import org.eclipse.core.runtime.IPath;
+
+/**
+ * A stream of {@link ZooKeeperSnapshotRecord records}.
+ * <p>
+ * Records are returned in {@link ZooKeeperSnapshotRecord#PATH_ORDER}, which
+ * allows to compare two sources without holding any of them in memory.
+ * </p>
+ */
+public interface ZooKeeperSnapshotSource extends Closeable {
+
+	/**
+	 * Returns the path of the subtree root.
+	 *
+	 * @return the root path
+	 */
+	IPath getRootPath();
+
+	/**
+	 * Returns the next record.
+	 *
+	 * @return the next record or <code>null</code> if there are no more
+	 *         records
+	 * @throws IOException
+	 *             if the record could not be read
+	 */
+	ZooKeeperSnapshotRecord next() throws IOException;
+
+}
@@ -0,0 +1,161 @@
+/*******************************************************************************
+ * Copyright (c) 2013 AGETO Service GmbH and others.
+ * All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Contributors:
+ *     Gunnar Wagenknecht - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.gyrex.admin.ui.cloud.internal.zookeeper;
+
+import java.util.Comparator;
+
+import org.eclipse.core.runtime.IPath;
+
+import org.apache.zookeeper.data.Stat;
+
+/**
+ * The accumulated size of a ZooKeeper subtree.
+ * <p>
+ * Instances are filled by the {@link AnalyzeSubtreeSizesJob} while the subtree
+ * is traversed. Once {@link #isComplete() complete} they are no longer
+ * modified.
+ * </p>
+ */
+public final class ZooKeeperSubtreeSize {
+
+	/** orders by total subtree bytes (smallest first) */
+	static final Comparator<ZooKeeperSubtreeSize> BY_TOTAL_BYTES = new Comparator<ZooKeeperSubtreeSize>() {
+		@Override
+		public int compare(final ZooKeeperSubtreeSize s1, final ZooKeeperSubtreeSize s2) {
+			return Long.compare(s1.totalBytes, s2.totalBytes);
+		}
+	};
+
+	/** orders by number of direct children (fewest first) */
+	static final Comparator<ZooKeeperSubtreeSize> BY_CHILDREN = new Comparator<ZooKeeperSubtreeSize>() {
+		@Override
+		public int compare(final ZooKeeperSubtreeSize s1, final ZooKeeperSubtreeSize s2) {
+			return Integer.compare(s1.numChildren, s2.numChildren);
+		}
+	};
+
+	private final IPath path;
+	private final int dataLength;
+	private final int numChildren;
+	private long totalBytes;
+	private long totalZnodes;
+	private boolean complete;
+
+	private ZooKeeperSubtreeSize(final IPath path, final int dataLength, final int numChildren, final long totalBytes, final long totalZnodes, final boolean complete) {
+		this.path = path;
+		this.dataLength = dataLength;
+		this.numChildren = numChildren;
+		this.totalBytes = totalBytes;
+		this.totalZnodes = totalZnodes;
+		this.complete = complete;
+	}
+
+	/**
+	 * Creates a new instance for a znode which has not been traversed yet.
+	 *
+	 * @param path
+	 *            the znode path
+	 * @param stat
+	 *            the znode stat
+	 */
+	ZooKeeperSubtreeSize(final IPath path, final Stat stat) {
+		this(path, stat.getDataLength(), stat.getNumChildren(), stat.getDataLength(), 1, false);
+	}
+
+	/**
+	 * Adds a completed child subtree to this subtree.
+	 *
+	 * @param child
+	 *            the child subtree
+	 */
+	void add(final ZooKeeperSubtreeSize child) {
+		totalBytes += child.totalBytes;
+		totalZnodes += child.totalZnodes;
+	}
+
+	/**
+	 * Marks the subtree complete.
+	 */
+	void complete() {
+		complete = true;
+	}
+
+	/**
+	 * Returns a copy of the current state.
+	 *
+	 * @return a copy
+	 */
+	ZooKeeperSubtreeSize copy() {
+		return new ZooKeeperSubtreeSize(path, dataLength, numChildren, totalBytes, totalZnodes, complete);
+	}
+
+	/**
+	 * Returns the data length of the subtree root znode.
+	 *
+	 * @return the data length
+	 */
+	public int getDataLength() {
+		return dataLength;
+	}
+
+	/**
+	 * Returns the number of direct children of the subtree root znode.
+	 *
+	 * @return the number of children
+	 */
+	public int getNumChildren() {
+		return numChildren;
+	}
+
+	/**
+	 * Returns the subtree root path.
+	 *
+	 * @return the path
+	 */
+	public IPath getPath() {
+		return path;
+	}
+
+	/**
+	 * Returns the sum of the data length of all znodes in the subtree.
+	 *
+	 * @return the total bytes (may be partial if not {@link #isComplete()
+	 *         complete})
+	 */
+	public long getTotalBytes() {
+		return totalBytes;
+	}
+
+	/**
+	 * Returns the number of znodes in the subtree including its root.
+	 *
+	 * @return the total znodes (may be partial if not {@link #isComplete()
+	 *         complete})
+	 */
+	public long getTotalZnodes() {
+		return totalZnodes;
+	}
+
+	/**
+	 * Indicates if the whole subtree has been traversed.
+	 *
+	 * @return <code>true</code> if complete, <code>false</code> otherwise
+	 */
+	public boolean isComplete() {
+		return complete;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("%s (%d bytes, %d znodes%s)", path, totalBytes, totalZnodes, complete ? "" : ", incomplete");
+	}
+}
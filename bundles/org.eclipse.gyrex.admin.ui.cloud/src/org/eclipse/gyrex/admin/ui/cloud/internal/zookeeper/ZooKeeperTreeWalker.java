@@ -0,0 +1,286 @@
+/*******************************************************************************
+ * Copyright (c) 2013 AGETO Service GmbH and others.
+ * All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Contributors:
+ *     Gunnar Wagenknecht - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.gyrex.admin.ui.cloud.internal.zookeeper;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.eclipse.core.runtime.IPath;
+
+import org.apache.zookeeper.KeeperException;
+import org.apache.zookeeper.data.Stat;
+
+/**
+ * Walks a live ZooKeeper subtree and streams its znodes as
+ * {@link ZooKeeperSnapshotRecord records}.
+ * <p>
+ * The walk is depth-first with children sorted by name. Reads of the next
+ * siblings are issued ahead of time with bounded parallelism. Only the sibling
+ * names along the current path are held in memory, never the whole tree.
+ * Znodes deleted during the walk are skipped.
+ * </p>
+ * <p>
+ * All reads go through the {@link ZooKeeperReader} passed in. The walker may
+ * be limited to a maximum number of ZooKeeper requests per
+ * second. It may also skip reading znode data if only the {@link Stat} is of
+ * interest, which requires one request per znode only.
+ * </p>
+ */
+public class ZooKeeperTreeWalker implements ZooKeeperSnapshotSource {
+
+	private final class Frame {
+
+		private final IPath parent;
+		private final String[] names;
+		private final ArrayDeque<Future<Node>> pending = new ArrayDeque<Future<Node>>();
+		private int nextName;
+
+		Frame(final IPath parent, final String[] names) {
+			this.parent = parent;
+			this.names = names;
+		}
+
+		Future<Node> poll() {
+			// keep the read-ahead window filled
+			while ((pending.size() < readAhead) && (nextName < names.length)) {
+				pending.add(submit(parent.append(names[nextName++])));
+			}
+			return pending.poll();
+		}
+
+		void cancel() {
+			for (final Future<Node> future : pending) {
+				future.cancel(true);
+			}
+			pending.clear();
+		}
+	}
+
+	private static final class Node {
+
+		private final IPath path;
+		private final Stat stat;
+		private final byte[] data;
+		private final String[] children;
+
+		Node(final IPath path, final Stat stat, final byte[] data, final String[] children) {
+			this.path = path;
+			this.stat = stat;
+			this.data = data;
+			this.children = children;
+		}
+	}
+
+	private static final String[] NO_CHILDREN = new String[0];
+	private static final AtomicInteger instanceCount = new AtomicInteger();
+
+	private final ZooKeeperReader reader;
+	private final IPath rootPath;
+	private final int readAhead;
+	private final boolean includeData;
+	private final long requestIntervalNanos;
+	private final ExecutorService executor;
+	private final ArrayDeque<Frame> stack = new ArrayDeque<Frame>();
+
+	private Future<Node> root;
+	private long nodesRead;
+	private long nextRequestNanos; // guarded by this
+
+	/**
+	 * Creates a new instance.
+	 *
+	 * @param reader
+	 *            the reader to read znodes with
+	 * @param rootPath
+	 *            the root of the subtree to walk
+	 * @param parallelism
+	 *            the maximum number of concurrent ZooKeeper reads
+	 */
+	public ZooKeeperTreeWalker(final ZooKeeperReader reader, final IPath rootPath, final int parallelism) {
+		this(reader, rootPath, parallelism, true, 0);
+	}
+
+	/**
+	 * Creates a new instance.
+	 *
+	 * @param reader
+	 *            the reader to read znodes with
+	 * @param rootPath
+	 *            the root of the subtree to walk
+	 * @param parallelism
+	 *            the maximum number of concurrent ZooKeeper reads
+	 * @param includeData
+	 *            <code>true</code> if znode data should be read,
+	 *            <code>false</code> if records should only carry the stat
+	 * @param maxRequestsPerSecond
+	 *            the maximum number of ZooKeeper requests per second (zero or
+	 *            less for no limit)
+	 */
+	public ZooKeeperTreeWalker(final ZooKeeperReader reader, final IPath rootPath, final int parallelism, final boolean includeData, final int maxRequestsPerSecond) {
+		this.reader = reader;
+		this.rootPath = rootPath;
+		this.includeData = includeData;
+		readAhead = parallelism;
+		requestIntervalNanos = maxRequestsPerSecond > 0 ? TimeUnit.SECONDS.toNanos(1) / maxRequestsPerSecond : 0;
+		nextRequestNanos = System.nanoTime();
+
+		final String threadNamePrefix = String.format("ZooKeeper Tree Walker %d-", instanceCount.incrementAndGet());
+		executor = Executors.newFixedThreadPool(parallelism, new ThreadFactory() {
+			private final AtomicInteger threadCount = new AtomicInteger();
+
+			@Override
+			public Thread newThread(final Runnable r) {
+				final Thread t = new Thread(r, threadNamePrefix + threadCount.incrementAndGet());
+				t.setDaemon(true);
+				return t;
+			}
+		});
+		root = submit(rootPath);
+	}
+
+	@Override
+	public void close() {
+		for (final Frame frame : stack) {
+			frame.cancel();
+		}
+		stack.clear();
+		if (null != root) {
+			root.cancel(true);
+			root = null;
+		}
+		executor.shutdownNow();
+	}
+
+	private Node get(final Future<Node> future) throws IOException {
+		try {
+			return future.get();
+		} catch (final InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("interrupted while waiting for ZooKeeper");
+		} catch (final ExecutionException e) {
+			throw new IOException(String.format("Error reading from ZooKeeper: %s", e.getCause().getMessage()), e.getCause());
+		}
+	}
+
+	/**
+	 * Returns the number of znodes read so far.
+	 *
+	 * @return the number of znodes read
+	 */
+	public long getNodesRead() {
+		return nodesRead;
+	}
+
+	@Override
+	public IPath getRootPath() {
+		return rootPath;
+	}
+
+	@Override
+	public ZooKeeperSnapshotRecord next() throws IOException {
+		Node node = null;
+		if (null != root) {
+			node = get(root);
+			root = null;
+		} else {
+			while (null == node) {
+				final Frame frame = stack.peek();
+				if (null == frame)
+					return null;
+
+				final Future<Node> future = frame.poll();
+				if (null == future) {
+					stack.pop();
+					continue;
+				}
+				node = get(future);
+			}
+		}
+
+		// root deleted
+		if (null == node)
+			return null;
+
+		nodesRead++;
+		if (node.children.length > 0) {
+			stack.push(new Frame(node.path, node.children));
+		}
+		return new ZooKeeperSnapshotRecord(node.path, node.stat, node.data);
+	}
+
+	Node read(final IPath path) throws Exception {
+		final Stat stat = new Stat();
+		try {
+			if (!includeData) {
+				// reading children names fills the stat as well
+				throttle();
+				final Collection<String> names = reader.readChildrenNames(path, stat);
+				final String[] children = names.toArray(new String[names.size()]);
+				Arrays.sort(children);
+				return new Node(path, stat, null, children);
+			}
+
+			throttle();
+			final byte[] data = reader.readRecord(path, stat);
+			String[] children = NO_CHILDREN;
+			if (stat.getNumChildren() > 0) {
+				throttle();
+				final Collection<String> names = reader.readChildrenNames(path, new Stat());
+				children = names.toArray(new String[names.size()]);
+				Arrays.sort(children);
+			}
+			return new Node(path, stat, data, children);
+		} catch (final KeeperException.NoNodeException e) {
+			// deleted in the meantime
+			return null;
+		}
+	}
+
+	private void throttle() throws InterruptedException {
+		if (requestIntervalNanos <= 0)
+			return;
+
+		// reserve the next free request slot
+		final long delay;
+		synchronized (this) {
+			final long now = System.nanoTime();
+			if ((nextRequestNanos - now) < 0) {
+				nextRequestNanos = now;
+			}
+			delay = nextRequestNanos - now;
+			nextRequestNanos += requestIntervalNanos;
+		}
+		if (delay > 0) {
+			TimeUnit.NANOSECONDS.sleep(delay);
+		}
+	}
+
+	private Future<Node> submit(final IPath path) {
+		return executor.submit(new Callable<Node>() {
+			@Override
+			public Node call() throws Exception {
+				return read(path);
+			}
+		});
+	}
+}
@@ -0,0 +1,179 @@
+/*******************************************************************************
+ * Copyright (c) 2013 AGETO Service GmbH and others.
+ * All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Contributors:
+ *     Gunnar Wagenknecht - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.gyrex.admin.ui.jobs.internal;
+
+import static org.junit.Assert.assertEquals;
+
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.TimeZone;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+/**
+ * Parses cron expressions and evaluates their fire times.
+ */
+public class CronScheduleTest {
+
+	private static final TimeZone UTC = TimeZone.getTimeZone("UTC");
+
+	/** switches to CEST on 2013-03-31 01:00 UTC and back on 2013-10-27 01:00 UTC */
+	private static final TimeZone BERLIN = TimeZone.getTimeZone("Europe/Berlin");
+
+	private static List<String> format(final List<Long> times) {
+		final SimpleDateFormat format = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm", Locale.US);
+		format.setTimeZone(UTC);
+		final List<String> result = new ArrayList<String>(times.size());
+		for (final Long time : times) {
+			result.add(format.format(time));
+		}
+		return result;
+	}
+
+	private static int[] firesPerMinute(final String expression, final String day, final TimeZone timeZone) throws ParseException {
+		final int[] counts = new int[CronSchedule.MINUTES_PER_DAY];
+		CronSchedule.parse(expression).addFiresPerMinute(counts, utc(day + "T00:00"), timeZone);
+		return counts;
+	}
+
+	private static String next(final String expression, final String after, final TimeZone timeZone, final int count) throws ParseException {
+		return format(CronSchedule.parse(expression).getNextFireTimes(utc(after), timeZone, count)).toString();
+	}
+
+	private static int sum(final int[] counts) {
+		int sum = 0;
+		for (final int count : counts) {
+			sum += count;
+		}
+		return sum;
+	}
+
+	private static long utc(final String time) throws ParseException {
+		final SimpleDateFormat format = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm", Locale.US);
+		format.setTimeZone(UTC);
+		return format.parse(time).getTime();
+	}
+
+	@Test
+	public void testDayOfMonthAndDayOfWeek() throws Exception {
+		// 2013-09-01 is a Sunday
+		assertEquals("[2013-09-13T00:00, 2013-10-13T00:00]", next("0 0 13 * ?", "2013-08-31T12:00", UTC, 2));
+		assertEquals("[2013-09-06T00:00, 2013-09-13T00:00]", next("0 0 ? * FRI", "2013-08-31T12:00", UTC, 2));
+		assertEquals("[2013-09-06T00:00, 2013-09-13T00:00]", next("0 0 * * 6", "2013-08-31T12:00", UTC, 2));
+		// both restricted: either one matches
+		assertEquals("[2013-09-01T00:00, 2013-09-02T00:00, 2013-09-09T00:00]", next("0 0 1 * MON", "2013-08-31T12:00", UTC, 3));
+	}
+
+	@Test
+	public void testDaylightSavingTimeEnds() throws Exception {
+		// 02:00-02:59 occurs twice; it fires once, in standard time
+		assertEquals("[2013-10-26T00:30, 2013-10-27T01:30, 2013-10-28T01:30]", next("30 2 * * *", "2013-10-25T12:00", BERLIN, 3));
+		assertEquals("[2013-10-27T01:30, 2013-10-27T02:30, 2013-10-27T03:30]", next("30 * * * *", "2013-10-26T23:45", BERLIN, 3));
+		// after the first 02:40 the second 02:30 is still ahead
+		assertEquals("[2013-10-27T01:30, 2013-10-27T02:30]", next("30 * * * *", "2013-10-27T00:40", BERLIN, 2));
+
+		final int[] counts = firesPerMinute("30 * * * *", "2013-10-27", BERLIN);
+		assertEquals(23, sum(counts));
+		assertEquals(0, counts[30]);
+		assertEquals(1, counts[90]);
+		assertEquals(1, sum(firesPerMinute("30 2 * * *", "2013-10-27", BERLIN)));
+	}
+
+	@Test
+	public void testDaylightSavingTimeStarts() throws Exception {
+		// 02:00-02:59 does not exist and does not fire
+		assertEquals("[2013-03-30T01:30, 2013-04-01T00:30]", next("30 2 * * *", "2013-03-29T12:00", BERLIN, 2));
+		assertEquals("[2013-03-31T00:30, 2013-03-31T01:30]", next("30 * * * *", "2013-03-31T00:15", BERLIN, 2));
+
+		assertEquals(0, sum(firesPerMinute("30 2 * * *", "2013-03-31", BERLIN)));
+		assertEquals(24, sum(firesPerMinute("30 * * * *", "2013-03-31", BERLIN)));
+	}
+
+	@Test
+	public void testFiresPerMinuteMatchNextFireTimes() throws Exception {
+		for (final String day : new String[] { "2013-03-31", "2013-10-27", "2013-11-01" }) {
+			final int[] counts = firesPerMinute("*/15 1-3 * * *", day, BERLIN);
+			final long dayStart = utc(day + "T00:00");
+			final int[] expected = new int[CronSchedule.MINUTES_PER_DAY];
+			for (final Long time : CronSchedule.parse("*/15 1-3 * * *").getNextFireTimes(dayStart - 1, BERLIN, 100)) {
+				if (time < (dayStart + TimeUnit.DAYS.toMillis(1))) {
+					expected[(int) TimeUnit.MILLISECONDS.toMinutes(time - dayStart)]++;
+				}
+			}
+			for (int i = 0; i < expected.length; i++) {
+				assertEquals(day + " minute " + i, expected[i], counts[i]);
+			}
+		}
+	}
+
+	@Test
+	public void testNames() throws Exception {
+		final String expected = next("0 12 * 1-3 2,4", "2013-01-01T00:00", UTC, 5);
+		assertEquals(expected, next("0 12 * JAN-MAR MON,WED", "2013-01-01T00:00", UTC, 5));
+		assertEquals(expected, next("0 12 * jan-mar mon,wed", "2013-01-01T00:00", UTC, 5));
+		// names containing special characters (JUL, WED) are not rejected
+		assertEquals("[2013-07-03T00:00]", next("0 0 * JUL WED", "2013-06-01T00:00", UTC, 1));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testOutOfRange() throws Exception {
+		CronSchedule.parse("0 24 * * *");
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testSecondsNotSupported() throws Exception {
+		// Gyrex schedules have no seconds field; this is minute 0 and hour 30
+		CronSchedule.parse("0 30 2 * * ?");
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testSpecialCharactersNotSupported() throws Exception {
+		CronSchedule.parse("0 0 L * ?");
+	}
+
+	@Test
+	public void testSteps() throws Exception {
+		assertEquals(96, sum(firesPerMinute("*/15 * * * *", "2013-11-01", UTC)));
+		assertEquals("[2013-11-01T00:05, 2013-11-01T00:25, 2013-11-01T00:45, 2013-11-01T01:05]", next("5/20 * * * *", "2013-11-01T00:00", UTC, 4));
+		assertEquals("[2013-11-01T00:10, 2013-11-01T00:20, 2013-11-01T00:30, 2013-11-01T01:10]", next("10-30/10 * * * *", "2013-11-01T00:00", UTC, 4));
+		assertEquals("[2013-11-01T00:00, 2013-11-01T06:00, 2013-11-01T12:00, 2013-11-01T18:00]", next("0 */6 * * *", "2013-10-31T23:00", UTC, 4));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testTooManyFields() throws Exception {
+		CronSchedule.parse("0 0 12 * * ? 2014");
+	}
+
+	@Test
+	public void testWrappingRanges() throws Exception {
+		final int[] counts = firesPerMinute("0 22-2 * * *", "2013-11-01", UTC);
+		assertEquals(5, sum(counts));
+		assertEquals(1, counts[0]);
+		assertEquals(1, counts[2 * 60]);
+		assertEquals(1, counts[22 * 60]);
+		assertEquals(1, counts[23 * 60]);
+
+		// 2013-10-16 is a Wednesday
+		assertEquals("[2013-10-18T00:00, 2013-10-19T00:00, 2013-10-20T00:00, 2013-10-21T00:00, 2013-10-25T00:00]", next("0 0 * * FRI-MON", "2013-10-16T12:00", UTC, 5));
+		assertEquals("[2013-11-01T00:00, 2013-12-01T00:00, 2014-01-01T00:00, 2014-02-01T00:00, 2014-11-01T00:00]", next("0 0 1 NOV-FEB *", "2013-10-16T12:00", UTC, 5));
+	}
+
+	@Test
+	public void testYearIgnored() throws Exception {
+		assertEquals(next("30 2 * * *", "2013-11-01T00:00", UTC, 3), next("30 2 * * * 2014", "2013-11-01T00:00", UTC, 3));
+		assertEquals(next("30 2 * * *", "2013-11-01T00:00", UTC, 3), next("30 2 * * * *", "2013-11-01T00:00", UTC, 3));
+	}
+}
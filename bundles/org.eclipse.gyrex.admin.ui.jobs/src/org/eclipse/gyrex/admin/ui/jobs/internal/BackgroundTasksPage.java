@@ -11,24 +11,31 @@
  *******************************************************************************/
 package org.eclipse.gyrex.admin.ui.jobs.internal;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+
 import org.eclipse.gyrex.admin.ui.internal.helper.SwtUtil;
 import org.eclipse.gyrex.admin.ui.internal.widgets.AdminPageWithTree;
 import org.eclipse.gyrex.admin.ui.internal.widgets.Infobox;
 import org.eclipse.gyrex.admin.ui.internal.widgets.NonBlockingMessageDialogs;
+import org.eclipse.gyrex.admin.ui.internal.widgets.RingBuffer;
+import org.eclipse.gyrex.admin.ui.internal.widgets.Sparkline;
+import org.eclipse.gyrex.admin.ui.jobs.internal.BulkScheduleOperationJob.Operation;
+import org.eclipse.gyrex.admin.ui.jobs.internal.JobsMetricsSampler.JobsMetrics;
 import org.eclipse.gyrex.context.definitions.ContextDefinition;
 import org.eclipse.gyrex.context.definitions.IRuntimeContextDefinitionManager;
-import org.eclipse.gyrex.jobs.JobState;
-import org.eclipse.gyrex.jobs.internal.manager.JobHungDetectionHelper;
 import org.eclipse.gyrex.jobs.internal.schedules.ScheduleImpl;
-import org.eclipse.gyrex.jobs.internal.schedules.ScheduleStore;
-import org.eclipse.gyrex.jobs.internal.storage.CloudPreferncesJobStorage;
-import org.eclipse.gyrex.jobs.internal.worker.WorkerEngine;
 import org.eclipse.gyrex.jobs.manager.IJobManager;
 import org.eclipse.gyrex.jobs.schedules.ISchedule;
 import org.eclipse.gyrex.server.Platform;
 
 import org.eclipse.core.runtime.IStatus;
-import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.IJobChangeEvent;
+import org.eclipse.core.runtime.jobs.JobChangeAdapter;
 import org.eclipse.jface.layout.GridLayoutFactory;
 import org.eclipse.jface.util.Policy;
 import org.eclipse.jface.viewers.IOpenListener;
@@ -37,6 +44,7 @@ import org.eclipse.jface.viewers.IStructuredSelection;
 import org.eclipse.jface.viewers.ITreeContentProvider;
 import org.eclipse.jface.viewers.OpenEvent;
 import org.eclipse.jface.window.Window;
+import org.eclipse.rap.rwt.service.ServerPushSession;
 import org.eclipse.rap.rwt.widgets.DialogCallback;
 import org.eclipse.swt.SWT;
 import org.eclipse.swt.events.SelectionAdapter;
@@ -46,37 +54,154 @@ import org.eclipse.swt.layout.GridData;
 import org.eclipse.swt.widgets.Button;
 import org.eclipse.swt.widgets.Composite;
 import org.eclipse.swt.widgets.Control;
+import org.eclipse.swt.widgets.Display;
 import org.eclipse.swt.widgets.Label;
 
-import org.osgi.service.prefs.BackingStoreException;
-
 import org.apache.commons.lang.StringUtils;
 
 public class BackgroundTasksPage extends AdminPageWithTree {
 
+	/**
+	 * A row of sparklines in the history area.
+	 */
+	private static final class HistoryRow {
+
+		final String name;
+		final String queueId;
+		final Label label;
+		final Sparkline[] sparklines;
+
+		HistoryRow(final Composite parent, final String name, final String queueId, final int numberOfSparklines, final int capacity) {
+			this.name = name;
+			this.queueId = queueId;
+			label = new Label(parent, SWT.NONE);
+			label.setText(name);
+			label.setLayoutData(new GridData(SWT.FILL, SWT.CENTER, false, false));
+			sparklines = new Sparkline[numberOfSparklines];
+			for (int i = 0; i < HISTORY_VALUE_COLUMNS; i++) {
+				if (i < numberOfSparklines) {
+					sparklines[i] = new Sparkline(parent, SWT.NONE);
+					sparklines[i].setBuffer(new RingBuffer(capacity));
+					sparklines[i].setLayoutData(new GridData(SWT.FILL, SWT.CENTER, true, false));
+				} else {
+					new Label(parent, SWT.NONE);
+				}
+			}
+		}
+
+		void dispose() {
+			label.dispose();
+			for (final Sparkline sparkline : sparklines) {
+				sparkline.dispose();
+			}
+		}
+
+		void update(final double[]... values) {
+			for (int i = 0; i < sparklines.length; i++) {
+				final RingBuffer buffer = sparklines[i].getBuffer();
+				buffer.clear();
+				for (final double value : values[i]) {
+					buffer.add(value);
+				}
+				sparklines[i].setToolTipText(Double.isNaN(buffer.getMax()) ? null : String.format("%s (max %.0f in the last hour)", toHistoryText(buffer.getLast()), buffer.getMax()));
+				sparklines[i].redraw();
+			}
+			final double[] primary = values[0];
+			label.setText(primary.length > 0 ? String.format("%s (%s)", name, toHistoryText(primary[primary.length - 1])) : name);
+		}
+	}
+
 	public static final String ID = "background-tasks";
 
 	private static final int COLUMN_ID = 0;
 	private static final int COLUMN_TIMEZONE = 1;
 	private static final int COLUMN_QUEUE = 2;
 
+	/** number of value columns in the history area (count, enqueued, dequeued) */
+	private static final int HISTORY_VALUE_COLUMNS = 3;
+
 	private Button addButton;
 	private Button removeButton;
 	private Button enableButton;
 	private Button disableButton;
 	private Button showEntriesButton;
+	private Label progressLabel;
 
 	private Label schedulesMetricLabel;
 	private Label jobsRunningLabel;
 	private Label jobsWaitingMetricLabel;
 	private Label processingStateMetricLabel;
 
+	private Composite historyArea;
+	private HistoryRow runningJobsRow;
+	private HistoryRow queuedJobsRow;
+	private final List<HistoryRow> queueRows = new ArrayList<HistoryRow>();
+
+	private ServerPushSession pushSession;
+	private JobsMetricsSampler.Listener metricsListener;
+	private JobsHistory.Listener historyListener;
+	private BulkScheduleOperationJob bulkOperationJob;
+
 	public BackgroundTasksPage() {
 		super(3);
 		setTitle("Background Tasks");
 		setTitleToolTip("Browse and manage schedules for executing background tasks.");
 	}
 
+	static String toHistoryText(final double value) {
+		return Double.isNaN(value) ? "n/a" : String.format("%.0f", value);
+	}
+
+	private static String toMetricText(final int value) {
+		return value >= 0 ? String.valueOf(value) : "n/a";
+	}
+
+	@Override
+	public void activate() {
+		super.activate();
+
+		if (schedulesMetricLabel == null)
+			return;
+
+		// show what is known; the sampler pushes fresh values asynchronously
+		final JobsMetricsSampler sampler = JobsUiActivator.getInstance().getMetricsSampler();
+		final JobsHistory history = JobsUiActivator.getInstance().getHistory();
+		updateMetrics(sampler.getMetrics());
+		updateHistory(history);
+
+		pushSession = new ServerPushSession();
+		pushSession.start();
+		final Display display = schedulesMetricLabel.getDisplay();
+		metricsListener = new JobsMetricsSampler.Listener() {
+			@Override
+			public void sampled(final JobsMetrics metrics) {
+				if (display.isDisposed())
+					return;
+				display.asyncExec(new Runnable() {
+					@Override
+					public void run() {
+						updateMetrics(metrics);
+					}
+				});
+			}
+		};
+		sampler.addListener(metricsListener);
+		historyListener = new JobsHistory.Listener() {
+			@Override
+			public void recorded(final JobsHistory recorded) {
+				if (display.isDisposed())
+					return;
+				display.asyncExec(new Runnable() {
+					@Override
+					public void run() {
+						updateHistory(history);
+					}
+				});
+			}
+		};
+		history.addListener(historyListener);
+	}
+
 	void addButtonPressed() {
 		final AddScheduleDialog dialog = new AddScheduleDialog(SwtUtil.getShell(addButton));
 		dialog.openNonBlocking(new DialogCallback() {
@@ -156,6 +281,9 @@ public class BackgroundTasksPage extends AdminPageWithTree {
 			}
 		});
 
+		progressLabel = new Label(parent, SWT.WRAP);
+		progressLabel.setLayoutData(new GridData(SWT.FILL, SWT.CENTER, true, false));
+
 		getTreeViewer().addOpenListener(new IOpenListener() {
 
 			@Override
@@ -173,12 +301,31 @@ public class BackgroundTasksPage extends AdminPageWithTree {
 		return new SchedulesContentProvider();
 	}
 
+	@Override
+	public void deactivate() {
+		if (metricsListener != null) {
+			JobsUiActivator.getInstance().getMetricsSampler().removeListener(metricsListener);
+			metricsListener = null;
+		}
+		if (historyListener != null) {
+			JobsUiActivator.getInstance().getHistory().removeListener(historyListener);
+			historyListener = null;
+		}
+		if (pushSession != null) {
+			pushSession.stop();
+			pushSession = null;
+		}
+
+		super.deactivate();
+	}
+
 	@Override
 	protected Control createHeader(final Composite parent) {
 		final Composite composite = new Composite(parent, SWT.NONE);
 		composite.setLayout(GridLayoutFactory.fillDefaults().create());
 
 		createMetricInfoArea(composite);
+		createHistoryArea(composite);
 
 		if (Platform.inDevelopmentMode()) {
 			final Infobox infobox = new Infobox(composite);
@@ -190,6 +337,25 @@ public class BackgroundTasksPage extends AdminPageWithTree {
 		return composite;
 	}
 
+	private void createHistoryArea(final Composite parent) {
+		historyArea = new Composite(parent, SWT.NONE);
+		final GridData gd = new GridData(SWT.FILL, SWT.FILL, true, false);
+		gd.verticalIndent = 10;
+		historyArea.setLayoutData(gd);
+		historyArea.setLayout(GridLayoutFactory.fillDefaults().numColumns(1 + HISTORY_VALUE_COLUMNS).spacing(20, 4).create());
+
+		new Label(historyArea, SWT.NONE).setText("Last Hour");
+		new Label(historyArea, SWT.NONE).setText("Count");
+		new Label(historyArea, SWT.NONE).setText("Enqueued per Minute");
+		new Label(historyArea, SWT.NONE).setText("Dequeued per Minute");
+
+		final int capacity = JobsUiActivator.getInstance().getHistory().getCapacity();
+		runningJobsRow = new HistoryRow(historyArea, "Running Jobs", null, 1, capacity);
+		queuedJobsRow = new HistoryRow(historyArea, "Queued Jobs", null, 1, capacity);
+		// queue rows are created as queues show up in the history
+		queueRows.clear();
+	}
+
 	private void createMetricInfoArea(final Composite parent) {
 		final Composite area = new Composite(parent, SWT.NONE);
 		area.setLayoutData(new GridData(SWT.FILL, SWT.FILL, true, false));
@@ -210,37 +376,11 @@ public class BackgroundTasksPage extends AdminPageWithTree {
 	}
 
 	void disableButtonPressed() {
-		final ScheduleImpl schedule = getSelectedSchedule();
-		if ((schedule == null) || !schedule.isEnabled())
-			return;
-
-		try {
-			schedule.setEnabled(false);
-			ScheduleStore.flush(schedule.getStorageKey(), schedule);
-			schedule.load();
-		} catch (final BackingStoreException e) {
-			Policy.getStatusHandler().show(new Status(IStatus.ERROR, JobsUiActivator.SYMBOLIC_NAME, "Unable to activate schedule.", e), "Error");
-		}
-
-		getTreeViewer().refresh(schedule, true);
-		updateButtons();
+		runBulkOperation(Operation.DISABLE, getSelectedSchedules());
 	}
 
 	void enableButtonPressed() {
-		final ScheduleImpl schedule = getSelectedSchedule();
-		if ((schedule == null) || schedule.isEnabled())
-			return;
-
-		try {
-			schedule.setEnabled(true);
-			ScheduleStore.flush(schedule.getStorageKey(), schedule);
-			schedule.load();
-		} catch (final BackingStoreException e) {
-			Policy.getStatusHandler().show(new Status(IStatus.ERROR, JobsUiActivator.SYMBOLIC_NAME, "Unable to activate schedule.", e), "Error");
-		}
-
-		getTreeViewer().refresh(schedule, true);
-		updateButtons();
+		runBulkOperation(Operation.ENABLE, getSelectedSchedules());
 	}
 
 	@Override
@@ -302,16 +442,20 @@ public class BackgroundTasksPage extends AdminPageWithTree {
 	}
 
 	private String getQueueName(final ISchedule schedule) {
-		if (schedule.getQueueId() == null)
+		return getQueueName(schedule.getQueueId());
+	}
+
+	private String getQueueName(final String queueId) {
+		if (queueId == null)
 			return "Default Queue";
-		switch (schedule.getQueueId()) {
+		switch (queueId) {
 			case IJobManager.DEFAULT_QUEUE:
 				return "Default Queue";
 			case IJobManager.PRIORITY_QUEUE:
 				return "Priority Queue";
 
 			default:
-				return schedule.getQueueId();
+				return queueId;
 		}
 	}
 
@@ -319,6 +463,17 @@ public class BackgroundTasksPage extends AdminPageWithTree {
 		return getFirstSelectedSchedule(getTreeViewer().getSelection());
 	}
 
+	private List<ScheduleImpl> getSelectedSchedules() {
+		final List<ScheduleImpl> schedules = new ArrayList<ScheduleImpl>();
+		for (final Iterator stream = ((IStructuredSelection) getTreeViewer().getSelection()).iterator(); stream.hasNext();) {
+			final Object object = stream.next();
+			if (object instanceof ScheduleImpl) {
+				schedules.add((ScheduleImpl) object);
+			}
+		}
+		return schedules;
+	}
+
 	@Override
 	protected Object getViewerInput() {
 		return JobsUiActivator.getInstance().getService(IRuntimeContextDefinitionManager.class);
@@ -339,11 +494,12 @@ public class BackgroundTasksPage extends AdminPageWithTree {
 	}
 
 	void removeButtonPressed() {
-		final ScheduleImpl schedule = getSelectedSchedule();
-		if (schedule == null)
+		final List<ScheduleImpl> schedules = getSelectedSchedules();
+		if (schedules.isEmpty())
 			return;
 
-		NonBlockingMessageDialogs.openQuestion(SwtUtil.getShell(getTreeViewer().getTree()), "Remove selected Schedule", String.format("Do you really want to delete schedule %s?", schedule.getId()), new DialogCallback() {
+		final String question = schedules.size() == 1 ? String.format("Do you really want to delete schedule %s?", schedules.get(0).getId()) : String.format("Do you really want to delete the %d selected schedules?", schedules.size());
+		NonBlockingMessageDialogs.openQuestion(SwtUtil.getShell(getTreeViewer().getTree()), "Remove selected Schedules", question, new DialogCallback() {
 			/** serialVersionUID */
 			private static final long serialVersionUID = 1L;
 
@@ -352,15 +508,65 @@ public class BackgroundTasksPage extends AdminPageWithTree {
 				if (returnCode != Window.OK)
 					return;
 
-				try {
-					ScheduleStore.remove(schedule.getStorageKey(), schedule.getId());
-				} catch (final BackingStoreException e) {
-					e.printStackTrace();
-				}
+				runBulkOperation(Operation.REMOVE, schedules);
+			}
+		});
+	}
 
-				refresh();
+	void runBulkOperation(final Operation operation, final List<ScheduleImpl> schedules) {
+		if (null != bulkOperationJob)
+			return;
+
+		final Display display = getTreeViewer().getControl().getDisplay();
+		final ServerPushSession pushSession = new ServerPushSession();
+		final BulkScheduleOperationJob job = new BulkScheduleOperationJob(operation, schedules, new BulkScheduleOperationJob.Listener() {
+			@Override
+			public void scheduleDone(final ScheduleImpl schedule, final int done, final int total) {
+				if (display.isDisposed())
+					return;
+				display.asyncExec(new Runnable() {
+					@Override
+					public void run() {
+						if (!progressLabel.isDisposed()) {
+							progressLabel.setText(String.format("%s schedules... %d of %d done", operation.getProgressVerb(), done, total));
+						}
+					}
+				});
 			}
 		});
+		if (job.getTotal() == 0)
+			return;
+
+		job.addJobChangeListener(new JobChangeAdapter() {
+			@Override
+			public void done(final IJobChangeEvent event) {
+				final IStatus result = event.getResult();
+				if (display.isDisposed())
+					return;
+				display.asyncExec(new Runnable() {
+					@Override
+					public void run() {
+						pushSession.stop();
+						bulkOperationJob = null;
+						if (progressLabel.isDisposed())
+							return;
+						progressLabel.setText("");
+						// a single reload of all schedules instead of one per schedule
+						refresh();
+						updateButtons();
+						if (!result.isOK() && (result.getSeverity() != IStatus.CANCEL)) {
+							Policy.getStatusHandler().show(result, "Error");
+						}
+					}
+				});
+			}
+		});
+
+		bulkOperationJob = job;
+		progressLabel.setText(String.format("%s %d schedules...", operation.getProgressVerb(), job.getTotal()));
+		updateButtons();
+		pushSession.start();
+		job.schedule();
 	}
 
 	void showEntriesButtonPressed() {
@@ -374,55 +580,79 @@ public class BackgroundTasksPage extends AdminPageWithTree {
 	@Override
 	protected void updateButtons() {
 		final int selectedElementsCount = ((IStructuredSelection) getTreeViewer().getSelection()).size();
-		if (selectedElementsCount == 0) {
+		if ((selectedElementsCount == 0) || (null != bulkOperationJob)) {
 			addButton.setEnabled(true);
 			removeButton.setEnabled(false);
 			enableButton.setEnabled(false);
 			disableButton.setEnabled(false);
 			showEntriesButton.setEnabled(false);
 		} else {
-			final ScheduleImpl selectedSchedule = getSelectedSchedule();
-			addButton.setEnabled(true);
-			removeButton.setEnabled((selectedElementsCount == 1) && (selectedSchedule != null) && !selectedSchedule.isEnabled());
-			showEntriesButton.setEnabled((selectedElementsCount == 1) && (selectedSchedule != null) && !selectedSchedule.isEnabled());
-
-			if (selectedSchedule != null) {
-				if (selectedSchedule.isEnabled()) {
-					enableButton.setEnabled(false);
-					disableButton.setEnabled(true);
+			final List<ScheduleImpl> selectedSchedules = getSelectedSchedules();
+			boolean hasEnabledSchedules = false;
+			boolean hasDisabledSchedules = false;
+			for (final ScheduleImpl schedule : selectedSchedules) {
+				if (schedule.isEnabled()) {
+					hasEnabledSchedules = true;
 				} else {
-					enableButton.setEnabled(true);
-					disableButton.setEnabled(false);
+					hasDisabledSchedules = true;
 				}
 			}
-		}
 
-		updateMetrics();
+			final ScheduleImpl selectedSchedule = getSelectedSchedule();
+			addButton.setEnabled(true);
+			removeButton.setEnabled((selectedSchedules.size() == selectedElementsCount) && !hasEnabledSchedules);
+			showEntriesButton.setEnabled((selectedElementsCount == 1) && (selectedSchedule != null) && !selectedSchedule.isEnabled());
+			enableButton.setEnabled(hasDisabledSchedules);
+			disableButton.setEnabled(hasEnabledSchedules);
+		}
 	}
 
-	private void updateMetrics() {
-		try {
-			schedulesMetricLabel.setText(String.valueOf(ScheduleStore.getSchedules().length));
-		} catch (final Exception e) {
-			schedulesMetricLabel.setText("n/a");
-		}
+	void updateMetrics(final JobsMetrics metrics) {
+		if ((metrics == null) || schedulesMetricLabel.isDisposed())
+			return;
 
-		try {
-			jobsRunningLabel.setText(String.valueOf(JobHungDetectionHelper.getNumberOfActiveJobs()));
-		} catch (final Exception e) {
-			jobsRunningLabel.setText("n/a");
+		schedulesMetricLabel.setText(toMetricText(metrics.getSchedules()));
+		jobsRunningLabel.setText(toMetricText(metrics.getRunningJobs()));
+		jobsWaitingMetricLabel.setText(toMetricText(metrics.getWaitingJobs()));
+		if (metrics.isProcessing() != null) {
+			processingStateMetricLabel.setText(metrics.isProcessing() ? "On" : "Off");
+		} else {
+			processingStateMetricLabel.setText("n/a");
 		}
+		schedulesMetricLabel.getParent().getParent().layout(true, true);
+	}
+
+	void updateHistory(final JobsHistory history) {
+		if ((historyArea == null) || historyArea.isDisposed())
+			return;
 
-		try {
-			jobsWaitingMetricLabel.setText(String.valueOf(CloudPreferncesJobStorage.getAllJobStorageKeysByState(JobState.WAITING).size()));
-		} catch (final Exception e) {
-			jobsWaitingMetricLabel.setText("n/a");
+		updateQueueRows(history);
+
+		runningJobsRow.update(history.getRunningJobs());
+		queuedJobsRow.update(history.getQueuedJobs());
+		for (final HistoryRow row : queueRows) {
+			row.update(history.getQueueDepth(row.queueId), history.getEnqueueRate(row.queueId), history.getDequeueRate(row.queueId));
 		}
+		historyArea.getParent().layout(true, true);
+	}
 
-		try {
-			processingStateMetricLabel.setText(WorkerEngine.isSuspended() ? "Off" : "On");
-		} catch (final Exception e) {
-			processingStateMetricLabel.setText("n/a");
+	private void updateQueueRows(final JobsHistory history) {
+		final Collection<String> queueIds = history.getQueueIds();
+		final Set<String> shown = new HashSet<String>();
+		for (final Iterator<HistoryRow> stream = queueRows.iterator(); stream.hasNext();) {
+			final HistoryRow row = stream.next();
+			if (queueIds.contains(row.queueId)) {
+				shown.add(row.queueId);
+			} else {
+				row.dispose();
+				stream.remove();
+			}
+		}
+		for (final String queueId : queueIds) {
+			if (!shown.contains(queueId)) {
+				// appended at the end; queues created later show up last
+				queueRows.add(new HistoryRow(historyArea, getQueueName(queueId), queueId, HISTORY_VALUE_COLUMNS, history.getCapacity()));
+			}
 		}
 	}
 }
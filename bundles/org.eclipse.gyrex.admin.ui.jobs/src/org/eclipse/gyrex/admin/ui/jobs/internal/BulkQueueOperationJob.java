@@ -0,0 +1,315 @@
+/*******************************************************************************
+ * Copyright (c) 2013 AGETO Service GmbH and others.
+ * All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Contributors:
+ *     Gunnar Wagenknecht - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.gyrex.admin.ui.jobs.internal;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.gyrex.admin.ui.jobs.internal.QueueRecordReader.BrowsedMessage;
+import org.eclipse.gyrex.cloud.services.queue.IMessage;
+import org.eclipse.gyrex.cloud.services.queue.IQueue;
+import org.eclipse.gyrex.cloud.services.queue.IQueueService;
+import org.eclipse.gyrex.cloud.services.queue.IQueueServiceProperties;
+import org.eclipse.gyrex.jobs.internal.worker.JobInfo;
+
+import org.eclipse.core.runtime.IPath;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.MultiStatus;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.Job;
+
+import org.apache.commons.lang.StringUtils;
+import org.apache.commons.lang.exception.ExceptionUtils;
+
+/**
+ * Purges, moves or requeues the jobs waiting in a queue.
+ * <p>
+ * The queue is first scanned without consuming anything (using a
+ * {@link QueueRecordReader}) to find the position of the last waiting message
+ * matching the filter. Messages in flight with a worker are neither matched
+ * nor counted because receiving skips them. Messages are then received from
+ * the {@link IQueue} in batches of {@link #BATCH_SIZE}, but only up to that
+ * position, i.e. messages behind the last match are never received and
+ * nothing is received at all if nothing matches. Received messages are
+ * checked against the filter again because workers may have taken messages
+ * in the meantime.
+ * </p>
+ * <p>
+ * {@link IQueue} cannot release a received message early. Batches are
+ * therefore received with a short {@link #RECEIVE_TIMEOUT} instead of the
+ * queue default, so that messages not matching the filter are hidden from
+ * workers only briefly.
+ * </p>
+ * <p>
+ * Moved and requeued messages are sent before they are deleted, i.e. a
+ * failure may duplicate a job but never lose it. Every job which was sent but
+ * could not be deleted is reported as a possible duplicate in the resulting
+ * {@link MultiStatus}.
+ * </p>
+ */
+public class BulkQueueOperationJob extends Job {
+
+	/**
+	 * Selects the jobs to process.
+	 */
+	public static final class Filter {
+
+		private final String jobTypeId;
+		private final IPath contextPath;
+		private final long minAge;
+
+		/**
+		 * Creates a new instance.
+		 *
+		 * @param jobTypeId
+		 *            the job type to match (maybe <code>null</code> for all)
+		 * @param contextPath
+		 *            the context path (or a parent of it) to match (maybe
+		 *            <code>null</code> for all)
+		 * @param minAge
+		 *            the minimum time in milliseconds a job must have been
+		 *            waiting
+		 */
+		public Filter(final String jobTypeId, final IPath contextPath, final long minAge) {
+			this.jobTypeId = StringUtils.trimToNull(jobTypeId);
+			this.contextPath = contextPath;
+			this.minAge = minAge;
+		}
+
+		boolean matches(final JobInfo info, final long now) {
+			if ((jobTypeId != null) && !jobTypeId.equals(info.getJobTypeId()))
+				return false;
+			if ((contextPath != null) && ((info.getContextPath() == null) || !contextPath.isPrefixOf(info.getContextPath())))
+				return false;
+			return (now - info.getQueueTimestamp()) >= minAge;
+		}
+	}
+
+	/**
+	 * Receives progress.
+	 * <p>
+	 * Progress is delivered from the job thread.
+	 * </p>
+	 */
+	public interface Listener {
+
+		void batchDone(int scanned, int processed, int total);
+	}
+
+	/**
+	 * An operation on a single message.
+	 */
+	public static enum Operation {
+		PURGE("Purging", "purged") {
+			@Override
+			void execute(final IQueue queue, final IQueue targetQueue, final IMessage message) {
+				// nothing to send
+			}
+		},
+		MOVE("Moving", "moved") {
+			@Override
+			void execute(final IQueue queue, final IQueue targetQueue, final IMessage message) {
+				targetQueue.sendMessage(message.getBody());
+			}
+		},
+		REQUEUE("Requeuing", "requeued") {
+			@Override
+			void execute(final IQueue queue, final IQueue targetQueue, final IMessage message) {
+				// back to the end of the same queue
+				queue.sendMessage(message.getBody());
+			}
+		};
+
+		private final String progressVerb;
+		private final String pastParticiple;
+
+		private Operation(final String progressVerb, final String pastParticiple) {
+			this.progressVerb = progressVerb;
+			this.pastParticiple = pastParticiple;
+		}
+
+		/**
+		 * Executes the operation for a message. The message is deleted
+		 * afterwards.
+		 */
+		abstract void execute(IQueue queue, IQueue targetQueue, IMessage message);
+
+		public String getPastParticiple() {
+			return pastParticiple;
+		}
+
+		public String getProgressVerb() {
+			return progressVerb;
+		}
+	}
+
+	/** number of messages received at once */
+	static final int BATCH_SIZE = 50;
+
+	/** time a received batch is hidden from workers; must cover processing a batch */
+	static final long RECEIVE_TIMEOUT = TimeUnit.SECONDS.toMillis(10);
+
+	private final IQueueService queueService;
+	private final String queueId;
+	private final String targetQueueId;
+	private final Operation operation;
+	private final Filter filter;
+	private final Listener listener;
+
+	/**
+	 * Creates a new instance.
+	 *
+	 * @param queueService
+	 *            the queue service
+	 * @param queueId
+	 *            the queue to process
+	 * @param operation
+	 *            the operation to execute
+	 * @param targetQueueId
+	 *            the queue to move jobs to (only used for
+	 *            {@link Operation#MOVE})
+	 * @param filter
+	 *            the filter selecting the jobs to process
+	 * @param listener
+	 *            the listener to receive progress (maybe <code>null</code>)
+	 */
+	public BulkQueueOperationJob(final IQueueService queueService, final String queueId, final Operation operation, final String targetQueueId, final Filter filter, final Listener listener) {
+		super(String.format("%s jobs in queue %s", operation.getProgressVerb(), queueId));
+		this.queueService = queueService;
+		this.queueId = queueId;
+		this.operation = operation;
+		this.targetQueueId = targetQueueId;
+		this.filter = filter;
+		this.listener = listener;
+	}
+
+	@Override
+	protected IStatus run(final IProgressMonitor monitor) {
+		final IQueue queue = queueService.getQueue(queueId, null);
+		if (queue == null)
+			return new Status(IStatus.ERROR, JobsUiActivator.SYMBOLIC_NAME, String.format("Queue %s not found.", queueId));
+
+		IQueue targetQueue = null;
+		if (operation == Operation.MOVE) {
+			targetQueue = queueService.getQueue(targetQueueId, null);
+			if (targetQueue == null) {
+				targetQueue = queueService.createQueue(targetQueueId, null);
+			}
+		}
+
+		final long start = System.currentTimeMillis();
+		final QueueRecordReader reader = new QueueRecordReader(queueId);
+		final List<String> messageIds;
+		try {
+			messageIds = reader.readMessageIds();
+		} catch (final Exception e) {
+			return new Status(IStatus.ERROR, JobsUiActivator.SYMBOLIC_NAME, String.format("Unable to read queue %s. %s", queueId, ExceptionUtils.getRootCauseMessage(e)), e);
+		}
+
+		final Map<String, Object> receiveProperties = new HashMap<String, Object>(2);
+		receiveProperties.put(IQueueServiceProperties.MESSAGE_RECEIVE_TIMEOUT, Long.valueOf(RECEIVE_TIMEOUT));
+
+		final int total = messageIds.size();
+		monitor.beginTask(getName(), total * 2);
+		final List<IStatus> problems = new ArrayList<IStatus>();
+		int scanned = 0;
+		int matches = 0;
+		int received = 0;
+		int processed = 0;
+		try {
+			// find the last match without consuming anything
+			int visible = 0;
+			int needed = 0;
+			for (final String messageId : messageIds) {
+				if (monitor.isCanceled())
+					return Status.CANCEL_STATUS;
+				scanned++;
+				try {
+					final BrowsedMessage message = reader.readMessage(messageId);
+					// in-flight messages are not received, i.e. don't count them
+					if ((null != message) && !message.isInFlight(start)) {
+						visible++;
+						if (filter.matches(JobInfo.parse(message), start)) {
+							matches++;
+							needed = visible;
+						}
+					}
+				} catch (final Exception | LinkageError | AssertionError e) {
+					// not ours to judge; leave it for the workers
+				}
+				monitor.worked(1);
+				if ((null != listener) && ((scanned % BATCH_SIZE) == 0)) {
+					listener.batchDone(scanned, processed, total);
+				}
+			}
+			monitor.worked(total - needed);
+
+			// receive the messages in front of (and including) the last match
+			while ((received < needed) && ((processed + problems.size()) < matches) && !monitor.isCanceled()) {
+				final List<IMessage> batch = queue.receiveMessages(Math.min(BATCH_SIZE, needed - received), receiveProperties);
+				if ((batch == null) || batch.isEmpty()) {
+					break;
+				}
+
+				final long now = System.currentTimeMillis();
+				for (final IMessage message : batch) {
+					received++;
+					final JobInfo info;
+					try {
+						info = JobInfo.parse(message);
+					} catch (final Exception | LinkageError | AssertionError e) {
+						continue;
+					}
+					if (!filter.matches(info, now)) {
+						// the queue cannot release a message early; it is visible again after the (short) receive timeout
+						continue;
+					}
+
+					try {
+						operation.execute(queue, targetQueue, message);
+					} catch (final Exception e) {
+						problems.add(new Status(IStatus.ERROR, JobsUiActivator.SYMBOLIC_NAME, String.format("Job %s could not be %s and stays in the queue. %s", info.getJobId(), operation.pastParticiple, ExceptionUtils.getRootCauseMessage(e)), e));
+						continue;
+					}
+					try {
+						if (queue.deleteMessage(message)) {
+							processed++;
+						} else {
+							// the receive timeout expired and a worker may have taken it
+							problems.add(new Status(IStatus.WARNING, JobsUiActivator.SYMBOLIC_NAME, String.format("Job %s was %s but could not be removed from queue %s and may run twice.", info.getJobId(), operation.pastParticiple, queueId)));
+						}
+					} catch (final Exception e) {
+						problems.add(new Status(IStatus.WARNING, JobsUiActivator.SYMBOLIC_NAME, String.format("Job %s was %s but could not be removed from queue %s and may run twice. %s", info.getJobId(), operation.pastParticiple, queueId, ExceptionUtils.getRootCauseMessage(e)), e));
+					}
+				}
+
+				monitor.worked(batch.size());
+				monitor.subTask(String.format("%d of %d jobs looked at, %d %s", scanned, total, processed, operation.pastParticiple));
+				if (null != listener) {
+					listener.batchDone(scanned, processed, total);
+				}
+			}
+		} finally {
+			monitor.done();
+		}
+
+		if (!problems.isEmpty())
+			return new MultiStatus(JobsUiActivator.SYMBOLIC_NAME, 0, problems.toArray(new IStatus[problems.size()]), String.format("%d of %d jobs %s, %d with problems.", processed, scanned, operation.pastParticiple, problems.size()), null);
+		if (monitor.isCanceled())
+			return Status.CANCEL_STATUS;
+		return new Status(IStatus.OK, JobsUiActivator.SYMBOLIC_NAME, String.format("%d of %d jobs %s.", processed, scanned, operation.pastParticiple));
+	}
+}
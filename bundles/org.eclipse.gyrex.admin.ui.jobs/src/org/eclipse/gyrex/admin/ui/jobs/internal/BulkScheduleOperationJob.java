@@ -0,0 +1,240 @@
+/*******************************************************************************
+ * Copyright (c) 2013 AGETO Service GmbH and others.
+ * All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Contributors:
+ *     Gunnar Wagenknecht - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.gyrex.admin.ui.jobs.internal;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.gyrex.jobs.internal.schedules.ScheduleImpl;
+import org.eclipse.gyrex.jobs.internal.schedules.ScheduleManagerImpl;
+import org.eclipse.gyrex.jobs.internal.schedules.ScheduleStore;
+
+import org.eclipse.core.runtime.IPath;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.MultiStatus;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.Job;
+
+import org.apache.commons.lang.exception.ExceptionUtils;
+
+/**
+ * Enables, disables or removes a set of schedules.
+ * <p>
+ * Schedules are processed grouped by context. The schedules passed in are
+ * never modified; the job loads a fresh copy of each schedule, changes the
+ * copy and writes it to the store without flushing. The store is flushed once
+ * per context. If that flush fails, all schedules of the context are reported
+ * as failed. Schedules are not read back; callers are expected to refresh
+ * their view once after the job is done. The job result is a
+ * {@link MultiStatus} with one child status per context.
+ * </p>
+ */
+public class BulkScheduleOperationJob extends Job {
+
+	/**
+	 * Receives progress.
+	 * <p>
+	 * Progress is delivered from the job thread.
+	 * </p>
+	 */
+	public interface Listener {
+
+		void scheduleDone(ScheduleImpl schedule, int done, int total);
+	}
+
+	/**
+	 * An operation on a single schedule.
+	 */
+	public static enum Operation {
+		ENABLE("Enabling", "enabled") {
+			@Override
+			boolean accepts(final ScheduleImpl schedule) {
+				return !schedule.isEnabled();
+			}
+
+			@Override
+			void apply(final ScheduleImpl schedule) throws Exception {
+				schedule.setEnabled(true);
+				ScheduleStore.saveWithoutFlush(schedule.getStorageKey(), schedule);
+			}
+		},
+		DISABLE("Disabling", "disabled") {
+			@Override
+			boolean accepts(final ScheduleImpl schedule) {
+				return schedule.isEnabled();
+			}
+
+			@Override
+			void apply(final ScheduleImpl schedule) throws Exception {
+				schedule.setEnabled(false);
+				ScheduleStore.saveWithoutFlush(schedule.getStorageKey(), schedule);
+			}
+		},
+		REMOVE("Removing", "removed") {
+			@Override
+			boolean accepts(final ScheduleImpl schedule) {
+				// only disabled schedules may be removed
+				return !schedule.isEnabled();
+			}
+
+			@Override
+			void apply(final ScheduleImpl schedule) throws Exception {
+				ScheduleStore.removeWithoutFlush(schedule.getStorageKey(), schedule.getId());
+			}
+		};
+
+		private final String progressVerb;
+		private final String pastParticiple;
+
+		private Operation(final String progressVerb, final String pastParticiple) {
+			this.progressVerb = progressVerb;
+			this.pastParticiple = pastParticiple;
+		}
+
+		/**
+		 * Indicates if the operation applies to the given schedule.
+		 */
+		abstract boolean accepts(ScheduleImpl schedule);
+
+		/**
+		 * Applies the operation to the given schedule without flushing the
+		 * store.
+		 */
+		abstract void apply(ScheduleImpl schedule) throws Exception;
+
+		public String getProgressVerb() {
+			return progressVerb;
+		}
+	}
+
+	private final Operation operation;
+	private final Map<IPath, List<ScheduleImpl>> schedulesByContextPath = new LinkedHashMap<IPath, List<ScheduleImpl>>();
+	private final int total;
+	private final Listener listener;
+
+	/**
+	 * Creates a new instance.
+	 *
+	 * @param operation
+	 *            the operation to execute
+	 * @param schedules
+	 *            the schedules to execute the operation for (schedules not
+	 *            accepted by the operation are ignored)
+	 * @param listener
+	 *            the listener to receive progress (maybe <code>null</code>)
+	 */
+	public BulkScheduleOperationJob(final Operation operation, final List<ScheduleImpl> schedules, final Listener listener) {
+		super(String.format("%s schedules", operation.getProgressVerb()));
+		this.operation = operation;
+		this.listener = listener;
+
+		int total = 0;
+		for (final ScheduleImpl schedule : schedules) {
+			if (!operation.accepts(schedule)) {
+				continue;
+			}
+			List<ScheduleImpl> contextSchedules = schedulesByContextPath.get(schedule.getContextPath());
+			if (contextSchedules == null) {
+				contextSchedules = new ArrayList<ScheduleImpl>();
+				schedulesByContextPath.put(schedule.getContextPath(), contextSchedules);
+			}
+			contextSchedules.add(schedule);
+			total++;
+		}
+		this.total = total;
+	}
+
+	/**
+	 * Returns the number of schedules the operation will be executed for.
+	 *
+	 * @return the number of schedules
+	 */
+	public int getTotal() {
+		return total;
+	}
+
+	@Override
+	protected IStatus run(final IProgressMonitor monitor) {
+		monitor.beginTask(getName(), total);
+		try {
+			final List<IStatus> results = new ArrayList<IStatus>(schedulesByContextPath.size());
+			int done = 0;
+			int failed = 0;
+			for (final Map.Entry<IPath, List<ScheduleImpl>> entry : schedulesByContextPath.entrySet()) {
+				final List<IStatus> contextResults = new ArrayList<IStatus>();
+				final List<ScheduleImpl> written = new ArrayList<ScheduleImpl>();
+				for (final ScheduleImpl schedule : entry.getValue()) {
+					// stop early but still flush what was written so far
+					if (monitor.isCanceled())
+						break;
+
+					try {
+						// work on a copy; the caller's instance is left untouched
+						final ScheduleImpl copy = ScheduleStore.load(schedule.getStorageKey(), ScheduleManagerImpl.getExternalId(schedule.getStorageKey()), false);
+						if (null == copy) {
+							// gone already; nothing left to do for REMOVE
+							if (operation != Operation.REMOVE) {
+								contextResults.add(new Status(IStatus.ERROR, JobsUiActivator.SYMBOLIC_NAME, String.format("Schedule %s could not be %s. It does not exist anymore.", schedule.getId(), operation.pastParticiple)));
+							}
+						} else if (operation.accepts(copy)) {
+							operation.apply(copy);
+							written.add(schedule);
+						}
+					} catch (final Exception e) {
+						contextResults.add(new Status(IStatus.ERROR, JobsUiActivator.SYMBOLIC_NAME, String.format("Schedule %s could not be %s. %s", schedule.getId(), operation.pastParticiple, ExceptionUtils.getRootCauseMessage(e)), e));
+					}
+
+					done++;
+					monitor.worked(1);
+					monitor.subTask(String.format("%d of %d schedules done", done, total));
+					if (null != listener) {
+						listener.scheduleDone(schedule, done, total);
+					}
+				}
+
+				if (!written.isEmpty()) {
+					try {
+						// one flush for all schedules of the context
+						ScheduleStore.flushAll();
+					} catch (final Exception e) {
+						for (final ScheduleImpl schedule : written) {
+							contextResults.add(new Status(IStatus.ERROR, JobsUiActivator.SYMBOLIC_NAME, String.format("Schedule %s could not be %s. %s", schedule.getId(), operation.pastParticiple, ExceptionUtils.getRootCauseMessage(e)), e));
+						}
+					}
+				}
+
+				if (monitor.isCanceled())
+					return Status.CANCEL_STATUS;
+
+				failed += contextResults.size();
+				if (contextResults.isEmpty()) {
+					results.add(new Status(IStatus.OK, JobsUiActivator.SYMBOLIC_NAME, String.format("%s: %d schedules %s.", entry.getKey(), entry.getValue().size(), operation.pastParticiple)));
+				} else {
+					results.add(new MultiStatus(JobsUiActivator.SYMBOLIC_NAME, 0, contextResults.toArray(new IStatus[contextResults.size()]), String.format("%s: %d of %d schedules could not be %s.", entry.getKey(), contextResults.size(), entry.getValue().size(), operation.pastParticiple), null));
+				}
+			}
+
+			final String message;
+			if (failed > 0) {
+				message = String.format("%d of %d schedules could not be %s.", failed, total, operation.pastParticiple);
+			} else {
+				message = String.format("%d schedules %s.", total, operation.pastParticiple);
+			}
+			return new MultiStatus(JobsUiActivator.SYMBOLIC_NAME, 0, results.toArray(new IStatus[results.size()]), message, null);
+		} finally {
+			monitor.done();
+		}
+	}
+}
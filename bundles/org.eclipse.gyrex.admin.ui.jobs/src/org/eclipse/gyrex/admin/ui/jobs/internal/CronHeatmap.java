@@ -0,0 +1,127 @@
+/*******************************************************************************
+ * Copyright (c) 2013 AGETO Service GmbH and others.
+ * All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Contributors:
+ *     Gunnar Wagenknecht - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.gyrex.admin.ui.jobs.internal;
+
+import org.eclipse.swt.SWT;
+import org.eclipse.swt.events.PaintEvent;
+import org.eclipse.swt.events.PaintListener;
+import org.eclipse.swt.graphics.GC;
+import org.eclipse.swt.graphics.Point;
+import org.eclipse.swt.graphics.Rectangle;
+import org.eclipse.swt.widgets.Canvas;
+import org.eclipse.swt.widgets.Composite;
+
+/**
+ * A heatmap of fires per minute over a day.
+ * <p>
+ * Each row is an hour and each column a minute. The shade of a cell scales with
+ * the number of fires in the load. Minutes in which the highlighted schedule
+ * fires are outlined and add to the shade.
+ * </p>
+ */
+public class CronHeatmap extends Canvas {
+
+	/** serialVersionUID */
+	private static final long serialVersionUID = 1L;
+
+	private static final int CELL_SIZE = 7;
+	private static final int LABEL_WIDTH = 20;
+
+	private int[] load;
+	private int[] highlight;
+
+	/**
+	 * Creates a new instance.
+	 *
+	 * @param parent
+	 *            the parent composite
+	 * @param style
+	 *            the style
+	 */
+	public CronHeatmap(final Composite parent, final int style) {
+		super(parent, style);
+		addPaintListener(new PaintListener() {
+			/** serialVersionUID */
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			public void paintControl(final PaintEvent event) {
+				paint(event.gc);
+			}
+		});
+	}
+
+	@Override
+	public Point computeSize(final int wHint, final int hHint, final boolean changed) {
+		return new Point(wHint != SWT.DEFAULT ? wHint : LABEL_WIDTH + (60 * CELL_SIZE), hHint != SWT.DEFAULT ? hHint : 24 * CELL_SIZE);
+	}
+
+	void paint(final GC gc) {
+		final int[] load = this.load;
+		final int[] highlight = this.highlight;
+		final Rectangle area = getClientArea();
+
+		int max = 1;
+		for (int minute = 0; minute < CronSchedule.MINUTES_PER_DAY; minute++) {
+			max = Math.max(max, getCount(load, minute) + getCount(highlight, minute));
+		}
+
+		gc.setForeground(getForeground());
+		for (int hour = 0; hour < 24; hour += 6) {
+			gc.drawText(String.valueOf(hour), area.x, area.y + (hour * CELL_SIZE), true);
+		}
+
+		gc.setBackground(getDisplay().getSystemColor(SWT.COLOR_DARK_RED));
+		gc.setForeground(getDisplay().getSystemColor(SWT.COLOR_BLACK));
+		for (int minute = 0; minute < CronSchedule.MINUTES_PER_DAY; minute++) {
+			final int x = area.x + LABEL_WIDTH + ((minute % 60) * CELL_SIZE);
+			final int y = area.y + ((minute / 60) * CELL_SIZE);
+			final int count = getCount(load, minute) + getCount(highlight, minute);
+			if (count > 0) {
+				// keep single fires visible next to a large spike
+				gc.setAlpha(32 + ((223 * count) / max));
+				gc.fillRectangle(x, y, CELL_SIZE - 1, CELL_SIZE - 1);
+			}
+			if (getCount(highlight, minute) > 0) {
+				gc.setAlpha(255);
+				gc.drawRectangle(x, y, CELL_SIZE - 2, CELL_SIZE - 2);
+			}
+		}
+		gc.setAlpha(255);
+	}
+
+	private int getCount(final int[] counts, final int minute) {
+		return counts != null ? counts[minute] : 0;
+	}
+
+	/**
+	 * Sets the fires of the schedule to highlight.
+	 *
+	 * @param highlight
+	 *            the fires per minute of day (maybe <code>null</code>)
+	 */
+	public void setHighlight(final int[] highlight) {
+		this.highlight = highlight;
+		redraw();
+	}
+
+	/**
+	 * Sets the fires of all other schedules.
+	 *
+	 * @param load
+	 *            the fires per minute of day (maybe <code>null</code>)
+	 */
+	public void setLoad(final int[] load) {
+		this.load = load;
+		redraw();
+	}
+}
@@ -0,0 +1,277 @@
+/*******************************************************************************
+ * Copyright (c) 2013 AGETO Service GmbH and others.
+ * All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Contributors:
+ *     Gunnar Wagenknecht - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.gyrex.admin.ui.jobs.internal;
+
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.List;
+import java.util.Locale;
+import java.util.TimeZone;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.lang.StringUtils;
+
+/**
+ * A cron expression compiled into bit masks for fast evaluation.
+ * <p>
+ * Supports the expressions entered for schedule entries: minute, hour, day of
+ * month, month and day of week. Schedule entries have no seconds field; a
+ * sixth field is an optional year, which is ignored. Each field may be
+ * <code>*</code>, <code>?</code>, a value, a range, a list and a step (eg.
+ * <code>0-30/5</code>). Months and days may be given by name. Days of week
+ * follow the scheduler, i.e. <code>1</code> is Sunday and <code>7</code> is
+ * Saturday. The special characters <code>L</code>, <code>W</code> and
+ * <code>#</code> are not supported; {@link #parse(String)} rejects them.
+ * </p>
+ * <p>
+ * Fire times are wall clock times in the time zone of the schedule. Times
+ * skipped when daylight saving time starts do not fire. Times repeated when
+ * it ends fire once, at the second (standard time) occurrence, which is how
+ * {@link Calendar} resolves them.
+ * </p>
+ * <p>
+ * Instances are immutable and matching a minute is a handful of bit
+ * operations, which makes evaluating thousands of expressions over a whole
+ * day cheap.
+ * </p>
+ */
+public final class CronSchedule {
+
+	/** minutes per day */
+	public static final int MINUTES_PER_DAY = 24 * 60;
+
+	private static final String[] MONTH_NAMES = { "JAN", "FEB", "MAR", "APR", "MAY", "JUN", "JUL", "AUG", "SEP", "OCT", "NOV", "DEC" };
+	private static final String[] DAY_NAMES = { "SUN", "MON", "TUE", "WED", "THU", "FRI", "SAT" };
+
+	/** how far {@link #getNextFireTimes(long, TimeZone, int)} looks ahead */
+	private static final int MAX_DAYS_AHEAD = 366 * 5;
+
+	/** upper bound of a daylight saving time shift */
+	private static final long MAX_DST_SHIFT = TimeUnit.HOURS.toMillis(3);
+
+	/**
+	 * Parses a cron expression.
+	 *
+	 * @param expression
+	 *            the expression
+	 * @return the compiled expression
+	 * @throws IllegalArgumentException
+	 *             if the expression is invalid or uses unsupported features
+	 */
+	public static CronSchedule parse(final String expression) throws IllegalArgumentException {
+		final String[] fields = StringUtils.split(StringUtils.trimToEmpty(expression).toUpperCase(Locale.US));
+		// a sixth field is the year, which is ignored
+		if ((fields.length < 5) || (fields.length > 6))
+			throw new IllegalArgumentException(String.format("Expected five fields (plus an optional year) but found %d.", fields.length));
+
+		final long minutes = parseField(fields[0], 0, 59, null, 0);
+		final long hours = parseField(fields[1], 0, 23, null, 0);
+		final long daysOfMonth = parseField(fields[2], 1, 31, null, 0);
+		final long months = parseField(fields[3], 1, 12, MONTH_NAMES, 1);
+		final long daysOfWeek = parseField(fields[4], 1, 7, DAY_NAMES, 1);
+		return new CronSchedule(minutes, hours, daysOfMonth, months, daysOfWeek, !isWildcard(fields[2]), !isWildcard(fields[4]));
+	}
+
+	private static long parseField(final String field, final int min, final int max, final String[] names, final int nameOffset) {
+		// names are replaced first because some contain 'L' or 'W' (eg. JUL, WED)
+		final String values = replaceNames(field, names, nameOffset);
+		if (StringUtils.containsAny(values, "LW#"))
+			throw new IllegalArgumentException(String.format("Special characters in '%s' are not supported by the preview.", field));
+
+		long mask = 0;
+		for (final String part : StringUtils.split(values, ',')) {
+			int step = 1;
+			String range = part;
+			final int slash = part.indexOf('/');
+			if (slash >= 0) {
+				step = parseValue(part.substring(slash + 1), 1, max);
+				range = part.substring(0, slash);
+			}
+
+			int from, to;
+			if (range.equals("*") || range.equals("?")) {
+				from = min;
+				to = max;
+			} else if (range.indexOf('-') > 0) {
+				from = parseValue(StringUtils.substringBefore(range, "-"), min, max);
+				to = parseValue(StringUtils.substringAfter(range, "-"), min, max);
+			} else {
+				from = parseValue(range, min, max);
+				// a step on a single value means "from value to max"
+				to = slash >= 0 ? max : from;
+			}
+
+			if (from <= to) {
+				for (int i = from; i <= to; i += step) {
+					mask |= 1L << i;
+				}
+			} else {
+				// wrapping range (eg. FRI-MON)
+				for (int i = from; i <= (to + (max - min) + 1); i += step) {
+					mask |= 1L << (i > max ? (i - max - 1) + min : i);
+				}
+			}
+		}
+		return mask;
+	}
+
+	private static int parseValue(final String value, final int min, final int max) {
+		final int result;
+		try {
+			result = Integer.parseInt(value);
+		} catch (final NumberFormatException e) {
+			throw new IllegalArgumentException(String.format("'%s' is not a number.", value));
+		}
+		if ((result < min) || (result > max))
+			throw new IllegalArgumentException(String.format("%d is not within %d and %d.", result, min, max));
+		return result;
+	}
+
+	private static String replaceNames(final String field, final String[] names, final int offset) {
+		if (names == null)
+			return field;
+		String result = field;
+		for (int i = 0; i < names.length; i++) {
+			result = StringUtils.replace(result, names[i], String.valueOf(i + offset));
+		}
+		return result;
+	}
+
+	/**
+	 * Indicates if the wall clock time at the given instant occurs again
+	 * shortly after because daylight saving time ends.
+	 */
+	private static boolean isRepeatedLater(final TimeZone timeZone, final long instant) {
+		final int offset = timeZone.getOffset(instant);
+		final int laterOffset = timeZone.getOffset(instant + MAX_DST_SHIFT);
+		if (laterOffset >= offset)
+			return false;
+		return timeZone.getOffset(instant + (offset - laterOffset)) == laterOffset;
+	}
+
+	private static boolean isWildcard(final String field) {
+		return field.equals("*") || field.equals("?");
+	}
+
+	private final long minutes;
+	private final long hours;
+	private final long daysOfMonth;
+	private final long months;
+	private final long daysOfWeek;
+	private final boolean daysOfMonthRestricted;
+	private final boolean daysOfWeekRestricted;
+
+	private CronSchedule(final long minutes, final long hours, final long daysOfMonth, final long months, final long daysOfWeek, final boolean daysOfMonthRestricted, final boolean daysOfWeekRestricted) {
+		this.minutes = minutes;
+		this.hours = hours;
+		this.daysOfMonth = daysOfMonth;
+		this.months = months;
+		this.daysOfWeek = daysOfWeek;
+		this.daysOfMonthRestricted = daysOfMonthRestricted;
+		this.daysOfWeekRestricted = daysOfWeekRestricted;
+	}
+
+	/**
+	 * Adds the number of fires per minute of a day to the given counts.
+	 * <p>
+	 * The day is the UTC day starting at <code>dayStartUtc</code>. Fire times
+	 * are evaluated in the given time zone and counted at their UTC minute,
+	 * consistent with {@link #getNextFireTimes(long, TimeZone, int)}.
+	 * </p>
+	 *
+	 * @param counts
+	 *            the counts per UTC minute of day (length
+	 *            {@link #MINUTES_PER_DAY})
+	 * @param dayStartUtc
+	 *            the start of the UTC day in milliseconds
+	 * @param timeZone
+	 *            the time zone of the schedule
+	 */
+	public void addFiresPerMinute(final int[] counts, final long dayStartUtc, final TimeZone timeZone) {
+		final Calendar local = Calendar.getInstance(timeZone, Locale.US);
+		int utcMinute = 0;
+		while (utcMinute < MINUTES_PER_DAY) {
+			// process one local hour (or the rest of the UTC day) at a time
+			local.setTimeInMillis(dayStartUtc + TimeUnit.MINUTES.toMillis(utcMinute));
+			final int localMinute = local.get(Calendar.MINUTE);
+			final int span = Math.min(60 - localMinute, MINUTES_PER_DAY - utcMinute);
+			// chunks start at local hour boundaries, which is where the clock is set back
+			if (matchesDay(local) && ((hours & (1L << local.get(Calendar.HOUR_OF_DAY))) != 0) && !isRepeatedLater(timeZone, local.getTimeInMillis())) {
+				for (int i = 0; i < span; i++) {
+					if ((minutes & (1L << (localMinute + i))) != 0) {
+						counts[utcMinute + i]++;
+					}
+				}
+			}
+			utcMinute += span;
+		}
+	}
+
+	/**
+	 * Computes the next fire times.
+	 *
+	 * @param after
+	 *            the time after which to look (in milliseconds)
+	 * @param timeZone
+	 *            the time zone of the schedule
+	 * @param count
+	 *            the maximum number of fire times to compute
+	 * @return the fire times (in milliseconds, ascending)
+	 */
+	public List<Long> getNextFireTimes(final long after, final TimeZone timeZone, final int count) {
+		final List<Long> result = new ArrayList<Long>(count);
+		final Calendar day = Calendar.getInstance(timeZone, Locale.US);
+		day.setTimeInMillis(after);
+		day.set(Calendar.SECOND, 0);
+		day.set(Calendar.MILLISECOND, 0);
+		final int startHour = day.get(Calendar.HOUR_OF_DAY);
+		day.set(Calendar.HOUR_OF_DAY, 0);
+		day.set(Calendar.MINUTE, 0);
+
+		final Calendar fire = Calendar.getInstance(timeZone, Locale.US);
+		for (int d = 0; (d < MAX_DAYS_AHEAD) && (result.size() < count); d++) {
+			if (matchesDay(day)) {
+				for (int h = d == 0 ? startHour : 0; (h < 24) && (result.size() < count); h++) {
+					if ((hours & (1L << h)) == 0) {
+						continue;
+					}
+					// the whole start hour is checked; when the clock is set back its minutes may still be ahead
+					for (int m = 0; (m < 60) && (result.size() < count); m++) {
+						if ((minutes & (1L << m)) != 0) {
+							fire.setTimeInMillis(day.getTimeInMillis());
+							fire.set(Calendar.HOUR_OF_DAY, h);
+							fire.set(Calendar.MINUTE, m);
+							// skip times which do not exist because the clock is set forward
+							if ((fire.get(Calendar.HOUR_OF_DAY) == h) && (fire.get(Calendar.MINUTE) == m) && (fire.getTimeInMillis() > after)) {
+								result.add(fire.getTimeInMillis());
+							}
+						}
+					}
+				}
+			}
+			day.add(Calendar.DAY_OF_MONTH, 1);
+		}
+		return result;
+	}
+
+	private boolean matchesDay(final Calendar date) {
+		if ((months & (1L << (date.get(Calendar.MONTH) + 1))) == 0)
+			return false;
+
+		final boolean dayOfMonth = (daysOfMonth & (1L << date.get(Calendar.DAY_OF_MONTH))) != 0;
+		final boolean dayOfWeek = (daysOfWeek & (1L << date.get(Calendar.DAY_OF_WEEK))) != 0;
+		if (daysOfMonthRestricted && daysOfWeekRestricted)
+			// classic cron semantics: either one matches
+			return dayOfMonth || dayOfWeek;
+		return dayOfMonth && dayOfWeek;
+	}
+}
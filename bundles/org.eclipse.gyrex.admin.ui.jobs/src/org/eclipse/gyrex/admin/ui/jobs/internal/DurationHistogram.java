@@ -0,0 +1,112 @@
+/*******************************************************************************
+ * Copyright (c) 2013 AGETO Service GmbH and others.
+ * All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Contributors:
+ *     Gunnar Wagenknecht - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.gyrex.admin.ui.jobs.internal;
+
+/**
+ * A streaming histogram of durations.
+ * <p>
+ * Durations are counted in buckets of exponentially growing width, i.e.
+ * memory is constant regardless of the number of recorded values and
+ * percentiles are accurate within {@link #PRECISION} (relative). Durations
+ * larger than about a week are counted in the last bucket.
+ * </p>
+ */
+public final class DurationHistogram {
+
+	/** relative width of a bucket */
+	static final double PRECISION = 0.05;
+
+	private static final double LOG_BASE = Math.log1p(PRECISION);
+	private static final int BUCKETS = 420;
+
+	static int bucketOf(final long durationMillis) {
+		if (durationMillis < 1)
+			return 0;
+		return Math.min(BUCKETS - 1, 1 + (int) (Math.log(durationMillis) / LOG_BASE));
+	}
+
+	static long upperBoundOf(final int bucket) {
+		if (bucket == 0)
+			return 0;
+		return (long) Math.ceil(Math.exp(bucket * LOG_BASE));
+	}
+
+	private final long[] counts = new long[BUCKETS];
+	private long count;
+	private long min = Long.MAX_VALUE;
+	private long max = Long.MIN_VALUE;
+
+	/**
+	 * Records a duration.
+	 *
+	 * @param durationMillis
+	 *            the duration in milliseconds (negative values are ignored)
+	 */
+	public void add(final long durationMillis) {
+		if (durationMillis < 0)
+			return;
+		counts[bucketOf(durationMillis)]++;
+		count++;
+		min = Math.min(min, durationMillis);
+		max = Math.max(max, durationMillis);
+	}
+
+	/**
+	 * Returns the number of recorded durations.
+	 *
+	 * @return the number of recorded durations
+	 */
+	public long getCount() {
+		return count;
+	}
+
+	/**
+	 * Returns the largest recorded duration.
+	 *
+	 * @return the largest duration or <code>-1</code> if empty
+	 */
+	public long getMax() {
+		return count > 0 ? max : -1;
+	}
+
+	/**
+	 * Returns the smallest recorded duration.
+	 *
+	 * @return the smallest duration or <code>-1</code> if empty
+	 */
+	public long getMin() {
+		return count > 0 ? min : -1;
+	}
+
+	/**
+	 * Returns the duration below which the given share of the recorded
+	 * durations falls.
+	 *
+	 * @param percentile
+	 *            the percentile (between <code>0</code> and <code>100</code>)
+	 * @return the duration or <code>-1</code> if empty
+	 */
+	public long getPercentile(final double percentile) {
+		if (count == 0)
+			return -1;
+
+		final long rank = Math.max(1, (long) Math.ceil((Math.min(100, Math.max(0, percentile)) / 100) * count));
+		long seen = 0;
+		for (int bucket = 0; bucket < BUCKETS; bucket++) {
+			seen += counts[bucket];
+			if (seen >= rank)
+				// never report more than actually seen
+				return Math.max(min, Math.min(max, upperBoundOf(bucket)));
+		}
+		return max;
+	}
+}
@@ -0,0 +1,178 @@
+/*******************************************************************************
+ * Copyright (c) 2013 AGETO Service GmbH and others.
+ * All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Contributors:
+ *     Gunnar Wagenknecht - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.gyrex.admin.ui.jobs.internal;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+import org.eclipse.gyrex.admin.ui.internal.widgets.RingBuffer;
+import org.eclipse.gyrex.jobs.history.IJobHistoryEntry;
+
+import org.eclipse.core.runtime.IStatus;
+
+/**
+ * Analyzes the execution history of a job in a single pass.
+ * <p>
+ * Entries are streamed through the analysis. Durations go into a
+ * {@link DurationHistogram}, and only the entries of the requested page (newest
+ * first) and the most recent durations for the trend are retained. Memory is
+ * therefore bounded by the page and trend size, not by the history size.
+ * </p>
+ */
+public class JobHistoryAnalysis {
+
+	/** orders entries oldest first */
+	static final Comparator<IJobHistoryEntry> OLDEST_FIRST = new Comparator<IJobHistoryEntry>() {
+		@Override
+		public int compare(final IJobHistoryEntry e1, final IJobHistoryEntry e2) {
+			return Long.compare(e1.getTimeStamp(), e2.getTimeStamp());
+		}
+	};
+
+	/**
+	 * Returns the execution duration of an entry.
+	 *
+	 * @param entry
+	 *            the entry
+	 * @return the duration in milliseconds or <code>-1</code> if unknown
+	 */
+	public static long getDuration(final IJobHistoryEntry entry) {
+		final long start = entry.getStartTimeStamp();
+		final long end = entry.getTimeStamp();
+		if ((start <= 0) || (end < start))
+			return -1;
+		return end - start;
+	}
+
+	private final int offset;
+	private final int limit;
+	private final int trendSize;
+
+	private final DurationHistogram histogram = new DurationHistogram();
+	private final PriorityQueue<IJobHistoryEntry> newest;
+	private final PriorityQueue<IJobHistoryEntry> trend;
+	private long total;
+	private long failures;
+
+	/**
+	 * Creates a new instance.
+	 *
+	 * @param offset
+	 *            number of newest entries to skip for the page
+	 * @param limit
+	 *            maximum number of entries on the page
+	 * @param trendSize
+	 *            number of most recent durations to keep for the trend
+	 */
+	public JobHistoryAnalysis(final int offset, final int limit, final int trendSize) {
+		this.offset = Math.max(0, offset);
+		this.limit = Math.max(1, limit);
+		this.trendSize = Math.max(1, trendSize);
+
+		// min-heaps on the time stamp; the oldest retained entry is evicted first
+		newest = new PriorityQueue<IJobHistoryEntry>(this.offset + this.limit + 1, OLDEST_FIRST);
+		trend = new PriorityQueue<IJobHistoryEntry>(this.trendSize + 1, OLDEST_FIRST);
+	}
+
+	/**
+	 * Adds an entry to the analysis.
+	 *
+	 * @param entry
+	 *            the entry
+	 */
+	public void add(final IJobHistoryEntry entry) {
+		total++;
+
+		final IStatus result = entry.getResult();
+		if ((result != null) && result.matches(IStatus.ERROR)) {
+			failures++;
+		}
+
+		final long duration = getDuration(entry);
+		if (duration >= 0) {
+			histogram.add(duration);
+			retain(trend, entry, trendSize);
+		}
+
+		retain(newest, entry, offset + limit);
+	}
+
+	/**
+	 * Returns the share of failed executions.
+	 *
+	 * @return the failure rate (between <code>0</code> and <code>1</code>) or
+	 *         <code>-1</code> if no entries were analyzed
+	 */
+	public double getFailureRate() {
+		return total > 0 ? (double) failures / total : -1;
+	}
+
+	public DurationHistogram getHistogram() {
+		return histogram;
+	}
+
+	/**
+	 * Returns the entries of the requested page.
+	 *
+	 * @return the entries, newest first
+	 */
+	public List<IJobHistoryEntry> getPage() {
+		final List<IJobHistoryEntry> entries = new ArrayList<IJobHistoryEntry>(newest);
+		Collections.sort(entries, Collections.reverseOrder(OLDEST_FIRST));
+		if (offset >= entries.size())
+			return Collections.emptyList();
+		return entries.subList(offset, entries.size());
+	}
+
+	/**
+	 * Returns the total number of analyzed entries.
+	 *
+	 * @return the total number of entries
+	 */
+	public long getTotal() {
+		return total;
+	}
+
+	/**
+	 * Returns the most recent durations.
+	 *
+	 * @return a buffer with the durations, oldest first
+	 */
+	public RingBuffer getTrend() {
+		final List<IJobHistoryEntry> entries = new ArrayList<IJobHistoryEntry>(trend);
+		Collections.sort(entries, OLDEST_FIRST);
+		final RingBuffer buffer = new RingBuffer(trendSize);
+		for (final IJobHistoryEntry entry : entries) {
+			buffer.add(getDuration(entry));
+		}
+		return buffer;
+	}
+
+	/**
+	 * Indicates if there are entries older than the requested page.
+	 *
+	 * @return <code>true</code> if there are older entries
+	 */
+	public boolean hasOlder() {
+		return total > (offset + limit);
+	}
+
+	private void retain(final PriorityQueue<IJobHistoryEntry> queue, final IJobHistoryEntry entry, final int capacity) {
+		queue.add(entry);
+		if (queue.size() > capacity) {
+			queue.poll();
+		}
+	}
+}
@@ -0,0 +1,61 @@
+/*******************************************************************************
+ * Copyright (c) 2013 AGETO Service GmbH and others.
+ * All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Contributors:
+ *     Gunnar Wagenknecht - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.gyrex.admin.ui.jobs.internal;
+
+import java.util.Collection;
+
+import org.eclipse.jface.viewers.ITreeContentProvider;
+import org.eclipse.jface.viewers.Viewer;
+
+/**
+ * Lists a page of job history entries. Input must be a collection.
+ */
+public class JobHistoryContentProvider implements ITreeContentProvider {
+
+	/** serialVersionUID */
+	private static final long serialVersionUID = 1L;
+
+	private static final Object[] EMPTY_ARRAY = new Object[0];
+
+	@Override
+	public void dispose() {
+		// no-op
+	}
+
+	@Override
+	public Object[] getChildren(final Object parentElement) {
+		return EMPTY_ARRAY;
+	}
+
+	@Override
+	public Object[] getElements(final Object inputElement) {
+		if (inputElement instanceof Collection)
+			return ((Collection<?>) inputElement).toArray();
+		return EMPTY_ARRAY;
+	}
+
+	@Override
+	public Object getParent(final Object element) {
+		return null;
+	}
+
+	@Override
+	public boolean hasChildren(final Object element) {
+		return false;
+	}
+
+	@Override
+	public void inputChanged(final Viewer viewer, final Object oldInput, final Object newInput) {
+		// no-op
+	}
+
+}
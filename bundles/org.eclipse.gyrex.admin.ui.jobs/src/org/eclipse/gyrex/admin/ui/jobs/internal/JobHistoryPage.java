@@ -0,0 +1,431 @@
+/*******************************************************************************
+ * Copyright (c) 2013 AGETO Service GmbH and others.
+ * All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Contributors:
+ *     Gunnar Wagenknecht - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.gyrex.admin.ui.jobs.internal;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+import org.eclipse.gyrex.admin.ui.internal.widgets.AdminPageWithTree;
+import org.eclipse.gyrex.admin.ui.internal.widgets.Sparkline;
+import org.eclipse.gyrex.context.IRuntimeContext;
+import org.eclipse.gyrex.context.registry.IRuntimeContextRegistry;
+import org.eclipse.gyrex.jobs.history.IJobHistory;
+import org.eclipse.gyrex.jobs.history.IJobHistoryEntry;
+import org.eclipse.gyrex.jobs.manager.IJobManager;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Path;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.IJobChangeEvent;
+import org.eclipse.core.runtime.jobs.Job;
+import org.eclipse.core.runtime.jobs.JobChangeAdapter;
+import org.eclipse.jface.layout.GridLayoutFactory;
+import org.eclipse.jface.viewers.ITreeContentProvider;
+import org.eclipse.rap.rwt.service.ServerPushSession;
+import org.eclipse.swt.SWT;
+import org.eclipse.swt.events.SelectionAdapter;
+import org.eclipse.swt.events.SelectionEvent;
+import org.eclipse.swt.graphics.Image;
+import org.eclipse.swt.layout.GridData;
+import org.eclipse.swt.widgets.Button;
+import org.eclipse.swt.widgets.Composite;
+import org.eclipse.swt.widgets.Control;
+import org.eclipse.swt.widgets.Display;
+import org.eclipse.swt.widgets.Label;
+import org.eclipse.swt.widgets.Link;
+
+import org.apache.commons.lang.StringUtils;
+import org.apache.commons.lang.exception.ExceptionUtils;
+import org.apache.commons.lang.time.DateFormatUtils;
+import org.apache.commons.lang.time.DurationFormatUtils;
+
+/**
+ * Execution history of a single job with duration percentiles.
+ * <p>
+ * The history is streamed through a {@link JobHistoryAnalysis} in the
+ * background. Only the displayed page (newest first) and the trend are kept.
+ * </p>
+ */
+public class JobHistoryPage extends AdminPageWithTree {
+
+	private final class AnalyzeHistoryJob extends Job {
+
+		private final String contextPath;
+		private final String jobId;
+		private final int offset;
+		private final Display display;
+		private final ServerPushSession pushSession = new ServerPushSession();
+
+		private volatile JobHistoryAnalysis analysis;
+		private volatile String error;
+
+		AnalyzeHistoryJob(final String contextPath, final String jobId, final int offset, final Display display) {
+			super(String.format("Analyzing history of job %s", jobId));
+			this.contextPath = contextPath;
+			this.jobId = jobId;
+			this.offset = offset;
+			this.display = display;
+			setSystem(true);
+
+			// keep pushing until the job is done (also when cancelled before running)
+			pushSession.start();
+			addJobChangeListener(new JobChangeAdapter() {
+				@Override
+				public void done(final IJobChangeEvent event) {
+					if (display.isDisposed())
+						return;
+					display.asyncExec(new Runnable() {
+						@Override
+						public void run() {
+							pushSession.stop();
+							if (analysisJob == AnalyzeHistoryJob.this) {
+								analysisJob = null;
+								update(analysis, error);
+							}
+						}
+					});
+				}
+			});
+		}
+
+		@Override
+		protected IStatus run(final IProgressMonitor monitor) {
+			try {
+				analysis = analyze(contextPath, jobId, offset, monitor);
+			} catch (final Exception e) {
+				error = String.format("Unable to read history. %s", ExceptionUtils.getRootCauseMessage(e));
+			}
+			return monitor.isCanceled() ? Status.CANCEL_STATUS : Status.OK_STATUS;
+		}
+	}
+
+	public static final String ID = "job-history";
+
+	private static final int COLUMN_FINISHED = 0;
+	private static final int COLUMN_DURATION = 1;
+	private static final int COLUMN_RESULT = 2;
+	private static final int COLUMN_TRIGGER = 3;
+
+	private static final int PAGE_SIZE = 50;
+	private static final int TREND_SIZE = 100;
+
+	static String toDurationText(final long duration) {
+		if (duration < 0)
+			return "n/a";
+		return DurationFormatUtils.formatDuration(duration, "H:mm:ss.SSS");
+	}
+
+	private Label jobLabel;
+	private Label statusLabel;
+	private Label p50Label;
+	private Label p95Label;
+	private Label p99Label;
+	private Label failureRateLabel;
+	private Label executionsLabel;
+	private Sparkline trendSparkline;
+
+	private Button refreshButton;
+	private Button newerButton;
+	private Button olderButton;
+
+	private int offset;
+	private boolean hasOlder;
+	private List<IJobHistoryEntry> entries = Collections.emptyList();
+	private AnalyzeHistoryJob analysisJob;
+
+	public JobHistoryPage() {
+		super(4);
+		setTitle("Job History");
+		setTitleToolTip("Browse past executions of a background task.");
+	}
+
+	@Override
+	protected void createButtons(final Composite parent) {
+		refreshButton = createButton(parent, "Refresh");
+		refreshButton.addSelectionListener(new SelectionAdapter() {
+			/** serialVersionUID */
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			public void widgetSelected(final SelectionEvent e) {
+				refresh();
+			}
+		});
+
+		createButtonSeparator(parent);
+
+		newerButton = createButton(parent, "Newer");
+		newerButton.setEnabled(false);
+		newerButton.addSelectionListener(new SelectionAdapter() {
+			/** serialVersionUID */
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			public void widgetSelected(final SelectionEvent e) {
+				offset = Math.max(0, offset - PAGE_SIZE);
+				refresh();
+			}
+		});
+
+		olderButton = createButton(parent, "Older");
+		olderButton.setEnabled(false);
+		olderButton.addSelectionListener(new SelectionAdapter() {
+			/** serialVersionUID */
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			public void widgetSelected(final SelectionEvent e) {
+				offset += PAGE_SIZE;
+				refresh();
+			}
+		});
+	}
+
+	@Override
+	protected ITreeContentProvider createContentProvider() {
+		return new JobHistoryContentProvider();
+	}
+
+	@Override
+	protected Control createHeader(final Composite parent) {
+		final Composite composite = new Composite(parent, SWT.NONE);
+		composite.setLayout(GridLayoutFactory.fillDefaults().create());
+
+		final Link link = new Link(composite, SWT.WRAP);
+		link.setText("Back to <a>schedule entries</a>");
+		link.setLayoutData(new GridData(SWT.LEFT, SWT.CENTER, false, false));
+		link.addSelectionListener(new SelectionAdapter() {
+			/** serialVersionUID */
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			public void widgetSelected(final SelectionEvent e) {
+				openScheduleEntriesPage();
+			}
+		});
+
+		jobLabel = new Label(composite, SWT.NONE);
+		jobLabel.setLayoutData(new GridData(SWT.FILL, SWT.CENTER, true, false));
+
+		final Composite area = new Composite(composite, SWT.NONE);
+		area.setLayoutData(new GridData(SWT.FILL, SWT.FILL, true, false));
+		area.setLayout(GridLayoutFactory.fillDefaults().spacing(0, 0).numColumns(10).create());
+
+		p50Label = createMetricText(area, "Median");
+		createMetricSeparator(area);
+		p95Label = createMetricText(area, "95th Percentile");
+		createMetricSeparator(area);
+		p99Label = createMetricText(area, "99th Percentile");
+		createMetricSeparator(area);
+		failureRateLabel = createMetricText(area, "Failed");
+		createMetricSeparator(area);
+		executionsLabel = createMetricText(area, "Executions");
+
+		trendSparkline = new Sparkline(area, SWT.NONE);
+		final GridData gd = new GridData(SWT.FILL, SWT.CENTER, true, false);
+		gd.horizontalIndent = 24;
+		gd.heightHint = 40;
+		trendSparkline.setLayoutData(gd);
+		trendSparkline.setToolTipText(String.format("Duration of the last %d executions", TREND_SIZE));
+
+		statusLabel = new Label(composite, SWT.WRAP);
+		statusLabel.setLayoutData(new GridData(SWT.FILL, SWT.CENTER, true, false));
+
+		return composite;
+	}
+
+	@Override
+	public void deactivate() {
+		if (analysisJob != null) {
+			analysisJob.cancel();
+			analysisJob = null;
+		}
+		super.deactivate();
+	}
+
+	private String getArgument(final int index) {
+		final String[] args = getArguments();
+		if ((args != null) && (args.length > index) && StringUtils.isNotBlank(args[index]))
+			return args[index];
+		return null;
+	}
+
+	@Override
+	protected String getColumnLabel(final int column) {
+		switch (column) {
+			case COLUMN_FINISHED:
+				return "Finished";
+			case COLUMN_DURATION:
+				return "Duration";
+			case COLUMN_RESULT:
+				return "Result";
+			case COLUMN_TRIGGER:
+				return "Trigger";
+
+			default:
+				return StringUtils.EMPTY;
+		}
+	}
+
+	@Override
+	protected Image getElementImage(final Object element, final int column) {
+		if ((element instanceof IJobHistoryEntry) && (column == COLUMN_RESULT)) {
+			final IStatus result = ((IJobHistoryEntry) element).getResult();
+			if (result != null) {
+				if (result.matches(IStatus.ERROR))
+					return JobsUiImages.getImage(JobsUiImages.IMG_OBJ_ERROR_RESULT);
+				else if (result.matches(IStatus.WARNING))
+					return JobsUiImages.getImage(JobsUiImages.IMG_OBJ_WARN_RESULT);
+			}
+		}
+		return null;
+	}
+
+	@Override
+	protected String getElementLabel(final Object element, final int column) {
+		if (element instanceof IJobHistoryEntry) {
+			final IJobHistoryEntry entry = (IJobHistoryEntry) element;
+			switch (column) {
+				case COLUMN_FINISHED:
+					return DateFormatUtils.ISO_DATETIME_FORMAT.format(entry.getTimeStamp());
+				case COLUMN_DURATION:
+					return toDurationText(JobHistoryAnalysis.getDuration(entry));
+				case COLUMN_RESULT:
+					return entry.getResult() != null ? entry.getResult().getMessage() : "n/a";
+				case COLUMN_TRIGGER:
+					return entry.getTrigger();
+
+				default:
+					return null;
+			}
+		} else if ((column == NO_COLUMN) || (column == COLUMN_FINISHED))
+			return String.valueOf(element);
+		return null;
+	}
+
+	@Override
+	protected Object getViewerInput() {
+		return entries;
+	}
+
+	@Override
+	protected boolean isColumnSortable(final int column) {
+		// pages are ordered newest first
+		return false;
+	}
+
+	void openScheduleEntriesPage() {
+		final String contextPath = getArgument(1);
+		final String scheduleId = getArgument(4);
+		if ((contextPath != null) && (scheduleId != null)) {
+			getAdminUi().openPage(ScheduleEntriesPage.ID, contextPath, scheduleId);
+		} else {
+			getAdminUi().openPage(BackgroundTasksPage.ID);
+		}
+	}
+
+	@Override
+	protected void refresh() {
+		final String contextPath = getArgument(1);
+		final String jobId = getArgument(2);
+		if ((contextPath == null) || (jobId == null)) {
+			statusLabel.setText("No job specified.");
+			return;
+		}
+
+		jobLabel.setText(String.format("Job %s in context %s", StringUtils.defaultString(getArgument(3), jobId), contextPath));
+
+		if (analysisJob != null) {
+			analysisJob.cancel();
+		}
+
+		statusLabel.setText("Analyzing history...");
+		refreshButton.setEnabled(false);
+		newerButton.setEnabled(false);
+		olderButton.setEnabled(false);
+
+		final AnalyzeHistoryJob job = new AnalyzeHistoryJob(contextPath, jobId, offset, statusLabel.getDisplay());
+		analysisJob = job;
+		job.schedule();
+	}
+
+	static JobHistoryAnalysis analyze(final String contextPath, final String jobId, final int offset, final IProgressMonitor monitor) {
+		final JobHistoryAnalysis analysis = new JobHistoryAnalysis(offset, PAGE_SIZE, TREND_SIZE);
+
+		final IRuntimeContext context = JobsUiActivator.getInstance().getService(IRuntimeContextRegistry.class).get(new Path(contextPath));
+		if (context == null)
+			throw new IllegalStateException(String.format("Context %s not found.", contextPath));
+		final IJobManager jobManager = context.get(IJobManager.class);
+		if (jobManager == null)
+			throw new IllegalStateException(String.format("No job manager available in context %s.", contextPath));
+
+		final IJobHistory history = jobManager.getHistory(jobId);
+		if (history == null)
+			return analysis;
+
+		final Collection<IJobHistoryEntry> historyEntries = history.getEntries();
+		for (final IJobHistoryEntry entry : historyEntries) {
+			if (monitor.isCanceled())
+				break;
+			analysis.add(entry);
+		}
+		return analysis;
+	}
+
+	@Override
+	public void setArguments(final String[] args) {
+		super.setArguments(args);
+		offset = 0;
+		entries = Collections.emptyList();
+	}
+
+	void update(final JobHistoryAnalysis analysis, final String error) {
+		if (statusLabel.isDisposed())
+			return;
+
+		refreshButton.setEnabled(true);
+		if (analysis == null) {
+			statusLabel.setText(error);
+			statusLabel.getParent().layout();
+			return;
+		}
+
+		final DurationHistogram histogram = analysis.getHistogram();
+		p50Label.setText(toDurationText(histogram.getPercentile(50)));
+		p95Label.setText(toDurationText(histogram.getPercentile(95)));
+		p99Label.setText(toDurationText(histogram.getPercentile(99)));
+		failureRateLabel.setText(analysis.getFailureRate() >= 0 ? String.format("%.1f%%", analysis.getFailureRate() * 100) : "n/a");
+		executionsLabel.setText(String.valueOf(analysis.getTotal()));
+		trendSparkline.setBuffer(analysis.getTrend());
+
+		entries = analysis.getPage();
+		hasOlder = analysis.hasOlder();
+		if (analysis.getTotal() == 0) {
+			statusLabel.setText("No executions recorded.");
+		} else {
+			statusLabel.setText(String.format("Showing executions %d to %d of %d, newest first.", offset + 1, offset + entries.size(), analysis.getTotal()));
+		}
+		statusLabel.getParent().layout(true, true);
+
+		getTreeViewer().setInput(entries);
+		updateButtons();
+	}
+
+	@Override
+	protected void updateButtons() {
+		final boolean idle = analysisJob == null;
+		newerButton.setEnabled(idle && (offset > 0));
+		olderButton.setEnabled(idle && hasOlder);
+	}
+}
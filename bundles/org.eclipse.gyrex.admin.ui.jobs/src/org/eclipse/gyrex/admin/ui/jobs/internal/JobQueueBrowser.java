@@ -0,0 +1,298 @@
+/*******************************************************************************
+ * Copyright (c) 2013 AGETO Service GmbH and others.
+ * All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Contributors:
+ *     Gunnar Wagenknecht - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.gyrex.admin.ui.jobs.internal;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.gyrex.admin.ui.jobs.internal.QueueRecordReader.BrowsedMessage;
+import org.eclipse.gyrex.jobs.internal.worker.JobInfo;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+
+import org.apache.commons.lang.exception.ExceptionUtils;
+
+/**
+ * Read-only, paged view on the messages of a job queue.
+ * <p>
+ * Receiving messages through {@link org.eclipse.gyrex.cloud.services.queue.IQueue}
+ * is a consuming operation which may hide messages from workers and which
+ * cannot skip ahead. The browser therefore reads the queue records using a
+ * {@link QueueRecordReader}. It takes a snapshot of the (ordered) message ids
+ * once and only reads the messages of the requested page. Nothing is ever
+ * written.
+ * </p>
+ * <p>
+ * Reading talks to ZooKeeper and must not happen in the UI thread. The
+ * current page is published atomically once it has been read, so the getters
+ * may be called from the UI thread at any time.
+ * </p>
+ * <p>
+ * Messages consumed after the snapshot was taken are skipped when reading a
+ * page. Call {@link #refresh(int, IProgressMonitor)} to take a new snapshot.
+ * </p>
+ * <p>
+ * The queue keeps the messages taken by workers until they are processed.
+ * Such in-flight messages are listed, too, but reported by
+ * {@link #getInvisibleUntil(Object)} so that they can be told apart from the
+ * waiting ones.
+ * </p>
+ */
+public class JobQueueBrowser {
+
+	/** default number of messages per page */
+	public static final int DEFAULT_PAGE_SIZE = 100;
+
+	private final String queueId;
+	private final QueueRecordReader reader;
+	private final int pageSize;
+
+	private List<String> messageIds = Collections.emptyList(); // guarded by this
+	private List<Object> elements = Collections.emptyList(); // guarded by this
+	private Map<Object, Long> inFlightElements = Collections.emptyMap(); // guarded by this
+	private int offset; // guarded by this
+	private String error; // guarded by this
+
+	/**
+	 * Creates a new instance.
+	 *
+	 * @param queueId
+	 *            the queue id
+	 * @param pageSize
+	 *            the number of messages per page
+	 */
+	public JobQueueBrowser(final String queueId, final int pageSize) {
+		if (pageSize < 1)
+			throw new IllegalArgumentException("page size must be greater than zero");
+		this.queueId = queueId;
+		this.pageSize = pageSize;
+		reader = new QueueRecordReader(queueId);
+	}
+
+	/**
+	 * Returns the elements of the current page, i.e. {@link JobInfo} objects
+	 * and strings describing messages which could not be read.
+	 *
+	 * @return the elements of the current page
+	 */
+	public synchronized List<Object> getElements() {
+		return elements;
+	}
+
+	/**
+	 * Returns the number of in-flight messages on the current page.
+	 *
+	 * @return the number of in-flight messages
+	 */
+	public synchronized int getInFlightCount() {
+		return inFlightElements.size();
+	}
+
+	/**
+	 * Returns the time until which the message of an element is invisible to
+	 * workers because a worker received it.
+	 *
+	 * @param element
+	 *            an element of the current page
+	 * @return the invisibility timestamp of an in-flight message or
+	 *         <code>0</code> if the message was waiting when the page was
+	 *         read
+	 */
+	public synchronized long getInvisibleUntil(final Object element) {
+		final Long invisibleUntil = inFlightElements.get(element);
+		return invisibleUntil != null ? invisibleUntil.longValue() : 0;
+	}
+
+	/**
+	 * Returns the error of the last read.
+	 *
+	 * @return the error message (maybe <code>null</code>)
+	 */
+	public synchronized String getError() {
+		return error;
+	}
+
+	/**
+	 * Returns the offset of the next page.
+	 *
+	 * @return the offset of the next page
+	 */
+	public synchronized int getNextOffset() {
+		return offset + pageSize;
+	}
+
+	/**
+	 * Returns the offset of the current page within the snapshot.
+	 *
+	 * @return the offset
+	 */
+	public synchronized int getOffset() {
+		return offset;
+	}
+
+	/**
+	 * Returns the number of messages per page.
+	 *
+	 * @return the page size
+	 */
+	public int getPageSize() {
+		return pageSize;
+	}
+
+	/**
+	 * Returns the offset of the previous page.
+	 *
+	 * @return the offset of the previous page
+	 */
+	public synchronized int getPreviousOffset() {
+		return Math.max(0, offset - pageSize);
+	}
+
+	/**
+	 * Returns the queue id.
+	 *
+	 * @return the queue id
+	 */
+	public String getQueueId() {
+		return queueId;
+	}
+
+	/**
+	 * Returns the number of messages in the snapshot.
+	 *
+	 * @return the number of messages
+	 */
+	public synchronized int getTotal() {
+		return messageIds.size();
+	}
+
+	/**
+	 * Indicates if there is a page after the current one.
+	 *
+	 * @return <code>true</code> if there is a next page
+	 */
+	public synchronized boolean hasNext() {
+		return (offset + pageSize) < messageIds.size();
+	}
+
+	/**
+	 * Indicates if there is a page before the current one.
+	 *
+	 * @return <code>true</code> if there is a previous page
+	 */
+	public synchronized boolean hasPrevious() {
+		return offset > 0;
+	}
+
+	private List<Object> read(final List<String> ids, final int offset, final Map<Object, Long> inFlight, final IProgressMonitor monitor) {
+		final int end = Math.min(offset + pageSize, ids.size());
+		final List<Object> result = new ArrayList<Object>(Math.max(0, end - offset));
+		final long now = System.currentTimeMillis();
+		for (final String messageId : ids.subList(offset, end)) {
+			if (monitor.isCanceled()) {
+				break;
+			}
+			final BrowsedMessage message;
+			try {
+				message = reader.readMessage(messageId);
+			} catch (final Exception e) {
+				result.add(String.format("Unreadable message (%s). %s", messageId, ExceptionUtils.getRootCauseMessage(e)));
+				continue;
+			}
+			if (null == message) {
+				// consumed in the meantime
+				continue;
+			}
+			Object element;
+			try {
+				element = JobInfo.parse(message);
+			} catch (final Exception | LinkageError | AssertionError e) {
+				element = String.format("Unparsable message (%s). %s", messageId, ExceptionUtils.getRootCauseMessage(e));
+			}
+			result.add(element);
+			if (message.isInFlight(now)) {
+				inFlight.put(element, message.getInvisibleUntil());
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Reads a page from the current snapshot.
+	 * <p>
+	 * Must not be called from the UI thread.
+	 * </p>
+	 *
+	 * @param offset
+	 *            the offset of the first message
+	 * @param monitor
+	 *            the monitor for cancellation
+	 */
+	public void readPage(final int offset, final IProgressMonitor monitor) {
+		final List<String> ids;
+		synchronized (this) {
+			ids = messageIds;
+		}
+		final int pageOffset = toPageOffset(offset, ids.size());
+		final Map<Object, Long> inFlight = new IdentityHashMap<Object, Long>();
+		final List<Object> result = read(ids, pageOffset, inFlight, monitor);
+		if (monitor.isCanceled())
+			return;
+		synchronized (this) {
+			if (messageIds == ids) {
+				this.offset = pageOffset;
+				elements = result;
+				inFlightElements = inFlight;
+			}
+		}
+	}
+
+	/**
+	 * Takes a new snapshot of the queue and reads a page from it.
+	 * <p>
+	 * Must not be called from the UI thread.
+	 * </p>
+	 *
+	 * @param offset
+	 *            the offset of the first message
+	 * @param monitor
+	 *            the monitor for cancellation
+	 */
+	public void refresh(final int offset, final IProgressMonitor monitor) {
+		List<String> ids = Collections.emptyList();
+		String error = null;
+		try {
+			ids = reader.readMessageIds();
+		} catch (final Exception e) {
+			error = String.format("Unable to read queue '%s'. %s", queueId, ExceptionUtils.getRootCauseMessage(e));
+		}
+		final int pageOffset = toPageOffset(offset, ids.size());
+		final Map<Object, Long> inFlight = new IdentityHashMap<Object, Long>();
+		final List<Object> result = read(ids, pageOffset, inFlight, monitor);
+		if (monitor.isCanceled())
+			return;
+		synchronized (this) {
+			messageIds = ids;
+			this.offset = pageOffset;
+			elements = result;
+			inFlightElements = inFlight;
+			this.error = error;
+		}
+	}
+
+	private int toPageOffset(final int offset, final int total) {
+		return Math.max(0, Math.min(offset, Math.max(0, total - 1)));
+	}
+}
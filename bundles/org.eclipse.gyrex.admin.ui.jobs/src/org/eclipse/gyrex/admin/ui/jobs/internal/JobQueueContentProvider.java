@@ -11,23 +11,16 @@
  *******************************************************************************/
 package org.eclipse.gyrex.admin.ui.jobs.internal;
 
-import java.util.ArrayList;
 import java.util.Collection;
-import java.util.HashMap;
-import java.util.List;
 
-import org.eclipse.gyrex.cloud.services.queue.IMessage;
 import org.eclipse.gyrex.cloud.services.queue.IQueue;
-import org.eclipse.gyrex.cloud.services.queue.IQueueServiceProperties;
-import org.eclipse.gyrex.jobs.internal.worker.JobInfo;
 
 import org.eclipse.jface.viewers.ITreeContentProvider;
 import org.eclipse.jface.viewers.Viewer;
 
-import org.apache.commons.lang.exception.ExceptionUtils;
-
 /**
- * List content of a job queue. Input must be queue object.
+ * List content of a job queue. Input must be a {@link JobQueueBrowser}, which
+ * provides the current page of messages.
  */
 public class JobQueueContentProvider implements ITreeContentProvider {
 
@@ -41,26 +34,8 @@ public class JobQueueContentProvider implements ITreeContentProvider {
 
 	@Override
 	public Object[] getChildren(final Object parentElement) {
-		if (parentElement instanceof IQueue) {
-			final IQueue queue = (IQueue) parentElement;
-
-			// get message (without timeout)
-			final HashMap<String, Object> properties = new HashMap<>(2);
-			properties.put(IQueueServiceProperties.MESSAGE_RECEIVE_TIMEOUT, new Long(0));
-			final List<IMessage> message = queue.receiveMessages(500, properties);
-			if (message.isEmpty())
-				return NO_CHILDREN;
-
-			final List<Object> result = new ArrayList<Object>(message.size());
-			for (final IMessage m : message) {
-				try {
-					result.add(JobInfo.parse(m));
-				} catch (final Exception | LinkageError | AssertionError e) {
-					result.add(String.format("Unparsable message (%s). %s", m, ExceptionUtils.getRootCauseMessage(e)));
-				}
-			}
-			return result.toArray();
-		}
+		if (parentElement instanceof JobQueueBrowser)
+			return ((JobQueueBrowser) parentElement).getElements().toArray();
 		if (parentElement instanceof Collection)
 			return ((Collection) parentElement).toArray();
 		if (parentElement instanceof Object[])
@@ -80,15 +55,11 @@ public class JobQueueContentProvider implements ITreeContentProvider {
 
 	@Override
 	public boolean hasChildren(final Object element) {
-		if (element instanceof IQueue) {
-			final IQueue queue = (IQueue) element;
-
-			// get message (without timeout)
-			final HashMap<String, Object> properties = new HashMap<>(2);
-			properties.put(IQueueServiceProperties.MESSAGE_RECEIVE_TIMEOUT, new Long(0));
-			final List<IMessage> message = queue.receiveMessages(1, properties);
-			return !message.isEmpty();
-		}
+		// never receive messages just for checking (would hide them from workers)
+		if (element instanceof IQueue)
+			return ((IQueue) element).size() > 0;
+		if (element instanceof JobQueueBrowser)
+			return ((JobQueueBrowser) element).getTotal() > 0;
 		return false;
 	}
 
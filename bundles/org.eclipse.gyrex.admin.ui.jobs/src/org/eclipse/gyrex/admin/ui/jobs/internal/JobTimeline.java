@@ -0,0 +1,235 @@
+/*******************************************************************************
+ * Copyright (c) 2013 AGETO Service GmbH and others.
+ * All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Contributors:
+ *     Gunnar Wagenknecht - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.gyrex.admin.ui.jobs.internal;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+import org.eclipse.gyrex.jobs.history.IJobHistoryEntry;
+
+import org.eclipse.core.runtime.IStatus;
+
+/**
+ * Job executions within a time window, aggregated into time buckets.
+ * <p>
+ * Every lane keeps its busy time per bucket, so the amount of data handed to
+ * the chart is bounded by the number of lanes times the number of buckets
+ * regardless of the window size. Individual executions are kept only as long
+ * as a lane has no more than {@link #MAX_BARS_PER_LANE} of them in the window.
+ * </p>
+ */
+public class JobTimeline {
+
+	/**
+	 * Executions of a single job.
+	 */
+	public static final class Lane {
+
+		private final String label;
+		private final long[] busy;
+		private final int[] failures;
+		private List<long[]> bars = new ArrayList<long[]>();
+		private long totalBusy;
+		private int executions;
+
+		Lane(final String label, final int buckets) {
+			this.label = label;
+			busy = new long[buckets];
+			failures = new int[buckets];
+		}
+
+		/**
+		 * Returns the individual executions.
+		 *
+		 * @return a list of <code>{start, end, failed}</code> or
+		 *         <code>null</code> if the lane has too many executions and
+		 *         only buckets are available
+		 */
+		public List<long[]> getBars() {
+			return bars;
+		}
+
+		/**
+		 * Returns the busy time per bucket.
+		 *
+		 * @return the busy time in milliseconds per bucket
+		 */
+		public long[] getBusy() {
+			return busy;
+		}
+
+		public int getExecutions() {
+			return executions;
+		}
+
+		/**
+		 * Returns the number of failed executions per bucket.
+		 *
+		 * @return the failed executions (counted in the bucket they finished)
+		 */
+		public int[] getFailures() {
+			return failures;
+		}
+
+		public String getLabel() {
+			return label;
+		}
+
+		public long getTotalBusy() {
+			return totalBusy;
+		}
+	}
+
+	/** maximum number of individual executions kept per lane */
+	public static final int MAX_BARS_PER_LANE = 200;
+
+	private static final Comparator<Lane> BUSIEST_FIRST = new Comparator<Lane>() {
+		@Override
+		public int compare(final Lane l1, final Lane l2) {
+			return Long.compare(l2.totalBusy, l1.totalBusy);
+		}
+	};
+
+	private final long start;
+	private final long end;
+	private final int buckets;
+	private final long bucketSize;
+	private final long[] totalBusy;
+	private final List<Lane> lanes = new ArrayList<Lane>();
+
+	/**
+	 * Creates a new instance.
+	 *
+	 * @param start
+	 *            the start of the window (inclusive, in milliseconds)
+	 * @param end
+	 *            the end of the window (exclusive, in milliseconds)
+	 * @param buckets
+	 *            the number of buckets to aggregate into
+	 */
+	public JobTimeline(final long start, final long end, final int buckets) {
+		this.start = start;
+		this.buckets = Math.max(1, buckets);
+		bucketSize = Math.max(1, (end - start + this.buckets - 1) / this.buckets);
+		this.end = start + (bucketSize * this.buckets);
+		totalBusy = new long[this.buckets];
+	}
+
+	/**
+	 * Adds a lane with the executions of a job.
+	 * <p>
+	 * Lanes without executions in the window are dropped.
+	 * </p>
+	 *
+	 * @param label
+	 *            the lane label
+	 * @param entries
+	 *            the history entries of the job
+	 */
+	public void addLane(final String label, final Iterable<IJobHistoryEntry> entries) {
+		final Lane lane = new Lane(label, buckets);
+		for (final IJobHistoryEntry entry : entries) {
+			final long duration = JobHistoryAnalysis.getDuration(entry);
+			if (duration < 0) {
+				continue;
+			}
+			final long executionStart = entry.getStartTimeStamp();
+			final long executionEnd = entry.getTimeStamp();
+			if ((executionEnd < start) || (executionStart >= end)) {
+				continue;
+			}
+
+			final boolean failed = (entry.getResult() != null) && entry.getResult().matches(IStatus.ERROR);
+			lane.executions++;
+			if (lane.bars != null) {
+				if (lane.bars.size() < MAX_BARS_PER_LANE) {
+					lane.bars.add(new long[] { executionStart, executionEnd, failed ? 1 : 0 });
+				} else {
+					lane.bars = null;
+				}
+			}
+
+			// distribute the execution over all buckets it overlaps
+			final long clippedStart = Math.max(start, executionStart);
+			final long clippedEnd = Math.min(end, executionEnd);
+			for (int bucket = getBucket(clippedStart); (bucket < buckets) && (getBucketStart(bucket) < clippedEnd); bucket++) {
+				final long overlap = Math.min(clippedEnd, getBucketStart(bucket + 1)) - Math.max(clippedStart, getBucketStart(bucket));
+				lane.busy[bucket] += overlap;
+				lane.totalBusy += overlap;
+				totalBusy[bucket] += overlap;
+			}
+			if (failed && (executionEnd < end)) {
+				lane.failures[getBucket(executionEnd)]++;
+			}
+		}
+		if (lane.executions > 0) {
+			lanes.add(lane);
+		}
+	}
+
+	/**
+	 * Returns the average number of concurrently running executions per
+	 * bucket across all lanes.
+	 *
+	 * @return the average concurrency per bucket
+	 */
+	public double[] getAverageConcurrency() {
+		final double[] concurrency = new double[buckets];
+		for (int bucket = 0; bucket < buckets; bucket++) {
+			concurrency[bucket] = (double) totalBusy[bucket] / bucketSize;
+		}
+		return concurrency;
+	}
+
+	int getBucket(final long timestamp) {
+		return (int) Math.max(0, Math.min(buckets - 1, (timestamp - start) / bucketSize));
+	}
+
+	public int getBucketCount() {
+		return buckets;
+	}
+
+	public long getBucketSize() {
+		return bucketSize;
+	}
+
+	long getBucketStart(final int bucket) {
+		return start + (bucket * bucketSize);
+	}
+
+	public long getEnd() {
+		return end;
+	}
+
+	/**
+	 * Returns the lanes, busiest first.
+	 *
+	 * @param limit
+	 *            the maximum number of lanes to return
+	 * @return the lanes
+	 */
+	public List<Lane> getLanes(final int limit) {
+		final List<Lane> result = new ArrayList<Lane>(lanes);
+		Collections.sort(result, BUSIEST_FIRST);
+		return result.size() > limit ? result.subList(0, limit) : result;
+	}
+
+	public int getLaneCount() {
+		return lanes.size();
+	}
+
+	public long getStart() {
+		return start;
+	}
+}
@@ -0,0 +1,186 @@
+/*******************************************************************************
+ * Copyright (c) 2013 AGETO Service GmbH and others.
+ * All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Contributors:
+ *     Gunnar Wagenknecht - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.gyrex.admin.ui.jobs.internal;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.gyrex.admin.ui.jobs.internal.JobTimeline.Lane;
+
+import org.eclipse.swt.SWT;
+import org.eclipse.swt.events.PaintEvent;
+import org.eclipse.swt.events.PaintListener;
+import org.eclipse.swt.graphics.Color;
+import org.eclipse.swt.graphics.GC;
+import org.eclipse.swt.graphics.Point;
+import org.eclipse.swt.graphics.Rectangle;
+import org.eclipse.swt.widgets.Canvas;
+import org.eclipse.swt.widgets.Composite;
+
+import org.apache.commons.lang.time.DateFormatUtils;
+
+/**
+ * A Gantt chart of a {@link JobTimeline}.
+ * <p>
+ * The first row shows the average concurrency across all lanes. Lanes with
+ * individual executions draw one bar per execution; all other lanes are shaded
+ * per bucket by the share of the bucket they were busy. Failed executions are
+ * drawn in red.
+ * </p>
+ */
+public class JobTimelineChart extends Canvas {
+
+	/** serialVersionUID */
+	private static final long serialVersionUID = 1L;
+
+	private static final int LABEL_WIDTH = 200;
+	private static final int LANE_HEIGHT = 16;
+	private static final int AXIS_HEIGHT = 20;
+	private static final int AXIS_TICKS = 6;
+
+	private JobTimeline timeline;
+	private List<Lane> lanes = Collections.emptyList();
+
+	/**
+	 * Creates a new instance.
+	 *
+	 * @param parent
+	 *            the parent composite
+	 * @param style
+	 *            the style
+	 */
+	public JobTimelineChart(final Composite parent, final int style) {
+		super(parent, style);
+		addPaintListener(new PaintListener() {
+			/** serialVersionUID */
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			public void paintControl(final PaintEvent event) {
+				paint(event.gc);
+			}
+		});
+	}
+
+	@Override
+	public Point computeSize(final int wHint, final int hHint, final boolean changed) {
+		return new Point(wHint != SWT.DEFAULT ? wHint : LABEL_WIDTH + 600, hHint != SWT.DEFAULT ? hHint : ((lanes.size() + 1) * LANE_HEIGHT) + AXIS_HEIGHT);
+	}
+
+	void paint(final GC gc) {
+		final JobTimeline timeline = this.timeline;
+		if (timeline == null)
+			return;
+
+		final Rectangle area = getClientArea();
+		final int chartWidth = area.width - LABEL_WIDTH;
+		if (chartWidth <= 0)
+			return;
+
+		final Color busyColor = getDisplay().getSystemColor(SWT.COLOR_DARK_BLUE);
+		final Color failedColor = getDisplay().getSystemColor(SWT.COLOR_RED);
+		final Color gridColor = getDisplay().getSystemColor(SWT.COLOR_WIDGET_LIGHT_SHADOW);
+
+		// concurrency
+		int y = area.y;
+		gc.setForeground(getForeground());
+		gc.drawText("Running (average)", area.x, y, true);
+		final double[] concurrency = timeline.getAverageConcurrency();
+		double maxConcurrency = 1;
+		for (final double value : concurrency) {
+			maxConcurrency = Math.max(maxConcurrency, value);
+		}
+		gc.setBackground(busyColor);
+		for (int bucket = 0; bucket < concurrency.length; bucket++) {
+			final int height = (int) Math.round(((LANE_HEIGHT - 2) * concurrency[bucket]) / maxConcurrency);
+			if (height > 0) {
+				gc.fillRectangle(getBucketX(timeline, bucket, area, chartWidth), (y + LANE_HEIGHT) - 1 - height, Math.max(1, getBucketX(timeline, bucket + 1, area, chartWidth) - getBucketX(timeline, bucket, area, chartWidth)), height);
+			}
+		}
+
+		// lanes
+		for (final Lane lane : lanes) {
+			y += LANE_HEIGHT;
+			gc.setForeground(gridColor);
+			gc.drawLine(area.x, y, area.x + area.width, y);
+			gc.setForeground(getForeground());
+			gc.drawText(lane.getLabel(), area.x, y + 1, true);
+
+			final List<long[]> bars = lane.getBars();
+			if (bars != null) {
+				for (final long[] bar : bars) {
+					final int x1 = getTimeX(timeline, bar[0], area, chartWidth);
+					final int x2 = getTimeX(timeline, bar[1], area, chartWidth);
+					gc.setBackground(bar[2] != 0 ? failedColor : busyColor);
+					gc.fillRectangle(x1, y + 3, Math.max(1, x2 - x1), LANE_HEIGHT - 5);
+				}
+			} else {
+				final long[] busy = lane.getBusy();
+				final int[] failures = lane.getFailures();
+				for (int bucket = 0; bucket < busy.length; bucket++) {
+					final int x1 = getBucketX(timeline, bucket, area, chartWidth);
+					final int width = Math.max(1, getBucketX(timeline, bucket + 1, area, chartWidth) - x1);
+					if (busy[bucket] > 0) {
+						// overlapping executions of the same job saturate the shade
+						gc.setAlpha(48 + (int) ((207 * Math.min(timeline.getBucketSize(), busy[bucket])) / timeline.getBucketSize()));
+						gc.setBackground(busyColor);
+						gc.fillRectangle(x1, y + 3, width, LANE_HEIGHT - 5);
+					}
+					if (failures[bucket] > 0) {
+						gc.setAlpha(255);
+						gc.setBackground(failedColor);
+						gc.fillRectangle(x1, (y + LANE_HEIGHT) - 4, width, 2);
+					}
+				}
+				gc.setAlpha(255);
+			}
+		}
+
+		// axis
+		y += LANE_HEIGHT;
+		gc.setForeground(gridColor);
+		gc.drawLine(area.x + LABEL_WIDTH, y, area.x + area.width, y);
+		gc.setForeground(getForeground());
+		final long window = timeline.getEnd() - timeline.getStart();
+		final String pattern = window > TimeUnit.DAYS.toMillis(1) ? "MM-dd HH:mm" : "HH:mm";
+		for (int tick = 0; tick < AXIS_TICKS; tick++) {
+			final long timestamp = timeline.getStart() + ((window * tick) / AXIS_TICKS);
+			final int x = getTimeX(timeline, timestamp, area, chartWidth);
+			gc.drawLine(x, y, x, y + 3);
+			gc.drawText(DateFormatUtils.format(timestamp, pattern), x + 2, y + 2, true);
+		}
+	}
+
+	private int getBucketX(final JobTimeline timeline, final int bucket, final Rectangle area, final int chartWidth) {
+		return area.x + LABEL_WIDTH + (int) (((long) bucket * chartWidth) / timeline.getBucketCount());
+	}
+
+	private int getTimeX(final JobTimeline timeline, final long timestamp, final Rectangle area, final int chartWidth) {
+		final long clipped = Math.max(timeline.getStart(), Math.min(timeline.getEnd(), timestamp));
+		return area.x + LABEL_WIDTH + (int) (((clipped - timeline.getStart()) * chartWidth) / (timeline.getEnd() - timeline.getStart()));
+	}
+
+	/**
+	 * Sets the timeline to draw.
+	 *
+	 * @param timeline
+	 *            the timeline (maybe <code>null</code>)
+	 * @param lanes
+	 *            the lanes of the timeline to draw
+	 */
+	public void setTimeline(final JobTimeline timeline, final List<Lane> lanes) {
+		this.timeline = timeline;
+		this.lanes = lanes != null ? lanes : Collections.<Lane> emptyList();
+		redraw();
+	}
+}
@@ -0,0 +1,319 @@
+/*******************************************************************************
+ * Copyright (c) 2013 AGETO Service GmbH and others.
+ * All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Contributors:
+ *     Gunnar Wagenknecht - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.gyrex.admin.ui.jobs.internal;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.gyrex.admin.ui.internal.application.AdminUiUtil;
+import org.eclipse.gyrex.admin.ui.pages.AdminPage;
+import org.eclipse.gyrex.context.IRuntimeContext;
+import org.eclipse.gyrex.context.registry.IRuntimeContextRegistry;
+import org.eclipse.gyrex.jobs.history.IJobHistory;
+import org.eclipse.gyrex.jobs.internal.schedules.ScheduleEntryImpl;
+import org.eclipse.gyrex.jobs.internal.schedules.ScheduleImpl;
+import org.eclipse.gyrex.jobs.manager.IJobManager;
+import org.eclipse.gyrex.jobs.schedules.IScheduleEntry;
+
+import org.eclipse.core.runtime.IPath;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.IJobChangeEvent;
+import org.eclipse.core.runtime.jobs.Job;
+import org.eclipse.core.runtime.jobs.JobChangeAdapter;
+import org.eclipse.jface.layout.GridDataFactory;
+import org.eclipse.jface.layout.GridLayoutFactory;
+import org.eclipse.rap.rwt.service.ServerPushSession;
+import org.eclipse.swt.SWT;
+import org.eclipse.swt.events.SelectionAdapter;
+import org.eclipse.swt.events.SelectionEvent;
+import org.eclipse.swt.layout.GridData;
+import org.eclipse.swt.widgets.Button;
+import org.eclipse.swt.widgets.Combo;
+import org.eclipse.swt.widgets.Composite;
+import org.eclipse.swt.widgets.Control;
+import org.eclipse.swt.widgets.Display;
+import org.eclipse.swt.widgets.Label;
+
+import org.apache.commons.lang.exception.ExceptionUtils;
+import org.apache.commons.lang.time.DateFormatUtils;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Timeline of job executions across all schedules.
+ * <p>
+ * The history of every scheduled job is read and aggregated into a
+ * {@link JobTimeline} in the background. Only the busiest lanes are handed to
+ * the chart and each lane is limited to a fixed number of buckets, i.e. the
+ * amount of data sent to the browser does not grow with the window.
+ * </p>
+ */
+public class JobTimelinePage extends AdminPage {
+
+	private final class LoadTimelineJob extends Job {
+
+		private final long start;
+		private final long end;
+		private final Display display;
+		private final ServerPushSession pushSession = new ServerPushSession();
+
+		private volatile JobTimeline timeline;
+		private volatile String error;
+
+		LoadTimelineJob(final long start, final long end, final Display display) {
+			super("Loading job timeline");
+			this.start = start;
+			this.end = end;
+			this.display = display;
+			setSystem(true);
+
+			// keep pushing until the job is done (also when cancelled before running)
+			pushSession.start();
+			addJobChangeListener(new JobChangeAdapter() {
+				@Override
+				public void done(final IJobChangeEvent event) {
+					if (display.isDisposed())
+						return;
+					display.asyncExec(new Runnable() {
+						@Override
+						public void run() {
+							pushSession.stop();
+							if (loadJob == LoadTimelineJob.this) {
+								loadJob = null;
+								update(timeline, error);
+							}
+						}
+					});
+				}
+			});
+		}
+
+		@Override
+		protected IStatus run(final IProgressMonitor monitor) {
+			try {
+				timeline = loadTimeline(start, end, monitor);
+			} catch (final Exception e) {
+				error = String.format("Unable to read job history. %s", ExceptionUtils.getRootCauseMessage(e));
+			}
+			return monitor.isCanceled() ? Status.CANCEL_STATUS : Status.OK_STATUS;
+		}
+	}
+
+	public static final String ID = "job-timeline";
+
+	private static final Logger LOG = LoggerFactory.getLogger(JobTimelinePage.class);
+
+	/** number of buckets per lane */
+	static final int BUCKETS = 240;
+
+	/** maximum number of lanes shown */
+	static final int MAX_LANES = 40;
+
+	/** selectable windows in hours */
+	private static final int[] WINDOWS = { 1, 6, 24, 24 * 7 };
+
+	static JobTimeline loadTimeline(final long start, final long end, final IProgressMonitor monitor) throws Exception {
+		final JobTimeline timeline = new JobTimeline(start, end, BUCKETS);
+		final IRuntimeContextRegistry contextRegistry = JobsUiActivator.getInstance().getService(IRuntimeContextRegistry.class);
+		final Map<IPath, List<ScheduleImpl>> schedulesByContextPath = SchedulesContentProvider.loadSchedulesByContextPath();
+		for (final Map.Entry<IPath, List<ScheduleImpl>> schedules : schedulesByContextPath.entrySet()) {
+			final IRuntimeContext context = contextRegistry.get(schedules.getKey());
+			final IJobManager jobManager = context != null ? context.get(IJobManager.class) : null;
+			if (jobManager == null) {
+				continue;
+			}
+
+			// entries of different schedules may share a job
+			final Map<String, String> labelsByJobId = new HashMap<String, String>();
+			for (final ScheduleImpl schedule : schedules.getValue()) {
+				for (final IScheduleEntry entry : schedule.getEntries()) {
+					if (entry instanceof ScheduleEntryImpl) {
+						labelsByJobId.put(((ScheduleEntryImpl) entry).getJobId(), String.format("%s/%s", schedule.getId(), entry.getId()));
+					}
+				}
+			}
+
+			for (final Map.Entry<String, String> job : labelsByJobId.entrySet()) {
+				if (monitor.isCanceled())
+					return timeline;
+				try {
+					final IJobHistory history = jobManager.getHistory(job.getKey());
+					if (history != null) {
+						timeline.addLane(job.getValue(), history.getEntries());
+					}
+				} catch (final Exception e) {
+					LOG.debug("Unable to read history of job {}. {}", job.getKey(), ExceptionUtils.getRootCauseMessage(e));
+				}
+			}
+		}
+		return timeline;
+	}
+
+	volatile LoadTimelineJob loadJob;
+	private long window = TimeUnit.HOURS.toMillis(WINDOWS[1]);
+	private long end;
+
+	private Label statusLabel;
+	private Button laterButton;
+	private JobTimelineChart chart;
+
+	public JobTimelinePage() {
+		setTitle("Job Timeline");
+		setTitleToolTip("Executions of background tasks over time.");
+	}
+
+	@Override
+	public void activate() {
+		super.activate();
+		if ((null == chart) || chart.isDisposed())
+			return;
+
+		end = System.currentTimeMillis();
+		refresh();
+	}
+
+	@Override
+	public Control createControl(final Composite parent) {
+		final Composite composite = new Composite(parent, SWT.NONE);
+		composite.setLayout(AdminUiUtil.createGridLayoutWithoutMargin(1, false));
+
+		final Composite header = new Composite(composite, SWT.NONE);
+		header.setLayoutData(AdminUiUtil.createHorzFillData());
+		header.setLayout(GridLayoutFactory.fillDefaults().numColumns(6).create());
+
+		final Label windowLabel = new Label(header, SWT.NONE);
+		windowLabel.setText("Show");
+		final Combo windowCombo = new Combo(header, SWT.READ_ONLY);
+		for (final int hours : WINDOWS) {
+			windowCombo.add(hours < 24 ? String.format("%d hours", hours) : String.format("%d days", hours / 24));
+			if (TimeUnit.HOURS.toMillis(hours) == window) {
+				windowCombo.select(windowCombo.getItemCount() - 1);
+			}
+		}
+		windowCombo.addSelectionListener(new SelectionAdapter() {
+			/** serialVersionUID */
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			public void widgetSelected(final SelectionEvent e) {
+				// zoom around the center of the current window
+				final long center = end - (window / 2);
+				window = TimeUnit.HOURS.toMillis(WINDOWS[windowCombo.getSelectionIndex()]);
+				end = Math.min(System.currentTimeMillis(), center + (window / 2));
+				refresh();
+			}
+		});
+
+		final Button earlierButton = new Button(header, SWT.PUSH);
+		earlierButton.setText("Earlier");
+		earlierButton.addSelectionListener(new SelectionAdapter() {
+			/** serialVersionUID */
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			public void widgetSelected(final SelectionEvent e) {
+				end -= window / 2;
+				refresh();
+			}
+		});
+
+		laterButton = new Button(header, SWT.PUSH);
+		laterButton.setText("Later");
+		laterButton.addSelectionListener(new SelectionAdapter() {
+			/** serialVersionUID */
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			public void widgetSelected(final SelectionEvent e) {
+				end = Math.min(System.currentTimeMillis(), end + (window / 2));
+				refresh();
+			}
+		});
+
+		final Button nowButton = new Button(header, SWT.PUSH);
+		nowButton.setText("Now");
+		nowButton.addSelectionListener(new SelectionAdapter() {
+			/** serialVersionUID */
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			public void widgetSelected(final SelectionEvent e) {
+				end = System.currentTimeMillis();
+				refresh();
+			}
+		});
+
+		statusLabel = new Label(header, SWT.WRAP);
+		GridDataFactory.fillDefaults().grab(true, false).align(SWT.FILL, SWT.CENTER).applyTo(statusLabel);
+
+		chart = new JobTimelineChart(composite, SWT.NONE);
+		final GridData chartData = AdminUiUtil.createHorzFillData();
+		chartData.verticalIndent = 10;
+		chart.setLayoutData(chartData);
+
+		return composite;
+	}
+
+	@Override
+	public void deactivate() {
+		final LoadTimelineJob job = loadJob;
+		loadJob = null;
+		if (null != job) {
+			job.cancel();
+		}
+		super.deactivate();
+	}
+
+	void refresh() {
+		final LoadTimelineJob previous = loadJob;
+		if (null != previous) {
+			previous.cancel();
+		}
+
+		statusLabel.setText("Reading job history...");
+		laterButton.setEnabled(end < (System.currentTimeMillis() - TimeUnit.MINUTES.toMillis(1)));
+		statusLabel.getParent().layout();
+
+		final LoadTimelineJob job = new LoadTimelineJob(end - window, end, chart.getDisplay());
+		loadJob = job;
+		job.schedule();
+	}
+
+	void update(final JobTimeline timeline, final String error) {
+		if (chart.isDisposed())
+			return;
+
+		if (null == timeline) {
+			statusLabel.setText(error);
+			chart.setTimeline(null, null);
+			statusLabel.getParent().layout();
+			return;
+		}
+
+		final List<JobTimeline.Lane> lanes = timeline.getLanes(MAX_LANES);
+		final String range = String.format("%s to %s", DateFormatUtils.format(timeline.getStart(), "yyyy-MM-dd HH:mm"), DateFormatUtils.format(timeline.getEnd(), "yyyy-MM-dd HH:mm"));
+		if (lanes.isEmpty()) {
+			statusLabel.setText(String.format("No executions from %s.", range));
+		} else if (timeline.getLaneCount() > lanes.size()) {
+			statusLabel.setText(String.format("%s, showing the %d busiest of %d jobs.", range, lanes.size(), timeline.getLaneCount()));
+		} else {
+			statusLabel.setText(String.format("%s, %d jobs.", range, lanes.size()));
+		}
+		chart.setTimeline(timeline, lanes);
+		chart.getParent().layout(true, true);
+	}
+}
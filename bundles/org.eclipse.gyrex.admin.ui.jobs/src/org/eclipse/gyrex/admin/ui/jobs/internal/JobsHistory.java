@@ -0,0 +1,340 @@
+/*******************************************************************************
+ * Copyright (c) 2013 AGETO Service GmbH and others.
+ * All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Contributors:
+ *     Gunnar Wagenknecht - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.gyrex.admin.ui.jobs.internal;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.gyrex.admin.ui.internal.widgets.RingBuffer;
+import org.eclipse.gyrex.cloud.internal.zk.IZooKeeperLayout;
+import org.eclipse.gyrex.cloud.internal.zk.ZooKeeperGate;
+import org.eclipse.gyrex.jobs.internal.manager.JobHungDetectionHelper;
+import org.eclipse.gyrex.jobs.manager.IJobManager;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.Job;
+
+import org.apache.commons.lang.exception.ExceptionUtils;
+import org.apache.zookeeper.KeeperException;
+import org.apache.zookeeper.data.Stat;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A history of queue depths, queue throughput and job counts.
+ * <p>
+ * The history is recorded in the background every {@link #INTERVAL} from
+ * bundle start, whether or not a page shows it, and keeps the last hour in
+ * fixed-size ring buffers. Listeners are only notified so that open pages can
+ * push the new values to the browser.
+ * </p>
+ * <p>
+ * Recording is kept cheap. Queue depth and throughput are derived from the
+ * queue znodes only. Their number of children is the depth and their child
+ * version counts every enqueue and every dequeue. The deltas of both between
+ * two samples give the number of enqueued and dequeued messages without
+ * reading any message. The number of queued jobs is the sum of all queue
+ * depths. Only the number of running jobs needs one more read. Counting
+ * waiting jobs in the job storage is left to the {@link JobsMetricsSampler}.
+ * </p>
+ * <p>
+ * Values which could not be determined are recorded as {@link Double#NaN}. A
+ * {@link Double#NaN} is also recorded when recording was delayed for more
+ * than two intervals, so that the gap is visible.
+ * </p>
+ */
+public class JobsHistory {
+
+	/**
+	 * Listener notified after a sample has been recorded.
+	 * <p>
+	 * Listeners are called from a background thread.
+	 * </p>
+	 */
+	public static interface Listener {
+		void recorded(JobsHistory history);
+	}
+
+	private static final class QueueHistory {
+
+		final RingBuffer depth = new RingBuffer(CAPACITY);
+		final RingBuffer enqueued = new RingBuffer(CAPACITY);
+		final RingBuffer dequeued = new RingBuffer(CAPACITY);
+
+		int lastChildVersion = -1;
+		int lastChildren;
+		long lastTimestamp;
+
+		void record(final Stat stat, final long timestamp) {
+			depth.add(stat.getNumChildren());
+
+			final int versionDelta = stat.getCversion() - lastChildVersion;
+			final int childrenDelta = stat.getNumChildren() - lastChildren;
+			final long elapsed = timestamp - lastTimestamp;
+			if ((lastChildVersion >= 0) && (versionDelta >= Math.abs(childrenDelta)) && (elapsed > 0)) {
+				// every create and delete increments the child version
+				final double perMinute = (double) TimeUnit.MINUTES.toMillis(1) / elapsed;
+				enqueued.add(((versionDelta + childrenDelta) / 2) * perMinute);
+				dequeued.add(((versionDelta - childrenDelta) / 2) * perMinute);
+			} else {
+				// first sample or queue re-created
+				enqueued.add(Double.NaN);
+				dequeued.add(Double.NaN);
+			}
+
+			lastChildVersion = stat.getCversion();
+			lastChildren = stat.getNumChildren();
+			lastTimestamp = timestamp;
+		}
+
+		void recordUnknown() {
+			depth.add(Double.NaN);
+			enqueued.add(Double.NaN);
+			dequeued.add(Double.NaN);
+		}
+	}
+
+	private final class RecordJob extends Job {
+
+		RecordJob() {
+			super("Recording job system history");
+			setSystem(true);
+			setPriority(DECORATE);
+		}
+
+		@Override
+		protected IStatus run(final IProgressMonitor monitor) {
+			if (monitor.isCanceled())
+				return Status.CANCEL_STATUS;
+
+			record(readQueueStats(), readRunningJobs(), System.currentTimeMillis());
+			for (final Listener listener : listeners) {
+				try {
+					listener.recorded(JobsHistory.this);
+				} catch (final Exception | LinkageError | AssertionError e) {
+					LOG.warn("Error notifying listener {}. {}", listener, ExceptionUtils.getRootCauseMessage(e), e);
+				}
+			}
+
+			if (!monitor.isCanceled()) {
+				schedule(INTERVAL);
+			}
+			return Status.OK_STATUS;
+		}
+	}
+
+	private static final Logger LOG = LoggerFactory.getLogger(JobsHistory.class);
+
+	/** time between two samples */
+	static final long INTERVAL = TimeUnit.SECONDS.toMillis(5);
+
+	/** number of samples kept (one hour) */
+	static final int CAPACITY = (int) (TimeUnit.HOURS.toMillis(1) / INTERVAL);
+
+	private static final double[] NO_VALUES = new double[0];
+
+	private static Map<String, Stat> readQueueStats() {
+		// the queue znode alone gives depth and throughput; no message is read
+		try {
+			final Map<String, Stat> queueStats = new TreeMap<String, Stat>();
+			final Collection<String> queueIds = ZooKeeperGate.get().readChildrenNames(IZooKeeperLayout.PATH_QUEUES_ROOT, null);
+			if (queueIds != null) {
+				for (final String queueId : queueIds) {
+					final Stat stat = new Stat();
+					try {
+						ZooKeeperGate.get().readRecord(IZooKeeperLayout.PATH_QUEUES_ROOT.append(queueId), stat);
+						queueStats.put(queueId, stat);
+					} catch (final KeeperException.NoNodeException e) {
+						// removed concurrently
+					}
+				}
+			}
+			return Collections.unmodifiableMap(queueStats);
+		} catch (final Exception e) {
+			LOG.debug("Unable to read queues. {}", ExceptionUtils.getRootCauseMessage(e));
+			return null;
+		}
+	}
+
+	private static double readRunningJobs() {
+		try {
+			return JobHungDetectionHelper.getNumberOfActiveJobs();
+		} catch (final Exception e) {
+			LOG.debug("Unable to count running jobs. {}", ExceptionUtils.getRootCauseMessage(e));
+			return Double.NaN;
+		}
+	}
+
+	private final Map<String, QueueHistory> queues = new TreeMap<String, QueueHistory>();
+	private final RingBuffer runningJobs = new RingBuffer(CAPACITY);
+	private final RingBuffer queuedJobs = new RingBuffer(CAPACITY);
+	private long lastTimestamp;
+
+	private final CopyOnWriteArrayList<Listener> listeners = new CopyOnWriteArrayList<Listener>();
+	private final RecordJob recordJob = new RecordJob();
+
+	/**
+	 * Registers a listener.
+	 *
+	 * @param listener
+	 *            the listener to add
+	 */
+	public void addListener(final Listener listener) {
+		listeners.addIfAbsent(listener);
+	}
+
+	/**
+	 * Returns the number of values kept per series.
+	 *
+	 * @return the capacity
+	 */
+	public int getCapacity() {
+		return CAPACITY;
+	}
+
+	/**
+	 * Returns the recorded number of dequeued messages per minute.
+	 *
+	 * @param queueId
+	 *            the queue id
+	 * @return the recorded values, oldest first
+	 */
+	public synchronized double[] getDequeueRate(final String queueId) {
+		final QueueHistory history = queues.get(queueId);
+		return history != null ? history.dequeued.toArray() : NO_VALUES;
+	}
+
+	/**
+	 * Returns the recorded number of enqueued messages per minute.
+	 *
+	 * @param queueId
+	 *            the queue id
+	 * @return the recorded values, oldest first
+	 */
+	public synchronized double[] getEnqueueRate(final String queueId) {
+		final QueueHistory history = queues.get(queueId);
+		return history != null ? history.enqueued.toArray() : NO_VALUES;
+	}
+
+	/**
+	 * Returns the recorded queue depth.
+	 *
+	 * @param queueId
+	 *            the queue id
+	 * @return the recorded values, oldest first
+	 */
+	public synchronized double[] getQueueDepth(final String queueId) {
+		final QueueHistory history = queues.get(queueId);
+		return history != null ? history.depth.toArray() : NO_VALUES;
+	}
+
+	/**
+	 * Returns the ids of all queues with a recorded history. The default and
+	 * the priority queue are always included.
+	 *
+	 * @return the queue ids
+	 */
+	public synchronized Collection<String> getQueueIds() {
+		final TreeSet<String> queueIds = new TreeSet<String>(queues.keySet());
+		queueIds.add(IJobManager.DEFAULT_QUEUE);
+		queueIds.add(IJobManager.PRIORITY_QUEUE);
+		return queueIds;
+	}
+
+	/**
+	 * Returns the recorded number of jobs waiting in any queue.
+	 *
+	 * @return the recorded values, oldest first
+	 */
+	public synchronized double[] getQueuedJobs() {
+		return queuedJobs.toArray();
+	}
+
+	/**
+	 * Returns the recorded number of running jobs.
+	 *
+	 * @return the recorded values, oldest first
+	 */
+	public synchronized double[] getRunningJobs() {
+		return runningJobs.toArray();
+	}
+
+	synchronized void record(final Map<String, Stat> queueStats, final double running, final long timestamp) {
+		if ((lastTimestamp > 0) && ((timestamp - lastTimestamp) > (2 * INTERVAL))) {
+			// recording was delayed; break the lines
+			runningJobs.add(Double.NaN);
+			queuedJobs.add(Double.NaN);
+			for (final QueueHistory history : queues.values()) {
+				history.recordUnknown();
+			}
+		}
+		lastTimestamp = timestamp;
+
+		runningJobs.add(running);
+
+		if (queueStats == null) {
+			queuedJobs.add(Double.NaN);
+			for (final QueueHistory history : queues.values()) {
+				history.recordUnknown();
+			}
+			return;
+		}
+
+		int queued = 0;
+		for (final Map.Entry<String, Stat> entry : queueStats.entrySet()) {
+			QueueHistory history = queues.get(entry.getKey());
+			if (history == null) {
+				history = new QueueHistory();
+				queues.put(entry.getKey(), history);
+			}
+			history.record(entry.getValue(), timestamp);
+			queued += entry.getValue().getNumChildren();
+		}
+		queuedJobs.add(queued);
+
+		// forget queues which are gone
+		queues.keySet().retainAll(queueStats.keySet());
+	}
+
+	/**
+	 * Removes a listener.
+	 *
+	 * @param listener
+	 *            the listener to remove
+	 */
+	public void removeListener(final Listener listener) {
+		listeners.remove(listener);
+	}
+
+	/**
+	 * Stops recording.
+	 */
+	void shutdown() {
+		listeners.clear();
+		recordJob.cancel();
+	}
+
+	/**
+	 * Starts recording.
+	 */
+	void start() {
+		recordJob.schedule();
+	}
+}
@@ -0,0 +1,226 @@
+/*******************************************************************************
+ * Copyright (c) 2013 AGETO Service GmbH and others.
+ * All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Contributors:
+ *     Gunnar Wagenknecht - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.gyrex.admin.ui.jobs.internal;
+
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.gyrex.jobs.JobState;
+import org.eclipse.gyrex.jobs.internal.manager.JobHungDetectionHelper;
+import org.eclipse.gyrex.jobs.internal.schedules.ScheduleStore;
+import org.eclipse.gyrex.jobs.internal.storage.CloudPreferncesJobStorage;
+import org.eclipse.gyrex.jobs.internal.worker.WorkerEngine;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.Job;
+
+import org.apache.commons.lang.exception.ExceptionUtils;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Samples the job system metrics shown in the Background Tasks page header.
+ * <p>
+ * Some of the metrics are expensive to compute (eg., counting waiting jobs
+ * enumerates all jobs in the cloud preferences). A single sampler is therefore
+ * shared by all UI sessions. It samples in the background at most once per
+ * {@link #TIME_TO_LIVE} and only while listeners are registered. Readers always
+ * get the cached sample.
+ * </p>
+ */
+public class JobsMetricsSampler {
+
+	/**
+	 * Listener notified after a new sample has been taken.
+	 * <p>
+	 * Listeners are called from a background thread.
+	 * </p>
+	 */
+	public static interface Listener {
+		void sampled(JobsMetrics metrics);
+	}
+
+	/**
+	 * A sample of job system metrics. Values which could not be determined are
+	 * reported as <code>-1</code> (or <code>null</code>).
+	 */
+	public static final class JobsMetrics {
+
+		private final int schedules;
+		private final int runningJobs;
+		private final int waitingJobs;
+		private final Boolean processing;
+		private final long timestamp;
+
+		JobsMetrics(final int schedules, final int runningJobs, final int waitingJobs, final Boolean processing, final long timestamp) {
+			this.schedules = schedules;
+			this.runningJobs = runningJobs;
+			this.waitingJobs = waitingJobs;
+			this.processing = processing;
+			this.timestamp = timestamp;
+		}
+
+		public int getRunningJobs() {
+			return runningJobs;
+		}
+
+		public int getSchedules() {
+			return schedules;
+		}
+
+		public long getTimestamp() {
+			return timestamp;
+		}
+
+		public int getWaitingJobs() {
+			return waitingJobs;
+		}
+
+		/**
+		 * Indicates if the local worker engine processes jobs.
+		 *
+		 * @return {@link Boolean#TRUE} if processing, {@link Boolean#FALSE} if
+		 *         suspended, <code>null</code> if unknown
+		 */
+		public Boolean isProcessing() {
+			return processing;
+		}
+	}
+
+	private final class SampleJob extends Job {
+
+		SampleJob() {
+			super("Sampling job system metrics");
+			setSystem(true);
+			setPriority(DECORATE);
+		}
+
+		@Override
+		protected IStatus run(final IProgressMonitor monitor) {
+			final JobsMetrics metrics = sample();
+			current = metrics;
+			for (final Listener listener : listeners) {
+				try {
+					listener.sampled(metrics);
+				} catch (final Exception | LinkageError | AssertionError e) {
+					LOG.warn("Error notifying listener {}. {}", listener, ExceptionUtils.getRootCauseMessage(e), e);
+				}
+			}
+
+			if (!listeners.isEmpty()) {
+				schedule(TIME_TO_LIVE);
+			}
+			return Status.OK_STATUS;
+		}
+	}
+
+	private static final Logger LOG = LoggerFactory.getLogger(JobsMetricsSampler.class);
+
+	/** minimum time between two samples */
+	static final long TIME_TO_LIVE = TimeUnit.SECONDS.toMillis(10);
+
+	static JobsMetrics sample() {
+		int schedules = -1;
+		try {
+			schedules = ScheduleStore.getSchedules().length;
+		} catch (final Exception e) {
+			LOG.debug("Unable to count schedules. {}", ExceptionUtils.getRootCauseMessage(e));
+		}
+
+		int runningJobs = -1;
+		try {
+			runningJobs = JobHungDetectionHelper.getNumberOfActiveJobs();
+		} catch (final Exception e) {
+			LOG.debug("Unable to count running jobs. {}", ExceptionUtils.getRootCauseMessage(e));
+		}
+
+		int waitingJobs = -1;
+		try {
+			waitingJobs = CloudPreferncesJobStorage.getAllJobStorageKeysByState(JobState.WAITING).size();
+		} catch (final Exception e) {
+			LOG.debug("Unable to count waiting jobs. {}", ExceptionUtils.getRootCauseMessage(e));
+		}
+
+		Boolean processing = null;
+		try {
+			processing = !WorkerEngine.isSuspended();
+		} catch (final Exception e) {
+			LOG.debug("Unable to read worker engine state. {}", ExceptionUtils.getRootCauseMessage(e));
+		}
+
+		return new JobsMetrics(schedules, runningJobs, waitingJobs, processing, System.currentTimeMillis());
+	}
+
+	private final CopyOnWriteArrayList<Listener> listeners = new CopyOnWriteArrayList<Listener>();
+	private final SampleJob sampleJob = new SampleJob();
+	private volatile JobsMetrics current;
+
+	/**
+	 * Registers a listener and starts sampling if necessary.
+	 * <p>
+	 * The listener is notified immediately (from a background thread) when a
+	 * sample is already available.
+	 * </p>
+	 *
+	 * @param listener
+	 *            the listener to add
+	 */
+	public void addListener(final Listener listener) {
+		listeners.addIfAbsent(listener);
+
+		final JobsMetrics metrics = current;
+		if ((metrics == null) || ((System.currentTimeMillis() - metrics.getTimestamp()) >= TIME_TO_LIVE)) {
+			// stale; sample now (no-op if the job is already waiting or running)
+			if (sampleJob.getState() == Job.SLEEPING) {
+				sampleJob.wakeUp();
+			} else {
+				sampleJob.schedule();
+			}
+		} else {
+			if (sampleJob.getState() == Job.NONE) {
+				sampleJob.schedule(TIME_TO_LIVE - (System.currentTimeMillis() - metrics.getTimestamp()));
+			}
+			listener.sampled(metrics);
+		}
+	}
+
+	/**
+	 * Returns the most recent sample.
+	 *
+	 * @return the most recent sample (maybe <code>null</code> if none has been
+	 *         taken yet)
+	 */
+	public JobsMetrics getMetrics() {
+		return current;
+	}
+
+	/**
+	 * Removes a listener. Sampling stops when no listeners remain.
+	 *
+	 * @param listener
+	 *            the listener to remove
+	 */
+	public void removeListener(final Listener listener) {
+		listeners.remove(listener);
+	}
+
+	/**
+	 * Stops sampling.
+	 */
+	void shutdown() {
+		listeners.clear();
+		sampleJob.cancel();
+	}
+}
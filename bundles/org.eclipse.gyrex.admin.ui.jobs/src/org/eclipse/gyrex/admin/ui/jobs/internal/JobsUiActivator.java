@@ -53,6 +53,9 @@ public class JobsUiActivator extends BaseBundleActivator {
 		return activator;
 	}
 
+	private JobsMetricsSampler metricsSampler;
+	private JobsHistory history;
+
 	/**
 	 * Creates a new instance.
 	 */
@@ -69,13 +72,48 @@ public class JobsUiActivator extends BaseBundleActivator {
 	@Override
 	protected void doStart(final BundleContext context) throws Exception {
 		instance = this;
+		metricsSampler = new JobsMetricsSampler();
+		history = new JobsHistory();
+		history.start();
 	}
 
 	@Override
 	protected void doStop(final BundleContext context) throws Exception {
+		if (history != null) {
+			history.shutdown();
+			history = null;
+		}
+		if (metricsSampler != null) {
+			metricsSampler.shutdown();
+			metricsSampler = null;
+		}
 		instance = null;
 	}
 
+	/**
+	 * Returns the job system history shared by all sessions.
+	 * 
+	 * @return the history
+	 */
+	public JobsHistory getHistory() {
+		final JobsHistory jobsHistory = history;
+		if (null == jobsHistory)
+			throw new IllegalStateException("inactive");
+		return jobsHistory;
+	}
+
+	/**
+	 * Returns the sampler for job system metrics shared by all sessions.
+	 * 
+	 * @return the metrics sampler
+	 */
+	public JobsMetricsSampler getMetricsSampler() {
+		final JobsMetricsSampler sampler = metricsSampler;
+		if (null == sampler)
+			throw new IllegalStateException("inactive");
+		return sampler;
+	}
+
 	public ImageRegistry getImageRegistry() {
 		// ImageRegistry must be session scoped in RAP
 		ImageRegistry imageRegistry = (ImageRegistry) RWT.getUISession().getAttribute(IMAGE_REGISTRY);
@@ -14,7 +14,9 @@ package org.eclipse.gyrex.admin.ui.jobs.internal;
 import java.util.Collections;
 import java.util.concurrent.TimeUnit;
 
+import org.eclipse.gyrex.admin.ui.internal.helper.SwtUtil;
 import org.eclipse.gyrex.admin.ui.internal.widgets.AdminPageWithTree;
+import org.eclipse.gyrex.admin.ui.jobs.internal.BulkQueueOperationJob.Operation;
 import org.eclipse.gyrex.cloud.services.queue.IQueue;
 import org.eclipse.gyrex.cloud.services.queue.IQueueService;
 import org.eclipse.gyrex.common.identifiers.IdHelper;
@@ -22,11 +24,26 @@ import org.eclipse.gyrex.jobs.internal.JobsActivator;
 import org.eclipse.gyrex.jobs.internal.worker.JobInfo;
 import org.eclipse.gyrex.jobs.manager.IJobManager;
 
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.IJobChangeEvent;
+import org.eclipse.core.runtime.jobs.Job;
+import org.eclipse.core.runtime.jobs.JobChangeAdapter;
 import org.eclipse.jface.layout.GridLayoutFactory;
+import org.eclipse.jface.util.Policy;
 import org.eclipse.jface.viewers.ITreeContentProvider;
+import org.eclipse.jface.window.Window;
+import org.eclipse.rap.rwt.service.ServerPushSession;
+import org.eclipse.rap.rwt.widgets.DialogCallback;
 import org.eclipse.swt.SWT;
+import org.eclipse.swt.events.SelectionAdapter;
+import org.eclipse.swt.events.SelectionEvent;
+import org.eclipse.swt.layout.GridData;
+import org.eclipse.swt.widgets.Button;
 import org.eclipse.swt.widgets.Composite;
 import org.eclipse.swt.widgets.Control;
+import org.eclipse.swt.widgets.Display;
 import org.eclipse.swt.widgets.Label;
 
 import org.apache.commons.lang.StringUtils;
@@ -36,11 +53,58 @@ import org.apache.commons.lang.StringUtils;
  */
 public class ManageJobQueuePage extends AdminPageWithTree {
 
+	private final class LoadPageJob extends Job {
+
+		private final JobQueueBrowser browser;
+		private final int offset;
+		private final boolean snapshot;
+		private final ServerPushSession pushSession = new ServerPushSession();
+
+		LoadPageJob(final JobQueueBrowser browser, final int offset, final boolean snapshot, final Display display) {
+			super(String.format("Reading queue %s", browser.getQueueId()));
+			this.browser = browser;
+			this.offset = offset;
+			this.snapshot = snapshot;
+			setSystem(true);
+
+			// keep pushing until the job is done (also when cancelled before running)
+			pushSession.start();
+			addJobChangeListener(new JobChangeAdapter() {
+				@Override
+				public void done(final IJobChangeEvent event) {
+					if (display.isDisposed())
+						return;
+					display.asyncExec(new Runnable() {
+						@Override
+						public void run() {
+							pushSession.stop();
+							if (loadJob == LoadPageJob.this) {
+								loadJob = null;
+								pageChanged();
+							}
+						}
+					});
+				}
+			});
+		}
+
+		@Override
+		protected IStatus run(final IProgressMonitor monitor) {
+			if (snapshot) {
+				browser.refresh(offset, monitor);
+			} else {
+				browser.readPage(offset, monitor);
+			}
+			return monitor.isCanceled() ? Status.CANCEL_STATUS : Status.OK_STATUS;
+		}
+	}
+
 	private static final int COLUMN_ID = 0;
 	private static final int COLUMN_TYPE = 1;
 	private static final int COLUMN_CONTEXT = 2;
 	private static final int COLUMN_AGE = 3;
 	private static final int COLUMN_TRIGGER = 4;
+	private static final int COLUMN_STATE = 5;
 
 	static String toRelativeTime(final long duration) {
 		if (duration < TimeUnit.MINUTES.toMillis(2))
@@ -52,15 +116,107 @@ public class ManageJobQueuePage extends AdminPageWithTree {
 	}
 
 	private Label queueLabel;
+	private Label pageLabel;
+	private Button refreshButton;
+	private Button previousButton;
+	private Button nextButton;
+	private Button bulkOperationButton;
+	private Button cancelButton;
+	private Label progressLabel;
+
+	private JobQueueBrowser browser;
+	private LoadPageJob loadJob;
+	private BulkQueueOperationJob bulkOperationJob;
 
 	public ManageJobQueuePage() {
-		super(5);
+		super(6);
 		setTitle("Job Queue Contents");
 	}
 
 	@Override
 	protected void createButtons(final Composite parent) {
-		// TODO Auto-generated method stub
+		refreshButton = createButton(parent, "Refresh");
+		refreshButton.addSelectionListener(new SelectionAdapter() {
+			/** serialVersionUID */
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			public void widgetSelected(final SelectionEvent event) {
+				refresh();
+			}
+		});
+
+		createButtonSeparator(parent);
+
+		previousButton = createButton(parent, "Previous");
+		previousButton.setEnabled(false);
+		previousButton.addSelectionListener(new SelectionAdapter() {
+			/** serialVersionUID */
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			public void widgetSelected(final SelectionEvent event) {
+				if (browser != null) {
+					load(browser.getPreviousOffset(), false);
+				}
+			}
+		});
+
+		nextButton = createButton(parent, "Next");
+		nextButton.setEnabled(false);
+		nextButton.addSelectionListener(new SelectionAdapter() {
+			/** serialVersionUID */
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			public void widgetSelected(final SelectionEvent event) {
+				if (browser != null) {
+					load(browser.getNextOffset(), false);
+				}
+			}
+		});
+
+		createButtonSeparator(parent);
+
+		bulkOperationButton = createButton(parent, "Bulk Operation...");
+		bulkOperationButton.addSelectionListener(new SelectionAdapter() {
+			/** serialVersionUID */
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			public void widgetSelected(final SelectionEvent event) {
+				openBulkOperationDialog();
+			}
+		});
+
+		cancelButton = createButton(parent, "Cancel");
+		cancelButton.setEnabled(false);
+		cancelButton.addSelectionListener(new SelectionAdapter() {
+			/** serialVersionUID */
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			public void widgetSelected(final SelectionEvent event) {
+				if (null != bulkOperationJob) {
+					bulkOperationJob.cancel();
+				}
+			}
+		});
+
+		progressLabel = new Label(parent, SWT.WRAP);
+		progressLabel.setLayoutData(new GridData(SWT.FILL, SWT.CENTER, true, false));
+	}
+
+	@Override
+	public void deactivate() {
+		// keep a running operation going; it no longer reports to this page
+		bulkOperationJob = null;
+		final LoadPageJob job = loadJob;
+		loadJob = null;
+		if (null != job) {
+			job.cancel();
+		}
+		super.deactivate();
 	}
 
 	@Override
@@ -74,6 +230,7 @@ public class ManageJobQueuePage extends AdminPageWithTree {
 		composite.setLayout(GridLayoutFactory.fillDefaults().create());
 
 		queueLabel = new Label(composite, SWT.BEGINNING);
+		pageLabel = new Label(composite, SWT.BEGINNING);
 
 		return composite;
 	}
@@ -91,6 +248,8 @@ public class ManageJobQueuePage extends AdminPageWithTree {
 				return "Age";
 			case COLUMN_TRIGGER:
 				return "Trigger";
+			case COLUMN_STATE:
+				return "State";
 
 			default:
 				return null;
@@ -112,6 +271,8 @@ public class ManageJobQueuePage extends AdminPageWithTree {
 					return toRelativeTime(System.currentTimeMillis() - jobInfo.getQueueTimestamp());
 				case COLUMN_TRIGGER:
 					return jobInfo.getQueueTrigger();
+				case COLUMN_STATE:
+					return getStateLabel(jobInfo);
 				default:
 					return null;
 			}
@@ -121,6 +282,13 @@ public class ManageJobQueuePage extends AdminPageWithTree {
 			return null;
 	}
 
+	private String getStateLabel(final Object element) {
+		final long invisibleFor = null != browser ? browser.getInvisibleUntil(element) - System.currentTimeMillis() : 0;
+		if (invisibleFor > 0)
+			return String.format("In flight (hidden from workers for %s)", toRelativeTime(invisibleFor));
+		return "Waiting";
+	}
+
 	private String getQueueId() {
 		final String[] args = getArguments();
 		if ((args.length > 1) && StringUtils.isNotBlank(args[1])) {
@@ -154,8 +322,12 @@ public class ManageJobQueuePage extends AdminPageWithTree {
 	protected Object getViewerInput() {
 		final String queueId = getQueueId();
 		final IQueue queue = getQueueService().getQueue(queueId, null);
-		if (queue != null)
-			return queue;
+		if (queue != null) {
+			// browse read-only; messages are loaded on refresh
+			browser = new JobQueueBrowser(queueId, JobQueueBrowser.DEFAULT_PAGE_SIZE);
+			return browser;
+		}
+		browser = null;
 		return Collections.singleton(String.format("Queue '%s' not available!", queueId));
 	}
 
@@ -164,14 +336,135 @@ public class ManageJobQueuePage extends AdminPageWithTree {
 		return false;
 	}
 
+	void load(final int offset, final boolean snapshot) {
+		final LoadPageJob previous = loadJob;
+		if (null != previous) {
+			previous.cancel();
+		}
+
+		final LoadPageJob job = new LoadPageJob(browser, offset, snapshot, getTreeViewer().getControl().getDisplay());
+		loadJob = job;
+		updateButtons();
+		job.schedule();
+	}
+
+	void openBulkOperationDialog() {
+		final String queueId = getQueueId();
+		final QueueOperationDialog dialog = new QueueOperationDialog(SwtUtil.getShell(bulkOperationButton), queueId);
+		dialog.openNonBlocking(new DialogCallback() {
+			/** serialVersionUID */
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			public void dialogClosed(final int returnCode) {
+				if (returnCode == Window.OK) {
+					runBulkOperation(queueId, dialog.getOperation(), dialog.getTargetQueueId(), dialog.getFilter());
+				}
+			}
+		});
+	}
+
+	void pageChanged() {
+		getTreeViewer().refresh();
+		updateButtons();
+	}
+
 	@Override
-	public void setArguments(final String[] args) {
-		super.setArguments(args);
+	protected void refresh() {
+		// read in the background; the page is updated when done
+		if (browser != null) {
+			load(browser.getOffset(), true);
+		}
+	}
+
+	void runBulkOperation(final String queueId, final Operation operation, final String targetQueueId, final BulkQueueOperationJob.Filter filter) {
+		if (null != bulkOperationJob)
+			return;
+
+		final Display display = getTreeViewer().getControl().getDisplay();
+		final ServerPushSession pushSession = new ServerPushSession();
+		final BulkQueueOperationJob job = new BulkQueueOperationJob(getQueueService(), queueId, operation, targetQueueId, filter, new BulkQueueOperationJob.Listener() {
+			@Override
+			public void batchDone(final int scanned, final int processed, final int total) {
+				if (display.isDisposed())
+					return;
+				display.asyncExec(new Runnable() {
+					@Override
+					public void run() {
+						if (!progressLabel.isDisposed()) {
+							progressLabel.setText(String.format("%s jobs... %d of %d looked at, %d %s", operation.getProgressVerb(), scanned, total, processed, operation.getPastParticiple()));
+						}
+					}
+				});
+			}
+		});
+		job.addJobChangeListener(new JobChangeAdapter() {
+			@Override
+			public void done(final IJobChangeEvent event) {
+				final IStatus result = event.getResult();
+				if (display.isDisposed())
+					return;
+				display.asyncExec(new Runnable() {
+					@Override
+					public void run() {
+						pushSession.stop();
+						if (bulkOperationJob != job)
+							return;
+						bulkOperationJob = null;
+						if (progressLabel.isDisposed())
+							return;
+						progressLabel.setText(result.getSeverity() == IStatus.CANCEL ? "Cancelled." : result.getMessage());
+						refresh();
+						if (result.matches(IStatus.ERROR)) {
+							Policy.getStatusHandler().show(result, "Error");
+						} else if (result.matches(IStatus.WARNING)) {
+							Policy.getStatusHandler().show(result, "Warning");
+						}
+					}
+				});
+			}
+		});
+
+		bulkOperationJob = job;
+		progressLabel.setText(String.format("%s jobs...", operation.getProgressVerb()));
+		updateButtons();
+		pushSession.start();
+		job.schedule();
 	}
 
 	@Override
 	protected void updateButtons() {
 		updateQueueLabel();
+		updatePageLabel();
+
+		final boolean idle = (browser != null) && (null == loadJob);
+		previousButton.setEnabled(idle && browser.hasPrevious());
+		nextButton.setEnabled(idle && browser.hasNext());
+		refreshButton.setEnabled(browser != null);
+		bulkOperationButton.setEnabled((browser != null) && (null == bulkOperationJob));
+		cancelButton.setEnabled(null != bulkOperationJob);
+	}
+
+	private void updatePageLabel() {
+		if (browser == null) {
+			pageLabel.setText("");
+		} else if (loadJob != null) {
+			pageLabel.setText("Reading jobs...");
+		} else if (browser.getError() != null) {
+			pageLabel.setText(browser.getError());
+		} else if (browser.getTotal() == 0) {
+			pageLabel.setText("No jobs waiting.");
+		} else {
+			final int first = browser.getOffset() + 1;
+			final int last = Math.min(browser.getOffset() + browser.getPageSize(), browser.getTotal());
+			final int inFlight = browser.getInFlightCount();
+			if (inFlight > 0) {
+				pageLabel.setText(String.format("Showing jobs %d to %d of %d, %d of them in flight with a worker (snapshot; jobs taken by workers meanwhile are skipped).", first, last, browser.getTotal(), inFlight));
+			} else {
+				pageLabel.setText(String.format("Showing jobs %d to %d of %d (snapshot; jobs taken by workers meanwhile are skipped).", first, last, browser.getTotal()));
+			}
+		}
+		pageLabel.getParent().layout();
 	}
 
 	private void updateQueueLabel() {
@@ -0,0 +1,184 @@
+/*******************************************************************************
+ * Copyright (c) 2013 AGETO Service GmbH and others.
+ * All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Contributors:
+ *     Gunnar Wagenknecht - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.gyrex.admin.ui.jobs.internal;
+
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.gyrex.admin.ui.internal.widgets.NonBlockingStatusDialog;
+import org.eclipse.gyrex.admin.ui.internal.wizards.dialogfields.ComboDialogField;
+import org.eclipse.gyrex.admin.ui.internal.wizards.dialogfields.DescriptionDialogField;
+import org.eclipse.gyrex.admin.ui.internal.wizards.dialogfields.DialogField;
+import org.eclipse.gyrex.admin.ui.internal.wizards.dialogfields.IDialogFieldListener;
+import org.eclipse.gyrex.admin.ui.internal.wizards.dialogfields.LayoutUtil;
+import org.eclipse.gyrex.admin.ui.internal.wizards.dialogfields.Separator;
+import org.eclipse.gyrex.admin.ui.internal.wizards.dialogfields.StringDialogField;
+import org.eclipse.gyrex.admin.ui.jobs.internal.BulkQueueOperationJob.Filter;
+import org.eclipse.gyrex.admin.ui.jobs.internal.BulkQueueOperationJob.Operation;
+import org.eclipse.gyrex.common.identifiers.IdHelper;
+import org.eclipse.gyrex.jobs.manager.IJobManager;
+
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Path;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.swt.SWT;
+import org.eclipse.swt.layout.GridData;
+import org.eclipse.swt.widgets.Composite;
+import org.eclipse.swt.widgets.Control;
+import org.eclipse.swt.widgets.Shell;
+
+import org.apache.commons.lang.StringUtils;
+import org.apache.commons.lang.math.NumberUtils;
+
+/**
+ * Dialog for selecting a bulk operation on the jobs of a queue.
+ */
+public class QueueOperationDialog extends NonBlockingStatusDialog {
+
+	/** serialVersionUID */
+	private static final long serialVersionUID = 1L;
+
+	private static final Operation[] OPERATIONS = { Operation.PURGE, Operation.MOVE, Operation.REQUEUE };
+	private static final String[] OPERATION_NAMES = { "Purge (delete jobs)", "Move jobs to another queue", "Requeue jobs (at the end of this queue)" };
+
+	private final String queueId;
+	private final ComboDialogField operationField = new ComboDialogField(SWT.READ_ONLY);
+	private final StringDialogField targetQueueField = new StringDialogField();
+	private final StringDialogField jobTypeField = new StringDialogField();
+	private final StringDialogField contextField = new StringDialogField();
+	private final StringDialogField minAgeField = new StringDialogField();
+	private final DescriptionDialogField noteField = new DescriptionDialogField();
+
+	private Operation operation;
+	private String targetQueueId;
+	private Filter filter;
+
+	/**
+	 * Creates a new instance.
+	 *
+	 * @param parent
+	 *            the parent shell
+	 * @param queueId
+	 *            the queue to operate on
+	 */
+	public QueueOperationDialog(final Shell parent, final String queueId) {
+		super(parent);
+		this.queueId = queueId;
+		setTitle("Bulk Queue Operation");
+		setShellStyle(SWT.DIALOG_TRIM | SWT.RESIZE | SWT.APPLICATION_MODAL);
+	}
+
+	@Override
+	protected Control createDialogArea(final Composite parent) {
+		final Composite composite = (Composite) super.createDialogArea(parent);
+		final GridData gd = (GridData) composite.getLayoutData();
+		gd.minimumHeight = convertVerticalDLUsToPixels(150);
+		gd.minimumWidth = convertHorizontalDLUsToPixels(400);
+
+		operationField.setLabelText("Operation");
+		operationField.setItems(OPERATION_NAMES);
+		operationField.selectItem(0);
+		targetQueueField.setLabelText("Target Queue");
+		targetQueueField.setText(IJobManager.PRIORITY_QUEUE.equals(queueId) ? IJobManager.DEFAULT_QUEUE : IJobManager.PRIORITY_QUEUE);
+		jobTypeField.setLabelText("Job Type");
+		contextField.setLabelText("Context Path");
+		minAgeField.setLabelText("Waiting (minutes)");
+		noteField.setLabelText("");
+		noteField.setText("<small>Leave a filter empty to match all jobs. Jobs are received from the queue in batches; jobs not matching the filter are hidden from workers until the queue's receive timeout expires.</small>");
+
+		final IDialogFieldListener validateListener = new IDialogFieldListener() {
+			@Override
+			public void dialogFieldChanged(final DialogField field) {
+				validate();
+			}
+		};
+
+		operationField.setDialogFieldListener(validateListener);
+		targetQueueField.setDialogFieldListener(validateListener);
+		jobTypeField.setDialogFieldListener(validateListener);
+		contextField.setDialogFieldListener(validateListener);
+		minAgeField.setDialogFieldListener(validateListener);
+
+		contextField.setContentProposalProcessor(new ContextPathProposals());
+
+		LayoutUtil.doDefaultLayout(composite, new DialogField[] { new Separator(), operationField, targetQueueField, new Separator(), jobTypeField, contextField, minAgeField, noteField }, false);
+		LayoutUtil.setHorizontalGrabbing(targetQueueField.getTextControl(null));
+		LayoutUtil.setHorizontalGrabbing(jobTypeField.getTextControl(null));
+		LayoutUtil.setHorizontalGrabbing(contextField.getTextControl(null));
+		LayoutUtil.setHorizontalGrabbing(minAgeField.getTextControl(null));
+		LayoutUtil.setHorizontalGrabbing(noteField.getDescriptionControl(null));
+
+		LayoutUtil.setMargin(composite, 5);
+
+		validate();
+		return composite;
+	}
+
+	public Filter getFilter() {
+		return filter;
+	}
+
+	public Operation getOperation() {
+		return operation;
+	}
+
+	public String getTargetQueueId() {
+		return targetQueueId;
+	}
+
+	@Override
+	protected void okPressed() {
+		validate();
+		if (!getStatus().isOK())
+			return;
+
+		operation = OPERATIONS[operationField.getSelectionIndex()];
+		targetQueueId = operation == Operation.MOVE ? targetQueueField.getText() : null;
+		final String contextPath = StringUtils.trimToNull(contextField.getText());
+		final long minAge = TimeUnit.MINUTES.toMillis(NumberUtils.toLong(StringUtils.trim(minAgeField.getText()), 0));
+		filter = new Filter(jobTypeField.getText(), contextPath != null ? new Path(contextPath).makeAbsolute() : null, minAge);
+
+		super.okPressed();
+	}
+
+	void setError(final String message) {
+		updateStatus(new Status(IStatus.ERROR, JobsUiActivator.SYMBOLIC_NAME, message));
+	}
+
+	void validate() {
+		final int selection = operationField.getSelectionIndex();
+		targetQueueField.setEnabled((selection >= 0) && (OPERATIONS[selection] == Operation.MOVE));
+		if (selection < 0) {
+			updateStatus(new Status(IStatus.INFO, JobsUiActivator.SYMBOLIC_NAME, "Please select an operation."));
+			return;
+		}
+
+		if (OPERATIONS[selection] == Operation.MOVE) {
+			final String targetQueueId = targetQueueField.getText();
+			if (!IdHelper.isValidId(targetQueueId)) {
+				setError("The entered target queue id is invalid. It may only contain ASCII chars a-z, 0-9, '.', '-' and/or '_'.");
+				return;
+			}
+			if (targetQueueId.equals(queueId)) {
+				setError("Please enter a target queue other than the current queue.");
+				return;
+			}
+		}
+
+		final String minAge = minAgeField.getText();
+		if (StringUtils.isNotBlank(minAge) && (!NumberUtils.isDigits(minAge.trim()) || (NumberUtils.toLong(minAge.trim(), -1) < 0))) {
+			setError("Please enter the waiting time as a number of minutes.");
+			return;
+		}
+
+		updateStatus(Status.OK_STATUS);
+	}
+}
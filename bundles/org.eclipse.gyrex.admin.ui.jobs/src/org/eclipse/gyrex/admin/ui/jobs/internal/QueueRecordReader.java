@@ -0,0 +1,177 @@
+/*******************************************************************************
+ * Copyright (c) 2013 AGETO Service GmbH and others.
+ * All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Contributors:
+ *     Gunnar Wagenknecht - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.gyrex.admin.ui.jobs.internal;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+import org.eclipse.gyrex.cloud.internal.zk.IZooKeeperLayout;
+import org.eclipse.gyrex.cloud.internal.zk.ZooKeeperGate;
+import org.eclipse.gyrex.cloud.services.queue.IMessage;
+
+import org.eclipse.core.runtime.IPath;
+
+import org.apache.zookeeper.KeeperException;
+
+/**
+ * Non-consuming read access to the records of the ZooKeeper based queue
+ * implementation.
+ * <p>
+ * {@link org.eclipse.gyrex.cloud.services.queue.IQueue} only offers consuming
+ * reads, which hide messages from workers. This class is the only place in
+ * the admin UI which knows the record layout of the queue implementation in
+ * <code>org.eclipse.gyrex.cloud</code>. It must be kept in sync with it (and
+ * should move there once the queue offers non-consuming reads). Records of an
+ * unknown format version are reported as unreadable and never guessed at.
+ * </p>
+ * <p>
+ * Receiving a message does not remove its record. The queue implementation
+ * only stores a timestamp until which the message is invisible to other
+ * receivers; the record is deleted once the message is processed. Messages
+ * with an invisibility timestamp in the future are therefore in flight, i.e.
+ * taken by a worker, and not waiting. The timestamp is written by the node
+ * which received the message, so clock skew between nodes applies.
+ * </p>
+ */
+final class QueueRecordReader {
+
+	/**
+	 * A message read from a queue record.
+	 */
+	static final class BrowsedMessage implements IMessage {
+
+		private final String queueId;
+		private final long invisibleUntil;
+		private final byte[] body;
+
+		BrowsedMessage(final String queueId, final long invisibleUntil, final byte[] body) {
+			this.queueId = queueId;
+			this.invisibleUntil = invisibleUntil;
+			this.body = body;
+		}
+
+		@Override
+		public byte[] getBody() {
+			return body;
+		}
+
+		/**
+		 * Returns the time until which the message is invisible to receivers.
+		 *
+		 * @return the invisibility timestamp (in milliseconds since the epoch;
+		 *         <code>0</code> or in the past if the message is waiting)
+		 */
+		long getInvisibleUntil() {
+			return invisibleUntil;
+		}
+
+		@Override
+		public String getQueueId() {
+			return queueId;
+		}
+
+		/**
+		 * Indicates if the message has been received by a worker and is not
+		 * visible to other receivers.
+		 *
+		 * @param now
+		 *            the current time
+		 * @return <code>true</code> if in flight, <code>false</code> if waiting
+		 */
+		boolean isInFlight(final long now) {
+			return invisibleUntil > now;
+		}
+
+		@Override
+		public String toString() {
+			return String.format("BrowsedMessage [queue=%s, invisibleUntil=%d, %d bytes]", queueId, invisibleUntil, body.length);
+		}
+	}
+
+	/** the record format written by the queue implementation */
+	private static final int RECORD_VERSION = 1;
+
+	private static BrowsedMessage readMessage(final String queueId, final byte[] record) throws IOException {
+		// format version, invisibility timestamp, body length, body
+		final DataInputStream in = new DataInputStream(new ByteArrayInputStream(record));
+		final int version = in.readInt();
+		if (version != RECORD_VERSION)
+			throw new IOException(String.format("unsupported record version %d", version));
+		final long invisibleUntil = in.readLong();
+		final byte[] body = new byte[in.readInt()];
+		in.readFully(body);
+		return new BrowsedMessage(queueId, invisibleUntil, body);
+	}
+
+	private final String queueId;
+	private final IPath queuePath;
+
+	/**
+	 * Creates a new instance.
+	 *
+	 * @param queueId
+	 *            the queue id
+	 */
+	QueueRecordReader(final String queueId) {
+		this.queueId = queueId;
+		queuePath = IZooKeeperLayout.PATH_QUEUES_ROOT.append(queueId);
+	}
+
+	/**
+	 * Reads a message.
+	 *
+	 * @param messageId
+	 *            the record name as returned by {@link #readMessageIds()}
+	 * @return the message (<code>null</code> if consumed in the meantime)
+	 * @throws Exception
+	 *             if the record could not be read or has an unknown format
+	 */
+	BrowsedMessage readMessage(final String messageId) throws Exception {
+		final byte[] record;
+		try {
+			record = ZooKeeperGate.get().readRecord(queuePath.append(messageId), null);
+		} catch (final KeeperException.NoNodeException e) {
+			return null;
+		}
+		if (null == record)
+			return null;
+		return readMessage(queueId, record);
+	}
+
+	/**
+	 * Reads the ids of all messages in queue order.
+	 *
+	 * @return the message ids, oldest first
+	 * @throws Exception
+	 *             if the queue could not be read
+	 */
+	List<String> readMessageIds() throws Exception {
+		final Collection<String> names;
+		try {
+			names = ZooKeeperGate.get().readChildrenNames(queuePath, null);
+		} catch (final KeeperException.NoNodeException e) {
+			return Collections.emptyList();
+		}
+		if (null == names)
+			return Collections.emptyList();
+
+		// record names are sequential, i.e. natural order is queue order
+		final List<String> sorted = new ArrayList<String>(names);
+		Collections.sort(sorted);
+		return sorted;
+	}
+}
@@ -0,0 +1,127 @@
+/*******************************************************************************
+ * Copyright (c) 2013 AGETO Service GmbH and others.
+ * All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Contributors:
+ *     Gunnar Wagenknecht - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.gyrex.admin.ui.jobs.internal;
+
+import java.util.Comparator;
+
+import org.eclipse.core.runtime.IPath;
+
+/**
+ * A job running somewhere in the cluster.
+ */
+public final class RunningJob {
+
+	/** orders jobs by elapsed time, longest running first */
+	static final Comparator<RunningJob> LONGEST_RUNNING_FIRST = new Comparator<RunningJob>() {
+		@Override
+		public int compare(final RunningJob j1, final RunningJob j2) {
+			// unknown start times last
+			return Long.compare(j1.startTimestamp > 0 ? j1.startTimestamp : Long.MAX_VALUE, j2.startTimestamp > 0 ? j2.startTimestamp : Long.MAX_VALUE);
+		}
+	};
+
+	private final IPath contextPath;
+	private final String jobId;
+	private final String jobTypeId;
+	private final long startTimestamp;
+	private final String nodeId;
+	private final long p95;
+
+	RunningJob(final IPath contextPath, final String jobId, final String jobTypeId, final long startTimestamp, final String nodeId, final long p95) {
+		this.contextPath = contextPath;
+		this.jobId = jobId;
+		this.jobTypeId = jobTypeId;
+		this.startTimestamp = startTimestamp;
+		this.nodeId = nodeId;
+		this.p95 = p95;
+	}
+
+	@Override
+	public boolean equals(final Object obj) {
+		if (this == obj)
+			return true;
+		if (!(obj instanceof RunningJob))
+			return false;
+		final RunningJob other = (RunningJob) obj;
+		return jobId.equals(other.jobId) && contextPath.equals(other.contextPath);
+	}
+
+	public IPath getContextPath() {
+		return contextPath;
+	}
+
+	/**
+	 * Returns the elapsed time.
+	 *
+	 * @param now
+	 *            the current time
+	 * @return the elapsed time in milliseconds or <code>-1</code> if unknown
+	 */
+	public long getElapsed(final long now) {
+		return startTimestamp > 0 ? Math.max(0, now - startTimestamp) : -1;
+	}
+
+	public String getJobId() {
+		return jobId;
+	}
+
+	public String getJobTypeId() {
+		return jobTypeId;
+	}
+
+	/**
+	 * Returns the node executing the job.
+	 *
+	 * @return the node id (maybe <code>null</code> if unknown)
+	 */
+	public String getNodeId() {
+		return nodeId;
+	}
+
+	/**
+	 * Returns the 95th percentile of past execution durations.
+	 *
+	 * @return the duration in milliseconds or <code>-1</code> if there is no
+	 *         history
+	 */
+	public long getP95() {
+		return p95;
+	}
+
+	public long getStartTimestamp() {
+		return startTimestamp;
+	}
+
+	@Override
+	public int hashCode() {
+		return (31 * contextPath.hashCode()) + jobId.hashCode();
+	}
+
+	/**
+	 * Indicates if the job runs longer than the given multiple of its 95th
+	 * percentile.
+	 *
+	 * @param multiple
+	 *            the multiple
+	 * @param now
+	 *            the current time
+	 * @return <code>true</code> if the job is overdue
+	 */
+	public boolean isOverdue(final double multiple, final long now) {
+		return (p95 > 0) && (getElapsed(now) > (p95 * multiple));
+	}
+
+	@Override
+	public String toString() {
+		return String.format("RunningJob [%s in %s]", jobId, contextPath);
+	}
+}
@@ -0,0 +1,174 @@
+/*******************************************************************************
+ * Copyright (c) 2013 AGETO Service GmbH and others.
+ * All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Contributors:
+ *     Gunnar Wagenknecht - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.gyrex.admin.ui.jobs.internal;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.eclipse.gyrex.context.IRuntimeContext;
+import org.eclipse.gyrex.context.definitions.ContextDefinition;
+import org.eclipse.gyrex.context.definitions.IRuntimeContextDefinitionManager;
+import org.eclipse.gyrex.context.registry.IRuntimeContextRegistry;
+import org.eclipse.gyrex.jobs.IJob;
+import org.eclipse.gyrex.jobs.history.IJobHistory;
+import org.eclipse.gyrex.jobs.history.IJobHistoryEntry;
+import org.eclipse.gyrex.jobs.internal.manager.JobHungDetectionHelper;
+import org.eclipse.gyrex.jobs.internal.manager.JobManagerImpl;
+import org.eclipse.gyrex.jobs.internal.util.ContextHashUtil;
+import org.eclipse.gyrex.jobs.manager.IJobManager;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+
+import org.apache.commons.lang.exception.ExceptionUtils;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Collects the jobs running in the cluster.
+ * <p>
+ * Collection is driven by the active jobs which the hung detection tracks
+ * (see {@link JobHungDetectionHelper}). They are read through the helper,
+ * which also knows the node processing each job; their storage layout is not
+ * duplicated here. Only these jobs are resolved; contexts without active jobs
+ * are not touched. Active jobs are keyed by storage key, which is unique
+ * across contexts.
+ * </p>
+ * <p>
+ * The 95th percentile of past durations is computed once per job from its
+ * history and cached; subsequent collections only read the history of jobs
+ * not seen before. Call {@link #clearCache()} to force re-computation.
+ * </p>
+ */
+public class RunningJobsCollector {
+
+	private static final Logger LOG = LoggerFactory.getLogger(RunningJobsCollector.class);
+
+	private static final Long NO_HISTORY = Long.valueOf(-1);
+
+	private final Map<String, Long> p95ByJob = new ConcurrentHashMap<String, Long>();
+
+	/**
+	 * Forgets the cached percentiles.
+	 */
+	public void clearCache() {
+		p95ByJob.clear();
+	}
+
+	/**
+	 * Collects all running jobs.
+	 *
+	 * @param monitor
+	 *            the monitor for cancellation
+	 * @return the running jobs, longest running first
+	 */
+	public List<RunningJob> collect(final IProgressMonitor monitor) {
+		final Collection<String> activeJobs = readActiveJobs();
+		if (activeJobs.isEmpty()) {
+			p95ByJob.clear();
+			return Collections.emptyList();
+		}
+
+		final IRuntimeContextRegistry contextRegistry = JobsUiActivator.getInstance().getService(IRuntimeContextRegistry.class);
+		final Collection<ContextDefinition> contexts = JobsUiActivator.getInstance().getService(IRuntimeContextDefinitionManager.class).getDefinedContexts();
+		final List<RunningJob> result = new ArrayList<RunningJob>();
+		final Set<String> pending = new HashSet<String>(activeJobs);
+		for (final ContextDefinition definition : contexts) {
+			if (monitor.isCanceled() || pending.isEmpty()) {
+				break;
+			}
+
+			// the storage key of a job is its id qualified with the context hash
+			final ContextHashUtil hashUtil = new ContextHashUtil(definition.getPath());
+			final List<String> storageKeys = new ArrayList<String>();
+			for (final String storageKey : pending) {
+				if (storageKey.equals(hashUtil.toInternalId(JobManagerImpl.getExternalId(storageKey)))) {
+					storageKeys.add(storageKey);
+				}
+			}
+			if (storageKeys.isEmpty()) {
+				continue;
+			}
+			pending.removeAll(storageKeys);
+
+			try {
+				final IRuntimeContext context = contextRegistry.get(definition.getPath());
+				final IJobManager jobManager = context != null ? context.get(IJobManager.class) : null;
+				if (jobManager == null) {
+					continue;
+				}
+				for (final String storageKey : storageKeys) {
+					final String jobId = JobManagerImpl.getExternalId(storageKey);
+					final IJob job = jobManager.getJob(jobId);
+					if (job == null) {
+						continue;
+					}
+					result.add(new RunningJob(definition.getPath(), jobId, job.getTypeId(), job.getLastStart(), readProcessingNodeId(storageKey), getP95(storageKey, jobManager, jobId)));
+				}
+			} catch (final Exception e) {
+				LOG.debug("Unable to read running jobs of context {}. {}", definition.getPath(), ExceptionUtils.getRootCauseMessage(e));
+			}
+		}
+
+		// forget percentiles of jobs no longer running
+		p95ByJob.keySet().retainAll(activeJobs);
+
+		Collections.sort(result, RunningJob.LONGEST_RUNNING_FIRST);
+		return result;
+	}
+
+	private long getP95(final String key, final IJobManager jobManager, final String jobId) {
+		Long p95 = p95ByJob.get(key);
+		if (p95 == null) {
+			p95 = NO_HISTORY;
+			try {
+				final IJobHistory history = jobManager.getHistory(jobId);
+				if (history != null) {
+					final DurationHistogram histogram = new DurationHistogram();
+					for (final IJobHistoryEntry entry : history.getEntries()) {
+						histogram.add(JobHistoryAnalysis.getDuration(entry));
+					}
+					p95 = Long.valueOf(histogram.getPercentile(95));
+				}
+			} catch (final Exception e) {
+				LOG.debug("Unable to read history of job {}. {}", jobId, ExceptionUtils.getRootCauseMessage(e));
+			}
+			p95ByJob.put(key, p95);
+		}
+		return p95.longValue();
+	}
+
+	private Collection<String> readActiveJobs() {
+		try {
+			final Collection<String> activeJobs = JobHungDetectionHelper.getActiveJobs();
+			return activeJobs != null ? activeJobs : Collections.<String> emptyList();
+		} catch (final Exception e) {
+			LOG.debug("Unable to read active jobs. {}", ExceptionUtils.getRootCauseMessage(e));
+			return Collections.emptyList();
+		}
+	}
+
+	private String readProcessingNodeId(final String storageKey) {
+		try {
+			return JobHungDetectionHelper.getProcessingNodeId(storageKey, null);
+		} catch (final Exception e) {
+			LOG.debug("Unable to read processing node of job {}. {}", storageKey, ExceptionUtils.getRootCauseMessage(e));
+			return null;
+		}
+	}
+}
@@ -0,0 +1,398 @@
+/*******************************************************************************
+ * Copyright (c) 2013 AGETO Service GmbH and others.
+ * All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Contributors:
+ *     Gunnar Wagenknecht - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.gyrex.admin.ui.jobs.internal;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.gyrex.admin.ui.internal.helper.SwtUtil;
+import org.eclipse.gyrex.admin.ui.internal.widgets.AdminPageWithTree;
+import org.eclipse.gyrex.admin.ui.internal.widgets.NonBlockingMessageDialogs;
+import org.eclipse.gyrex.context.IRuntimeContext;
+import org.eclipse.gyrex.context.registry.IRuntimeContextRegistry;
+import org.eclipse.gyrex.jobs.manager.IJobManager;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.MultiStatus;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.Job;
+import org.eclipse.jface.layout.GridLayoutFactory;
+import org.eclipse.jface.util.Policy;
+import org.eclipse.jface.viewers.IStructuredSelection;
+import org.eclipse.jface.viewers.ITreeContentProvider;
+import org.eclipse.jface.window.Window;
+import org.eclipse.rap.rwt.service.ServerPushSession;
+import org.eclipse.rap.rwt.widgets.DialogCallback;
+import org.eclipse.swt.SWT;
+import org.eclipse.swt.events.SelectionAdapter;
+import org.eclipse.swt.events.SelectionEvent;
+import org.eclipse.swt.graphics.Image;
+import org.eclipse.swt.layout.GridData;
+import org.eclipse.swt.widgets.Button;
+import org.eclipse.swt.widgets.Combo;
+import org.eclipse.swt.widgets.Composite;
+import org.eclipse.swt.widgets.Control;
+import org.eclipse.swt.widgets.Display;
+import org.eclipse.swt.widgets.Label;
+
+import org.apache.commons.lang.StringUtils;
+import org.apache.commons.lang.exception.ExceptionUtils;
+import org.apache.commons.lang.time.DateFormatUtils;
+
+/**
+ * Admin page listing the jobs currently running in the cluster.
+ * <p>
+ * The list is refreshed periodically in the background. Jobs running longer
+ * than a selectable multiple of the 95th percentile of their past durations
+ * are flagged as overdue.
+ * </p>
+ */
+public class RunningJobsPage extends AdminPageWithTree {
+
+	private final class RefreshRunningJobsJob extends Job {
+
+		private final Display display;
+
+		RefreshRunningJobsJob(final Display display) {
+			super("Refresh running jobs");
+			this.display = display;
+			setSystem(true);
+		}
+
+		@Override
+		protected IStatus run(final IProgressMonitor monitor) {
+			if (refreshJob != this)
+				return Status.CANCEL_STATUS;
+
+			List<RunningJob> result = null;
+			String error = null;
+			try {
+				result = collector.collect(monitor);
+			} catch (final Exception e) {
+				error = String.format("Unable to read running jobs. %s", ExceptionUtils.getRootCauseMessage(e));
+			}
+
+			if (!display.isDisposed() && !monitor.isCanceled()) {
+				final List<RunningJob> runningJobs = result;
+				final String message = error;
+				display.asyncExec(new Runnable() {
+					@Override
+					public void run() {
+						update(runningJobs, message);
+					}
+				});
+			}
+
+			if (refreshJob == this) {
+				schedule(REFRESH_INTERVAL);
+			}
+			return Status.OK_STATUS;
+		}
+	}
+
+	public static final String ID = "running-jobs";
+
+	/** trigger recorded when jobs are cancelled from this page */
+	static final String CANCEL_TRIGGER = "admin-ui";
+
+	private static final long REFRESH_INTERVAL = TimeUnit.SECONDS.toMillis(5);
+
+	/** selectable multiples of the 95th percentile a job is considered overdue */
+	private static final int[] OVERDUE_MULTIPLES = { 2, 3, 5, 10 };
+
+	private static final int COLUMN_JOB = 0;
+	private static final int COLUMN_CONTEXT = 1;
+	private static final int COLUMN_NODE = 2;
+	private static final int COLUMN_STARTED = 3;
+	private static final int COLUMN_ELAPSED = 4;
+	private static final int COLUMN_P95 = 5;
+
+	static IStatus cancelJobs(final List<RunningJob> runningJobs) {
+		final IRuntimeContextRegistry contextRegistry = JobsUiActivator.getInstance().getService(IRuntimeContextRegistry.class);
+		final MultiStatus result = new MultiStatus(JobsUiActivator.SYMBOLIC_NAME, 0, "Some jobs could not be cancelled.", null);
+		for (final RunningJob runningJob : runningJobs) {
+			try {
+				final IRuntimeContext context = contextRegistry.get(runningJob.getContextPath());
+				if (null == context)
+					throw new IllegalStateException(String.format("Context %s not found.", runningJob.getContextPath()));
+				context.get(IJobManager.class).cancelJob(runningJob.getJobId(), CANCEL_TRIGGER);
+			} catch (final Exception e) {
+				result.add(new Status(IStatus.ERROR, JobsUiActivator.SYMBOLIC_NAME, String.format("Error cancelling job %s. %s", runningJob.getJobId(), ExceptionUtils.getRootCauseMessage(e)), e));
+			}
+		}
+		return result;
+	}
+
+	final RunningJobsCollector collector = new RunningJobsCollector();
+	private final List<RunningJob> runningJobs = new ArrayList<RunningJob>();
+	volatile RefreshRunningJobsJob refreshJob;
+	private ServerPushSession pushSession;
+	private int overdueMultiple = OVERDUE_MULTIPLES[1];
+
+	private Label statusLabel;
+	private Button refreshButton;
+	private Button cancelButton;
+
+	public RunningJobsPage() {
+		super(6);
+		setTitle("Running Jobs");
+		setTitleToolTip("Jobs currently running in the cluster.");
+	}
+
+	@Override
+	public void activate() {
+		super.activate();
+
+		if ((null == statusLabel) || statusLabel.isDisposed())
+			return;
+
+		startRefresh();
+	}
+
+	void cancelButtonPressed() {
+		final List<RunningJob> selected = getSelectedJobs();
+		if (selected.isEmpty())
+			return;
+
+		final String question = selected.size() == 1 ? String.format("Do you really want to cancel job %s?", selected.get(0).getJobId()) : String.format("Do you really want to cancel the %d selected jobs?", selected.size());
+		NonBlockingMessageDialogs.openQuestion(SwtUtil.getShell(cancelButton), "Cancel selected Jobs", question, new DialogCallback() {
+			/** serialVersionUID */
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			public void dialogClosed(final int returnCode) {
+				if (returnCode != Window.OK)
+					return;
+
+				final IStatus result = cancelJobs(selected);
+				if (!result.isOK()) {
+					Policy.getStatusHandler().show(result, "Error");
+				}
+				startRefresh();
+			}
+		});
+	}
+
+	@Override
+	protected void createButtons(final Composite parent) {
+		refreshButton = createButton(parent, "Refresh");
+		refreshButton.addSelectionListener(new SelectionAdapter() {
+			/** serialVersionUID */
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			public void widgetSelected(final SelectionEvent event) {
+				collector.clearCache();
+				startRefresh();
+			}
+		});
+
+		createButtonSeparator(parent);
+
+		cancelButton = createButton(parent, "Cancel Job");
+		cancelButton.addSelectionListener(new SelectionAdapter() {
+			/** serialVersionUID */
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			public void widgetSelected(final SelectionEvent event) {
+				cancelButtonPressed();
+			}
+		});
+	}
+
+	@Override
+	protected ITreeContentProvider createContentProvider() {
+		return new JobHistoryContentProvider();
+	}
+
+	@Override
+	protected Control createHeader(final Composite parent) {
+		final Composite composite = new Composite(parent, SWT.NONE);
+		composite.setLayout(GridLayoutFactory.fillDefaults().numColumns(3).create());
+
+		statusLabel = new Label(composite, SWT.WRAP);
+		statusLabel.setLayoutData(new GridData(SWT.FILL, SWT.CENTER, true, false));
+
+		final Label overdueLabel = new Label(composite, SWT.NONE);
+		overdueLabel.setText("Flag jobs running longer than");
+		final Combo overdueCombo = new Combo(composite, SWT.READ_ONLY);
+		for (final int multiple : OVERDUE_MULTIPLES) {
+			overdueCombo.add(String.format("%dx p95", multiple));
+			if (multiple == overdueMultiple) {
+				overdueCombo.select(overdueCombo.getItemCount() - 1);
+			}
+		}
+		overdueCombo.addSelectionListener(new SelectionAdapter() {
+			/** serialVersionUID */
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			public void widgetSelected(final SelectionEvent e) {
+				overdueMultiple = OVERDUE_MULTIPLES[overdueCombo.getSelectionIndex()];
+				getTreeViewer().refresh();
+				updateStatusLabel();
+			}
+		});
+
+		return composite;
+	}
+
+	@Override
+	public void deactivate() {
+		stopRefresh();
+		super.deactivate();
+	}
+
+	@Override
+	protected String getColumnLabel(final int column) {
+		switch (column) {
+			case COLUMN_JOB:
+				return "Job";
+			case COLUMN_CONTEXT:
+				return "Context";
+			case COLUMN_NODE:
+				return "Node";
+			case COLUMN_STARTED:
+				return "Started";
+			case COLUMN_ELAPSED:
+				return "Elapsed";
+			case COLUMN_P95:
+				return "Typical (p95)";
+
+			default:
+				return null;
+		}
+	}
+
+	@Override
+	protected Image getElementImage(final Object element, final int column) {
+		if ((element instanceof RunningJob) && (column == COLUMN_JOB) && ((RunningJob) element).isOverdue(overdueMultiple, System.currentTimeMillis()))
+			return JobsUiImages.getImage(JobsUiImages.IMG_OBJ_WARN_RESULT);
+		return null;
+	}
+
+	@Override
+	protected String getElementLabel(final Object element, final int column) {
+		if (element instanceof RunningJob) {
+			final RunningJob runningJob = (RunningJob) element;
+			final long now = System.currentTimeMillis();
+			switch (column) {
+				case NO_COLUMN:
+				case COLUMN_JOB:
+					return runningJob.getJobId();
+				case COLUMN_CONTEXT:
+					return runningJob.getContextPath().toString();
+				case COLUMN_NODE:
+					return StringUtils.defaultIfEmpty(runningJob.getNodeId(), "n/a");
+				case COLUMN_STARTED:
+					return runningJob.getStartTimestamp() > 0 ? DateFormatUtils.ISO_DATETIME_FORMAT.format(runningJob.getStartTimestamp()) : "n/a";
+				case COLUMN_ELAPSED:
+					return JobHistoryPage.toDurationText(runningJob.getElapsed(now));
+				case COLUMN_P95:
+					return JobHistoryPage.toDurationText(runningJob.getP95());
+
+				default:
+					return StringUtils.EMPTY;
+			}
+		}
+		return null;
+	}
+
+	private List<RunningJob> getSelectedJobs() {
+		final List<RunningJob> selected = new ArrayList<RunningJob>();
+		final IStructuredSelection selection = (IStructuredSelection) getTreeViewer().getSelection();
+		for (final Iterator<?> stream = selection.iterator(); stream.hasNext();) {
+			final Object element = stream.next();
+			if (element instanceof RunningJob) {
+				selected.add((RunningJob) element);
+			}
+		}
+		return selected;
+	}
+
+	@Override
+	protected Object getViewerInput() {
+		// the list is updated in place to keep the selection across refreshes
+		return runningJobs;
+	}
+
+	@Override
+	protected boolean isColumnSortable(final int column) {
+		// keep the longest running jobs on top
+		return false;
+	}
+
+	private void startRefresh() {
+		stopRefresh();
+		pushSession = new ServerPushSession();
+		pushSession.start();
+		final RefreshRunningJobsJob job = new RefreshRunningJobsJob(statusLabel.getDisplay());
+		refreshJob = job;
+		job.schedule();
+	}
+
+	private void stopRefresh() {
+		final RefreshRunningJobsJob job = refreshJob;
+		refreshJob = null;
+		if (null != job) {
+			job.cancel();
+		}
+		if (null != pushSession) {
+			pushSession.stop();
+			pushSession = null;
+		}
+	}
+
+	void update(final List<RunningJob> result, final String error) {
+		if (statusLabel.isDisposed())
+			return;
+
+		if (null == result) {
+			statusLabel.setText(error);
+			statusLabel.getParent().layout();
+			return;
+		}
+
+		runningJobs.clear();
+		runningJobs.addAll(result);
+		getTreeViewer().refresh();
+		updateButtons();
+	}
+
+	@Override
+	protected void updateButtons() {
+		updateStatusLabel();
+		cancelButton.setEnabled(!getSelectedJobs().isEmpty());
+	}
+
+	void updateStatusLabel() {
+		final long now = System.currentTimeMillis();
+		int overdue = 0;
+		for (final RunningJob runningJob : runningJobs) {
+			if (runningJob.isOverdue(overdueMultiple, now)) {
+				overdue++;
+			}
+		}
+		if (runningJobs.isEmpty()) {
+			statusLabel.setText("No jobs running.");
+		} else if (overdue > 0) {
+			statusLabel.setText(String.format("%d jobs running, %d overdue.", runningJobs.size(), overdue));
+		} else {
+			statusLabel.setText(String.format("%d jobs running.", runningJobs.size()));
+		}
+		statusLabel.getParent().layout();
+	}
+}
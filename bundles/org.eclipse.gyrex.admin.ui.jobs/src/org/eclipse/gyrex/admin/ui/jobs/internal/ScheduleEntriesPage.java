@@ -11,6 +11,10 @@
  */
 package org.eclipse.gyrex.admin.ui.jobs.internal;
 
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
 import org.eclipse.gyrex.admin.ui.internal.application.AdminUiUtil;
 import org.eclipse.gyrex.admin.ui.internal.helper.SwtUtil;
 import org.eclipse.gyrex.admin.ui.internal.widgets.AdminPageWithTree;
@@ -29,13 +33,16 @@ import org.eclipse.gyrex.jobs.internal.util.ContextHashUtil;
 import org.eclipse.gyrex.jobs.manager.IJobManager;
 import org.eclipse.gyrex.server.Platform;
 
+import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.IStatus;
 import org.eclipse.core.runtime.Path;
 import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.Job;
 import org.eclipse.jface.util.Policy;
 import org.eclipse.jface.viewers.IStructuredSelection;
 import org.eclipse.jface.viewers.ITreeContentProvider;
 import org.eclipse.jface.window.Window;
+import org.eclipse.rap.rwt.service.ServerPushSession;
 import org.eclipse.rap.rwt.widgets.DialogCallback;
 import org.eclipse.swt.SWT;
 import org.eclipse.swt.events.SelectionAdapter;
@@ -45,6 +52,7 @@ import org.eclipse.swt.layout.GridData;
 import org.eclipse.swt.widgets.Button;
 import org.eclipse.swt.widgets.Composite;
 import org.eclipse.swt.widgets.Control;
+import org.eclipse.swt.widgets.Display;
 import org.eclipse.swt.widgets.Link;
 
 import org.osgi.service.prefs.BackingStoreException;
@@ -67,9 +75,39 @@ public class ScheduleEntriesPage extends AdminPageWithTree {
 	private Button removeButton;
 	private Button enableButton;
 	private Button disableButton;
+	private Button historyButton;
 
 	private ScheduleImpl schedule;
 
+	/** last results by job id (immutable snapshot, replaced on refresh) */
+	volatile Map<String, IStatus> lastResults = Collections.emptyMap();
+
+	static Map<String, IStatus> loadLastResults(final ScheduleImpl schedule) {
+		final IRuntimeContext ctx = JobsUiActivator.getInstance().getService(IRuntimeContextRegistry.class).get(schedule.getContextPath());
+		if (ctx == null)
+			return Collections.emptyMap();
+		final IJobManager jobManager = ctx.get(IJobManager.class);
+		if (jobManager == null)
+			return Collections.emptyMap();
+
+		final Map<String, IStatus> results = new HashMap<>();
+		for (final ScheduleEntryImpl entry : schedule.getEntries()) {
+			final String jobId = entry.getJobId();
+			if (results.containsKey(jobId)) {
+				continue;
+			}
+			try {
+				final IJob job = jobManager.getJob(jobId);
+				if ((job != null) && (job.getLastResult() != null)) {
+					results.put(jobId, job.getLastResult());
+				}
+			} catch (final Exception e) {
+				// ignore; shown as not available
+			}
+		}
+		return Collections.unmodifiableMap(results);
+	}
+
 	public ScheduleEntriesPage() {
 		super(5);
 		setTitle("Schedule Entries");
@@ -132,6 +170,17 @@ public class ScheduleEntriesPage extends AdminPageWithTree {
 			}
 		});
 
+		createButtonSeparator(parent);
+
+		historyButton = createButton(parent, "History...");
+		historyButton.addSelectionListener(new SelectionAdapter() {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			public void widgetSelected(final SelectionEvent e) {
+				historyButtonPressed();
+			}
+		});
 	}
 
 	@Override
@@ -293,53 +342,29 @@ public class ScheduleEntriesPage extends AdminPageWithTree {
 	}
 
 	String getLastResult(final ScheduleEntryImpl entry) {
-		final IRuntimeContext ctx = JobsUiActivator.getInstance().getService(IRuntimeContextRegistry.class).get(schedule.getContextPath());
-		if (ctx != null) {
-			final IJobManager jobManager = ctx.get(IJobManager.class);
-			if (jobManager != null) {
-				final IJob job = jobManager.getJob(entry.getJobId());
-				if (job != null) {
-					final IStatus result = job.getLastResult();
-					if (result != null) {
-						if (result.isOK())
-							return "OK";
-						else if (result.matches(IStatus.CANCEL))
-							return "aborted";
-						else if (result.matches(IStatus.ERROR))
-							return "failed";
-						else if (result.matches(IStatus.WARNING))
-							return "with warnings";
-						else if (result.matches(IStatus.INFO))
-							return "OK";
-					}
-				}
-			}
+		final IStatus result = lastResults.get(entry.getJobId());
+		if (result != null) {
+			if (result.isOK())
+				return "OK";
+			else if (result.matches(IStatus.CANCEL))
+				return "aborted";
+			else if (result.matches(IStatus.ERROR))
+				return "failed";
+			else if (result.matches(IStatus.WARNING))
+				return "with warnings";
+			else if (result.matches(IStatus.INFO))
+				return "OK";
 		}
 		return "n/a";
 	};
 
 	private Image getLastResultImage(final ScheduleEntryImpl entry) {
-		final IRuntimeContext ctx = JobsUiActivator.getInstance().getService(IRuntimeContextRegistry.class).get(schedule.getContextPath());
-		if (ctx != null) {
-			final IJobManager jobManager = ctx.get(IJobManager.class);
-			if (jobManager != null) {
-				final IJob job = jobManager.getJob(entry.getJobId());
-				if (job != null) {
-					final IStatus result = job.getLastResult();
-					if (result != null) {
-						if (result.isOK())
-							return null;
-						else if (result.matches(IStatus.CANCEL))
-							return null;
-						else if (result.matches(IStatus.ERROR))
-							return JobsUiImages.getImage(JobsUiImages.IMG_OBJ_ERROR_RESULT);
-						else if (result.matches(IStatus.WARNING))
-							return JobsUiImages.getImage(JobsUiImages.IMG_OBJ_WARN_RESULT);
-						else if (result.matches(IStatus.INFO))
-							return null;
-					}
-				}
-			}
+		final IStatus result = lastResults.get(entry.getJobId());
+		if (result != null) {
+			if (result.matches(IStatus.ERROR))
+				return JobsUiImages.getImage(JobsUiImages.IMG_OBJ_ERROR_RESULT);
+			else if (result.matches(IStatus.WARNING))
+				return JobsUiImages.getImage(JobsUiImages.IMG_OBJ_WARN_RESULT);
 		}
 		return null;
 	}
@@ -351,6 +376,13 @@ public class ScheduleEntriesPage extends AdminPageWithTree {
 		return "unknown (" + entry.getJobTypeId() + ")";
 	}
 
+	@Override
+	protected String getElementTextForSorting(final Object element, final int column) {
+		if ((element instanceof ScheduleEntryImpl) && (column == COLUMN_LAST_RESULT))
+			return getLastResult((ScheduleEntryImpl) element);
+		return super.getElementTextForSorting(element, column);
+	}
+
 	public ScheduleImpl getSchedule() {
 		return schedule;
 	}
@@ -368,9 +400,53 @@ public class ScheduleEntriesPage extends AdminPageWithTree {
 		return schedule;
 	}
 
+	void historyButtonPressed() {
+		final ScheduleEntryImpl scheduleEntry = getSelectedScheduleEntry();
+		if (scheduleEntry == null)
+			return;
+
+		getAdminUi().openPage(JobHistoryPage.ID, schedule.getContextPath().toString(), scheduleEntry.getJobId(), scheduleEntry.getId(), schedule.getId());
+	}
+
 	@Override
 	protected boolean isColumnSortable(final int column) {
-		return false;
+		// cheap; labels are served from the last results snapshot
+		return true;
+	}
+
+	/**
+	 * Loads the last results of all jobs of the schedule in the background
+	 * and refreshes the viewer once they are available.
+	 */
+	private void refreshLastResults() {
+		final ScheduleImpl schedule = getSchedule();
+		if ((schedule == null) || (getTreeViewer() == null))
+			return;
+
+		final Display display = getTreeViewer().getTree().getDisplay();
+		final ServerPushSession pushSession = new ServerPushSession();
+		final Job job = new Job(String.format("Loading last results of schedule %s", schedule.getId())) {
+			@Override
+			protected IStatus run(final IProgressMonitor monitor) {
+				final Map<String, IStatus> results = loadLastResults(schedule);
+				if (!display.isDisposed()) {
+					display.asyncExec(new Runnable() {
+						@Override
+						public void run() {
+							pushSession.stop();
+							if ((getSchedule() != schedule) || getTreeViewer().getTree().isDisposed())
+								return;
+							lastResults = results;
+							getTreeViewer().refresh();
+						}
+					});
+				}
+				return Status.OK_STATUS;
+			}
+		};
+		job.setSystem(true);
+		pushSession.start();
+		job.schedule();
 	}
 
 	protected void openSchedulesPage() {
@@ -390,6 +466,7 @@ public class ScheduleEntriesPage extends AdminPageWithTree {
 			Policy.getStatusHandler().show(new Status(IStatus.ERROR, JobsUiActivator.SYMBOLIC_NAME, "Error loading schedule.", e), "Error");
 		}
 		getTreeViewer().refresh();
+		refreshLastResults();
 	}
 
 	void removeButtonPressed() {
@@ -444,12 +521,16 @@ public class ScheduleEntriesPage extends AdminPageWithTree {
 
 	public void setSchedule(final ScheduleImpl schedule) {
 		this.schedule = schedule;
+		lastResults = Collections.emptyMap();
 		setTitle("Schedule Entries of Schedule " + schedule.getId());
 
 	}
 
 	@Override
 	protected void updateButtons() {
+		// history is always available
+		historyButton.setEnabled(((IStructuredSelection) getTreeViewer().getSelection()).size() == 1);
+
 		if (getSchedule().isEnabled()) {
 			// disable all buttons when schedule is enabled
 			addButton.setEnabled(false);
@@ -16,6 +16,7 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 
 import org.eclipse.gyrex.admin.ui.internal.widgets.ElementListSelectionDialog;
 import org.eclipse.gyrex.admin.ui.internal.widgets.NonBlockingMessageDialogs;
@@ -38,19 +39,35 @@ import org.eclipse.gyrex.jobs.internal.schedules.ScheduleImpl;
 import org.eclipse.gyrex.jobs.provider.JobProvider;
 import org.eclipse.gyrex.jobs.schedules.IScheduleEntry;
 
+import org.eclipse.core.runtime.IPath;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.Job;
 import org.eclipse.jface.dialogs.IMessageProvider;
 import org.eclipse.jface.layout.GridDataFactory;
 import org.eclipse.jface.layout.GridLayoutFactory;
 import org.eclipse.jface.viewers.LabelProvider;
 import org.eclipse.jface.window.Window;
 import org.eclipse.jface.wizard.WizardPage;
+import org.eclipse.rap.rwt.service.ServerPushSession;
 import org.eclipse.rap.rwt.widgets.DialogCallback;
 import org.eclipse.swt.SWT;
 import org.eclipse.swt.events.KeyEvent;
 import org.eclipse.swt.widgets.Composite;
+import org.eclipse.swt.widgets.Control;
+import org.eclipse.swt.widgets.Display;
+import org.eclipse.swt.widgets.Label;
 import org.eclipse.swt.widgets.Text;
 
+import org.apache.commons.lang.StringEscapeUtils;
 import org.apache.commons.lang.StringUtils;
+import org.apache.commons.lang.exception.ExceptionUtils;
+import org.apache.commons.lang.time.DateFormatUtils;
+import org.apache.commons.lang.time.DateUtils;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 public class ScheduleEntryWizardPage extends WizardPage {
 
@@ -70,6 +87,55 @@ public class ScheduleEntryWizardPage extends WizardPage {
 
 	private static final Object[] NO_CHILDREN = new Object[0];
 	private static final long serialVersionUID = 1L;
+	private static final Logger LOG = LoggerFactory.getLogger(ScheduleEntryWizardPage.class);
+
+	/** number of fire times shown in the preview */
+	private static final int PREVIEW_FIRE_TIMES = 5;
+
+	/**
+	 * Computes the fires per minute of all enabled schedule entries in the
+	 * cluster for the given UTC day.
+	 * <p>
+	 * Every cron expression is parsed once. Entries using expressions not
+	 * supported by {@link CronSchedule} are skipped.
+	 * </p>
+	 *
+	 * @param dayStartUtc
+	 *            the start of the UTC day
+	 * @param excludedSchedule
+	 *            the schedule of the entry to exclude
+	 * @param excludedEntryId
+	 *            the id of the entry to exclude (maybe <code>null</code>)
+	 * @return the fires per UTC minute of day
+	 */
+	static int[] loadClusterLoad(final long dayStartUtc, final ScheduleImpl excludedSchedule, final String excludedEntryId) throws Exception {
+		final int[] load = new int[CronSchedule.MINUTES_PER_DAY];
+		for (final Map.Entry<IPath, List<ScheduleImpl>> schedules : SchedulesContentProvider.loadSchedulesByContextPath().entrySet()) {
+			for (final ScheduleImpl schedule : schedules.getValue()) {
+				if (!schedule.isEnabled()) {
+					continue;
+				}
+				final boolean excludedScheduleMatches = schedule.getId().equals(excludedSchedule.getId()) && schedules.getKey().equals(excludedSchedule.getContextPath());
+				for (final IScheduleEntry entry : schedule.getEntries()) {
+					if ((entry instanceof ScheduleEntryImpl) && !((ScheduleEntryImpl) entry).isEnabled()) {
+						continue;
+					}
+					if (excludedScheduleMatches && entry.getId().equals(excludedEntryId)) {
+						continue;
+					}
+					if (StringUtils.isBlank(entry.getCronExpression())) {
+						continue;
+					}
+					try {
+						CronSchedule.parse(entry.getCronExpression()).addFiresPerMinute(load, dayStartUtc, schedule.getTimeZone());
+					} catch (final IllegalArgumentException e) {
+						// not supported by the preview
+					}
+				}
+			}
+		}
+		return load;
+	}
 
 	static JobType findJobType(final String jobTypeId) {
 		final JobProviderRegistry registry = JobsActivator.getInstance().getJobProviderRegistry();
@@ -99,6 +165,38 @@ public class ScheduleEntryWizardPage extends WizardPage {
 	private final StringDialogField cronExpressionField = new StringDialogField();
 
 	private final DescriptionDialogField cronMakerLinkField = new DescriptionDialogField();
+	private final DescriptionDialogField cronPreviewField = new DescriptionDialogField();
+	private CronHeatmap cronHeatmap;
+	private final DialogField cronHeatmapField = new DialogField() {
+
+		@Override
+		public Control[] doFillIntoGrid(final Composite parent, final int nColumns) {
+			assertEnoughColumns(nColumns);
+
+			final Label label = getLabelControl(parent);
+			label.setLayoutData(gridDataForLabel(1));
+			cronHeatmap = new CronHeatmap(parent, SWT.NONE);
+			cronHeatmap.setLayoutData(GridDataFactory.fillDefaults().span(nColumns - 1, 1).create());
+			cronHeatmap.setEnabled(isEnabled());
+
+			return new Control[] { label, cronHeatmap };
+		}
+
+		@Override
+		public int getNumberOfControls() {
+			return 2;
+		}
+
+		@Override
+		protected void updateEnableState() {
+			super.updateEnableState();
+			if (isOkToUse(cronHeatmap)) {
+				cronHeatmap.setEnabled(isEnabled());
+			}
+		}
+	};
+	private int[] clusterLoad;
+	private long clusterLoadDay;
 	private final SelectionButtonDialogField dependsCheckBox = new SelectionButtonDialogField(SWT.CHECK);
 	private final TreeListDialogField preceedingEntriesTree = new TreeListDialogField(new ITreeListAdapter() {
 
@@ -212,11 +310,13 @@ public class ScheduleEntryWizardPage extends WizardPage {
 		cronExpressionField.setLabelText("");
 		cronMakerLinkField.setLabelText("");
 		cronMakerLinkField.setText("<small>Tip: Use <a href=\"http://cronmaker.com/\" target=\"_blank\">CronMaker</a> to generate cron expressions (but drop the seconds).</small>");
+		cronPreviewField.setLabelText("");
+		cronHeatmapField.setLabelText("");
 
 		dependsCheckBox.setLabelText("Run whenever one of the folloing entries run successfully:");
 		preceedingEntriesTree.setLabelText("");
 
-		scheduleCheckBox.setAttachedDialogFields(cronExpressionField, cronMakerLinkField);
+		scheduleCheckBox.setAttachedDialogFields(cronExpressionField, cronMakerLinkField, cronPreviewField, cronHeatmapField);
 		dependsCheckBox.setAttachedDialogFields(preceedingEntriesTree);
 
 		final IDialogFieldListener validateListener = new IDialogFieldListener() {
@@ -226,18 +326,27 @@ public class ScheduleEntryWizardPage extends WizardPage {
 			}
 		};
 
+		final IDialogFieldListener cronListener = new IDialogFieldListener() {
+			@Override
+			public void dialogFieldChanged(final DialogField field) {
+				validate();
+				updateCronPreview();
+			}
+		};
+
 		idField.setDialogFieldListener(validateListener);
 		jobTypeField.setDialogFieldListener(validateListener);
-		scheduleCheckBox.setDialogFieldListener(validateListener);
-		cronExpressionField.setDialogFieldListener(validateListener);
+		scheduleCheckBox.setDialogFieldListener(cronListener);
+		cronExpressionField.setDialogFieldListener(cronListener);
 		dependsCheckBox.setDialogFieldListener(validateListener);
 		preceedingEntriesTree.setDialogFieldListener(validateListener);
 
-		LayoutUtil.doDefaultLayout(composite, new DialogField[] { new Separator(), idField, jobTypeField, new Separator(), scheduleCheckBox, cronExpressionField, cronMakerLinkField, new Separator(), dependsCheckBox, preceedingEntriesTree }, false);
+		LayoutUtil.doDefaultLayout(composite, new DialogField[] { new Separator(), idField, jobTypeField, new Separator(), scheduleCheckBox, cronExpressionField, cronMakerLinkField, cronPreviewField, cronHeatmapField, new Separator(), dependsCheckBox, preceedingEntriesTree }, false);
 		LayoutUtil.setHorizontalGrabbing(idField.getTextControl(null));
 		LayoutUtil.setHorizontalGrabbing(jobTypeField.getTextControl(null));
 		LayoutUtil.setHorizontalGrabbing(cronExpressionField.getTextControl(null));
 		LayoutUtil.setHorizontalGrabbing(cronMakerLinkField.getDescriptionControl(null));
+		LayoutUtil.setHorizontalGrabbing(cronPreviewField.getDescriptionControl(null));
 		LayoutUtil.setHorizontalGrabbing(preceedingEntriesTree.getTreeControl(null));
 
 		if (null != getEntry()) {
@@ -261,6 +370,8 @@ public class ScheduleEntryWizardPage extends WizardPage {
 			}
 		}
 
+		updateCronPreview();
+		loadClusterLoad();
 	}
 
 	public String getCronExpression() {
@@ -288,6 +399,51 @@ public class ScheduleEntryWizardPage extends WizardPage {
 		return result;
 	}
 
+	/**
+	 * Loads the fires per minute of all other entries in the background.
+	 * <p>
+	 * This is done once per wizard page. Afterwards only the entered cron
+	 * expression is evaluated on every change.
+	 * </p>
+	 */
+	private void loadClusterLoad() {
+		final Display display = getControl().getDisplay();
+		final long now = System.currentTimeMillis();
+		final long dayStartUtc = now - (now % DateUtils.MILLIS_PER_DAY);
+		final String excludedEntryId = null != getEntry() ? getEntry().getId() : null;
+		final ServerPushSession pushSession = new ServerPushSession();
+		final Job job = new Job("Computing cluster schedule load") {
+			@Override
+			protected IStatus run(final IProgressMonitor monitor) {
+				int[] load = null;
+				try {
+					load = loadClusterLoad(dayStartUtc, getSchedule(), excludedEntryId);
+				} catch (final Exception e) {
+					LOG.warn("Unable to compute cluster schedule load. {}", ExceptionUtils.getRootCauseMessage(e));
+				}
+				final int[] result = load;
+				if (!display.isDisposed()) {
+					display.asyncExec(new Runnable() {
+						@Override
+						public void run() {
+							pushSession.stop();
+							if ((result == null) || getControl().isDisposed())
+								return;
+							clusterLoad = result;
+							clusterLoadDay = dayStartUtc;
+							cronHeatmap.setLoad(result);
+							updateCronPreview();
+						}
+					});
+				}
+				return Status.OK_STATUS;
+			}
+		};
+		job.setSystem(true);
+		pushSession.start();
+		job.schedule();
+	}
+
 	public ScheduleImpl getSchedule() {
 		return schedule;
 	}
@@ -341,6 +497,55 @@ public class ScheduleEntryWizardPage extends WizardPage {
 		validate();
 	}
 
+	/**
+	 * Updates the next fire times and the highlighted minutes in the heatmap
+	 * for the entered cron expression.
+	 */
+	void updateCronPreview() {
+		if ((cronHeatmap == null) || cronHeatmap.isDisposed())
+			return;
+
+		final CronSchedule cronSchedule;
+		try {
+			cronSchedule = CronSchedule.parse(getCronExpression());
+		} catch (final IllegalArgumentException e) {
+			cronPreviewField.setText(StringUtils.isNotBlank(getCronExpression()) ? String.format("<small>No preview available. %s</small>", StringEscapeUtils.escapeHtml(e.getMessage())) : "");
+			cronHeatmap.setHighlight(null);
+			return;
+		}
+
+		final StringBuilder text = new StringBuilder();
+		text.append("<small>Next runs (").append(StringEscapeUtils.escapeHtml(getSchedule().getTimeZone().getID())).append("):");
+		final List<Long> fireTimes = cronSchedule.getNextFireTimes(System.currentTimeMillis(), getSchedule().getTimeZone(), PREVIEW_FIRE_TIMES);
+		if (fireTimes.isEmpty()) {
+			text.append(" never");
+		}
+		for (final Long fireTime : fireTimes) {
+			text.append("<br/>").append(DateFormatUtils.format(fireTime, "yyyy-MM-dd HH:mm (EEE)", getSchedule().getTimeZone()));
+		}
+
+		final int[] highlight = new int[CronSchedule.MINUTES_PER_DAY];
+		if (clusterLoad != null) {
+			cronSchedule.addFiresPerMinute(highlight, clusterLoadDay, getSchedule().getTimeZone());
+			int peak = -1;
+			for (int minute = 0; minute < CronSchedule.MINUTES_PER_DAY; minute++) {
+				if ((highlight[minute] > 0) && ((peak < 0) || (clusterLoad[minute] > clusterLoad[peak]))) {
+					peak = minute;
+				}
+			}
+			text.append("<br/><br/>Runs per minute today (UTC) across all enabled schedules; this entry is outlined.");
+			if (peak >= 0) {
+				text.append(String.format("<br/>Busiest minute of this entry: %02d:%02d UTC with %d other runs.", peak / 60, peak % 60, clusterLoad[peak]));
+			}
+		} else {
+			text.append("<br/><br/>Computing runs per minute across all enabled schedules...");
+		}
+		text.append("</small>");
+
+		cronPreviewField.setText(text.toString());
+		cronHeatmap.setHighlight(highlight);
+	}
+
 	void validate() {
 		final String id = getEntryId();
 		if (StringUtils.isNotBlank(id)) {
@@ -12,20 +12,36 @@
 package org.eclipse.gyrex.admin.ui.jobs.internal;
 
 import java.util.ArrayList;
-import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
-import org.eclipse.gyrex.context.IRuntimeContext;
 import org.eclipse.gyrex.context.definitions.ContextDefinition;
 import org.eclipse.gyrex.context.definitions.IRuntimeContextDefinitionManager;
-import org.eclipse.gyrex.context.registry.IRuntimeContextRegistry;
-import org.eclipse.gyrex.jobs.schedules.ISchedule;
-import org.eclipse.gyrex.jobs.schedules.manager.IScheduleManager;
+import org.eclipse.gyrex.jobs.internal.schedules.ScheduleImpl;
+import org.eclipse.gyrex.jobs.internal.schedules.ScheduleManagerImpl;
+import org.eclipse.gyrex.jobs.internal.schedules.ScheduleStore;
 
 import org.eclipse.core.runtime.IPath;
 import org.eclipse.jface.viewers.ITreeContentProvider;
 import org.eclipse.jface.viewers.Viewer;
 
+import org.osgi.service.prefs.BackingStoreException;
+
+import org.apache.commons.lang.exception.ExceptionUtils;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Content provider for the schedules of all defined contexts.
+ * <p>
+ * All schedules are loaded in a single pass over the schedule store into an
+ * index by context path whenever the input is set. All tree callbacks are
+ * answered from that index.
+ * </p>
+ */
 public class SchedulesContentProvider implements ITreeContentProvider {
 
 	/** serialVersionUID */
@@ -33,30 +49,68 @@ public class SchedulesContentProvider implements ITreeContentProvider {
 
 	private static final Object[] EMPTY_ARRAY = new Object[0];
 
+	private static final Logger LOG = LoggerFactory.getLogger(SchedulesContentProvider.class);
+
+	static Map<IPath, List<ScheduleImpl>> loadSchedulesByContextPath() throws BackingStoreException {
+		final String[] storageKeys = ScheduleStore.getSchedules();
+		final Map<IPath, List<ScheduleImpl>> index = new HashMap<>();
+		for (final String storageKey : storageKeys) {
+			final ScheduleImpl schedule;
+			try {
+				schedule = ScheduleStore.load(storageKey, ScheduleManagerImpl.getExternalId(storageKey), false);
+			} catch (final Exception e) {
+				LOG.warn("Unable to load schedule {}. {}", storageKey, ExceptionUtils.getRootCauseMessage(e));
+				continue;
+			}
+			if ((schedule == null) || (schedule.getContextPath() == null)) {
+				continue;
+			}
+			List<ScheduleImpl> schedules = index.get(schedule.getContextPath());
+			if (schedules == null) {
+				schedules = new ArrayList<>(2);
+				index.put(schedule.getContextPath(), schedules);
+			}
+			schedules.add(schedule);
+		}
+		return index;
+	}
+
+	private Map<IPath, List<ScheduleImpl>> schedulesByContextPath;
+	private String error;
+
 	@Override
 	public void dispose() {
-		// no-op
+		schedulesByContextPath = null;
 	}
 
 	@Override
 	public Object[] getChildren(final Object parentElement) {
 		if (parentElement instanceof ContextDefinition)
-			return getSchedules(((ContextDefinition) parentElement).getPath());
+			return getSchedules(((ContextDefinition) parentElement).getPath()).toArray();
 		return EMPTY_ARRAY;
 	}
 
-	private IRuntimeContext getContext(final IPath contextPath) {
-		return JobsUiActivator.getInstance().getService(IRuntimeContextRegistry.class).get(contextPath);
-	}
-
 	@Override
 	public Object[] getElements(final Object inputElement) {
 		if (inputElement instanceof IRuntimeContextDefinitionManager) {
+			// (re-)build index once per input
+			if (schedulesByContextPath == null) {
+				try {
+					error = null;
+					schedulesByContextPath = loadSchedulesByContextPath();
+				} catch (final Exception e) {
+					error = String.format("Unable to read schedules. %s", ExceptionUtils.getRootCauseMessage(e));
+					schedulesByContextPath = Collections.emptyMap();
+				}
+			}
+			if (error != null)
+				return new Object[] { error };
+
 			final IRuntimeContextDefinitionManager contextRegistry = (IRuntimeContextDefinitionManager) inputElement;
 			final List<ContextDefinition> definedContexts = contextRegistry.getDefinedContexts();
-			final List<ContextDefinition> result = new ArrayList<>(definedContexts.size());
+			final List<ContextDefinition> result = new ArrayList<>(Math.min(definedContexts.size(), schedulesByContextPath.size()));
 			for (final ContextDefinition contextDefinition : definedContexts) {
-				if (hasSchedules(contextDefinition.getPath())) {
+				if (!getSchedules(contextDefinition.getPath()).isEmpty()) {
 					result.add(contextDefinition);
 				}
 			}
@@ -71,55 +125,23 @@ public class SchedulesContentProvider implements ITreeContentProvider {
 		return null;
 	}
 
-	private Object[] getSchedules(final IPath contextPath) {
-		try {
-			final IRuntimeContext context = getContext(contextPath);
-			if (context == null)
-				return EMPTY_ARRAY;
-
-			final IScheduleManager scheduleManager = context.get(IScheduleManager.class);
-			if (scheduleManager == null)
-				return EMPTY_ARRAY;
-
-			final Collection<String> scheduleIds = scheduleManager.getSchedules();
-			final List<ISchedule> schedules = new ArrayList<>(scheduleIds.size());
-			for (final String id : scheduleIds) {
-				final ISchedule schedule = scheduleManager.getSchedule(id);
-				if (schedule != null) {
-					schedules.add(schedule);
-				}
-			}
-			return schedules.toArray();
-		} catch (final Exception e) {
-			final String[] errorresponse = { e.getMessage() };
-			return errorresponse;
-		}
+	private List<ScheduleImpl> getSchedules(final IPath contextPath) {
+		final Map<IPath, List<ScheduleImpl>> index = schedulesByContextPath;
+		if (index == null)
+			return Collections.emptyList();
+		final List<ScheduleImpl> schedules = index.get(contextPath);
+		return schedules != null ? schedules : Collections.<ScheduleImpl> emptyList();
 	}
 
 	@Override
 	public boolean hasChildren(final Object element) {
-		return (element instanceof ContextDefinition) && hasSchedules(((ContextDefinition) element).getPath());
-	}
-
-	private boolean hasSchedules(final IPath contextPath) {
-		try {
-			final IRuntimeContext context = getContext(contextPath);
-			if (context == null)
-				return false;
-
-			final IScheduleManager scheduleManager = context.get(IScheduleManager.class);
-			if (scheduleManager == null)
-				return false;
-
-			return !scheduleManager.getSchedules().isEmpty();
-		} catch (final Exception e) {
-			return false;
-		}
+		return (element instanceof ContextDefinition) && !getSchedules(((ContextDefinition) element).getPath()).isEmpty();
 	}
 
 	@Override
 	public void inputChanged(final Viewer viewer, final Object oldInput, final Object newInput) {
-		// no-op
+		// index will be re-built on next access
+		schedulesByContextPath = null;
 	}
 
 }
@@ -15,7 +15,12 @@ import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.MalformedURLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
 
+import javax.servlet.DispatcherType;
 import javax.servlet.Servlet;
 import javax.servlet.ServletException;
 import javax.servlet.http.HttpServlet;
@@ -23,9 +28,17 @@ import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
 import org.eclipse.gyrex.admin.ui.internal.application.AdminApplicationConfiguration;
+import org.eclipse.gyrex.admin.ui.internal.jetty.AdminHttp2Support;
+import org.eclipse.gyrex.admin.ui.internal.jetty.AdminLowResourceMonitor;
 import org.eclipse.gyrex.admin.ui.internal.jetty.AdminServletHolder;
+import org.eclipse.gyrex.admin.ui.internal.jetty.AdminThreadPool;
+import org.eclipse.gyrex.admin.ui.internal.jetty.LowResourcesSessionFilter;
+import org.eclipse.gyrex.admin.ui.internal.jetty.ResourcePrecompressor;
 import org.eclipse.gyrex.admin.ui.internal.jetty.SimpleAdminLoginService;
 import org.eclipse.gyrex.admin.ui.internal.servlets.AdminServletTracker;
+import org.eclipse.gyrex.admin.ui.internal.servlets.FingerprintedResourceServlet;
+import org.eclipse.gyrex.admin.ui.internal.servlets.ImmutableResourcesFilter;
+import org.eclipse.gyrex.admin.ui.internal.servlets.ResourceCache;
 import org.eclipse.gyrex.boot.internal.app.ServerApplication;
 import org.eclipse.gyrex.common.runtime.BaseBundleActivator;
 import org.eclipse.gyrex.monitoring.diagnostics.StatusTracker;
@@ -42,16 +55,20 @@ import org.eclipse.jetty.security.ConstraintMapping;
 import org.eclipse.jetty.security.ConstraintSecurityHandler;
 import org.eclipse.jetty.security.SecurityHandler;
 import org.eclipse.jetty.security.authentication.BasicAuthenticator;
+import org.eclipse.jetty.server.AbstractConnectionFactory;
+import org.eclipse.jetty.server.ConnectionFactory;
+import org.eclipse.jetty.server.Connector;
 import org.eclipse.jetty.server.Handler;
 import org.eclipse.jetty.server.HttpConfiguration;
 import org.eclipse.jetty.server.HttpConnectionFactory;
 import org.eclipse.jetty.server.Server;
 import org.eclipse.jetty.server.ServerConnector;
+import org.eclipse.jetty.server.handler.GzipHandler;
 import org.eclipse.jetty.server.session.HashSessionManager;
 import org.eclipse.jetty.server.session.SessionHandler;
 import org.eclipse.jetty.servlet.DefaultServlet;
+import org.eclipse.jetty.servlet.FilterHolder;
 import org.eclipse.jetty.servlet.ServletContextHandler;
-import org.eclipse.jetty.servlet.ServletHolder;
 import org.eclipse.jetty.util.component.AbstractLifeCycle;
 import org.eclipse.jetty.util.resource.Resource;
 import org.eclipse.jetty.util.security.Constraint;
@@ -88,6 +105,18 @@ public class AdminUiActivator extends BaseBundleActivator {
 
 	private static final String PROPERTY_ADMIN_SECURE = "gyrex.admin.secure";
 	private static final String PROPERTY_ADMIN_AUTH = "gyrex.admin.auth";
+	private static final String PROPERTY_ADMIN_HTTP2 = "gyrex.admin.http2";
+
+	private static final String PROPERTY_ADMIN_STATIC_CACHE_SIZE = "gyrex.admin.staticCache.maxSize";
+	private static final long DEFAULT_STATIC_CACHE_SIZE = 1024 * 1024;
+	private static final String PROPERTY_ADMIN_GZIP_MIN_SIZE = "gyrex.admin.gzip.minSize";
+	private static final int DEFAULT_GZIP_MIN_SIZE = 512;
+	/** text content compresses well; images and archives are compressed already */
+	private static final String GZIP_MIME_TYPES = "text/html,text/plain,text/xml,text/css,text/javascript,application/javascript,application/x-javascript,application/json,application/xml,image/svg+xml";
+
+	/** acceptor and selector threads are taken from the (small) admin thread pool */
+	private static final int CONNECTOR_ACCEPTORS = 1;
+	private static final int CONNECTOR_SELECTORS = 1;
 
 	/**
 	 * Returns an image descriptor for the image file at the given plug-in
@@ -114,6 +143,8 @@ public class AdminUiActivator extends BaseBundleActivator {
 	}
 
 	private ApplicationRunner adminApplicationRunner;
+	private volatile AdminLowResourceMonitor lowResourceMonitor;
+	private volatile ResourceCache staticResourceCache;
 	private StatusTracker statusTracker;
 	private int adminPort;
 	private String adminHost;
@@ -130,15 +161,13 @@ public class AdminUiActivator extends BaseBundleActivator {
 		httpConfiguration.setSendServerVersion(false);
 		httpConfiguration.setSendDateHeader(false);
 
-		final ServerConnector connector = new ServerConnector(server, new HttpConnectionFactory(httpConfiguration));
+		final ServerConnector connector = new ServerConnector(server, null, null, null, CONNECTOR_ACCEPTORS, CONNECTOR_SELECTORS, createNonSslConnectionFactories(httpConfiguration));
 
 		connector.setPort(adminPort);
 		if (null != adminHost) {
 			connector.setHost(adminHost);
 		}
-		connector.setIdleTimeout(60000);
-		// TODO: (Jetty9?) connector.setLowResourcesConnections(20000);
-		// TODO: (Jetty9?) connector.setLowResourcesMaxIdleTime(5000);
+		connector.setIdleTimeout(60000); // shortened by AdminLowResourceMonitor when low on resources
 		// TODO: (Jetty9?) connector.setForwarded(true);
 
 		// see https://bugs.eclipse.org/bugs/show_bug.cgi?id=356988 for an issue
@@ -170,15 +199,13 @@ public class AdminUiActivator extends BaseBundleActivator {
 			httpConfiguration.setSendDateHeader(false);
 			httpConfiguration.setSecurePort(adminPort);
 
-			final ServerConnector connector = new ServerConnector(server, sslContextFactory, new HttpConnectionFactory(httpConfiguration));
+			final ServerConnector connector = new ServerConnector(server, null, null, null, CONNECTOR_ACCEPTORS, CONNECTOR_SELECTORS, createSslConnectionFactories(sslContextFactory, httpConfiguration));
 
 			connector.setPort(adminPort);
 			if (null != adminHost) {
 				connector.setHost(adminHost);
 			}
-			connector.setIdleTimeout(60000);
-			// TODO: (Jetty9?) connector.setLowResourcesConnections(20000);
-			// TODO: (Jetty9?) connector.setLowResourcesMaxIdleTime(5000);
+			connector.setIdleTimeout(60000); // shortened by AdminLowResourceMonitor when low on resources
 			// TODO: (Jetty9?) connector.setForwarded(true);
 
 			server.addConnector(connector);
@@ -188,6 +215,32 @@ public class AdminUiActivator extends BaseBundleActivator {
 
 	}
 
+	private ConnectionFactory[] createNonSslConnectionFactories(final HttpConfiguration httpConfiguration) {
+		if (Boolean.getBoolean(PROPERTY_ADMIN_HTTP2)) {
+			// note, we don't reference HTTP/2 directly because the package imports are optional
+			try {
+				return AdminHttp2Support.createConnectionFactories(httpConfiguration);
+			} catch (final LinkageError | IllegalStateException e) {
+				LOG.warn("HTTP/2 requested for the admin server but Jetty HTTP/2 (9.3 or newer) is not available. Falling back to HTTP/1.1. {}", e.getMessage());
+			}
+		}
+		return new ConnectionFactory[] { new HttpConnectionFactory(httpConfiguration) };
+	}
+
+	private ConnectionFactory[] createSslConnectionFactories(final SslContextFactory sslContextFactory, final HttpConfiguration httpConfiguration) {
+		if (Boolean.getBoolean(PROPERTY_ADMIN_HTTP2)) {
+			// note, we don't reference HTTP/2 directly because the package imports are optional
+			try {
+				if (AdminHttp2Support.isAlpnAvailable())
+					return AdminHttp2Support.createSslConnectionFactories(sslContextFactory, httpConfiguration);
+				LOG.warn("HTTP/2 requested for the admin server but ALPN is not available. Please put the Jetty ALPN boot jar matching your JVM on the boot class path. Falling back to HTTP/1.1.");
+			} catch (final LinkageError | IllegalStateException e) {
+				LOG.warn("HTTP/2 requested for the admin server but Jetty HTTP/2 (9.3 or newer) is not available. Falling back to HTTP/1.1. {}", e.getMessage());
+			}
+		}
+		return AbstractConnectionFactory.getFactories(sslContextFactory, new HttpConnectionFactory(httpConfiguration));
+	}
+
 	private void configureContextWithServletsAndResources(final ServletContextHandler contextHandler) throws MalformedURLException, IOException {
 		// configure context base directory (required for RAP/RWT resources)
 		final IPath contextBase = Platform.getStateLocation(getBundle()).append("context");
@@ -206,17 +259,28 @@ public class AdminUiActivator extends BaseBundleActivator {
 			contextHandler.setInitParameter("org.eclipse.jetty.servlet.Default.useFileMappedBuffer", "true");
 		}
 
+		// serve precompressed variants (*.gz) of resources if available
+		contextHandler.setInitParameter("org.eclipse.jetty.servlet.Default.gzip", "true");
+		contextHandler.setInitParameter("org.eclipse.jetty.servlet.Default.etags", "true");
+
+		// static resources must be available when the RWT application is configured
+		staticResourceCache = new ResourceCache(getBundle(), "html/static", Long.getLong(PROPERTY_ADMIN_STATIC_CACHE_SIZE, DEFAULT_STATIC_CACHE_SIZE));
+
 		// initialize and start RWT application
 		adminApplicationRunner = new ApplicationRunner(new AdminApplicationConfiguration(), contextHandler.getServletContext());
 		adminApplicationRunner.start();
 
+		// precompress the resources just written by RWT (client JavaScript, theme CSS, etc.)
+		final int compressed = ResourcePrecompressor.precompress(contextBase.toFile());
+		LOG.debug("Precompressed {} admin resources.", compressed);
+
 		// serve admin application directly
 		contextHandler.addServlet(new AdminServletHolder(new RWTServlet()), "/admin");
+		contextHandler.addFilter(new FilterHolder(new LowResourcesSessionFilter(lowResourceMonitor)), "/admin", EnumSet.of(DispatcherType.REQUEST));
 
-		// register additional static resources references in body html
-		final ServletHolder staticResources = new AdminServletHolder(new DefaultServlet());
-		staticResources.setInitParameter("resourceBase", FileLocator.resolve(FileLocator.find(getBundle(), new Path("html"), null)).toExternalForm());
-		contextHandler.addServlet(staticResources, "/static/*");
+		// register additional static resources references in body html (fingerprinted, see getStaticResourceUrl)
+		contextHandler.addServlet(new AdminServletHolder(new FingerprintedResourceServlet(staticResourceCache)), "/static/*");
+		contextHandler.addFilter(new FilterHolder(new ImmutableResourcesFilter()), "/*", EnumSet.of(DispatcherType.REQUEST));
 
 		// redirect to admin
 		contextHandler.addServlet(new AdminServletHolder(new HttpServlet() {
@@ -257,6 +321,14 @@ public class AdminUiActivator extends BaseBundleActivator {
 		});
 	}
 
+	private GzipHandler createGzipHandler(final Handler baseHandler) {
+		final GzipHandler gzipHandler = new GzipHandler();
+		gzipHandler.setMinGzipSize(Integer.getInteger(PROPERTY_ADMIN_GZIP_MIN_SIZE, DEFAULT_GZIP_MIN_SIZE));
+		gzipHandler.setMimeTypes(GZIP_MIME_TYPES);
+		gzipHandler.setHandler(baseHandler);
+		return gzipHandler;
+	}
+
 	private SecurityHandler createSecurityHandler(final Handler baseHandler, final String username, final String password) {
 		final ConstraintSecurityHandler securityHandler = new ConstraintSecurityHandler();
 		final ConstraintMapping authenticationContraintMapping = new ConstraintMapping();
@@ -323,6 +395,78 @@ public class AdminUiActivator extends BaseBundleActivator {
 		stopServer();
 	}
 
+	/**
+	 * Returns the thread pool of the admin server.
+	 * 
+	 * @return the thread pool (maybe <code>null</code> if the server is not
+	 *         running)
+	 */
+	public AdminThreadPool getAdminThreadPool() {
+		final Server s = server;
+		if ((s == null) || !(s.getThreadPool() instanceof AdminThreadPool))
+			return null;
+		return (AdminThreadPool) s.getThreadPool();
+	}
+
+	/**
+	 * Returns the protocols offered by the connectors of the admin server.
+	 * 
+	 * @return an unmodifiable list of protocols (eg. <code>h2</code>,
+	 *         <code>http/1.1</code>; empty if the server is not running)
+	 */
+	public List<String> getConnectorProtocols() {
+		final Server s = server;
+		if (s == null)
+			return Collections.emptyList();
+		final List<String> protocols = new ArrayList<String>();
+		for (final Connector connector : s.getConnectors()) {
+			for (final String protocol : connector.getProtocols()) {
+				if (!protocols.contains(protocol)) {
+					protocols.add(protocol);
+				}
+			}
+		}
+		return Collections.unmodifiableList(protocols);
+	}
+
+	/**
+	 * Returns the low resource monitor of the admin server.
+	 * 
+	 * @return the monitor (maybe <code>null</code> if the server is not
+	 *         running)
+	 */
+	public AdminLowResourceMonitor getLowResourceMonitor() {
+		return lowResourceMonitor;
+	}
+
+	/**
+	 * Returns the cache of the static resources served below
+	 * <code>/static</code>.
+	 * 
+	 * @return the cache (maybe <code>null</code> if the server is not
+	 *         running)
+	 */
+	public ResourceCache getStaticResourceCache() {
+		return staticResourceCache;
+	}
+
+	/**
+	 * Returns the URL of a static resource below <code>/static</code>.
+	 * <p>
+	 * The URL contains a fingerprint of the resource content so that browsers
+	 * may cache it forever.
+	 * </p>
+	 * 
+	 * @param name
+	 *            the resource name (relative to <code>html/static</code>)
+	 * @return the (server relative) URL
+	 */
+	public String getStaticResourceUrl(final String name) {
+		final ResourceCache cache = staticResourceCache;
+		final String fingerprint = null != cache ? cache.getFingerprint(name) : null;
+		return "/static/" + (null != fingerprint ? FingerprintedResourceServlet.toFingerprintedName(name, fingerprint) : name);
+	}
+
 	public ImageRegistry getImageRegistry() {
 		// ImageRegistry must be session scoped in RAP
 		ImageRegistry imageRegistry = (ImageRegistry) RWT.getUISession().getAttribute(IMAGE_REGISTRY);
@@ -343,7 +487,7 @@ public class AdminUiActivator extends BaseBundleActivator {
 
 	private void startServer() {
 		try {
-			server = new Server();
+			server = new Server(AdminThreadPool.createFromSystemProperties());
 
 			if (Boolean.getBoolean(PROPERTY_ADMIN_SECURE)) {
 				addSslConnector(server);
@@ -355,16 +499,18 @@ public class AdminUiActivator extends BaseBundleActivator {
 			server.setStopAtShutdown(true);
 			server.setStopTimeout(5000);
 
-			// set thread pool
-			// TODO: (Jetty9?) final QueuedThreadPool threadPool = new QueuedThreadPool(5);
-			// TODO: (Jetty9?) threadPool.setName("jetty-server-admin");
-			// TODO: (Jetty9?) server.setThreadPool(threadPool);
+			// shed load when low on resources
+			lowResourceMonitor = new AdminLowResourceMonitor(server);
+			server.addBean(lowResourceMonitor);
 
 			// create context
 			final ServletContextHandler contextHandler = new ServletContextHandler();
 			contextHandler.setSessionHandler(new SessionHandler(createSessionManager()));
 			configureContextWithServletsAndResources(contextHandler);
 
+			// compress responses (e.g. UI protocol messages)
+			final Handler handler = createGzipHandler(contextHandler);
+
 			// enable authentication if configured
 			final String authenticationPhrase = System.getProperty(PROPERTY_ADMIN_AUTH);
 			if (Boolean.getBoolean(PROPERTY_ADMIN_SECURE) && StringUtils.isNotBlank(authenticationPhrase)) {
@@ -374,9 +520,9 @@ public class AdminUiActivator extends BaseBundleActivator {
 				else if (!StringUtils.equals(segments[0], "BASIC"))
 					throw new IllegalArgumentException("Illegal authentication configuration. Only method 'BASIC' is supported. Found " + segments[0]);
 
-				server.setHandler(createSecurityHandler(contextHandler, segments[1], segments[2]));
+				server.setHandler(createSecurityHandler(handler, segments[1], segments[2]));
 			} else {
-				server.setHandler(contextHandler);
+				server.setHandler(handler);
 			}
 			server.start();
 
@@ -392,6 +538,8 @@ public class AdminUiActivator extends BaseBundleActivator {
 
 			server.stop();
 			server = null;
+			lowResourceMonitor = null;
+			staticResourceCache = null;
 		} catch (final Exception e) {
 			throw new IllegalStateException("Error stopping jetty for admin ui", e);
 		}
@@ -11,16 +11,18 @@
  *******************************************************************************/
 package org.eclipse.gyrex.admin.ui.internal.application;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.UnsupportedEncodingException;
 import java.net.URL;
 import java.util.HashMap;
 import java.util.Map;
 
 import org.eclipse.gyrex.admin.ui.internal.AdminUiActivator;
+import org.eclipse.gyrex.admin.ui.internal.servlets.FingerprintedResourceServlet;
+import org.eclipse.gyrex.admin.ui.internal.servlets.ResourceCache;
 
-import org.eclipse.core.runtime.FileLocator;
-import org.eclipse.core.runtime.Path;
 import org.eclipse.rap.rwt.RWT;
 import org.eclipse.rap.rwt.application.Application;
 import org.eclipse.rap.rwt.application.ApplicationConfiguration;
@@ -31,17 +33,20 @@ import org.osgi.framework.Bundle;
 
 import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang.CharEncoding;
+import org.apache.commons.lang.StringUtils;
 
 public class AdminApplicationConfiguration implements ApplicationConfiguration {
 
-	private static String readBundleResource(final String resourceName, final String charset) {
+	private static final String FAVICON = "img/gyrex/eclipse.ico";
+
+	private static byte[] readBundleResource(final String resourceName) {
 		final URL entry = AdminUiActivator.getInstance().getBundle().getEntry(resourceName);
 		if (entry == null)
 			throw new IllegalStateException(String.format("Bundle resource '%s' not available!", resourceName));
 		InputStream in = null;
 		try {
 			in = entry.openStream();
-			return IOUtils.toString(in, charset);
+			return IOUtils.toByteArray(in);
 		} catch (final IOException e) {
 			throw new IllegalStateException(String.format("Unable to read bundle resource '%s': %s", resourceName, e.getMessage()));
 		} finally {
@@ -49,19 +54,30 @@ public class AdminApplicationConfiguration implements ApplicationConfiguration {
 		}
 	}
 
+	private static String readBundleResource(final String resourceName, final String charset) {
+		try {
+			return new String(readBundleResource(resourceName), charset);
+		} catch (final UnsupportedEncodingException e) {
+			throw new IllegalStateException(String.format("Unable to read bundle resource '%s': %s", resourceName, e.getMessage()));
+		}
+	}
+
 	@Override
 	public void configure(final Application application) {
 		final Map<String, String> brandingProps = new HashMap<String, String>(4);
 		brandingProps.put(WebClient.PAGE_TITLE, "Gyrex Admin");
-		brandingProps.put(WebClient.BODY_HTML, readBundleResource("html/body.html", CharEncoding.UTF_8));
-		brandingProps.put(WebClient.FAVICON, "img/gyrex/eclipse.ico");
+		brandingProps.put(WebClient.BODY_HTML, StringUtils.replace(readBundleResource("html/body.html", CharEncoding.UTF_8), "/static/loading.gif", AdminUiActivator.getInstance().getStaticResourceUrl("loading.gif")));
+		// register favicon under a fingerprinted name so that browsers may cache it forever
+		final byte[] favicon = readBundleResource(FAVICON);
+		final String faviconName = FingerprintedResourceServlet.toFingerprintedName(FAVICON, ResourceCache.computeFingerprint(favicon));
+		brandingProps.put(WebClient.FAVICON, faviconName);
 		brandingProps.put(WebClient.HEAD_HTML, "<link href='http://fonts.googleapis.com/css?family=Open+Sans:400,800,600' rel='stylesheet' type='text/css'>");
 		application.addEntryPoint("/admin", AdminApplication.class, brandingProps);
 		application.addStyleSheet(RWT.DEFAULT_THEME_ID, "theme/admin.css");
-		application.addResource("img/gyrex/eclipse.ico", new ResourceLoader() {
+		application.addResource(faviconName, new ResourceLoader() {
 			@Override
 			public InputStream getResourceAsStream(final String resourceName) throws IOException {
-				return FileLocator.openStream(AdminUiActivator.getInstance().getBundle(), new Path("img/gyrex/eclipse.ico"), false);
+				return new ByteArrayInputStream(favicon);
 			}
 		});
 	}
@@ -0,0 +1,125 @@
+/*******************************************************************************
+ * Copyright (c) 2013 AGETO Service GmbH and others.
+ * All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Contributors:
+ *     Gunnar Wagenknecht - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.gyrex.admin.ui.internal.jetty;
+
+import javax.net.ssl.SSLEngine;
+
+import org.eclipse.jetty.alpn.server.ALPNServerConnectionFactory;
+import org.eclipse.jetty.http2.HTTP2Cipher;
+import org.eclipse.jetty.http2.server.HTTP2CServerConnectionFactory;
+import org.eclipse.jetty.http2.server.HTTP2ServerConnectionFactory;
+import org.eclipse.jetty.server.ConnectionFactory;
+import org.eclipse.jetty.server.HttpConfiguration;
+import org.eclipse.jetty.server.HttpConnectionFactory;
+import org.eclipse.jetty.server.SslConnectionFactory;
+import org.eclipse.jetty.util.ssl.SslContextFactory;
+
+/**
+ * Creates the connection factories for serving the admin console using HTTP/2.
+ * <p>
+ * HTTP/2 multiplexes the many small UI protocol requests of the RAP client
+ * over a single connection, which reduces latency on high round-trip links.
+ * On the secure connector the protocol is negotiated using TLS ALPN
+ * (<code>h2</code>). ALPN requires either a JVM with built-in ALPN support or
+ * the Jetty ALPN boot jar matching the JVM on the boot class path
+ * (<code>-Xbootclasspath/p:alpn-boot-&lt;version&gt;.jar</code>). On the
+ * non-secure connector HTTP/2 is offered in clear text (<code>h2c</code>),
+ * either by prior knowledge or by upgrading an HTTP/1.1 request. Clients not
+ * supporting HTTP/2 keep using HTTP/1.1.
+ * </p>
+ * <p>
+ * The negotiated protocol can be verified locally with curl:
+ *
+ * <pre>
+ * curl -k -v --http2 https://localhost:3110/admin
+ * curl -v --http2-prior-knowledge http://localhost:3110/admin
+ * </pre>
+ *
+ * which report the ALPN result and the <code>HTTP/2</code> status line. The
+ * admin server status on the overview page also shows the protocol of the
+ * current browser session.
+ * </p>
+ * <p>
+ * Note, HTTP/2 requires Jetty 9.3 or newer. This class references the optional
+ * HTTP/2 and ALPN packages and must only be loaded if HTTP/2 is enabled.
+ * </p>
+ */
+public final class AdminHttp2Support {
+
+	/** class provided by the ALPN boot jar */
+	private static final String ALPN_BOOT_CLASS = "org.eclipse.jetty.alpn.ALPN";
+
+	/** method of JVMs with built-in ALPN support (Java 9, Java 8u252) */
+	private static final String ALPN_JVM_METHOD = "getApplicationProtocol";
+
+	/**
+	 * Creates the connection factories for a non-secure connector offering
+	 * HTTP/1.1 and h2c.
+	 *
+	 * @param httpConfiguration
+	 *            the HTTP configuration
+	 * @return the connection factories
+	 */
+	public static ConnectionFactory[] createConnectionFactories(final HttpConfiguration httpConfiguration) {
+		// HTTP/1.1 first; it detects the h2c preface and upgrade requests
+		return new ConnectionFactory[] { new HttpConnectionFactory(httpConfiguration), new HTTP2CServerConnectionFactory(httpConfiguration) };
+	}
+
+	/**
+	 * Creates the connection factories for a secure connector negotiating h2
+	 * or HTTP/1.1.
+	 *
+	 * @param sslContextFactory
+	 *            the SSL context factory
+	 * @param httpConfiguration
+	 *            the HTTP configuration
+	 * @return the connection factories
+	 */
+	public static ConnectionFactory[] createSslConnectionFactories(final SslContextFactory sslContextFactory, final HttpConfiguration httpConfiguration) {
+		// HTTP/2 blacklists many cipher suites; prefer the allowed ones
+		sslContextFactory.setCipherComparator(HTTP2Cipher.COMPARATOR);
+		sslContextFactory.setUseCipherSuitesOrder(true);
+
+		final HttpConnectionFactory http = new HttpConnectionFactory(httpConfiguration);
+		final HTTP2ServerConnectionFactory h2 = new HTTP2ServerConnectionFactory(httpConfiguration);
+		final ALPNServerConnectionFactory alpn = new ALPNServerConnectionFactory(h2.getProtocol(), http.getProtocol());
+		alpn.setDefaultProtocol(http.getProtocol());
+		final SslConnectionFactory ssl = new SslConnectionFactory(sslContextFactory, alpn.getProtocol());
+		return new ConnectionFactory[] { ssl, alpn, h2, http };
+	}
+
+	/**
+	 * Indicates if ALPN is available in the running JVM.
+	 *
+	 * @return <code>true</code> if the JVM supports ALPN or the ALPN boot jar
+	 *         is installed, <code>false</code> otherwise
+	 */
+	public static boolean isAlpnAvailable() {
+		try {
+			SSLEngine.class.getMethod(ALPN_JVM_METHOD);
+			return true;
+		} catch (final NoSuchMethodException e) {
+			// no built-in support; check for the boot jar
+		}
+		try {
+			// ALPN must be loaded by the boot class loader
+			Class.forName(ALPN_BOOT_CLASS, false, null);
+			return true;
+		} catch (final ClassNotFoundException | LinkageError e) {
+			return false;
+		}
+	}
+
+	private AdminHttp2Support() {
+		// empty
+	}
+}
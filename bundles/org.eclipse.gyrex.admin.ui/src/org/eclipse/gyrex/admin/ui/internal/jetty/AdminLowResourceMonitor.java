@@ -0,0 +1,295 @@
+/*******************************************************************************
+ * Copyright (c) 2013 AGETO Service GmbH and others.
+ * All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Contributors:
+ *     Gunnar Wagenknecht - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.gyrex.admin.ui.internal.jetty;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.MemoryUsage;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.jetty.io.EndPoint;
+import org.eclipse.jetty.io.IdleTimeout;
+import org.eclipse.jetty.server.Connector;
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.util.component.AbstractLifeCycle;
+
+import org.apache.commons.lang.StringUtils;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Watches the admin server and sheds load when it runs low on resources.
+ * <p>
+ * The server is considered low on resources when the {@link AdminThreadPool}
+ * is saturated, when too many connections are open or when the heap is almost
+ * exhausted. The heap is judged by its usage after the last garbage
+ * collection, so that garbage which has not been collected yet does not
+ * trigger load shedding. While low on resources, the idle timeout of all open
+ * connections is shortened, the connections idle for the longest time above a
+ * cap are closed and
+ * {@link LowResourcesSessionFilter} rejects new admin sessions. Once the
+ * condition clears, the regular idle timeout is restored.
+ * </p>
+ * <p>
+ * The thresholds can be tuned using the following system properties:
+ * <ul>
+ * <li><code>gyrex.admin.lowresources.connections</code> - number of open
+ * connections (default {@value #DEFAULT_MAX_CONNECTIONS})</li>
+ * <li><code>gyrex.admin.lowresources.heap</code> - heap used after GC in percent
+ * (default {@value #DEFAULT_MAX_HEAP_PERCENT})</li>
+ * <li><code>gyrex.admin.lowresources.idleTimeout</code> - idle timeout in
+ * milliseconds applied while low on resources (default
+ * {@value #DEFAULT_LOW_RESOURCES_IDLE_TIMEOUT})</li>
+ * <li><code>gyrex.admin.lowresources.maxConnections</code> - number of
+ * connections kept open while low on resources (default
+ * {@value #DEFAULT_LOW_RESOURCES_MAX_CONNECTIONS})</li>
+ * </ul>
+ * </p>
+ */
+public class AdminLowResourceMonitor extends AbstractLifeCycle {
+
+	private static final Logger LOG = LoggerFactory.getLogger(AdminLowResourceMonitor.class);
+
+	public static final String PROPERTY_MAX_CONNECTIONS = "gyrex.admin.lowresources.connections";
+	public static final String PROPERTY_MAX_HEAP_PERCENT = "gyrex.admin.lowresources.heap";
+	public static final String PROPERTY_LOW_RESOURCES_IDLE_TIMEOUT = "gyrex.admin.lowresources.idleTimeout";
+	public static final String PROPERTY_LOW_RESOURCES_MAX_CONNECTIONS = "gyrex.admin.lowresources.maxConnections";
+
+	static final int DEFAULT_MAX_CONNECTIONS = 200;
+	static final int DEFAULT_MAX_HEAP_PERCENT = 90;
+	static final int DEFAULT_LOW_RESOURCES_IDLE_TIMEOUT = 5000;
+	static final int DEFAULT_LOW_RESOURCES_MAX_CONNECTIONS = 100;
+
+	/** interval between checks in milliseconds */
+	static final long CHECK_INTERVAL = 1000;
+
+	/**
+	 * An end point with its last activity captured once, so that sorting is
+	 * not affected by concurrent reads and writes.
+	 */
+	private static final class ActiveEndPoint {
+
+		final EndPoint endPoint;
+		final long lastActivity;
+
+		ActiveEndPoint(final EndPoint endPoint) {
+			this.endPoint = endPoint;
+			lastActivity = getLastActivity(endPoint);
+		}
+	}
+
+	private static final Comparator<ActiveEndPoint> LONGEST_IDLE_FIRST = new Comparator<ActiveEndPoint>() {
+		@Override
+		public int compare(final ActiveEndPoint e1, final ActiveEndPoint e2) {
+			return Long.compare(e1.lastActivity, e2.lastActivity);
+		}
+	};
+
+	/**
+	 * Returns the time of the last read or write on an end point.
+	 *
+	 * @param endPoint
+	 *            the end point
+	 * @return the time of the last activity (falls back to the creation time if
+	 *         the end point does not track activity)
+	 */
+	static long getLastActivity(final EndPoint endPoint) {
+		if (endPoint instanceof IdleTimeout)
+			return ((IdleTimeout) endPoint).getIdleTimestamp();
+		return endPoint.getCreatedTimeStamp();
+	}
+
+	/**
+	 * Returns the heap used after the last garbage collection in percent of the
+	 * maximum heap.
+	 *
+	 * @return the used heap in percent
+	 */
+	static long getHeapUsedAfterGcPercent() {
+		final long maxHeap = Runtime.getRuntime().maxMemory();
+		long usedAfterGc = 0;
+		boolean collected = false;
+		for (final MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+			if (pool.getType() != MemoryType.HEAP) {
+				continue;
+			}
+			final MemoryUsage usage = pool.getCollectionUsage();
+			if (null != usage) {
+				usedAfterGc += usage.getUsed();
+				collected = true;
+			}
+		}
+		if (!collected) {
+			// collection usage not supported; use the current usage
+			final Runtime runtime = Runtime.getRuntime();
+			usedAfterGc = runtime.totalMemory() - runtime.freeMemory();
+		}
+		return (usedAfterGc * 100) / maxHeap;
+	}
+
+	private final Server server;
+	private final int maxConnections;
+	private final int maxHeapPercent;
+	private final long lowResourcesIdleTimeout;
+	private final int lowResourcesMaxConnections;
+
+	private ScheduledExecutorService executor;
+	private volatile String lowResourcesReasons;
+
+	/**
+	 * Creates a new monitor configured from system properties.
+	 *
+	 * @param server
+	 *            the server to monitor
+	 */
+	public AdminLowResourceMonitor(final Server server) {
+		this.server = server;
+		maxConnections = Math.max(1, Integer.getInteger(PROPERTY_MAX_CONNECTIONS, DEFAULT_MAX_CONNECTIONS));
+		maxHeapPercent = Math.max(1, Math.min(100, Integer.getInteger(PROPERTY_MAX_HEAP_PERCENT, DEFAULT_MAX_HEAP_PERCENT)));
+		lowResourcesIdleTimeout = Math.max(1000, Integer.getInteger(PROPERTY_LOW_RESOURCES_IDLE_TIMEOUT, DEFAULT_LOW_RESOURCES_IDLE_TIMEOUT));
+		lowResourcesMaxConnections = Math.max(1, Math.min(maxConnections, Integer.getInteger(PROPERTY_LOW_RESOURCES_MAX_CONNECTIONS, DEFAULT_LOW_RESOURCES_MAX_CONNECTIONS)));
+	}
+
+	private void applyLowResources() {
+		final List<ActiveEndPoint> endPoints = new ArrayList<ActiveEndPoint>();
+		for (final Connector connector : server.getConnectors()) {
+			for (final EndPoint endPoint : connector.getConnectedEndPoints()) {
+				if (endPoint.getIdleTimeout() > lowResourcesIdleTimeout) {
+					endPoint.setIdleTimeout(lowResourcesIdleTimeout);
+				}
+				endPoints.add(new ActiveEndPoint(endPoint));
+			}
+		}
+
+		// close the connections idle for the longest time (typically forgotten browser tabs)
+		if (endPoints.size() > lowResourcesMaxConnections) {
+			Collections.sort(endPoints, LONGEST_IDLE_FIRST);
+			final int excess = endPoints.size() - lowResourcesMaxConnections;
+			for (int i = 0; i < excess; i++) {
+				endPoints.get(i).endPoint.close();
+			}
+			LOG.debug("Closed {} admin connections while low on resources.", excess);
+		}
+	}
+
+	void check() {
+		final List<String> reasons = new ArrayList<String>(3);
+
+		final AdminThreadPool threadPool = server.getThreadPool() instanceof AdminThreadPool ? (AdminThreadPool) server.getThreadPool() : null;
+		if ((null != threadPool) && threadPool.isSaturated()) {
+			reasons.add(String.format("thread pool saturated (%d requests queued)", threadPool.getQueuedJobs()));
+		}
+
+		final int connections = getConnections();
+		if (connections >= maxConnections) {
+			reasons.add(String.format("%d connections open", connections));
+		}
+
+		final long heapUsedPercent = getHeapUsedAfterGcPercent();
+		if (heapUsedPercent >= maxHeapPercent) {
+			reasons.add(String.format("%d%% of heap used after GC", heapUsedPercent));
+		}
+
+		final String previous = lowResourcesReasons;
+		if (!reasons.isEmpty()) {
+			lowResourcesReasons = StringUtils.join(reasons, ", ");
+			if (null == previous) {
+				LOG.warn("Admin server is low on resources ({}). Shortening idle timeouts and rejecting new sessions.", lowResourcesReasons);
+			}
+			applyLowResources();
+		} else if (null != previous) {
+			lowResourcesReasons = null;
+			LOG.info("Admin server recovered from low resources.");
+			restoreIdleTimeouts();
+		}
+	}
+
+	@Override
+	protected void doStart() throws Exception {
+		executor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+			@Override
+			public Thread newThread(final Runnable r) {
+				final Thread thread = new Thread(r, "jetty-server-admin-lowresources");
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+		executor.scheduleWithFixedDelay(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					check();
+				} catch (final Exception e) {
+					LOG.debug("Error checking admin server resources. {}", e.getMessage(), e);
+				}
+			}
+		}, CHECK_INTERVAL, CHECK_INTERVAL, TimeUnit.MILLISECONDS);
+	}
+
+	@Override
+	protected void doStop() throws Exception {
+		executor.shutdownNow();
+		executor = null;
+		lowResourcesReasons = null;
+	}
+
+	/**
+	 * Returns the number of open connections.
+	 *
+	 * @return the number of open connections
+	 */
+	public int getConnections() {
+		int connections = 0;
+		for (final Connector connector : server.getConnectors()) {
+			connections += connector.getConnectedEndPoints().size();
+		}
+		return connections;
+	}
+
+	/**
+	 * Returns why the server is low on resources.
+	 *
+	 * @return a description of the exceeded thresholds (<code>null</code> if
+	 *         not low on resources)
+	 */
+	public String getLowResourcesReasons() {
+		return lowResourcesReasons;
+	}
+
+	/**
+	 * Indicates if the server is low on resources.
+	 *
+	 * @return <code>true</code> if low on resources, <code>false</code>
+	 *         otherwise
+	 */
+	public boolean isLowOnResources() {
+		return null != lowResourcesReasons;
+	}
+
+	private void restoreIdleTimeouts() {
+		for (final Connector connector : server.getConnectors()) {
+			final long idleTimeout = connector.getIdleTimeout();
+			for (final EndPoint endPoint : connector.getConnectedEndPoints()) {
+				endPoint.setIdleTimeout(idleTimeout);
+			}
+		}
+	}
+}
@@ -0,0 +1,149 @@
+/*******************************************************************************
+ * Copyright (c) 2013 AGETO Service GmbH and others.
+ * All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Contributors:
+ *     Gunnar Wagenknecht - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.gyrex.admin.ui.internal.jetty;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.eclipse.jetty.util.thread.QueuedThreadPool;
+
+/**
+ * The thread pool of the admin server.
+ * <p>
+ * The pool is deliberately small and bounded so that the admin console cannot
+ * take CPU away from the application server, even under incident load. Jobs
+ * which cannot be queued are rejected by Jetty (the connection is closed) and
+ * counted.
+ * </p>
+ * <p>
+ * The pool can be tuned using the following system properties:
+ * <ul>
+ * <li><code>gyrex.admin.threads.min</code> - minimum number of threads
+ * (default {@value #DEFAULT_MIN_THREADS})</li>
+ * <li><code>gyrex.admin.threads.max</code> - maximum number of threads
+ * including acceptor and selector threads (default
+ * {@value #DEFAULT_MAX_THREADS})</li>
+ * <li><code>gyrex.admin.threads.queue</code> - maximum number of queued jobs
+ * (default {@value #DEFAULT_QUEUE_CAPACITY})</li>
+ * <li><code>gyrex.admin.threads.priority</code> - priority of the threads
+ * (default one below {@link Thread#NORM_PRIORITY})</li>
+ * </ul>
+ * </p>
+ */
+public class AdminThreadPool extends QueuedThreadPool {
+
+	/**
+	 * A bounded queue which counts rejected offers.
+	 */
+	private static final class BoundedJobQueue extends ArrayBlockingQueue<Runnable> {
+
+		private static final long serialVersionUID = 1L;
+
+		private final AtomicLong rejected = new AtomicLong();
+
+		BoundedJobQueue(final int capacity) {
+			super(capacity);
+		}
+
+		@Override
+		public boolean offer(final Runnable job) {
+			if (super.offer(job))
+				return true;
+			rejected.incrementAndGet();
+			return false;
+		}
+	}
+
+	public static final String PROPERTY_MIN_THREADS = "gyrex.admin.threads.min";
+	public static final String PROPERTY_MAX_THREADS = "gyrex.admin.threads.max";
+	public static final String PROPERTY_QUEUE_CAPACITY = "gyrex.admin.threads.queue";
+	public static final String PROPERTY_PRIORITY = "gyrex.admin.threads.priority";
+
+	static final int DEFAULT_MIN_THREADS = 2;
+	static final int DEFAULT_MAX_THREADS = 16;
+	static final int DEFAULT_QUEUE_CAPACITY = 200;
+	static final int IDLE_TIMEOUT = 60000;
+
+	/** acceptor and selector threads are taken from the pool; leave room for requests */
+	static final int MIN_MAX_THREADS = 4;
+
+	/**
+	 * Creates a new pool configured from system properties.
+	 *
+	 * @return the pool
+	 */
+	public static AdminThreadPool createFromSystemProperties() {
+		final int maxThreads = Math.max(MIN_MAX_THREADS, Integer.getInteger(PROPERTY_MAX_THREADS, DEFAULT_MAX_THREADS));
+		final int minThreads = Math.max(1, Math.min(maxThreads, Integer.getInteger(PROPERTY_MIN_THREADS, DEFAULT_MIN_THREADS)));
+		final int queueCapacity = Math.max(1, Integer.getInteger(PROPERTY_QUEUE_CAPACITY, DEFAULT_QUEUE_CAPACITY));
+		final int priority = Math.max(Thread.MIN_PRIORITY, Math.min(Thread.MAX_PRIORITY, Integer.getInteger(PROPERTY_PRIORITY, Thread.NORM_PRIORITY - 1)));
+		return new AdminThreadPool(minThreads, maxThreads, new BoundedJobQueue(queueCapacity), priority);
+	}
+
+	private final BoundedJobQueue jobQueue;
+	private final int queueCapacity;
+
+	private AdminThreadPool(final int minThreads, final int maxThreads, final BoundedJobQueue jobQueue, final int priority) {
+		super(maxThreads, minThreads, IDLE_TIMEOUT, jobQueue);
+		this.jobQueue = jobQueue;
+		queueCapacity = jobQueue.remainingCapacity();
+		setName("jetty-server-admin");
+		setThreadsPriority(priority);
+	}
+
+	/**
+	 * Returns the number of threads currently executing jobs.
+	 *
+	 * @return the number of active threads
+	 */
+	public int getActiveThreads() {
+		return Math.max(0, getThreads() - getIdleThreads());
+	}
+
+	/**
+	 * Returns the maximum number of jobs which can be queued.
+	 *
+	 * @return the queue capacity
+	 */
+	public int getQueueCapacity() {
+		return queueCapacity;
+	}
+
+	/**
+	 * Returns the number of jobs waiting for a thread.
+	 *
+	 * @return the number of queued jobs
+	 */
+	public int getQueuedJobs() {
+		return jobQueue.size();
+	}
+
+	/**
+	 * Returns the number of jobs rejected since the pool was created because
+	 * the queue was full.
+	 *
+	 * @return the number of rejected jobs
+	 */
+	public long getRejectedJobs() {
+		return jobQueue.rejected.get();
+	}
+
+	/**
+	 * Indicates if the pool is saturated, i.e. all threads are busy and jobs
+	 * have to wait.
+	 *
+	 * @return <code>true</code> if saturated, <code>false</code> otherwise
+	 */
+	public boolean isSaturated() {
+		return (getThreads() >= getMaxThreads()) && (getIdleThreads() == 0) && (getQueuedJobs() > 0);
+	}
+}
@@ -0,0 +1,64 @@
+/*******************************************************************************
+ * Copyright (c) 2013 AGETO Service GmbH and others.
+ * All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Contributors:
+ *     Gunnar Wagenknecht - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.gyrex.admin.ui.internal.jetty;
+
+import java.io.IOException;
+
+import javax.servlet.Filter;
+import javax.servlet.FilterChain;
+import javax.servlet.FilterConfig;
+import javax.servlet.ServletException;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * Rejects requests which would start a new admin session while the admin
+ * server is low on resources.
+ * <p>
+ * Requests belonging to an existing session are passed through so that
+ * administrators already working with the console are not locked out.
+ * </p>
+ */
+public class LowResourcesSessionFilter implements Filter {
+
+	/** seconds a rejected client should wait before trying again */
+	static final int RETRY_AFTER = 30;
+
+	private final AdminLowResourceMonitor monitor;
+
+	public LowResourcesSessionFilter(final AdminLowResourceMonitor monitor) {
+		this.monitor = monitor;
+	}
+
+	@Override
+	public void destroy() {
+		// no-op
+	}
+
+	@Override
+	public void doFilter(final ServletRequest request, final ServletResponse response, final FilterChain chain) throws IOException, ServletException {
+		if (monitor.isLowOnResources() && (request instanceof HttpServletRequest) && (((HttpServletRequest) request).getSession(false) == null)) {
+			final HttpServletResponse httpResponse = (HttpServletResponse) response;
+			httpResponse.setHeader("Retry-After", String.valueOf(RETRY_AFTER));
+			httpResponse.sendError(HttpServletResponse.SC_SERVICE_UNAVAILABLE, String.format("The admin console is busy. Please try again in %d seconds.", RETRY_AFTER));
+			return;
+		}
+		chain.doFilter(request, response);
+	}
+
+	@Override
+	public void init(final FilterConfig filterConfig) throws ServletException {
+		// no-op
+	}
+}
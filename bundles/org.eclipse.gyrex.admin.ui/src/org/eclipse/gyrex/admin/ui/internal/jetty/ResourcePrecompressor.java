@@ -0,0 +1,104 @@
+/*******************************************************************************
+ * Copyright (c) 2013 AGETO Service GmbH and others.
+ * All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Contributors:
+ *     Gunnar Wagenknecht - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.gyrex.admin.ui.internal.jetty;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Writes gzip compressed variants of static resources.
+ * <p>
+ * For every compressible file a <code>.gz</code> file is written next to it,
+ * which Jetty's <code>DefaultServlet</code> serves directly to clients
+ * accepting gzip when its <code>gzip</code> init parameter is set. This avoids
+ * compressing the same (large) resources, e.g. the RAP client JavaScript or
+ * the theme CSS, on every request.
+ * </p>
+ */
+public final class ResourcePrecompressor {
+
+	private static final Logger LOG = LoggerFactory.getLogger(ResourcePrecompressor.class);
+
+	/** extensions of files worth compressing */
+	static final String[] COMPRESSIBLE_EXTENSIONS = { "js", "css", "html", "htm", "json", "svg", "txt", "xml" };
+
+	/** files smaller than this do not gain from compression */
+	static final long MIN_SIZE = 1024;
+
+	private static void compress(final File file, final File compressedFile) throws IOException {
+		final File tempFile = new File(compressedFile.getParentFile(), compressedFile.getName() + ".tmp");
+		InputStream in = null;
+		OutputStream out = null;
+		try {
+			in = new FileInputStream(file);
+			out = new GZIPOutputStream(new FileOutputStream(tempFile));
+			IOUtils.copy(in, out);
+		} finally {
+			IOUtils.closeQuietly(in);
+			IOUtils.closeQuietly(out);
+		}
+
+		// replace atomically so that a concurrent request never reads a partial file
+		FileUtils.deleteQuietly(compressedFile);
+		if (!tempFile.renameTo(compressedFile)) {
+			FileUtils.deleteQuietly(tempFile);
+			throw new IOException(String.format("Unable to rename %s to %s", tempFile, compressedFile));
+		}
+	}
+
+	/**
+	 * Writes a compressed variant of all compressible files in the specified
+	 * directory (including sub directories) which are missing or older than
+	 * the original.
+	 * 
+	 * @param directory
+	 *            the directory
+	 * @return the number of files compressed
+	 */
+	public static int precompress(final File directory) {
+		if (!directory.isDirectory())
+			return 0;
+
+		int compressed = 0;
+		for (final File file : FileUtils.listFiles(directory, COMPRESSIBLE_EXTENSIONS, true)) {
+			if (file.length() < MIN_SIZE) {
+				continue;
+			}
+			final File compressedFile = new File(file.getParentFile(), file.getName() + ".gz");
+			if (compressedFile.isFile() && (compressedFile.lastModified() >= file.lastModified())) {
+				continue;
+			}
+			try {
+				compress(file, compressedFile);
+				compressed++;
+			} catch (final IOException e) {
+				LOG.warn("Unable to compress resource {}. {}", file, e.getMessage());
+			}
+		}
+		return compressed;
+	}
+
+	private ResourcePrecompressor() {
+		// empty
+	}
+}
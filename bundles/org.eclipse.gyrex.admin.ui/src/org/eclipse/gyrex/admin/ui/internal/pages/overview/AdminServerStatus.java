@@ -0,0 +1,73 @@
+/*******************************************************************************
+ * Copyright (c) 2013 AGETO Service GmbH and others.
+ * All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Contributors:
+ *     Gunnar Wagenknecht - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.gyrex.admin.ui.internal.pages.overview;
+
+import org.eclipse.gyrex.admin.ui.internal.AdminUiActivator;
+import org.eclipse.gyrex.admin.ui.internal.application.AdminUiUtil;
+import org.eclipse.gyrex.admin.ui.internal.jetty.AdminLowResourceMonitor;
+import org.eclipse.gyrex.admin.ui.internal.jetty.AdminThreadPool;
+import org.eclipse.gyrex.admin.ui.internal.pages.OverviewPageItem;
+import org.eclipse.gyrex.admin.ui.internal.servlets.ResourceCache;
+
+import org.eclipse.rap.rwt.RWT;
+import org.eclipse.swt.SWT;
+import org.eclipse.swt.widgets.Composite;
+import org.eclipse.swt.widgets.Control;
+import org.eclipse.swt.widgets.Label;
+
+import org.apache.commons.lang.StringUtils;
+
+/**
+ * Shows the utilization of the admin server.
+ */
+public class AdminServerStatus extends OverviewPageItem {
+
+	@Override
+	public Control createControl(final Composite parent) {
+		final Composite composite = new Composite(parent, SWT.NULL);
+		composite.setLayout(AdminUiUtil.createGridLayoutWithoutMargin(1, true));
+		composite.setLayoutData(AdminUiUtil.createHorzFillData());
+
+		AdminUiUtil.createHeading(composite, "Admin Server", 1);
+
+		final Label desc = new Label(composite, SWT.WRAP);
+		desc.setLayoutData(AdminUiUtil.createHorzFillData());
+
+		final AdminThreadPool threadPool = AdminUiActivator.getInstance().getAdminThreadPool();
+		if (null == threadPool) {
+			desc.setText("Thread pool information not available.");
+		} else {
+			final StringBuilder text = new StringBuilder();
+			text.append(String.format("Threads: %d active, %d idle (max %d)", threadPool.getActiveThreads(), threadPool.getIdleThreads(), threadPool.getMaxThreads()));
+			text.append(String.format("\nQueued requests: %d (max %d)", threadPool.getQueuedJobs(), threadPool.getQueueCapacity()));
+			text.append(String.format("\nRejected requests: %d", threadPool.getRejectedJobs()));
+			if (threadPool.isSaturated()) {
+				text.append("\nThe admin server is saturated. Requests are waiting for a thread.");
+			}
+			text.append(String.format("\nProtocols: %s (this session: %s)", StringUtils.join(AdminUiActivator.getInstance().getConnectorProtocols(), ", "), RWT.getRequest().getProtocol()));
+			final AdminLowResourceMonitor monitor = AdminUiActivator.getInstance().getLowResourceMonitor();
+			if (null != monitor) {
+				text.append(String.format("\nOpen connections: %d", monitor.getConnections()));
+				if (monitor.isLowOnResources()) {
+					text.append(String.format("\nLow on resources (%s). New sessions are rejected.", monitor.getLowResourcesReasons()));
+				}
+			}
+			final ResourceCache cache = AdminUiActivator.getInstance().getStaticResourceCache();
+			if (null != cache) {
+				text.append(String.format("\nStatic resource cache: %d of %d KB, %d hits, %d misses", cache.getSize() / 1024, cache.getMaxSize() / 1024, cache.getHits(), cache.getMisses()));
+			}
+			desc.setText(text.toString());
+		}
+
+		return composite;
+	}
+}
@@ -67,12 +67,12 @@ public class SystemStatus extends OverviewPageItem {
 		switch (status.getSeverity()) {
 			case IStatus.CANCEL:
 			case IStatus.ERROR:
-				return "/static/error.gif";
+				return AdminUiActivator.getInstance().getStaticResourceUrl("error.gif");
 			case IStatus.WARNING:
-				return "/static/warning.gif";
+				return AdminUiActivator.getInstance().getStaticResourceUrl("warning.gif");
 			case IStatus.INFO:
 			default:
-				return "/static/information.gif";
+				return AdminUiActivator.getInstance().getStaticResourceUrl("information.gif");
 		}
 	}
 
@@ -0,0 +1,126 @@
+/*******************************************************************************
+ * Copyright (c) 2013 AGETO Service GmbH and others.
+ * All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Contributors:
+ *     Gunnar Wagenknecht - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.gyrex.admin.ui.internal.servlets;
+
+import java.io.IOException;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.apache.commons.lang.StringUtils;
+
+/**
+ * Serves resources from a {@link ResourceCache} with far-future caching.
+ * <p>
+ * Resources are referenced using fingerprinted names (see
+ * {@link #toFingerprintedName(String, String)}), e.g.
+ * <code>error.0123456789abcdef.gif</code>. If the fingerprint matches the
+ * current content the response may be cached forever
+ * (<code>Cache-Control: immutable</code>). Requests with an outdated or no
+ * fingerprint are answered with the current content and must be revalidated.
+ * All responses carry a strong ETag derived from the content.
+ * </p>
+ */
+public class FingerprintedResourceServlet extends HttpServlet {
+
+	/** serialVersionUID */
+	private static final long serialVersionUID = 1L;
+
+	static final String IMMUTABLE = "public, max-age=31536000, immutable";
+	static final String REVALIDATE = "no-cache";
+
+	private static final Pattern FINGERPRINTED_NAME = Pattern.compile("^(.+)\\.([0-9a-f]{" + ResourceCache.FINGERPRINT_LENGTH + "})(\\.[^./]+)?$");
+
+	/**
+	 * Indicates if the last segment of a path is a fingerprinted name.
+	 * 
+	 * @param path
+	 *            the path
+	 * @return <code>true</code> if fingerprinted, <code>false</code> otherwise
+	 */
+	public static boolean isFingerprinted(final String path) {
+		return (null != path) && FINGERPRINTED_NAME.matcher(StringUtils.substringAfterLast("/" + path, "/")).matches();
+	}
+
+	/**
+	 * Inserts a fingerprint into a resource name (before the file extension).
+	 * 
+	 * @param name
+	 *            the resource name
+	 * @param fingerprint
+	 *            the fingerprint
+	 * @return the fingerprinted name
+	 */
+	public static String toFingerprintedName(final String name, final String fingerprint) {
+		final int lastSlash = name.lastIndexOf('/');
+		final int extension = name.lastIndexOf('.');
+		if (extension > (lastSlash + 1))
+			return name.substring(0, extension) + "." + fingerprint + name.substring(extension);
+		return name + "." + fingerprint;
+	}
+
+	private final ResourceCache cache;
+
+	/**
+	 * Creates a new instance.
+	 * 
+	 * @param cache
+	 *            the cache to serve resources from
+	 */
+	public FingerprintedResourceServlet(final ResourceCache cache) {
+		this.cache = cache;
+	}
+
+	@Override
+	protected void doGet(final HttpServletRequest req, final HttpServletResponse resp) throws ServletException, IOException {
+		final String path = StringUtils.removeStart(req.getPathInfo(), "/");
+		if (StringUtils.isBlank(path)) {
+			resp.sendError(HttpServletResponse.SC_NOT_FOUND);
+			return;
+		}
+
+		String name = path;
+		String requestedFingerprint = null;
+		final Matcher matcher = FINGERPRINTED_NAME.matcher(path);
+		if (matcher.matches()) {
+			name = matcher.group(1) + StringUtils.defaultString(matcher.group(3));
+			requestedFingerprint = matcher.group(2);
+		}
+
+		final ResourceCache.Entry entry = cache.get(name);
+		if (null == entry) {
+			resp.sendError(HttpServletResponse.SC_NOT_FOUND);
+			return;
+		}
+
+		final String etag = "\"" + entry.getFingerprint() + "\"";
+		resp.setHeader("ETag", etag);
+		resp.setHeader("Cache-Control", entry.getFingerprint().equals(requestedFingerprint) ? IMMUTABLE : REVALIDATE);
+
+		final String ifNoneMatch = req.getHeader("If-None-Match");
+		if ((null != ifNoneMatch) && (ifNoneMatch.contains(etag) || "*".equals(ifNoneMatch.trim()))) {
+			resp.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+			return;
+		}
+
+		final String contentType = getServletContext().getMimeType(name);
+		if (null != contentType) {
+			resp.setContentType(contentType);
+		}
+		resp.setContentLength(entry.getContent().length);
+		resp.getOutputStream().write(entry.getContent());
+	}
+}
@@ -0,0 +1,53 @@
+/*******************************************************************************
+ * Copyright (c) 2013 AGETO Service GmbH and others.
+ * All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Contributors:
+ *     Gunnar Wagenknecht - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.gyrex.admin.ui.internal.servlets;
+
+import java.io.IOException;
+
+import javax.servlet.Filter;
+import javax.servlet.FilterChain;
+import javax.servlet.FilterConfig;
+import javax.servlet.ServletException;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * Marks responses for fingerprinted resource names as cacheable forever.
+ * <p>
+ * Used for resources served by other servlets (e.g. RWT resources registered
+ * under a fingerprinted name, such as the favicon).
+ * </p>
+ * 
+ * @see FingerprintedResourceServlet#toFingerprintedName(String, String)
+ */
+public class ImmutableResourcesFilter implements Filter {
+
+	@Override
+	public void destroy() {
+		// no-op
+	}
+
+	@Override
+	public void doFilter(final ServletRequest request, final ServletResponse response, final FilterChain chain) throws IOException, ServletException {
+		if ((request instanceof HttpServletRequest) && FingerprintedResourceServlet.isFingerprinted(((HttpServletRequest) request).getRequestURI())) {
+			((HttpServletResponse) response).setHeader("Cache-Control", FingerprintedResourceServlet.IMMUTABLE);
+		}
+		chain.doFilter(request, response);
+	}
+
+	@Override
+	public void init(final FilterConfig filterConfig) throws ServletException {
+		// no-op
+	}
+}
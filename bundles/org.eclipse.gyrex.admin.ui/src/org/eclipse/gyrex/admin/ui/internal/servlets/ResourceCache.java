@@ -0,0 +1,220 @@
+/*******************************************************************************
+ * Copyright (c) 2013 AGETO Service GmbH and others.
+ * All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Contributors:
+ *     Gunnar Wagenknecht - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.gyrex.admin.ui.internal.servlets;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.osgi.framework.Bundle;
+
+import org.apache.commons.io.IOUtils;
+
+/**
+ * A cache of bundle resources and their content fingerprints.
+ * <p>
+ * Resource contents are kept in memory up to a maximum number of bytes; least
+ * recently used resources are evicted first. Fingerprints are small and kept
+ * for all resources ever requested so that fingerprinted URLs remain stable.
+ * </p>
+ */
+public class ResourceCache {
+
+	/**
+	 * A cached resource.
+	 */
+	public static final class Entry {
+
+		private final byte[] content;
+		private final String fingerprint;
+
+		Entry(final byte[] content, final String fingerprint) {
+			this.content = content;
+			this.fingerprint = fingerprint;
+		}
+
+		public byte[] getContent() {
+			return content;
+		}
+
+		/**
+		 * Returns a hash of the content.
+		 * 
+		 * @return the fingerprint
+		 */
+		public String getFingerprint() {
+			return fingerprint;
+		}
+	}
+
+	/** number of hex chars of the content hash used as fingerprint */
+	static final int FINGERPRINT_LENGTH = 16;
+
+	private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+	/**
+	 * Computes the fingerprint of the specified content.
+	 * 
+	 * @param content
+	 *            the content
+	 * @return the fingerprint
+	 */
+	public static String computeFingerprint(final byte[] content) {
+		try {
+			final byte[] digest = MessageDigest.getInstance("SHA-1").digest(content);
+			final char[] fingerprint = new char[FINGERPRINT_LENGTH];
+			for (int i = 0; i < (FINGERPRINT_LENGTH / 2); i++) {
+				fingerprint[2 * i] = HEX[(digest[i] >> 4) & 0xf];
+				fingerprint[(2 * i) + 1] = HEX[digest[i] & 0xf];
+			}
+			return new String(fingerprint);
+		} catch (final NoSuchAlgorithmException e) {
+			throw new IllegalStateException("SHA-1 not available", e);
+		}
+	}
+
+	private final Bundle bundle;
+	private final String basePath;
+	private final long maxSize;
+
+	private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<String, Entry>(16, 0.75f, true);
+	private final Map<String, String> fingerprints = new ConcurrentHashMap<String, String>();
+	private long size;
+
+	private final AtomicLong hits = new AtomicLong();
+	private final AtomicLong misses = new AtomicLong();
+
+	/**
+	 * Creates a new instance.
+	 * 
+	 * @param bundle
+	 *            the bundle to read resources from
+	 * @param basePath
+	 *            the bundle path of the resources
+	 * @param maxSize
+	 *            the maximum number of content bytes kept in memory
+	 */
+	public ResourceCache(final Bundle bundle, final String basePath, final long maxSize) {
+		this.bundle = bundle;
+		this.basePath = basePath;
+		this.maxSize = maxSize;
+	}
+
+	/**
+	 * Returns a resource.
+	 * 
+	 * @param name
+	 *            the resource name relative to the base path
+	 * @return the resource (<code>null</code> if not found)
+	 * @throws IOException
+	 *             if the resource could not be read
+	 */
+	public Entry get(final String name) throws IOException {
+		synchronized (entries) {
+			final Entry entry = entries.get(name);
+			if (null != entry) {
+				hits.incrementAndGet();
+				return entry;
+			}
+		}
+		misses.incrementAndGet();
+
+		final Entry entry = load(name);
+		if (null == entry)
+			return null;
+		fingerprints.put(name, entry.fingerprint);
+
+		// don't let a single huge resource flush the cache
+		if (entry.content.length > maxSize)
+			return entry;
+
+		synchronized (entries) {
+			final Entry previous = entries.put(name, entry);
+			if (null != previous) {
+				size -= previous.content.length;
+			}
+			size += entry.content.length;
+			for (final Iterator<Entry> stream = entries.values().iterator(); (size > maxSize) && stream.hasNext();) {
+				size -= stream.next().content.length;
+				stream.remove();
+			}
+		}
+		return entry;
+	}
+
+	/**
+	 * Returns the fingerprint of a resource.
+	 * 
+	 * @param name
+	 *            the resource name relative to the base path
+	 * @return the fingerprint (<code>null</code> if the resource is not
+	 *         available)
+	 */
+	public String getFingerprint(final String name) {
+		final String fingerprint = fingerprints.get(name);
+		if (null != fingerprint)
+			return fingerprint;
+		try {
+			final Entry entry = get(name);
+			return null != entry ? entry.fingerprint : null;
+		} catch (final IOException e) {
+			return null;
+		}
+	}
+
+	public long getHits() {
+		return hits.get();
+	}
+
+	public long getMaxSize() {
+		return maxSize;
+	}
+
+	public long getMisses() {
+		return misses.get();
+	}
+
+	/**
+	 * Returns the number of content bytes currently kept in memory.
+	 * 
+	 * @return the size in bytes
+	 */
+	public long getSize() {
+		synchronized (entries) {
+			return size;
+		}
+	}
+
+	private Entry load(final String name) throws IOException {
+		// never serve anything outside the base path
+		if (name.contains(".."))
+			return null;
+		final URL url = bundle.getEntry(basePath + "/" + name);
+		if (null == url)
+			return null;
+		InputStream in = null;
+		try {
+			in = url.openStream();
+			final byte[] content = IOUtils.toByteArray(in);
+			return new Entry(content, computeFingerprint(content));
+		} finally {
+			IOUtils.closeQuietly(in);
+		}
+	}
+}
@@ -90,8 +90,8 @@ public abstract class AdminPageWithTree extends AdminPage {
 			if (c1 != c2)
 				return c1 - c2;
 
-			final String t1 = StringUtils.trimToEmpty(getElementLabel(e1, getColumn()));
-			final String t2 = StringUtils.trimToEmpty(getElementLabel(e2, getColumn()));
+			final String t1 = StringUtils.trimToEmpty(getElementTextForSorting(e1, getColumn()));
+			final String t2 = StringUtils.trimToEmpty(getElementTextForSorting(e2, getColumn()));
 			if (isReverse())
 				return getComparator().compare(t2, t1);
 			else
@@ -0,0 +1,164 @@
+/*******************************************************************************
+ * Copyright (c) 2013 AGETO Service GmbH and others.
+ * All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Contributors:
+ *     Gunnar Wagenknecht - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.gyrex.admin.ui.internal.widgets;
+
+/**
+ * A fixed-size ring buffer of <code>double</code> values.
+ * <p>
+ * Values are stored in a primitive array. Once the buffer is full, adding a
+ * value overwrites the oldest one. {@link Double#NaN} may be added to record
+ * an unknown value; it is ignored by {@link #getMin()} and {@link #getMax()}.
+ * The buffer is not thread safe.
+ * </p>
+ */
+public final class RingBuffer {
+
+	private final double[] values;
+	private int next;
+	private int size;
+
+	/**
+	 * Creates a new instance.
+	 *
+	 * @param capacity
+	 *            the maximum number of values to keep
+	 */
+	public RingBuffer(final int capacity) {
+		if (capacity < 1)
+			throw new IllegalArgumentException("capacity must be greater than zero");
+		values = new double[capacity];
+	}
+
+	/**
+	 * Adds a value, overwriting the oldest one if the buffer is full.
+	 *
+	 * @param value
+	 *            the value to add
+	 */
+	public void add(final double value) {
+		values[next] = value;
+		next = (next + 1) % values.length;
+		if (size < values.length) {
+			size++;
+		}
+	}
+
+	/**
+	 * Removes all values.
+	 */
+	public void clear() {
+		next = 0;
+		size = 0;
+	}
+
+	/**
+	 * Returns a value.
+	 *
+	 * @param index
+	 *            the index, <code>0</code> being the oldest value
+	 * @return the value
+	 * @throws IndexOutOfBoundsException
+	 *             if the index is not within <code>0</code> and
+	 *             <code>size() - 1</code>
+	 */
+	public double get(final int index) {
+		if ((index < 0) || (index >= size))
+			throw new IndexOutOfBoundsException(String.format("index %d, size %d", index, size));
+		return values[((next - size) + index + values.length) % values.length];
+	}
+
+	/**
+	 * Returns the maximum number of values kept.
+	 *
+	 * @return the capacity
+	 */
+	public int getCapacity() {
+		return values.length;
+	}
+
+	/**
+	 * Returns the most recent value.
+	 *
+	 * @return the most recent value or {@link Double#NaN} if the buffer is
+	 *         empty
+	 */
+	public double getLast() {
+		if (size == 0)
+			return Double.NaN;
+		return values[((next - 1) + values.length) % values.length];
+	}
+
+	/**
+	 * Returns the largest value.
+	 *
+	 * @return the largest value or {@link Double#NaN} if the buffer holds no
+	 *         known value
+	 */
+	public double getMax() {
+		double max = Double.NaN;
+		for (int i = 0; i < size; i++) {
+			final double value = get(i);
+			if (!Double.isNaN(value) && (Double.isNaN(max) || (value > max))) {
+				max = value;
+			}
+		}
+		return max;
+	}
+
+	/**
+	 * Returns the smallest value.
+	 *
+	 * @return the smallest value or {@link Double#NaN} if the buffer holds no
+	 *         known value
+	 */
+	public double getMin() {
+		double min = Double.NaN;
+		for (int i = 0; i < size; i++) {
+			final double value = get(i);
+			if (!Double.isNaN(value) && (Double.isNaN(min) || (value < min))) {
+				min = value;
+			}
+		}
+		return min;
+	}
+
+	/**
+	 * Indicates if the buffer is empty.
+	 *
+	 * @return <code>true</code> if empty, <code>false</code> otherwise
+	 */
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	/**
+	 * Returns the number of values in the buffer.
+	 *
+	 * @return the number of values
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Returns a copy of the values.
+	 *
+	 * @return the values, oldest first
+	 */
+	public double[] toArray() {
+		final double[] result = new double[size];
+		for (int i = 0; i < size; i++) {
+			result[i] = get(i);
+		}
+		return result;
+	}
+}
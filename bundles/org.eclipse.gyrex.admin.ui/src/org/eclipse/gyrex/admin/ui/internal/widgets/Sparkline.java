@@ -0,0 +1,144 @@
+/*******************************************************************************
+ * Copyright (c) 2013 AGETO Service GmbH and others.
+ * All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Contributors:
+ *     Gunnar Wagenknecht - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.gyrex.admin.ui.internal.widgets;
+
+import org.eclipse.swt.SWT;
+import org.eclipse.swt.events.PaintEvent;
+import org.eclipse.swt.events.PaintListener;
+import org.eclipse.swt.graphics.GC;
+import org.eclipse.swt.graphics.Point;
+import org.eclipse.swt.graphics.Rectangle;
+import org.eclipse.swt.widgets.Canvas;
+import org.eclipse.swt.widgets.Composite;
+
+/**
+ * A small line chart drawing the values of a {@link RingBuffer}.
+ * <p>
+ * The chart scales between zero (or the smallest negative value) and the
+ * largest value, unless a fixed maximum is set. Unknown values
+ * ({@link Double#NaN}) leave a gap. Call {@link #redraw()} after the buffer
+ * changed.
+ * </p>
+ */
+public class Sparkline extends Canvas {
+
+	/** serialVersionUID */
+	private static final long serialVersionUID = 1L;
+
+	private static final int DEFAULT_WIDTH = 120;
+	private static final int DEFAULT_HEIGHT = 24;
+
+	private RingBuffer buffer;
+	private double maximum = Double.NaN;
+
+	/**
+	 * Creates a new instance.
+	 *
+	 * @param parent
+	 *            the parent composite
+	 * @param style
+	 *            the style
+	 */
+	public Sparkline(final Composite parent, final int style) {
+		super(parent, style);
+		addPaintListener(new PaintListener() {
+			/** serialVersionUID */
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			public void paintControl(final PaintEvent event) {
+				paint(event.gc);
+			}
+		});
+	}
+
+	@Override
+	public Point computeSize(final int wHint, final int hHint, final boolean changed) {
+		return new Point(wHint != SWT.DEFAULT ? wHint : DEFAULT_WIDTH, hHint != SWT.DEFAULT ? hHint : DEFAULT_HEIGHT);
+	}
+
+	/**
+	 * Returns the buffer drawn.
+	 *
+	 * @return the buffer (maybe <code>null</code>)
+	 */
+	public RingBuffer getBuffer() {
+		return buffer;
+	}
+
+	private void drawSegment(final GC gc, final int[] points, final int length) {
+		if (length < 4)
+			return;
+		final int[] segment = new int[length];
+		System.arraycopy(points, 0, segment, 0, length);
+		gc.drawPolyline(segment);
+	}
+
+	void paint(final GC gc) {
+		final RingBuffer buffer = this.buffer;
+		if ((null == buffer) || (buffer.size() < 2))
+			return;
+
+		final Rectangle area = getClientArea();
+		if ((area.width < 2) || (area.height < 2))
+			return;
+
+		final double min = Math.min(0, buffer.getMin());
+		final double max = Double.isNaN(maximum) ? buffer.getMax() : maximum;
+		if (Double.isNaN(min) || Double.isNaN(max))
+			return;
+		final double range = max > min ? max - min : 1;
+
+		gc.setForeground(getForeground());
+		gc.setLineWidth(1);
+
+		// the newest value is always drawn at the right edge; unknown values break the line
+		final int capacity = buffer.getCapacity();
+		final int size = buffer.size();
+		final int[] points = new int[size * 2];
+		int length = 0;
+		for (int i = 0; i < size; i++) {
+			final double value = buffer.get(i);
+			if (Double.isNaN(value)) {
+				drawSegment(gc, points, length);
+				length = 0;
+				continue;
+			}
+			points[length++] = area.x + (int) Math.round(((double) ((capacity - size) + i) * (area.width - 1)) / (capacity - 1));
+			points[length++] = area.y + (area.height - 1) - (int) Math.round(((Math.min(max, Math.max(min, value)) - min) * (area.height - 1)) / range);
+		}
+		drawSegment(gc, points, length);
+	}
+
+	/**
+	 * Sets the buffer to draw.
+	 *
+	 * @param buffer
+	 *            the buffer (maybe <code>null</code>)
+	 */
+	public void setBuffer(final RingBuffer buffer) {
+		this.buffer = buffer;
+		redraw();
+	}
+
+	/**
+	 * Sets a fixed maximum (eg. <code>100</code> for percentages).
+	 *
+	 * @param maximum
+	 *            the maximum or {@link Double#NaN} to scale to the largest
+	 *            value
+	 */
+	public void setMaximum(final double maximum) {
+		this.maximum = maximum;
+		redraw();
+	}
+}
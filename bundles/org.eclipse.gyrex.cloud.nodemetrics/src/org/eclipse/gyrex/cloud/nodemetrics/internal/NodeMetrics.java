@@ -0,0 +1,140 @@
+/*******************************************************************************
+ * Copyright (c) 2013 AGETO Service GmbH and others.
+ * All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Contributors:
+ *     Gunnar Wagenknecht - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.gyrex.cloud.nodemetrics.internal;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Properties;
+
+import org.eclipse.gyrex.cloud.internal.zk.IZooKeeperLayout;
+
+import org.eclipse.core.runtime.IPath;
+
+import org.apache.commons.lang.math.NumberUtils;
+
+/**
+ * A sample of runtime metrics of a single node.
+ * <p>
+ * Samples are published by each node into ZooKeeper as a small properties
+ * record. Values which are not available on a node are reported as
+ * <code>-1</code>.
+ * </p>
+ */
+public final class NodeMetrics {
+
+	/** ZooKeeper path below which each node publishes its metrics */
+	public static final IPath PATH_NODE_METRICS = IZooKeeperLayout.PATH_GYREX_ROOT.append("admin").append("nodemetrics").makeAbsolute();
+
+	public static final String TIMESTAMP = "timestamp";
+	public static final String UPTIME = "uptime";
+	public static final String HEAP_USED = "heap.used";
+	public static final String HEAP_COMMITTED = "heap.committed";
+	public static final String HEAP_MAX = "heap.max";
+	public static final String NON_HEAP_USED = "nonheap.used";
+	public static final String GC_COUNT = "gc.count";
+	public static final String GC_TIME = "gc.time";
+	public static final String THREADS_LIVE = "threads.live";
+	public static final String THREADS_PEAK = "threads.peak";
+	public static final String SYSTEM_LOAD = "system.load";
+	public static final String PROCESSORS = "system.processors";
+	public static final String JETTY_THREADS_BUSY = "jetty.threads.busy";
+	public static final String JETTY_THREADS_MAX = "jetty.threads.max";
+
+	/**
+	 * Reads a sample from its record data.
+	 *
+	 * @param data
+	 *            the record data
+	 * @return the sample
+	 * @throws IOException
+	 *             if the data could not be read
+	 */
+	public static NodeMetrics fromByteArray(final byte[] data) throws IOException {
+		final Properties properties = new Properties();
+		properties.load(new ByteArrayInputStream(data));
+		return new NodeMetrics(properties);
+	}
+
+	private final Properties values;
+
+	/**
+	 * Creates a new, empty sample.
+	 */
+	public NodeMetrics() {
+		this(new Properties());
+	}
+
+	private NodeMetrics(final Properties values) {
+		this.values = values;
+	}
+
+	/**
+	 * Returns a value.
+	 *
+	 * @param key
+	 *            the key
+	 * @return the value or <code>-1</code> if not available
+	 */
+	public double get(final String key) {
+		return NumberUtils.toDouble(values.getProperty(key), -1);
+	}
+
+	/**
+	 * Returns a value.
+	 *
+	 * @param key
+	 *            the key
+	 * @return the value or <code>-1</code> if not available
+	 */
+	public long getLong(final String key) {
+		return NumberUtils.toLong(values.getProperty(key), -1);
+	}
+
+	/**
+	 * Returns the time the sample was taken.
+	 *
+	 * @return the timestamp in milliseconds
+	 */
+	public long getTimestamp() {
+		return getLong(TIMESTAMP);
+	}
+
+	void set(final String key, final double value) {
+		values.setProperty(key, String.valueOf(value));
+	}
+
+	void set(final String key, final long value) {
+		values.setProperty(key, String.valueOf(value));
+	}
+
+	/**
+	 * Writes the sample into record data.
+	 *
+	 * @return the record data
+	 */
+	public byte[] toByteArray() {
+		final ByteArrayOutputStream out = new ByteArrayOutputStream(512);
+		try {
+			values.store(out, null);
+		} catch (final IOException e) {
+			// not possible with a byte array
+			throw new IllegalStateException(e);
+		}
+		return out.toByteArray();
+	}
+
+	@Override
+	public String toString() {
+		return values.toString();
+	}
+}
@@ -0,0 +1,184 @@
+/*******************************************************************************
+ * Copyright (c) 2013 AGETO Service GmbH and others.
+ * All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Contributors:
+ *     Gunnar Wagenknecht - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.gyrex.cloud.nodemetrics.internal;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryUsage;
+import java.lang.management.ThreadMXBean;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.eclipse.gyrex.cloud.environment.INodeEnvironment;
+import org.eclipse.gyrex.cloud.internal.zk.ZooKeeperGate;
+
+import org.eclipse.core.runtime.IPath;
+
+import org.apache.commons.lang.math.NumberUtils;
+import org.apache.zookeeper.CreateMode;
+
+/**
+ * Periodically samples runtime metrics of the local node and publishes them
+ * into ZooKeeper.
+ * <p>
+ * Sampling only reads values the JVM already maintains (memory, garbage
+ * collection, threads, system load) and the thread pools Jetty registers with
+ * the platform MBean server. The sample is written into an ephemeral znode
+ * below {@link NodeMetrics#PATH_NODE_METRICS}, so it disappears with the node
+ * session.
+ * </p>
+ * <p>
+ * The publisher is an immediate DS component so that every node publishes,
+ * not only nodes where someone uses the admin console.
+ * </p>
+ * <p>
+ * The interval (in seconds) may be configured using the system property
+ * <code>{@value #PROPERTY_INTERVAL}</code>.
+ * </p>
+ */
+public class NodeMetricsPublisher {
+
+	/** system property for configuring the publish interval in seconds */
+	public static final String PROPERTY_INTERVAL = "gyrex.admin.nodemetrics.interval";
+
+	/** default publish interval in seconds */
+	public static final int DEFAULT_INTERVAL = 5;
+
+	private static final String JETTY_THREAD_POOLS = "org.eclipse.jetty.util.thread:type=queuedthreadpool,*";
+
+	static NodeMetrics sample() {
+		final NodeMetrics metrics = new NodeMetrics();
+		metrics.set(NodeMetrics.TIMESTAMP, System.currentTimeMillis());
+		metrics.set(NodeMetrics.UPTIME, ManagementFactory.getRuntimeMXBean().getUptime());
+
+		final MemoryUsage heap = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage();
+		metrics.set(NodeMetrics.HEAP_USED, heap.getUsed());
+		metrics.set(NodeMetrics.HEAP_COMMITTED, heap.getCommitted());
+		metrics.set(NodeMetrics.HEAP_MAX, heap.getMax());
+		metrics.set(NodeMetrics.NON_HEAP_USED, ManagementFactory.getMemoryMXBean().getNonHeapMemoryUsage().getUsed());
+
+		long gcCount = 0, gcTime = 0;
+		for (final GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+			gcCount += Math.max(0, gc.getCollectionCount());
+			gcTime += Math.max(0, gc.getCollectionTime());
+		}
+		metrics.set(NodeMetrics.GC_COUNT, gcCount);
+		metrics.set(NodeMetrics.GC_TIME, gcTime);
+
+		final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+		metrics.set(NodeMetrics.THREADS_LIVE, threads.getThreadCount());
+		metrics.set(NodeMetrics.THREADS_PEAK, threads.getPeakThreadCount());
+
+		metrics.set(NodeMetrics.SYSTEM_LOAD, ManagementFactory.getOperatingSystemMXBean().getSystemLoadAverage());
+		metrics.set(NodeMetrics.PROCESSORS, ManagementFactory.getOperatingSystemMXBean().getAvailableProcessors());
+
+		sampleJettyThreadPools(metrics);
+
+		return metrics;
+	}
+
+	private static void sampleJettyThreadPools(final NodeMetrics metrics) {
+		try {
+			final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+			final Set<ObjectName> pools = server.queryNames(new ObjectName(JETTY_THREAD_POOLS), null);
+			if (pools.isEmpty())
+				return;
+
+			long busy = 0, max = 0;
+			for (final ObjectName pool : pools) {
+				final long threads = NumberUtils.toLong(String.valueOf(server.getAttribute(pool, "threads")), 0);
+				final long idle = NumberUtils.toLong(String.valueOf(server.getAttribute(pool, "idleThreads")), 0);
+				busy += Math.max(0, threads - idle);
+				max += NumberUtils.toLong(String.valueOf(server.getAttribute(pool, "maxThreads")), 0);
+			}
+			metrics.set(NodeMetrics.JETTY_THREADS_BUSY, busy);
+			metrics.set(NodeMetrics.JETTY_THREADS_MAX, max);
+		} catch (final Exception e) {
+			// Jetty JMX not available or changed; report as not available
+		}
+	}
+
+	private ScheduledExecutorService executor;
+	private volatile IPath publishedPath;
+	private volatile INodeEnvironment nodeEnvironment;
+
+	void publish() {
+		try {
+			final IPath path = NodeMetrics.PATH_NODE_METRICS.append(nodeEnvironment.getNodeId());
+			ZooKeeperGate.get().writeRecord(path, CreateMode.EPHEMERAL, sample().toByteArray());
+			publishedPath = path;
+		} catch (final Exception e) {
+			// not connected or inactive; the next sample will be published when possible
+		}
+	}
+
+	/**
+	 * Injects the node environment.
+	 *
+	 * @param nodeEnvironment
+	 *            the node environment
+	 */
+	public void setNodeEnvironment(final INodeEnvironment nodeEnvironment) {
+		this.nodeEnvironment = nodeEnvironment;
+	}
+
+	/**
+	 * Starts publishing.
+	 */
+	public synchronized void start() {
+		if (null != executor)
+			return;
+
+		final int interval = Math.max(1, NumberUtils.toInt(System.getProperty(PROPERTY_INTERVAL), DEFAULT_INTERVAL));
+		executor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+			@Override
+			public Thread newThread(final Runnable r) {
+				final Thread t = new Thread(r, "Node Metrics Publisher");
+				t.setDaemon(true);
+				return t;
+			}
+		});
+		executor.scheduleWithFixedDelay(new Runnable() {
+			@Override
+			public void run() {
+				publish();
+			}
+		}, interval, interval, TimeUnit.SECONDS);
+	}
+
+	/**
+	 * Stops publishing and removes the published sample.
+	 */
+	public synchronized void stop() {
+		if (null == executor)
+			return;
+
+		executor.shutdownNow();
+		executor = null;
+
+		final IPath path = publishedPath;
+		if (null == path)
+			return;
+		publishedPath = null;
+		try {
+			ZooKeeperGate.get().deletePath(path);
+		} catch (final Exception e) {
+			// ignore; the ephemeral node goes away with the session anyway
+		}
+	}
+}